@@ -0,0 +1,124 @@
+package minijava.bench;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+import minijava.main.SourceReader;
+import minijava.node.Start;
+import minijava.printer.AstSerializer;
+
+/**
+ * Compares getting an AST by parsing the source text from a memory-mapped
+ * file with reading the binary form of the {@link AstSerializer} from a byte
+ * array and from a memory-mapped file, and reports the time of writing the
+ * binary form and the sizes of the source and of the binary form.
+ *
+ * Usage: AstSerializationBenchmark [classes] - default 1000.
+ */
+public class AstSerializationBenchmark {
+
+	/** number of untimed runs per variant */
+	private static final int WARMUP = 10;
+
+	/** number of timed runs per variant */
+	private static final int RUNS = 15;
+
+	/**
+	 * @param args
+	 *            an optional number of classes of the generated program
+	 * @throws Exception
+	 *             if the program cannot be parsed or written
+	 */
+	public static void main(String[] args) throws Exception {
+		int classes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		String source = new ProgramGenerator(classes, 3, 4, 8, 3, 4).generate();
+		final File sourceFile = File.createTempFile("minijava-bench", ".java");
+		sourceFile.deleteOnExit();
+		Files.write(sourceFile.toPath(), source.getBytes());
+
+		final Start ast = Main.parseToAST(source);
+		final byte[] bytes = AstSerializer.serialize(ast);
+		final File astFile = File.createTempFile("minijava-bench", ".ast");
+		astFile.deleteOnExit();
+		Files.write(astFile.toPath(), bytes);
+
+		System.out.printf("Input: %d classes, %d lines, source %d KiB, binary AST %d KiB%n", classes,
+				new SourceReader(source).lineCount(), sourceFile.length() / 1024, bytes.length / 1024);
+		report("parse source file", new Step() {
+			@Override
+			public Object run() throws Exception {
+				return Main.parseToAST(sourceFile);
+			}
+		});
+		report("serialize", new Step() {
+			@Override
+			public Object run() {
+				return AstSerializer.serialize(ast);
+			}
+		});
+		report("deserialize bytes", new Step() {
+			@Override
+			public Object run() throws Exception {
+				return AstSerializer.deserialize(ByteBuffer.wrap(bytes));
+			}
+		});
+		report("deserialize mapped", new Step() {
+			@Override
+			public Object run() throws Exception {
+				return AstSerializer.deserialize(astFile);
+			}
+		});
+	}
+
+	/** one timed step */
+	private interface Step {
+		/**
+		 * @return a result, to keep the work alive
+		 * @throws Exception
+		 *             if the step fails
+		 */
+		Object run() throws Exception;
+	}
+
+	/**
+	 * Print the median time of a step
+	 *
+	 * @param name
+	 *            the name of the step
+	 * @param step
+	 *            the step
+	 * @throws Exception
+	 *             if the step fails
+	 */
+	private static void report(String name, Step step) throws Exception {
+		System.out.printf("%-20s %8.2f ms%n", name, median(step) / 1e6);
+	}
+
+	/**
+	 * @param step
+	 *            a step
+	 * @return the median time of the timed runs in nanoseconds
+	 * @throws Exception
+	 *             if the step fails
+	 */
+	private static long median(Step step) throws Exception {
+		long[] times = new long[RUNS];
+		int sink = 0;
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			sink += step.run().hashCode() & 1;
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		if (sink < 0) {
+			throw new AssertionError();
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2];
+	}
+}
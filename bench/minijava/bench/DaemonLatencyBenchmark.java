@@ -0,0 +1,122 @@
+package minijava.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import minijava.main.CompileClient;
+import minijava.main.CompileServer;
+
+/**
+ * Compares the latency of checking a small file with a fresh JVM running
+ * Main --check, with a fresh JVM running the {@link CompileClient} against a
+ * warm {@link CompileServer}, and with a request from a running JVM to the
+ * server. The server runs in this JVM on a free port.
+ *
+ * Usage: DaemonLatencyBenchmark [file] - default
+ * testdata/typechecker/ok/Factorial.java.
+ */
+public class DaemonLatencyBenchmark {
+
+	/** number of untimed runs per variant */
+	private static final int WARMUP = 3;
+
+	/** number of timed runs per variant */
+	private static final int RUNS = 11;
+
+	/** number of untimed in-process requests */
+	private static final int REQUEST_WARMUP = 200;
+
+	/** number of timed in-process requests */
+	private static final int REQUEST_RUNS = 101;
+
+	/**
+	 * @param args
+	 *            an optional file name
+	 * @throws Exception
+	 *             if the server cannot be started or a run fails
+	 */
+	public static void main(String[] args) throws Exception {
+		String file = new File(args.length > 0 ? args[0] : "testdata/typechecker/ok/Factorial.java").getAbsolutePath();
+		final CompileServer server = new CompileServer(0, null);
+		server.warmUp();
+		Thread serving = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				server.serve();
+			}
+		});
+		serving.start();
+		try {
+			String port = Integer.toString(server.getPort());
+			System.out.println("Input: " + file);
+			System.out.printf("%-28s %8.1f ms%n", "new JVM, Main --check", processMillis("minijava.main.Main",
+					"--check", file));
+			System.out.printf("%-28s %8.1f ms%n", "new JVM, CompileClient", processMillis(
+					"minijava.main.CompileClient", "--port", port, "check", file));
+			System.out.printf("%-28s %8.2f ms%n", "request from a running JVM", requestMillis(server.getPort(),
+					file));
+		} finally {
+			server.stop();
+			serving.join();
+		}
+	}
+
+	/**
+	 * @param args
+	 *            the main class and the arguments of a new JVM with the class
+	 *            path of this one
+	 * @return the median wall clock time of running the JVM in milliseconds
+	 * @throws Exception
+	 *             if the JVM cannot be started or fails
+	 */
+	private static double processMillis(String... args) throws Exception {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.addAll(Arrays.asList(args));
+		File output = File.createTempFile("minijava-bench", ".txt");
+		output.deleteOnExit();
+		long[] times = new long[RUNS];
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output).start();
+			if (process.waitFor() != 0) {
+				throw new IllegalStateException("Failed: " + command);
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2] / 1e6;
+	}
+
+	/**
+	 * @param port
+	 *            the port of the server
+	 * @param file
+	 *            the file to check
+	 * @return the median time of a check request in milliseconds
+	 * @throws Exception
+	 *             if a request fails
+	 */
+	private static double requestMillis(int port, String file) throws Exception {
+		List<String> request = Arrays.asList("check", file);
+		long[] times = new long[REQUEST_RUNS];
+		for (int i = -REQUEST_WARMUP; i < REQUEST_RUNS; i++) {
+			long start = System.nanoTime();
+			if (CompileClient.send(port, request, new ByteArrayOutputStream()) != 0) {
+				throw new IllegalStateException("Failed: " + request);
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		return times[REQUEST_RUNS / 2] / 1e6;
+	}
+}
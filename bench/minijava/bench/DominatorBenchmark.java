@@ -0,0 +1,80 @@
+package minijava.bench;
+
+import java.util.Arrays;
+
+import minijava.analysis.TypeChecker;
+import minijava.ir.ControlFlowGraph;
+import minijava.ir.DominatorTree;
+import minijava.ir.IrLowering;
+import minijava.ir.IrMethod;
+import minijava.main.Main;
+
+/**
+ * Measures building the control-flow graph, the dominator tree and the
+ * dominance frontiers of one method with a growing number of statements, to
+ * check that the time per block stays about the same. The statements are if
+ * statements with && conditions and while loops nested three deep.
+ *
+ * Usage: DominatorBenchmark [statements] - default 80000, the largest of
+ * five sizes that double.
+ */
+public class DominatorBenchmark {
+
+	/** number of untimed runs per size */
+	private static final int WARMUP = 20;
+
+	/** number of timed runs per size */
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args
+	 *            an optional number of statements of the largest method
+	 * @throws Exception
+	 *             if the program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int largest = args.length > 0 ? Integer.parseInt(args[0]) : 80000;
+		for (int statements = largest / 16; statements <= largest; statements *= 2) {
+			IrMethod method = new IrLowering(TypeChecker.typecheckOrFail(Main.parseToAST(generate(statements))))
+					.lower().getClasses().get(0).getMethods().get(0);
+			long[] times = new long[RUNS];
+			int blocks = 0;
+			for (int i = -WARMUP; i < RUNS; i++) {
+				long start = System.nanoTime();
+				ControlFlowGraph cfg = new ControlFlowGraph(method);
+				DominatorTree tree = new DominatorTree(cfg);
+				for (int b = 0; b < cfg.size(); b++) {
+					tree.getFrontier(b);
+				}
+				if (i >= 0) {
+					times[i] = System.nanoTime() - start;
+				}
+				blocks = cfg.size();
+			}
+			Arrays.sort(times);
+			long median = times[RUNS / 2];
+			System.out.printf("%7d statements %7d blocks %8.2f ms %6.0f ns/block%n", statements, blocks,
+					median / 1e6, (double) median / blocks);
+		}
+	}
+
+	/**
+	 * @param statements
+	 *            the number of statements
+	 * @return a program with one method of about that many statements
+	 */
+	private static String generate(int statements) {
+		StringBuilder sb = new StringBuilder("class M { public static void main(String[] a) {"
+				+ " System.out.println(new A().run()); } }\nclass A { public int run() { int x; int i;\n");
+		for (int k = 0; k < statements; k += 4) {
+			if (k % 8 == 0) {
+				sb.append("if (x < ").append(k).append(" && !(i < x)) x = x + 1; else x = x - 1;\n");
+			} else {
+				sb.append("while (i < ").append(k).append(") { while (x < i) { if (x < 1) x = x + 1;")
+						.append(" else i = i + 1; } i = i + 1; }\n");
+			}
+		}
+		sb.append("return x; } }\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,60 @@
+package minijava.bench;
+
+import java.util.Arrays;
+
+import minijava.analysis.FusedAnalyser;
+import minijava.analysis.MjAnalyser;
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+import minijava.node.AProgram;
+
+/**
+ * Compares the MjAnalyser, which walks the AST once for the names and once
+ * for the types, with the single pass FusedAnalyser on generated programs of
+ * growing size. Both times include constructing the analyser and checking the
+ * whole program.
+ *
+ * Usage: FusedAnalysisBenchmark [maxClasses] - default 4096.
+ */
+public class FusedAnalysisBenchmark {
+
+	/** number of untimed runs per size */
+	private static final int WARMUP = 10;
+
+	/** number of timed runs per size */
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args
+	 *            an optional maximal number of classes
+	 * @throws Exception
+	 *             if a generated program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxClasses = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		System.out.println("  classes    lines   two pass ms      fused ms  speedup");
+		for (int classes = 64; classes <= maxClasses; classes *= 4) {
+			String source = new ProgramGenerator(classes, 3, 4, 8, 3, 4).generate();
+			AProgram program = (AProgram) Main.parseToAST(source).getPProgram();
+			long[] twoPass = new long[RUNS];
+			long[] fused = new long[RUNS];
+			for (int i = -WARMUP; i < RUNS; i++) {
+				long start = System.nanoTime();
+				new MjAnalyser(program).checkProgram();
+				long middle = System.nanoTime();
+				new FusedAnalyser(program).checkProgram();
+				long end = System.nanoTime();
+				if (i >= 0) {
+					twoPass[i] = middle - start;
+					fused[i] = end - middle;
+				}
+			}
+			Arrays.sort(twoPass);
+			Arrays.sort(fused);
+			double twoPassMs = twoPass[RUNS / 2] / 1e6;
+			double fusedMs = fused[RUNS / 2] / 1e6;
+			System.out.printf("%9d %8d %13.3f %13.3f %8.2f%n", classes, source.split("\n").length, twoPassMs,
+					fusedMs, twoPassMs / fusedMs);
+		}
+	}
+}
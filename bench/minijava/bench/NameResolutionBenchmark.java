@@ -0,0 +1,71 @@
+package minijava.bench;
+
+import java.util.Arrays;
+
+import minijava.analysis.NameAnalyser;
+import minijava.main.Main;
+import minijava.node.AProgram;
+import minijava.node.Start;
+
+/**
+ * Measures how the construction of a NameAnalyser scales with the number of
+ * local variables of a method. Each generated method declares n locals and
+ * uses every one of them three times.
+ *
+ * Usage: NameResolutionBenchmark [maxLocals]
+ */
+public class NameResolutionBenchmark {
+
+	/** number of untimed runs per size */
+	private static final int WARMUP = 5;
+
+	/** number of timed runs per size */
+	private static final int RUNS = 10;
+
+	/**
+	 * @param args
+	 *            an optional maximal number of locals, default 8000
+	 * @throws Exception
+	 *             if a generated program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxLocals = args.length > 0 ? Integer.parseInt(args[0]) : 8000;
+		System.out.println("   locals   uses      ms   ns/use");
+		for (int n = 250; n <= maxLocals; n *= 2) {
+			Start ast = Main.parseToAST(program(n));
+			AProgram program = (AProgram) ast.getPProgram();
+			long[] times = new long[RUNS];
+			for (int i = -WARMUP; i < RUNS; i++) {
+				long start = System.nanoTime();
+				new NameAnalyser(program);
+				if (i >= 0) {
+					times[i] = System.nanoTime() - start;
+				}
+			}
+			Arrays.sort(times);
+			long median = times[RUNS / 2];
+			int uses = 3 * n;
+			System.out.printf("%9d %6d %7.2f %8.1f%n", n, uses, median / 1e6, (double) median / uses);
+		}
+	}
+
+	/**
+	 * @param locals
+	 *            the number of local variables of the method
+	 * @return a program with one method with the given number of locals
+	 */
+	static String program(int locals) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("class Main { public static void main(String[] a) { System.out.println(new A().run(1)); } }\n");
+		sb.append("class A {\n  int f;\n  public int run(int p) {\n");
+		for (int i = 0; i < locals; i++) {
+			sb.append("    int v").append(i).append(";\n");
+		}
+		for (int i = 0; i < locals; i++) {
+			sb.append("    v").append(i).append(" = v").append(i).append(" + p;\n");
+			sb.append("    f = v").append(i).append(";\n");
+		}
+		sb.append("    return f;\n  }\n}\n");
+		return sb.toString();
+	}
+}
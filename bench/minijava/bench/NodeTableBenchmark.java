@@ -0,0 +1,134 @@
+package minijava.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.NodeIds;
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+import minijava.node.AIdentifierExp;
+import minijava.node.AProgram;
+import minijava.node.PExp;
+import minijava.node.Start;
+import minijava.node.TId;
+
+/**
+ * Compares the analysis results kept in IdentityHashMaps with the ones kept
+ * in NodeTables on generated programs of growing size. For both variants it
+ * reports the heap retained by a checked MjAnalyser, measured after a full
+ * garbage collection, and the time of looking up the declaration of every
+ * variable use and the type of every expression. The retained heap and the
+ * build time of the NodeIds are reported separately, since the numbering can
+ * be shared by other side tables.
+ *
+ * Usage: NodeTableBenchmark [maxClasses] - default 1024.
+ */
+public class NodeTableBenchmark {
+
+	/** number of untimed lookup rounds */
+	private static final int WARMUP = 10;
+
+	/** number of timed lookup rounds */
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args
+	 *            an optional maximal number of classes
+	 * @throws Exception
+	 *             if a generated program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxClasses = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		System.out.printf("%8s %9s %10s %10s %10s %10s %10s %10s %10s%n", "classes", "nodes", "ids KB",
+				"ids ms", "maps KB", "tables KB", "maps ns", "tables ns", "lookups");
+		for (int classes = 64; classes <= maxClasses; classes *= 4) {
+			Start ast = Main.parseToAST(new ProgramGenerator(classes, 3, 4, 8, 3, 4).generate());
+			AProgram program = (AProgram) ast.getPProgram();
+			List<TId> uses = new ArrayList<TId>();
+			List<PExp> exps = new ArrayList<PExp>();
+			collect(program, uses, exps);
+
+			long before = usedHeap();
+			long start = System.nanoTime();
+			NodeIds ids = new NodeIds(ast);
+			double idsMs = (System.nanoTime() - start) / 1e6;
+			long idsBytes = usedHeap() - before;
+
+			before = usedHeap();
+			MjAnalyser maps = new MjAnalyser(program);
+			maps.checkProgram();
+			long mapsBytes = usedHeap() - before;
+			before = usedHeap();
+			MjAnalyser tables = new MjAnalyser(program, ids);
+			tables.checkProgram();
+			long tablesBytes = usedHeap() - before;
+
+			System.out.printf("%8d %9d %10d %10.2f %10d %10d %10.1f %10.1f %10d%n", classes, ids.size(),
+					idsBytes / 1024, idsMs, mapsBytes / 1024, tablesBytes / 1024, lookupNanos(maps, uses, exps),
+					lookupNanos(tables, uses, exps), uses.size() + exps.size());
+		}
+	}
+
+	/**
+	 * @param program
+	 *            a program
+	 * @param uses
+	 *            the list to add the names of all variable uses to
+	 * @param exps
+	 *            the list to add all expressions to
+	 */
+	private static void collect(AProgram program, List<TId> uses, List<PExp> exps) {
+		MjAnalyser analysis = new MjAnalyser(program);
+		analysis.checkProgram();
+		exps.addAll(analysis.getTypeAnalysis().getTypeCache().keySet());
+		for (PExp e : exps) {
+			if (e instanceof AIdentifierExp) {
+				uses.add(((AIdentifierExp) e).getName());
+			}
+		}
+	}
+
+	/**
+	 * @param analysis
+	 *            a checked analysis
+	 * @param uses
+	 *            the names of variable uses
+	 * @param exps
+	 *            expressions
+	 * @return the median time of one lookup in nanoseconds
+	 */
+	private static double lookupNanos(MjAnalyser analysis, List<TId> uses, List<PExp> exps) {
+		long[] times = new long[RUNS];
+		int found = 0;
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			for (TId use : uses) {
+				found += analysis.getNameAnalysis().lookupVar(use) != null ? 1 : 0;
+			}
+			for (PExp e : exps) {
+				found += analysis.getTypeAnalysis().getType(e) != null ? 1 : 0;
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		if (found == 0) {
+			throw new AssertionError("nothing found");
+		}
+		Arrays.sort(times);
+		return (double) times[RUNS / 2] / (uses.size() + exps.size());
+	}
+
+	/**
+	 * @return the used heap in bytes after a full garbage collection
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
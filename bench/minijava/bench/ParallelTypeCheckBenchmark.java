@@ -0,0 +1,83 @@
+package minijava.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.NameAnalyser;
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+import minijava.node.AProgram;
+
+/**
+ * Compares the sequential type check with the parallel one on pools of 1, 2,
+ * 4, ... threads. The program is generated with the given number of classes
+ * and 8 methods per class. The name analysis is done once up front, only
+ * checkProgram is timed. The speedup is relative to the sequential check, so
+ * the row of the pool with 1 thread shows the overhead of the tasks.
+ *
+ * Usage: ParallelTypeCheckBenchmark [classes] [maxThreads] - default 1024
+ * classes and 16 threads.
+ */
+public class ParallelTypeCheckBenchmark {
+
+	/** number of untimed runs per pool */
+	private static final int WARMUP = 10;
+
+	/** number of timed runs per pool */
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args
+	 *            an optional number of classes and maximal number of threads
+	 * @throws Exception
+	 *             if the generated program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int classes = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		String source = new ProgramGenerator(classes, 3, 8, 8, 3, 4).generate();
+		AProgram program = (AProgram) Main.parseToAST(source).getPProgram();
+		NameAnalyser nameAnalysis = new NameAnalyser(program);
+		System.out.printf("%d methods, %d available processors%n", classes * 8,
+				Runtime.getRuntime().availableProcessors());
+
+		double sequential = median(program, nameAnalysis, null);
+		System.out.println("  threads        ms  speedup");
+		System.out.printf("%9s %9.3f %8.2f%n", "seq", sequential, 1.0);
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			double ms = median(program, nameAnalysis, pool);
+			pool.shutdown();
+			System.out.printf("%9d %9.3f %8.2f%n", threads, ms, sequential / ms);
+		}
+	}
+
+	/**
+	 * @param program
+	 *            the program to check
+	 * @param nameAnalysis
+	 *            its name analysis
+	 * @param pool
+	 *            the pool of the parallel check, or null for the sequential
+	 *            check
+	 * @return the median time of checkProgram in milliseconds
+	 */
+	private static double median(AProgram program, NameAnalyser nameAnalysis, ForkJoinPool pool) {
+		long[] times = new long[RUNS];
+		for (int i = -WARMUP; i < RUNS; i++) {
+			MjAnalyser analysis = new MjAnalyser(program, nameAnalysis);
+			long start = System.nanoTime();
+			if (pool == null) {
+				analysis.checkProgram();
+			} else {
+				analysis.checkProgram(pool);
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2] / 1e6;
+	}
+}
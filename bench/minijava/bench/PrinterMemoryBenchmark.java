@@ -0,0 +1,117 @@
+package minijava.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import minijava.main.Main;
+import minijava.node.Start;
+import minijava.printer.AstPrinter;
+
+/**
+ * Compares the peak heap of printing an AST to a PrintStream the way Main
+ * used to, by building the whole string first, with streaming it through
+ * {@link AstPrinter#print(minijava.node.Node, Appendable)}. The output is
+ * discarded. The peaks are read from the heap memory pools, relative to the
+ * heap used by the parsed AST after a full garbage collection.
+ *
+ * AstPrinter only prints the main class of a program, so the input is a
+ * generated main class with one statement per line.
+ *
+ * Usage: PrinterMemoryBenchmark [lines] - default 100000.
+ */
+public class PrinterMemoryBenchmark {
+
+	/**
+	 * @param args
+	 *            an optional number of lines
+	 * @throws Exception
+	 *             if the program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Start ast = Main.parseToAST(generate(lines));
+		PrintStream sink = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+
+		System.out.printf("%d lines%n", lines);
+		for (int round = 0; round < 2; round++) {
+			long base = resetPeak();
+			long start = System.nanoTime();
+			sink.println(AstPrinter.print(ast));
+			report("string", base, start);
+
+			base = resetPeak();
+			start = System.nanoTime();
+			AstPrinter.print(ast, sink);
+			sink.println();
+			report("streaming", base, start);
+		}
+	}
+
+	/**
+	 * @param lines
+	 *            the number of lines
+	 * @return a program whose main class has about the given number of lines
+	 */
+	private static String generate(int lines) {
+		StringBuilder source = new StringBuilder();
+		source.append("class Main {\n\tpublic static void main(String[] args) {\n\t\tint x;\n");
+		for (int i = 0; i < lines - 5; i++) {
+			if (i % 2 == 0) {
+				source.append("\t\tx = x + ").append(i).append(" * (x - 1);\n");
+			} else {
+				source.append("\t\tSystem.out.println(x);\n");
+			}
+		}
+		source.append("\t}\n}\n");
+		return source.toString();
+	}
+
+	/**
+	 * @return the used heap in bytes after a full garbage collection, which
+	 *         is also the new peak of all heap pools
+	 */
+	private static long resetPeak() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the variant
+	 * @param base
+	 *            the used heap before the variant ran
+	 * @param start
+	 *            the start time of the variant
+	 */
+	private static void report(String name, long base, long start) {
+		double ms = (System.nanoTime() - start) / 1e6;
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		System.out.printf("%-10s peak heap %7.1f MiB, %7.1f MiB above the AST, %7.1f ms%n", name,
+				peak / 1048576.0, (peak - base) / 1048576.0, ms);
+	}
+}
@@ -0,0 +1,113 @@
+package minijava.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import minijava.generator.ProgramGenerator;
+import minijava.main.PhaseStats;
+
+/**
+ * Shows how each phase of the pipeline grows with the shape of the input.
+ * Starting from a base shape, one parameter of the {@link ProgramGenerator}
+ * is doubled at a time while the others keep their base value. For every
+ * program the median wall time of each phase is printed, and the factor by
+ * which the total grew compared to the previous row. A factor near 2 means
+ * linear growth, near 4 quadratic.
+ *
+ * Usage: ScalingReport [steps] - the number of doublings per parameter,
+ * default 5.
+ */
+public class ScalingReport {
+
+	/** number of untimed runs per program */
+	private static final int WARMUP = 3;
+
+	/** number of measured runs per program */
+	private static final int RUNS = 5;
+
+	/** the parameter names, in the order of the ProgramGenerator constructor */
+	private static final String[] PARAMETERS = { "classes", "depth", "methods", "locals", "nesting", "expr" };
+
+	/** the base shape */
+	private static final int[] BASE = { 32, 2, 4, 8, 2, 4 };
+
+	/**
+	 * @param args
+	 *            an optional number of doublings per parameter
+	 * @throws Exception
+	 *             if a generated program cannot be compiled
+	 */
+	public static void main(String[] args) throws Exception {
+		int steps = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		File file = File.createTempFile("minijava-scaling", ".java");
+		file.deleteOnExit();
+		for (int p = 0; p < PARAMETERS.length; p++) {
+			System.out.println();
+			System.out.printf("%-8s %6s %8s", PARAMETERS[p], "value", "lines");
+			List<PhaseStats.Phase> header = measure(file, BASE).getPhases();
+			for (PhaseStats.Phase phase : header) {
+				System.out.printf(" %13s", phase.getName());
+			}
+			System.out.printf(" %10s %6s%n", "total ms", "growth");
+
+			int[] shape = BASE.clone();
+			double previous = 0;
+			for (int step = 0; step <= steps; step++) {
+				String source = writeProgram(file, shape);
+				long[][] times = new long[header.size()][RUNS];
+				for (int i = -WARMUP; i < RUNS; i++) {
+					List<PhaseStats.Phase> phases = PhaseStats.measure(file).getPhases();
+					for (int k = 0; i >= 0 && k < phases.size(); k++) {
+						times[k][i] = phases.get(k).getNanos();
+					}
+				}
+				System.out.printf("%-8s %6d %8d", "", shape[p], source.split("\n").length);
+				double total = 0;
+				for (long[] phaseTimes : times) {
+					Arrays.sort(phaseTimes);
+					double ms = phaseTimes[RUNS / 2] / 1e6;
+					total += ms;
+					System.out.printf(" %13.3f", ms);
+				}
+				System.out.printf(" %10.3f %6s%n", total, previous > 0 ? String.format("%.2f", total / previous)
+						: "");
+				previous = total;
+				shape[p] = Math.max(1, shape[p] * 2);
+			}
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the file to write
+	 * @param shape
+	 *            the generator parameters
+	 * @return the generated program
+	 * @throws Exception
+	 *             if the file cannot be written
+	 */
+	private static String writeProgram(File file, int[] shape) throws Exception {
+		String source = new ProgramGenerator(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5]).generate();
+		try (Writer out = new FileWriter(file)) {
+			out.write(source);
+		}
+		return source;
+	}
+
+	/**
+	 * @param file
+	 *            the file to write the program to
+	 * @param shape
+	 *            the generator parameters
+	 * @return the measurements of one run of the pipeline
+	 * @throws Exception
+	 *             if the program cannot be compiled
+	 */
+	private static PhaseStats measure(File file, int[] shape) throws Exception {
+		writeProgram(file, shape);
+		return PhaseStats.measure(file);
+	}
+}
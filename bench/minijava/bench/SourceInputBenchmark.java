@@ -0,0 +1,132 @@
+package minijava.bench;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Writer;
+import java.util.Arrays;
+
+import minijava.lexer.Lexer;
+import minijava.main.Main;
+import minijava.main.SourceReader;
+import minijava.node.EOF;
+
+/**
+ * Compares lexing and parsing a file through a PushbackReader wrapping a
+ * FileReader with lexing and parsing it from a memory-mapped
+ * {@link SourceReader}.
+ *
+ * Usage: SourceInputBenchmark [file] - without a file a synthetic program of
+ * about 125k lines is generated.
+ */
+public class SourceInputBenchmark {
+
+	/** number of untimed runs per variant */
+	private static final int WARMUP = 5;
+
+	/** number of timed runs per variant */
+	private static final int RUNS = 10;
+
+	/**
+	 * @param args
+	 *            an optional file name
+	 * @throws Exception
+	 *             if the input cannot be read or parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		File file;
+		if (args.length > 0) {
+			file = new File(args[0]);
+		} else {
+			file = File.createTempFile("minijava-bench", ".java");
+			file.deleteOnExit();
+			writeSyntheticProgram(file, 5000);
+		}
+		System.out.println("Input: " + file + " (" + file.length() / 1024 + " KiB)");
+
+		report("lex   FileReader ", time(file, false, false), file);
+		report("lex   SourceReader", time(file, true, false), file);
+		report("parse FileReader ", time(file, false, true), file);
+		report("parse SourceReader", time(file, true, true), file);
+	}
+
+	/**
+	 * @param file
+	 *            the input
+	 * @param mapped
+	 *            true for the SourceReader, false for the FileReader
+	 * @param parse
+	 *            true to parse, false to only lex
+	 * @return the median time of the timed runs in nanoseconds
+	 * @throws Exception
+	 *             if the input cannot be read or parsed
+	 */
+	private static long time(File file, boolean mapped, boolean parse) throws Exception {
+		long[] times = new long[RUNS];
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			PushbackReader reader = mapped ? SourceReader.open(file) : new PushbackReader(new FileReader(file));
+			try {
+				if (parse) {
+					Main.parseToAST(reader);
+				} else {
+					Lexer lexer = new Lexer(reader);
+					while (!(lexer.next() instanceof EOF)) {
+						// only count tokens
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2];
+	}
+
+	/**
+	 * @param label
+	 *            the name of the variant
+	 * @param nanos
+	 *            the median time
+	 * @param file
+	 *            the input
+	 */
+	private static void report(String label, long nanos, File file) {
+		double seconds = nanos / 1e9;
+		System.out.printf("%s %8.1f ms %8.1f MiB/s%n", label, seconds * 1000,
+				file.length() / (1024.0 * 1024.0) / seconds);
+	}
+
+	/**
+	 * Write a valid MiniJava program with the given number of classes.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @param classes
+	 *            the number of classes besides the main class
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static void writeSyntheticProgram(File file, int classes) throws IOException {
+		try (Writer out = new FileWriter(file)) {
+			out.write("class Main {\n    public static void main(String[] a) {\n");
+			out.write("        System.out.println(new C0().run(10));\n    }\n}\n\n");
+			for (int c = 0; c < classes; c++) {
+				out.write("// class number " + c + "\n");
+				out.write("class C" + c + " {\n    int[] data;\n    int size;\n\n");
+				out.write("    public int run(int n) {\n        int i;\n        int sum;\n");
+				out.write("        /* fill the array and sum it up */\n");
+				out.write("        data = new int[n];\n        size = n;\n        i = 0;\n        sum = 0;\n");
+				out.write("        while (i < size) {\n            data[i] = i * 2 + 1;\n");
+				out.write("            if (!(data[i] < 10) && true)\n                sum = sum + data[i];\n");
+				out.write("            else\n                sum = sum - 1;\n            i = i + 1;\n        }\n");
+				out.write("        return sum + data.length;\n    }\n}\n\n");
+			}
+		}
+	}
+}
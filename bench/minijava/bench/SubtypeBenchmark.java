@@ -0,0 +1,94 @@
+package minijava.bench;
+
+import java.util.Arrays;
+
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.MjAnalysis;
+import minijava.analysis.types.MjType;
+import minijava.main.Main;
+import minijava.node.AAssignStmt;
+import minijava.node.AMainClass;
+import minijava.node.AProgram;
+import minijava.node.Start;
+
+/**
+ * Measures subtype checks on a generated inheritance chain
+ * C0 &lt;- C1 &lt;- ... &lt;- C(n-1), both in isolation and as part of
+ * checkProgram on a main method with many assignments across the chain.
+ *
+ * Usage: SubtypeBenchmark [depth]
+ */
+public class SubtypeBenchmark {
+
+	/** number of untimed rounds */
+	private static final int WARMUP = 5;
+
+	/** number of timed rounds */
+	private static final int RUNS = 10;
+
+	/** number of subtype checks per round */
+	private static final int CHECKS = 100000;
+
+	/**
+	 * @param args
+	 *            an optional depth of the chain, default 1000
+	 * @throws Exception
+	 *             if the generated program cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		Start ast = Main.parseToAST(program(depth));
+		AProgram program = (AProgram) ast.getPProgram();
+		MjAnalysis analysis = new MjAnalyser(program);
+		analysis.checkProgram();
+
+		AMainClass main = (AMainClass) program.getMain();
+		MjType root = analysis.getTypeAnalysis().getType(((AAssignStmt) main.getStms().get(0)).getLhs());
+		MjType leaf = analysis.getTypeAnalysis().getType(((AAssignStmt) main.getStms().get(0)).getRhs());
+
+		long[] times = new long[RUNS];
+		boolean result = true;
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			for (int j = 0; j < CHECKS; j++) {
+				result &= leaf.isSubtypeOf(root, analysis);
+				result &= !root.isSubtypeOf(leaf, analysis);
+			}
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		System.out.printf("depth %d: %.1f ns per subtype check (%b)%n", depth,
+				(double) times[RUNS / 2] / (2 * CHECKS), result);
+
+		for (int i = -WARMUP; i < RUNS; i++) {
+			long start = System.nanoTime();
+			new MjAnalyser(program).checkProgram();
+			if (i >= 0) {
+				times[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		System.out.printf("depth %d: %.2f ms per name analysis and checkProgram%n", depth, times[RUNS / 2] / 1e6);
+	}
+
+	/**
+	 * @param depth
+	 *            the length of the inheritance chain
+	 * @return a program with the chain and one assignment from every class
+	 *         to the root class
+	 */
+	static String program(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("class Main { public static void main(String[] a) {\n  C0 root;\n");
+		for (int i = depth - 1; i >= 0; i--) {
+			sb.append("  root = new C").append(i).append("();\n");
+		}
+		sb.append("} }\nclass C0 { }\n");
+		for (int i = 1; i < depth; i++) {
+			sb.append("class C").append(i).append(" extends C").append(i - 1).append(" { }\n");
+		}
+		return sb.toString();
+	}
+}
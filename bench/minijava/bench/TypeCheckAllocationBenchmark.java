@@ -0,0 +1,53 @@
+package minijava.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import minijava.analysis.MjAnalyser;
+import minijava.main.Main;
+import minijava.node.AProgram;
+import minijava.node.Start;
+
+/**
+ * Reports the bytes allocated by name analysis and type checking of the given
+ * programs, using the allocation counter of the current thread.
+ *
+ * Usage: TypeCheckAllocationBenchmark [files] - by default BinaryTree and
+ * TreeVisitor from testdata/typechecker/ok.
+ */
+public class TypeCheckAllocationBenchmark {
+
+	/** number of untimed runs per file */
+	private static final int WARMUP = 20;
+
+	/** number of measured runs per file */
+	private static final int RUNS = 20;
+
+	/**
+	 * @param args
+	 *            the files to check
+	 * @throws Exception
+	 *             if a file cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception {
+		String[] files = args.length > 0 ? args : new String[] {
+				"testdata/typechecker/ok/BinaryTree.java", "testdata/typechecker/ok/TreeVisitor.java" };
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		for (String file : files) {
+			Start ast = Main.parseToAST(new File(file));
+			AProgram program = (AProgram) ast.getPProgram();
+			long min = Long.MAX_VALUE;
+			for (int i = -WARMUP; i < RUNS; i++) {
+				long before = threads.getThreadAllocatedBytes(thread);
+				new MjAnalyser(program).checkProgram();
+				long allocated = threads.getThreadAllocatedBytes(thread) - before;
+				if (i >= 0) {
+					min = Math.min(min, allocated);
+				}
+			}
+			System.out.printf("%-40s %8d bytes per check%n", file, min);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package minijava.jmh;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import minijava.analysis.FusedAnalyser;
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.NameAnalyser;
+import minijava.analysis.TypeAnalysis;
+import minijava.generator.ProgramGenerator;
+import minijava.lexer.Lexer;
+import minijava.main.Main;
+import minijava.main.SourceReader;
+import minijava.node.AProgram;
+import minijava.node.EOF;
+import minijava.node.Start;
+import minijava.parser.Parser;
+import minijava.printer.AstPrinter;
+import minijava.printer.AstSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the compiler phases. Each phase is measured on its own:
+ * the inputs of later phases (AST, name analysis) are prepared once per
+ * trial.
+ *
+ * The input is either the name of a file in testdata/typechecker/ok or
+ * "synthetic-n" for a program with n classes from the {@link ProgramGenerator}.
+ *
+ * Run with: ant jmh -Djmh.args="CompilerBenchmark.parse -p input=synthetic-1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+	/** the prefix of generated inputs */
+	private static final String SYNTHETIC = "synthetic-";
+
+	/** the program to compile */
+	@Param({ "Factorial.java", "QuickSort.java", "LinkedList.java", "BinaryTree.java", "TreeVisitor.java",
+			"synthetic-100", "synthetic-1000" })
+	public String input;
+
+	/** the source text */
+	private String source;
+
+	/** the parsed and post checked program */
+	private Start ast;
+
+	/** the binary form of the AST */
+	private byte[] serialized;
+
+	/** the program node of the AST */
+	private AProgram program;
+
+	/** the name analysis of the program */
+	private NameAnalyser nameAnalysis;
+
+	/**
+	 * Read or generate the input and prepare the inputs of all phases
+	 *
+	 * @throws Exception
+	 *             if the input cannot be read or does not type check
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		if (input.startsWith(SYNTHETIC)) {
+			int classes = Integer.parseInt(input.substring(SYNTHETIC.length()));
+			source = new ProgramGenerator(classes, 3, 4, 8, 3, 4).generate();
+		} else {
+			byte[] bytes = Files.readAllBytes(new File("testdata/typechecker/ok", input).toPath());
+			source = new String(bytes, Charset.defaultCharset());
+		}
+		ast = Main.parseToAST(source);
+		serialized = AstSerializer.serialize(ast);
+		program = (AProgram) ast.getPProgram();
+		nameAnalysis = new NameAnalyser(program);
+		new MjAnalyser(program, nameAnalysis).checkProgram();
+	}
+
+	/**
+	 * @return the number of tokens
+	 * @throws Exception
+	 *             never for a valid input
+	 */
+	@Benchmark
+	public int lex() throws Exception {
+		Lexer lexer = new Lexer(new SourceReader(source));
+		int tokens = 0;
+		while (!(lexer.next() instanceof EOF)) {
+			tokens++;
+		}
+		return tokens;
+	}
+
+	/**
+	 * @return the AST, without post checking
+	 * @throws Exception
+	 *             never for a valid input
+	 */
+	@Benchmark
+	public Start parse() throws Exception {
+		return new Parser(new Lexer(new SourceReader(source))).parse();
+	}
+
+	/**
+	 * @return the AST read from its binary form
+	 * @throws Exception
+	 *             never for a valid input
+	 */
+	@Benchmark
+	public Start deserialize() throws Exception {
+		return AstSerializer.deserialize(ByteBuffer.wrap(serialized));
+	}
+
+	/**
+	 * @return a new name analysis of the program
+	 */
+	@Benchmark
+	public NameAnalyser nameAnalysis() {
+		return new NameAnalyser(program);
+	}
+
+	/**
+	 * @return the type analysis after checking the whole program
+	 */
+	@Benchmark
+	public TypeAnalysis typeCheck() {
+		MjAnalyser analysis = new MjAnalyser(program, nameAnalysis);
+		analysis.checkProgram();
+		return analysis.getTypeAnalysis();
+	}
+
+	/**
+	 * @return the type analysis after checking the methods in parallel on the
+	 *         common pool
+	 */
+	@Benchmark
+	public TypeAnalysis parallelTypeCheck() {
+		MjAnalyser analysis = new MjAnalyser(program, nameAnalysis);
+		analysis.checkProgram(ForkJoinPool.commonPool());
+		return analysis.getTypeAnalysis();
+	}
+
+	/**
+	 * @return the analysis after name analysis and type checking in two passes
+	 */
+	@Benchmark
+	public MjAnalyser analysis() {
+		MjAnalyser analysis = new MjAnalyser(program);
+		analysis.checkProgram();
+		return analysis;
+	}
+
+	/**
+	 * @return the analysis after name analysis and type checking in one pass
+	 */
+	@Benchmark
+	public FusedAnalyser fusedAnalysis() {
+		FusedAnalyser analysis = new FusedAnalyser(program);
+		analysis.checkProgram();
+		return analysis;
+	}
+
+	/**
+	 * @return the printed AST
+	 */
+	@Benchmark
+	public String print() {
+		return AstPrinter.print(ast);
+	}
+}
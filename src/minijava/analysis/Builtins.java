@@ -0,0 +1,32 @@
+package minijava.analysis;
+
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AMethodCallExp;
+import minijava.node.PExp;
+
+/**
+ * Recognizes the built-in constructs of MiniJava that are not resolved by the
+ * name analysis
+ */
+public final class Builtins {
+
+    private Builtins() {
+    }
+
+    /**
+     * @param exp some expression
+     * @return true iff the expression is a call of System.out.println
+     */
+    public static boolean isPrintln(PExp exp) {
+        if(!(exp instanceof AMethodCallExp) || !((AMethodCallExp) exp).getName().getText().equals("println")) {
+            return false;
+        }
+        PExp obj = ((AMethodCallExp) exp).getObj();
+        if(!(obj instanceof AFieldAccessExp) || !((AFieldAccessExp) obj).getName().getText().equals("out")) {
+            return false;
+        }
+        PExp obj2 = ((AFieldAccessExp) obj).getObj();
+        return obj2 instanceof AIdentifierExp && ((AIdentifierExp) obj2).getName().getText().equals("System");
+    }
+}
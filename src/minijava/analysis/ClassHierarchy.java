@@ -0,0 +1,105 @@
+package minijava.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import minijava.node.AClassDecl;
+import minijava.node.AProgram;
+import minijava.node.PClassDecl;
+
+/**
+ * Numbers the classes of a program in pre- and post-order of the inheritance
+ * forest, so that a subclass test is a constant time interval check: a class
+ * is a subclass of another iff its interval lies within the other's one.
+ */
+public class ClassHierarchy {
+
+    /**
+     * The pre- and post-order number of a class
+     */
+    private static final class Interval {
+        /** number assigned when the class is entered */
+        private int pre;
+        /** number assigned when all subclasses are done */
+        private int post;
+    }
+
+    /**
+     * The intervals of all classes that are reachable from a root class
+     */
+    private final IdentityHashMap<AClassDecl, Interval> intervals;
+
+
+    /**
+     * @param aProgram the program whose classes get numbered
+     * @param classIndex the index used to resolve the super classes
+     */
+    public ClassHierarchy(AProgram aProgram, ClassIndex classIndex) {
+        this.intervals = new IdentityHashMap<AClassDecl, Interval>();
+
+        IdentityHashMap<AClassDecl, List<AClassDecl>> subclasses = new IdentityHashMap<AClassDecl, List<AClassDecl>>();
+        List<AClassDecl> roots = new ArrayList<AClassDecl>();
+        for(PClassDecl decl : aProgram.getDecls()) {
+            AClassDecl classDecl = (AClassDecl) decl;
+            // an unresolved super class is a name error, the class becomes a root
+            AClassDecl superClass = classIndex.findSuperClass(classDecl);
+            if(superClass == null) {
+                roots.add(classDecl);
+            } else {
+                List<AClassDecl> children = subclasses.get(superClass);
+                if(children == null) {
+                    children = new ArrayList<AClassDecl>();
+                    subclasses.put(superClass, children);
+                }
+                children.add(classDecl);
+            }
+        }
+
+        // iterative depth first search, deep hierarchies must not overflow the stack
+        int counter = 0;
+        Deque<AClassDecl> stack = new ArrayDeque<AClassDecl>();
+        for(AClassDecl root : roots) {
+            stack.push(root);
+            while(!stack.isEmpty()) {
+                AClassDecl current = stack.peek();
+                Interval interval = intervals.get(current);
+                if(interval == null) {
+                    interval = new Interval();
+                    interval.pre = counter++;
+                    intervals.put(current, interval);
+                    List<AClassDecl> children = subclasses.get(current);
+                    if(children != null) {
+                        for(AClassDecl child : children) {
+                            stack.push(child);
+                        }
+                    }
+                } else {
+                    interval.post = counter++;
+                    stack.pop();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @param sub a class declaration
+     * @param sup another class declaration
+     * @return true iff sub is sup or inherits from it, directly or indirectly
+     */
+    public boolean isSubclassOf(AClassDecl sub, AClassDecl sup) {
+        if(sub == sup) {
+            return true;
+        }
+        Interval subInterval = intervals.get(sub);
+        Interval supInterval = intervals.get(sup);
+        if(subInterval == null || supInterval == null) {
+            // not reachable from a root class, i.e. part of an inheritance cycle
+            return false;
+        }
+        return supInterval.pre <= subInterval.pre && subInterval.post <= supInterval.post;
+    }
+}
@@ -0,0 +1,85 @@
+package minijava.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import minijava.node.AClassDecl;
+import minijava.node.AProgram;
+import minijava.node.PClassDecl;
+import minijava.node.TId;
+
+/**
+ * Index of all class declarations of a program by name, built once per program
+ */
+public class ClassIndex {
+
+    /**
+     * The class declarations by name
+     */
+    private final Map<String, AClassDecl> classes;
+
+
+    /**
+     * @param aProgram the program whose classes get indexed
+     */
+    public ClassIndex(AProgram aProgram) {
+        this.classes = new HashMap<String, AClassDecl>();
+        for(PClassDecl classDecl : aProgram.getDecls()) {
+            String name = ((AClassDecl) classDecl).getId().getText();
+            if(!classes.containsKey(name)) {
+                classes.put(name, (AClassDecl) classDecl);
+            }
+        }
+    }
+
+
+    /**
+     * @param name a class name
+     * @return the first class declaration with the given name, or null
+     */
+    public AClassDecl get(String name) {
+        return classes.get(name);
+    }
+
+    /**
+     * @param name a use of a class name
+     * @return the first class declaration with the given name, or null
+     */
+    public AClassDecl get(TId name) {
+        return classes.get(name.getText());
+    }
+
+    /**
+     * @param c a class declaration node
+     * @return the class declaration node of the super class or 'null' if there is no super class
+     * @throws TypeCheckingExpcetion when the super class could not be found
+     */
+    public AClassDecl getSuperClass(AClassDecl c) {
+        TId name = c.getSuper();
+        if(name == null) {
+            return null;
+        }
+        AClassDecl superClass = get(name);
+        if(superClass == null) {
+            throw new TypeCheckingExpcetion(name, "No suitable class declaration for '" + name + "' found.");
+        }
+        return superClass;
+    }
+
+    /**
+     * @param c a class declaration node
+     * @return the class declaration node of the super class or 'null' if there is
+     *         no super class or it could not be found
+     */
+    public AClassDecl findSuperClass(AClassDecl c) {
+        TId name = c.getSuper();
+        return name == null ? null : get(name);
+    }
+
+    /**
+     * @return the number of indexed classes
+     */
+    public int size() {
+        return classes.size();
+    }
+}
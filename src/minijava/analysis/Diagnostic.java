@@ -0,0 +1,50 @@
+package minijava.analysis;
+
+import minijava.node.Node;
+
+/**
+ * A name or type error found when the analysis collects all errors instead of
+ * throwing a {@link TypeCheckingExpcetion} on the first one. Unlike the
+ * exception it does not capture a stack trace.
+ */
+public final class Diagnostic {
+
+	/** the node where the error was found */
+	private final Node blame;
+
+	/** the error message */
+	private final String msg;
+
+	/**
+	 * @param blame
+	 *            the node where the error was found
+	 * @param msg
+	 *            the error message
+	 */
+	public Diagnostic(Node blame, String msg) {
+		this.blame = blame;
+		this.msg = msg;
+	}
+
+	/**
+	 * @return the node where the error was found
+	 */
+	public Node getBlame() {
+		return blame;
+	}
+
+	/**
+	 * @return the error message
+	 */
+	public String getMsg() {
+		return msg;
+	}
+
+	/**
+	 * @return the message in the same format as a TypeCheckingExpcetion
+	 */
+	@Override
+	public String toString() {
+		return "Error in line " + blame.getLine() + ": " + msg;
+	}
+}
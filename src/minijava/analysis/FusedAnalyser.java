@@ -0,0 +1,716 @@
+package minijava.analysis;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import minijava.analysis.types.MjBool;
+import minijava.analysis.types.MjClass;
+import minijava.analysis.types.MjInt;
+import minijava.analysis.types.MjIntArray;
+import minijava.analysis.types.MjType;
+import minijava.node.AAddExp;
+import minijava.node.AAndExp;
+import minijava.node.AArrayAllocExp;
+import minijava.node.AArrayLookupExp;
+import minijava.node.AAssignStmt;
+import minijava.node.ABoolType;
+import minijava.node.ACallStmt;
+import minijava.node.AClassDecl;
+import minijava.node.AClassType;
+import minijava.node.ACmpExp;
+import minijava.node.AFalseExp;
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AIfStmt;
+import minijava.node.AIntLiteralExp;
+import minijava.node.AIntType;
+import minijava.node.AIntarrayType;
+import minijava.node.AMainClass;
+import minijava.node.AMethodCallExp;
+import minijava.node.AMethodDecl;
+import minijava.node.AMultExp;
+import minijava.node.ANegExp;
+import minijava.node.ANotExp;
+import minijava.node.AObjAllocExp;
+import minijava.node.AProgram;
+import minijava.node.ASubExp;
+import minijava.node.AThisExp;
+import minijava.node.ATrueExp;
+import minijava.node.ATypedVar;
+import minijava.node.AWhileStmt;
+import minijava.node.Node;
+import minijava.node.PExp;
+import minijava.node.PMethodDecl;
+import minijava.node.PType;
+import minijava.node.PTypedVar;
+import minijava.node.Start;
+import minijava.node.TId;
+
+/**
+ * Resolves names and computes types in a single traversal of the program.
+ *
+ * The MjAnalyser walks the AST once with the NameVisitor and once more with
+ * the type checker, which asks the name analysis for every declaration. This
+ * analyser instead resolves each expression in its out-method, when the types
+ * of all subexpressions are already known, and checks it right away. Only the
+ * class names are indexed up front.
+ *
+ * It accepts and rejects the same programs as the MjAnalyser, but stops at the
+ * first error. Names and types are only available after {@link #checkProgram()}.
+ */
+public class FusedAnalyser implements MjAnalysis, NameAnalysis, TypeAnalysis {
+
+    /**
+     * The analysed program
+     */
+    private AProgram aProgram;
+
+    /**
+     * The class declarations by name
+     */
+    private ClassIndex classIndex;
+
+    /**
+     * The numbering of the class hierarchy for subclass tests
+     */
+    private ClassHierarchy classHierarchy;
+
+    private IdentityHashMap<AFieldAccessExp,  ATypedVar>    fieldDecls;
+    private IdentityHashMap< AMethodCallExp,AMethodDecl>   methodDecls;
+    private IdentityHashMap<            TId,  ATypedVar> variableDecls;
+
+    /**
+     * The fields of each class, including the inherited ones
+     */
+    private IdentityHashMap<AClassDecl, Scope> classScopes;
+
+    /**
+     * The methods of each class by name, including the inherited ones
+     */
+    private IdentityHashMap<AClassDecl, Map<String, AMethodDecl>> classMethods;
+
+    /**
+     * The canonical MjClass instance of each class
+     */
+    private IdentityHashMap<AClassDecl, MjClass> classTypes;
+
+    /**
+     * The type of every expression checked so far
+     */
+    private IdentityHashMap<PExp, MjType> typeCache;
+
+    /**
+     * Number of getType calls answered from the typeCache
+     */
+    private long cacheHits;
+
+    /**
+     * Number of types computed by the traversal
+     */
+    private long cacheMisses;
+
+
+    /**
+     * @param aProgram the program you want to analyse
+     */
+    public FusedAnalyser(AProgram aProgram) {
+        this.aProgram = aProgram;
+        this.classIndex = new ClassIndex(aProgram);
+        this.classHierarchy = new ClassHierarchy(aProgram, classIndex);
+        this.fieldDecls    = new IdentityHashMap<AFieldAccessExp,  ATypedVar>();
+        this.methodDecls   = new IdentityHashMap< AMethodCallExp,AMethodDecl>();
+        this.variableDecls = new IdentityHashMap<            TId,  ATypedVar>();
+        this.classScopes   = new IdentityHashMap<AClassDecl, Scope>();
+        this.classMethods  = new IdentityHashMap<AClassDecl, Map<String, AMethodDecl>>();
+        this.classTypes    = new IdentityHashMap<AClassDecl, MjClass>();
+        this.typeCache     = new IdentityHashMap<PExp, MjType>();
+    }
+
+
+    /**
+     * @return this analyser, which also resolves the names
+     */
+    @Override
+    public NameAnalysis getNameAnalysis() {
+        return this;
+    }
+
+    /**
+     * @return this analyser, which also computes the types
+     */
+    @Override
+    public TypeAnalysis getTypeAnalysis() {
+        return this;
+    }
+
+    /**
+     * Resolves all names and checks the complete program for errors
+     * @throws TypeCheckingExpcetion when there is a name or type error
+     */
+    @Override
+    public void checkProgram() {
+        checkProgram(aProgram);
+    }
+
+    /**
+     * @return the program which is analyzed
+     */
+    @Override
+    public AProgram getProgram() {
+        return aProgram;
+    }
+
+    /**
+     * Resolves all names and checks a whole program for type errors
+     * @param prog the program to check, the one given to the constructor
+     * @throws TypeCheckingExpcetion when there is a name or type error
+     */
+    @Override
+    public void checkProgram(AProgram prog) {
+        fieldDecls.clear();
+        methodDecls.clear();
+        variableDecls.clear();
+        typeCache.clear();
+        prog.apply(new FusedVisitor());
+    }
+
+
+    /**
+     * @param e some expression
+     * @return the type of the given expression
+     * @throws TypeCheckingExpcetion when the expression was not typed by
+     *         checkProgram, like the System.out of a println statement
+     */
+    @Override
+    public MjType getType(PExp e) {
+        MjType type = typeCache.get(e);
+        if(type == null) {
+            throw new TypeCheckingExpcetion(e, "No type for expression '" + e + "'.");
+        }
+        cacheHits++;
+        return type;
+    }
+
+    /**
+     * @return the types computed so far, by expression
+     */
+    @Override
+    public Map<PExp, MjType> getTypeCache() {
+        return Collections.unmodifiableMap(typeCache);
+    }
+
+    /**
+     * @return the number of getType calls answered from the cache
+     */
+    @Override
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return the number of types computed by checkProgram
+     */
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+
+    /**
+     * @param node a field access node
+     * @return the declaration node of the field
+     * @throws TypeCheckingExpcetion when the field could not be found
+     */
+    @Override
+    public ATypedVar getField(AFieldAccessExp node) {
+        ATypedVar field = fieldDecls.get(node);
+        if(field == null) {
+            throw new TypeCheckingExpcetion(node, "No suitable field declaration for '" + node.getName() + "' found.");
+        }
+        return field;
+    }
+
+    /**
+     * @param e a method call
+     * @return the method declaration corresponding to the method call
+     * @throws TypeCheckingExpcetion when the method could not be found
+     */
+    @Override
+    public AMethodDecl getMethod(AMethodCallExp e) {
+        AMethodDecl method = methodDecls.get(e);
+        if(method == null) {
+            throw new TypeCheckingExpcetion(e, "No suitable method declaration for '" + e.getName() + "' found.");
+        }
+        return method;
+    }
+
+    /**
+     * @param name a use of a variable name
+     * @return the declaration node of the variable
+     * @throws TypeCheckingExpcetion when the variable could not be found
+     */
+    @Override
+    public ATypedVar lookupVar(TId name) {
+        ATypedVar var = variableDecls.get(name);
+        if(var == null) {
+            throw new TypeCheckingExpcetion(name, "No suitable variable declaration for '" + name + "' found.");
+        }
+        return var;
+    }
+
+    /**
+     * @param name a use of a class name
+     * @return the class declaration corresponding to the given name
+     * @throws TypeCheckingExpcetion when the class could not be found
+     */
+    @Override
+    public AClassDecl lookupClass(TId name) {
+        AClassDecl classDecl = classIndex.get(name);
+        if(classDecl == null) {
+            throw new TypeCheckingExpcetion(name, "No suitable class declaration for '" + name + "' found.");
+        }
+        return classDecl;
+    }
+
+    /**
+     * @param node a field access node
+     * @return the declaration node of the field, or null if it could not be found
+     */
+    @Override
+    public ATypedVar findField(AFieldAccessExp node) {
+        return fieldDecls.get(node);
+    }
+
+    /**
+     * @param e a method call
+     * @return the method declaration corresponding to the method call, or null if it could not be found
+     */
+    @Override
+    public AMethodDecl findMethod(AMethodCallExp e) {
+        return methodDecls.get(e);
+    }
+
+    /**
+     * @param name a use of a variable name
+     * @return the declaration node of the variable, or null if it could not be found
+     */
+    @Override
+    public ATypedVar findVar(TId name) {
+        return variableDecls.get(name);
+    }
+
+    /**
+     * @param name a use of a class name
+     * @return the class declaration corresponding to the given name, or null if it could not be found
+     */
+    @Override
+    public AClassDecl findClass(TId name) {
+        return classIndex.get(name);
+    }
+
+    /**
+     * @param c a class declaration node
+     * @return the class declaration node of the super class or 'null' if there is no super class
+     */
+    @Override
+    public AClassDecl getSuperClass(AClassDecl c) {
+        return classIndex.getSuperClass(c);
+    }
+
+    /**
+     * @param sub a class declaration node
+     * @param sup another class declaration node
+     * @return true iff sub is sup or a direct or indirect subclass of sup
+     */
+    @Override
+    public boolean isSubclassOf(AClassDecl sub, AClassDecl sup) {
+        return classHierarchy.isSubclassOf(sub, sup);
+    }
+
+    /**
+     * @param node some AST node
+     * @return the nearest class declaration for the given node, or null if the given node is not within a class
+     */
+    @Override
+    public AClassDecl getNearestClass(Node node) {
+        Node iter = node;
+        while(! (iter instanceof Start)) {
+            if(iter instanceof AClassDecl) {
+                return (AClassDecl) iter;
+            }
+            iter = iter.parent();
+        }
+        return null;
+    }
+
+
+    /**
+     * @param c a class declaration
+     * @return the scope with all fields of the class, including the inherited ones
+     * @throws TypeCheckingExpcetion when the inheritance is cyclic
+     */
+    private Scope getClassScope(AClassDecl c) {
+        Scope scope = classScopes.get(c);
+        if(scope == null) {
+            if(classScopes.containsKey(c)) {
+                throw new TypeCheckingExpcetion(c, "Cyclic inheritance involving '" + c.getId().getText() + "'.");
+            }
+            classScopes.put(c, null);
+            scope = new Scope(null);
+            scope.declareAll(c.getFields());
+            AClassDecl superClass = classIndex.getSuperClass(c);
+            if(superClass != null) {
+                scope.inherit(getClassScope(superClass));
+            }
+            classScopes.put(c, scope);
+        }
+        return scope;
+    }
+
+    /**
+     * @param c a class declaration
+     * @return the methods of the class by name, including the inherited ones
+     * @throws TypeCheckingExpcetion when the inheritance is cyclic
+     */
+    private Map<String, AMethodDecl> getClassMethods(AClassDecl c) {
+        Map<String, AMethodDecl> methods = classMethods.get(c);
+        if(methods == null) {
+            if(classMethods.containsKey(c)) {
+                throw new TypeCheckingExpcetion(c, "Cyclic inheritance involving '" + c.getId().getText() + "'.");
+            }
+            classMethods.put(c, null);
+            AClassDecl superClass = classIndex.getSuperClass(c);
+            methods = superClass == null ? new HashMap<String, AMethodDecl>()
+                    : new HashMap<String, AMethodDecl>(getClassMethods(superClass));
+            // backwards, so that the first declaration of a name wins
+            List<PMethodDecl> own = c.getMethods();
+            for(int i = own.size() - 1; i >= 0; i--) {
+                AMethodDecl method = (AMethodDecl) own.get(i);
+                methods.put(method.getName().getText(), method);
+            }
+            classMethods.put(c, methods);
+        }
+        return methods;
+    }
+
+    /**
+     * @param classDecl a class declaration
+     * @return the canonical type of the class
+     */
+    private MjClass classType(AClassDecl classDecl) {
+        MjClass type = classTypes.get(classDecl);
+        if(type == null) {
+            type = new MjClass(classDecl);
+            classTypes.put(classDecl, type);
+        }
+        return type;
+    }
+
+    /**
+     * @param t a PType
+     * @return a MjType
+     * @throws TypeCheckingExpcetion when a class type could not be resolved
+     */
+    private MjType pTypeToMjType(PType t) {
+        if(t instanceof ABoolType) {
+            return MjBool.INSTANCE;
+        }
+        if(t instanceof AClassType) {
+            return classType(lookupClass(((AClassType) t).getName()));
+        }
+        if(t instanceof AIntType) {
+            return MjInt.INSTANCE;
+        }
+        if(t instanceof AIntarrayType) {
+            return MjIntArray.INSTANCE;
+        }
+        throw new RuntimeException("Unknown subclass of PType: " + t);
+    }
+
+
+    /**
+     * Visitor that resolves the names of every expression after its
+     * subexpressions, and then computes and checks its type
+     */
+    private class FusedVisitor extends DepthFirstAdapter
+    {
+        private Scope currentScope;
+        private AClassDecl currentClass;
+
+        /**
+         * @param e an expression
+         * @param type its type
+         */
+        private void setType(PExp e, MjType type) {
+            cacheMisses++;
+            typeCache.put(e, type);
+        }
+
+        /**
+         * @param e an expression that was visited already
+         * @return its type
+         */
+        private MjType typeOf(PExp e) {
+            return typeCache.get(e);
+        }
+
+        /**
+         * Check if an argument has the expected type
+         * @param context a context for the possible exception
+         * @param argument the expression that gets checked
+         * @param argumentName a name for the argument
+         * @param expected the expected type of the argument
+         * @throws TypeCheckingExpcetion when there is a type error
+         */
+        private void check(Node context, PExp argument, String argumentName, MjType expected) {
+            MjType argType = typeOf(argument);
+            if(! argType.isSubtypeOf(expected, FusedAnalyser.this)) {
+                throw new TypeCheckingExpcetion(context, argumentName + " should have type " + expected + " but has type " + argType + ".");
+            }
+        }
+
+        /**
+         * @param obj an expression that was visited already
+         * @return the class of the object
+         * @throws TypeCheckingExpcetion when obj has no class type
+         */
+        private AClassDecl classOf(PExp obj) {
+            MjType type = typeOf(obj);
+            if(!(type instanceof MjClass)) {
+                throw new TypeCheckingExpcetion(obj, "Is no object.");
+            }
+            return ((MjClass) type).getClassDecl();
+        }
+
+        @Override
+        public void inAMainClass(AMainClass node) {
+            currentScope = new Scope(null);
+            currentScope.declareAll(node.getLocalVars());
+        }
+
+        @Override
+        public void outAMainClass(AMainClass node) {
+            currentScope = null;
+        }
+
+        @Override
+        public void inAClassDecl(AClassDecl node) {
+            TId idSuper = node.getSuper();
+            if(idSuper != null && classIndex.get(idSuper) == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + idSuper + "' found.");
+            }
+            currentClass = node;
+            currentScope = getClassScope(node);
+        }
+
+        @Override
+        public void outAClassDecl(AClassDecl node) {
+            currentClass = null;
+            currentScope = null;
+        }
+
+        @Override
+        public void inAMethodDecl(AMethodDecl node) {
+            currentScope = new Scope(getClassScope(currentClass));
+            currentScope.declareAll(node.getFormalParams());
+            currentScope.declareAll(node.getLocalVars());
+        }
+
+        @Override
+        public void outAMethodDecl(AMethodDecl node) {
+            check(node, node.getRetExp(), "The return expression", pTypeToMjType(node.getRetType()));
+            currentScope = getClassScope(currentClass);
+        }
+
+        @Override
+        public void inAClassType(AClassType node) {
+            TId id = node.getName();
+            if(classIndex.get(id) == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + id + "' found.");
+            }
+        }
+
+        @Override
+        public void outAAssignStmt(AAssignStmt node) {
+            check(node, node.getRhs(), "RHS in the assignment", typeOf(node.getLhs()));
+        }
+
+        @Override
+        public void outAIfStmt(AIfStmt node) {
+            check(node, node.getCond(), "Condition", MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outAWhileStmt(AWhileStmt node) {
+            check(node, node.getCond(), "Condition", MjBool.INSTANCE);
+        }
+
+        @Override
+        public void caseACallStmt(ACallStmt node) {
+            PExp exp = node.getExp();
+            if(Builtins.isPrintln(exp)) {
+                List<PExp> args = ((AMethodCallExp) exp).getArgs();
+                for(PExp e : args) {
+                    e.apply(this);
+                }
+                if(args.size() != 1 || !typeOf(args.get(0)).isSubtypeOf(MjInt.INSTANCE, FusedAnalyser.this)) {
+                    throw new TypeCheckingExpcetion(exp, "Invalid parameter for System.out.println");
+                }
+                return;
+            }
+            super.caseACallStmt(node);
+        }
+
+        @Override
+        public void outAAndExp(AAndExp node) {
+            check(node, node.getLeft(), "Left argument", MjBool.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjBool.INSTANCE);
+            setType(node, MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outACmpExp(ACmpExp node) {
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
+            setType(node, MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outAAddExp(AAddExp node) {
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outASubExp(ASubExp node) {
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outAMultExp(AMultExp node) {
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outANotExp(ANotExp node) {
+            check(node, node.getExp(), "Argument", MjBool.INSTANCE);
+            setType(node, MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outANegExp(ANegExp node) {
+            check(node, node.getExp(), "Argument", MjInt.INSTANCE);
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outAIntLiteralExp(AIntLiteralExp node) {
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outATrueExp(ATrueExp node) {
+            setType(node, MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outAFalseExp(AFalseExp node) {
+            setType(node, MjBool.INSTANCE);
+        }
+
+        @Override
+        public void outAIdentifierExp(AIdentifierExp node) {
+            TId id = node.getName();
+            ATypedVar var = currentScope == null ? null : currentScope.lookup(id.getText());
+            if(var == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable variable declaration for '" + id.getText() + "' found.");
+            }
+            variableDecls.put(id, var);
+            setType(node, pTypeToMjType(var.getType()));
+        }
+
+        @Override
+        public void outAThisExp(AThisExp node) {
+            if(currentClass == null) {
+                throw new TypeCheckingExpcetion(node, "Used 'this' outside of an object.");
+            }
+            setType(node, classType(currentClass));
+        }
+
+        @Override
+        public void outAObjAllocExp(AObjAllocExp node) {
+            TId classId = node.getName();
+            AClassDecl classDecl = classIndex.get(classId);
+            if(classDecl == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + classId + "' found.");
+            }
+            setType(node, classType(classDecl));
+        }
+
+        @Override
+        public void outAArrayAllocExp(AArrayAllocExp node) {
+            check(node, node.getSize(), "Size", MjInt.INSTANCE);
+            setType(node, MjIntArray.INSTANCE);
+        }
+
+        @Override
+        public void outAArrayLookupExp(AArrayLookupExp node) {
+            check(node, node.getExp(), "Array", MjIntArray.INSTANCE);
+            check(node, node.getOffset(), "Index", MjInt.INSTANCE);
+            setType(node, MjInt.INSTANCE);
+        }
+
+        @Override
+        public void outAFieldAccessExp(AFieldAccessExp node) {
+            PExp obj = node.getObj();
+            String idName = node.getName().getText();
+
+            //Special case for length
+            if(idName.equals("length") && typeOf(obj) == MjIntArray.INSTANCE) {
+                setType(node, MjInt.INSTANCE);
+                return;
+            }
+            ATypedVar field = getClassScope(classOf(obj)).lookup(idName);
+            if(field == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable field declaration for '" + idName + "' found.");
+            }
+            fieldDecls.put(node, field);
+            variableDecls.put(node.getName(), field);
+            setType(node, pTypeToMjType(field.getType()));
+        }
+
+        @Override
+        public void outAMethodCallExp(AMethodCallExp node) {
+            String idName = node.getName().getText();
+            List<PExp> args = node.getArgs();
+
+            AMethodDecl methodDecl = getClassMethods(classOf(node.getObj())).get(idName);
+            if(methodDecl == null) {
+                throw new TypeCheckingExpcetion(node, "No suitable method declaration for '" + idName + "' found.");
+            }
+            methodDecls.put(node, methodDecl);
+            List<PTypedVar> formalParams = methodDecl.getFormalParams();
+
+            if(args.size() < formalParams.size()) {
+                throw new TypeCheckingExpcetion(node, "To few parameters applied: Only " + args.size() + " out of " + formalParams.size() + ".");
+            }
+            if(args.size() > formalParams.size()) {
+                throw new TypeCheckingExpcetion(node, "To many parameters applied: " + args.size() + " instead of " + formalParams.size() + ".");
+            }
+
+            for(int i = 0; i < args.size(); i++) {
+                MjType formalType = pTypeToMjType(((ATypedVar) formalParams.get(i)).getType());
+                check(node, args.get(i), "Parameter number " + i + " ", formalType);
+            }
+            setType(node, pTypeToMjType(methodDecl.getRetType()));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package minijava.analysis;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import minijava.node.AProgram;
 
 
@@ -21,18 +24,48 @@ public class MjAnalyser implements MjAnalysis {
     /**
      * The TypeAnalysis
      */
-    private TypeAnalysis typeAnalysis;
+    private TypeAnalyser typeAnalysis;
 
 
     /**
      * @param aProgram the program you want to analyse
      */
     public MjAnalyser(AProgram aProgram) {
+        this(aProgram, new NameAnalyser(aProgram));
+    }
+
+    /**
+     * @param aProgram the program you want to analyse
+     * @param nameAnalysis the name analysis of the program, already constructed
+     */
+    public MjAnalyser(AProgram aProgram, NameAnalysis nameAnalysis) {
         this.aProgram = aProgram;
-        this.nameAnalysis =  new NameAnalyser(aProgram);
+        this.nameAnalysis = nameAnalysis;
         this.typeAnalysis = new TypeAnalyser(this);
     }
 
+    /**
+     * @param aProgram the program you want to analyse
+     * @param nodeIds the numbering of its AST, which makes the name and type
+     *                analysis keep their results in NodeTables
+     */
+    public MjAnalyser(AProgram aProgram, NodeIds nodeIds) {
+        this.aProgram = aProgram;
+        this.nameAnalysis = new NameAnalyser(aProgram, null, nodeIds);
+        this.typeAnalysis = new TypeAnalyser(this, null, nodeIds);
+    }
+
+    /**
+     * Analyses the program without throwing on errors
+     * @param aProgram the program you want to analyse
+     * @param diagnostics the list that collects all name and type errors
+     */
+    public MjAnalyser(AProgram aProgram, List<Diagnostic> diagnostics) {
+        this.aProgram = aProgram;
+        this.nameAnalysis = new NameAnalyser(aProgram, diagnostics);
+        this.typeAnalysis = new TypeAnalyser(this, diagnostics);
+    }
+
 
 	/**
 	 * @return an object to do name analysis
@@ -58,6 +91,15 @@ public class MjAnalyser implements MjAnalysis {
         typeAnalysis.checkProgram(aProgram);
     }
 
+	/**
+	 * checks the complete program for errors, the main class and every
+	 * method in parallel
+	 * @param pool the pool that runs the checks of the methods
+	 */
+	public void checkProgram(ForkJoinPool pool) {
+        typeAnalysis.checkProgram(aProgram, pool);
+    }
+
 	/**
 	 * @return the program which is analyzed
 	 */
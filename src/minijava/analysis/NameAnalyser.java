@@ -1,5 +1,7 @@
 package minijava.analysis;
 
+import java.util.List;
+
 import minijava.node.AClassDecl;
 import minijava.node.AFieldAccessExp;
 import minijava.node.AMethodCallExp;
@@ -25,14 +27,40 @@ public class NameAnalyser implements NameAnalysis {
      */
 	private NameVisitor nameVisitor;
 
+	/**
+     * The numbering of the class hierarchy for subclass tests
+     */
+	private ClassHierarchy classHierarchy;
+
 
     /**
      * @param aProgram the program that gets analysed
      */
     public NameAnalyser(AProgram aProgram) {
+        this(aProgram, null);
+    }
+
+    /**
+     * @param aProgram the program that gets analysed
+     * @param diagnostics the list that collects all name errors, or null to
+     *                    throw a TypeCheckingExpcetion on the first error
+     */
+    public NameAnalyser(AProgram aProgram, List<Diagnostic> diagnostics) {
+        this(aProgram, diagnostics, null);
+    }
+
+    /**
+     * @param aProgram the program that gets analysed
+     * @param diagnostics the list that collects all name errors, or null to
+     *                    throw a TypeCheckingExpcetion on the first error
+     * @param nodeIds the numbering of the AST to keep the declarations in
+     *                NodeTables, or null to use IdentityHashMaps
+     */
+    public NameAnalyser(AProgram aProgram, List<Diagnostic> diagnostics, NodeIds nodeIds) {
         this.aProgram = aProgram;
-        this.nameVisitor = new NameVisitor();
+        this.nameVisitor = new NameVisitor(diagnostics, nodeIds);
         this.aProgram.apply(this.nameVisitor);
+        this.classHierarchy = new ClassHierarchy(aProgram, nameVisitor.getClassIndex());
     }
 
 
@@ -88,24 +116,66 @@ public class NameAnalyser implements NameAnalysis {
 	 */
 	@Override
 	public AClassDecl lookupClass(TId name) {
-        AClassDecl classDecl = nameVisitor.getClassDecls().get(name);
+        AClassDecl classDecl = nameVisitor.getClassIndex().get(name);
         if(classDecl == null) {
             throw new TypeCheckingExpcetion(name, "No suitable class declaration for '" + name + "' found.");
         }
         return classDecl;
     }
 
+	/**
+	 * @param node a field access node
+	 * @return the declaration node of the field, or null if it could not be found
+	 */
+	@Override
+	public ATypedVar findField(AFieldAccessExp node) {
+        return nameVisitor.getFieldDecls().get(node);
+	}
+
+	/**
+	 * @param e a method call
+	 * @return the method declaration corresponding to the method call, or null if it could not be found
+	 */
+	@Override
+	public AMethodDecl findMethod(AMethodCallExp e) {
+        return nameVisitor.getMethodDecls().get(e);
+	}
+
+	/**
+	 * @param name a use of a variable name
+	 * @return the declaration node of the variable, or null if it could not be found
+	 */
+	@Override
+	public ATypedVar findVar(TId name) {
+        return nameVisitor.getVariableDecls().get(name);
+	}
+
+	/**
+	 * @param name a use of a class name
+	 * @return the class declaration corresponding to the given name, or null if it could not be found
+	 */
+	@Override
+	public AClassDecl findClass(TId name) {
+        return nameVisitor.getClassIndex().get(name);
+	}
+
 	/**
 	 * @param c a class declaration node
 	 * @return the class declaration node of the super class or 'null' if there is no super class
 	 */
 	@Override
 	public AClassDecl getSuperClass(AClassDecl c) {
-        TId name = c.getSuper();
-        if(name == null) {
-            return null;
-        }
-        return lookupClass(name);
+        return nameVisitor.getClassIndex().getSuperClass(c);
+    }
+
+	/**
+	 * @param sub a class declaration node
+	 * @param sup another class declaration node
+	 * @return true iff sub is sup or a direct or indirect subclass of sup
+	 */
+	@Override
+	public boolean isSubclassOf(AClassDecl sub, AClassDecl sup) {
+        return classHierarchy.isSubclassOf(sub, sup);
     }
 
 	/**
@@ -45,12 +45,43 @@ public interface NameAnalysis {
 	 */
 	AClassDecl lookupClass(TId name);
 
+	/**
+	 * @param node a field access node
+	 * @return the declaration node of the field, or null if it could not be found
+	 */
+	ATypedVar findField(AFieldAccessExp node);
+
+	/**
+	 * @param e a method call
+	 * @return the method declaration corresponding to the method call, or null if it could not be found
+	 */
+	AMethodDecl findMethod(AMethodCallExp e);
+
+	/**
+	 * @param name a use of a variable name
+	 * @return the declaration node of the variable, or null if it could not be found
+	 */
+	ATypedVar findVar(TId name);
+
+	/**
+	 * @param name a use of a class name
+	 * @return the class declaration corresponding to the given name, or null if it could not be found
+	 */
+	AClassDecl findClass(TId name);
+
 	/**
 	 * @param c a class declaration node
 	 * @return the class declaration node of the super class or 'null' if there is no super class
 	 */
 	AClassDecl getSuperClass(AClassDecl c);
 
+	/**
+	 * @param sub a class declaration node
+	 * @param sup another class declaration node
+	 * @return true iff sub is sup or a direct or indirect subclass of sup
+	 */
+	boolean isSubclassOf(AClassDecl sub, AClassDecl sup);
+
 	/**
 	 * @param node some AST node
 	 * @return the nearest class declaration for the given node, or null if the given node is not within a class
@@ -2,8 +2,11 @@
 
 package minijava.analysis;
 
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import minijava.node.AArrayAllocExp;
 import minijava.node.ACallStmt;
@@ -25,46 +28,98 @@ import minijava.node.PExp;
 import minijava.node.PMethodDecl;
 import minijava.node.PType;
 import minijava.node.PTypedVar;
-import minijava.node.Start;
 import minijava.node.TId;
 
 
 public class NameVisitor extends DepthFirstAdapter
 {
 
-    private IdentityHashMap<            TId, AClassDecl>    classDecls;
-    private IdentityHashMap<AFieldAccessExp,  ATypedVar>    fieldDecls;
-    private IdentityHashMap< AMethodCallExp,AMethodDecl>   methodDecls;
-    private IdentityHashMap<            TId,  ATypedVar> variableDecls;
+    private Map<            TId, AClassDecl>    classDecls;
+    private Map<AFieldAccessExp,  ATypedVar>    fieldDecls;
+    private Map< AMethodCallExp,AMethodDecl>   methodDecls;
+    private Map<            TId,  ATypedVar> variableDecls;
 
+    private IdentityHashMap<     AClassDecl,      Scope>   classScopes;
+    private ClassIndex classIndex;
+    private Scope currentScope;
+    private AClassDecl currentClass;
+
+    /**
+     * The errors found so far, or null to throw on the first error
+     */
+    private List<Diagnostic> diagnostics;
+
+    /**
+     * The unresolved class types that are already reported
+     */
+    private Set<AClassType> reportedTypes;
 
 
     public NameVisitor() {
-        classDecls    = new IdentityHashMap<            TId, AClassDecl>();
-        fieldDecls    = new IdentityHashMap<AFieldAccessExp,  ATypedVar>();
-        methodDecls   = new IdentityHashMap< AMethodCallExp,AMethodDecl>();
-        variableDecls = new IdentityHashMap<            TId,  ATypedVar>();
+        this(null);
+    }
+
+    /**
+     * @param diagnostics the list that collects all errors, or null to throw a
+     *                    TypeCheckingExpcetion on the first error
+     */
+    public NameVisitor(List<Diagnostic> diagnostics) {
+        this(diagnostics, null);
+    }
+
+    /**
+     * @param diagnostics the list that collects all errors, or null to throw a
+     *                    TypeCheckingExpcetion on the first error
+     * @param nodeIds     the numbering of the AST to store the results in
+     *                    NodeTables, or null to use IdentityHashMaps
+     */
+    public NameVisitor(List<Diagnostic> diagnostics, NodeIds nodeIds) {
+        this.diagnostics = diagnostics;
+        reportedTypes = Collections.newSetFromMap(new IdentityHashMap<AClassType, Boolean>());
+        classDecls    = NodeTable.create(nodeIds);
+        fieldDecls    = NodeTable.create(nodeIds);
+        methodDecls   = NodeTable.create(nodeIds);
+        variableDecls = NodeTable.create(nodeIds);
+        classScopes   = new IdentityHashMap<     AClassDecl,      Scope>();
     }
 
 
-    public IdentityHashMap<TId,AClassDecl> getClassDecls() {
+    public Map<TId,AClassDecl> getClassDecls() {
         return classDecls;
     }
 
-    public IdentityHashMap<AFieldAccessExp,ATypedVar> getFieldDecls() {
+    public Map<AFieldAccessExp,ATypedVar> getFieldDecls() {
         return fieldDecls;
     }
 
-    public IdentityHashMap<AMethodCallExp,AMethodDecl> getMethodDecls() {
+    public Map<AMethodCallExp,AMethodDecl> getMethodDecls() {
         return methodDecls;
     }
 
-    public IdentityHashMap<TId,ATypedVar> getVariableDecls() {
+    public Map<TId,ATypedVar> getVariableDecls() {
         return variableDecls;
     }
 
+    public ClassIndex getClassIndex() {
+        return classIndex;
+    }
+
+    /**
+     * Throws the error, or records it when all errors are collected
+     * @param blame the node where the error was found
+     * @param msg the error message
+     * @throws TypeCheckingExpcetion when errors are not collected
+     */
+    private void error(Node blame, String msg) {
+        if(diagnostics == null) {
+            throw new TypeCheckingExpcetion(blame, msg);
+        }
+        diagnostics.add(new Diagnostic(blame, msg));
+    }
+
     @Override
     public void inAProgram(AProgram node) {
+        classIndex = new ClassIndex(node);
         for(PClassDecl classDecl : node.getDecls()) {
             for(PTypedVar field : ((AClassDecl) classDecl).getFields()) {
                 field.apply(this);
@@ -81,68 +136,74 @@ public class NameVisitor extends DepthFirstAdapter
         }
     }
 
+    @Override
+    public void inAMainClass(AMainClass node) {
+        currentScope = new Scope(null);
+        currentScope.declareAll(node.getLocalVars());
+    }
+
+    @Override
+    public void outAMainClass(AMainClass node) {
+        currentScope = null;
+    }
+
     @Override
     public void inAClassDecl(AClassDecl node) {
         TId idSuper = node.getSuper();
-        if(idSuper == null) {
-            return;
-        }
-
-        for(Node iter = node; !(iter instanceof Start); iter = iter.parent()) {
-            if(iter instanceof AProgram) {
-                List<PClassDecl> classes = ((AProgram) iter).getDecls();
-                for(PClassDecl classDec : classes) {
-                    if(((AClassDecl) classDec).getId().getText().equals(idSuper.getText())) {
-                        classDecls.put(idSuper, (AClassDecl) classDec);
-                        return;
-                    }
-                }
+        if(idSuper != null) {
+            AClassDecl superClass = classIndex.get(idSuper);
+            if(superClass == null) {
+                error(node, "No suitable class declaration for '" + idSuper + "' found.");
+            } else {
+                classDecls.put(idSuper, superClass);
             }
         }
-        throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + idSuper + "' found.");
+        currentClass = node;
+        currentScope = getClassScope(node);
+    }
+
+    @Override
+    public void outAClassDecl(AClassDecl node) {
+        currentClass = null;
+        currentScope = null;
+    }
+
+    @Override
+    public void inAMethodDecl(AMethodDecl node) {
+        currentScope = new Scope(getClassScope(currentClass));
+        currentScope.declareAll(node.getFormalParams());
+        currentScope.declareAll(node.getLocalVars());
+    }
+
+    @Override
+    public void outAMethodDecl(AMethodDecl node) {
+        currentScope = getClassScope(currentClass);
     }
 
     @Override
     public void inAClassType(AClassType node) {
         TId id = node.getName();
 
-        for(Node iter = node; !(iter instanceof Start); iter = iter.parent()) {
-            if(iter instanceof AProgram) {
-                List<PClassDecl> classes = ((AProgram) iter).getDecls();
-                for(PClassDecl classDec : classes) {
-                    if(((AClassDecl) classDec).getId().getText().equals(id.getText())) {
-                        classDecls.put(id, (AClassDecl) classDec);
-                        return;
-                    }
-                }
+        AClassDecl classDecl = classIndex.get(id);
+        if(classDecl == null) {
+            // types of members are visited twice, see inAProgram
+            if(reportedTypes.add(node)) {
+                error(node, "No suitable class declaration for '" + id + "' found.");
             }
+            return;
         }
-        throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + id + "' found.");
+        classDecls.put(id, classDecl);
     }
 
     @Override
     public void caseACallStmt(ACallStmt node) {
 
         //Special case for System.out.println
-        if(node.getExp() != null) {
-            PExp exp = node.getExp();
-            if(((AMethodCallExp) exp).getName().getText().equals("println")) {
-                PExp obj = ((AMethodCallExp) exp).getObj();
-                if(obj instanceof AFieldAccessExp) {
-                    if(((AFieldAccessExp) obj).getName().getText().equals("out")) {
-                        PExp obj2 = ((AFieldAccessExp) obj).getObj();
-                        if(obj2 instanceof AIdentifierExp) {
-                            if(((AIdentifierExp) obj2).getName().getText().equals("System")) {
-                                List<PExp> args = ((AMethodCallExp) exp).getArgs();
-                                for(PExp e : args) {
-                                    e.apply(this);
-                                }
-                                return;
-                            }
-                        }
-                    }
-                }
+        if(Builtins.isPrintln(node.getExp())) {
+            for(PExp e : ((AMethodCallExp) node.getExp()).getArgs()) {
+                e.apply(this);
             }
+            return;
         }
         super.caseACallStmt(node);
     }
@@ -152,63 +213,31 @@ public class NameVisitor extends DepthFirstAdapter
         TId id = node.getName();
         String idName = id.getText();
 
-        for(Node iter = node; !(iter instanceof Start); iter = iter.parent()) {
-            if(iter instanceof AMainClass) {
-                List<PTypedVar> localVars = ((AMainClass) iter).getLocalVars();
-                for(PTypedVar var : localVars) {
-                    if(((ATypedVar) var).getName().getText().equals(idName)) {
-                        variableDecls.put(id, (ATypedVar) var);
-                        return;
-                    }
-                }
-            }
-            if(iter instanceof AMethodDecl) {
-                List<PTypedVar> formalParams = ((AMethodDecl) iter).getFormalParams();
-                for(PTypedVar var : formalParams) {
-                    if(((ATypedVar) var).getName().getText().equals(idName)) {
-                        variableDecls.put(id, (ATypedVar) var);
-                        return;
-                    }
-                }
-                List<PTypedVar> localVars = ((AMethodDecl) iter).getLocalVars();
-                for(PTypedVar var : localVars) {
-                    if(((ATypedVar) var).getName().getText().equals(idName)) {
-                        variableDecls.put(id, (ATypedVar) var);
-                        return;
-                    }
-                }
-            }
-            if(iter instanceof AClassDecl) {
-                for(AClassDecl classDecl = (AClassDecl) iter; classDecl != null; classDecl = getSuperClass(classDecl)) {
-                    List<PTypedVar> fields = classDecl.getFields();
-                    for(PTypedVar var : fields) {
-                        if(((ATypedVar) var).getName().getText().equals(idName)) {
-                            variableDecls.put(id, (ATypedVar) var);
-                            return;
-                        }
-                    }
-                }
-            }
+        ATypedVar var = currentScope == null ? null : currentScope.lookup(idName);
+        if(var == null) {
+            error(node, "No suitable variable declaration for '" + idName + "' found.");
+            return;
+        }
+        variableDecls.put(id, var);
+    }
+
+    @Override
+    public void inAThisExp(AThisExp node) {
+        if(currentClass == null) {
+            error(node, "Used 'this' outside of an object.");
         }
-        throw new TypeCheckingExpcetion(node, "No suitable variable declaration for '" + idName + "' found.");
     }
 
     @Override
     public void inAObjAllocExp(AObjAllocExp node) {
         TId classId = node.getName();
 
-        for(Node iter = node; !(iter instanceof Start); iter = iter.parent()) {
-            if(iter instanceof AProgram) {
-                List<PClassDecl> classes = ((AProgram) iter).getDecls();
-                for(PClassDecl classDec : classes) {
-                    if(((AClassDecl) classDec).getId().getText().equals(classId.getText())) {
-                        classDecls.put(classId, (AClassDecl) classDec);
-                        return;
-                    }
-                }
-            }
+        AClassDecl classDecl = classIndex.get(classId);
+        if(classDecl == null) {
+            error(node, "No suitable class declaration for '" + classId + "' found.");
+            return;
         }
-        throw new TypeCheckingExpcetion(node, "No suitable class declaration for '" + classId + "' found.");
+        classDecls.put(classId, classDecl);
     }
 
     @Override
@@ -221,10 +250,9 @@ public class NameVisitor extends DepthFirstAdapter
             obj.apply(this);
 
             if(obj instanceof AIdentifierExp) {
-                TId id = ((AIdentifierExp) obj).getName();
-                PType type = variableDecls.get(id).getType();
-                if(type instanceof AIntarrayType) {
-                    return; //Nothing
+                ATypedVar var = variableDecls.get(((AIdentifierExp) obj).getName());
+                if(var == null || var.getType() instanceof AIntarrayType) {
+                    return; //Nothing, or an error that is already reported
                 }
             }
             if(obj instanceof AArrayAllocExp) {
@@ -232,16 +260,14 @@ public class NameVisitor extends DepthFirstAdapter
             }
             if(obj instanceof AFieldAccessExp) {
                 ATypedVar field = fieldDecls.get((AFieldAccessExp) obj);
-                PType type = field.getType();
-                if(type instanceof AIntarrayType) {
-                    return; //Nothing
+                if(field == null || field.getType() instanceof AIntarrayType) {
+                    return; //Nothing, or an error that is already reported
                 }
             }
             if(obj instanceof AMethodCallExp) {
                 AMethodDecl method = methodDecls.get((AMethodCallExp) obj);
-                PType type = method.getRetType();
-                if(type instanceof AIntarrayType) {
-                    return; //Nothing
+                if(method == null || method.getRetType() instanceof AIntarrayType) {
+                    return; //Nothing, or an error that is already reported
                 }
             }
         }
@@ -253,17 +279,17 @@ public class NameVisitor extends DepthFirstAdapter
         PExp obj = node.getObj();
         String idName = node.getName().getText();
 
-        for(AClassDecl classDecl = getClassDecl(obj); classDecl != null; classDecl = getSuperClass(classDecl)) {
-            List<PTypedVar> fields = classDecl.getFields();
-            for(PTypedVar field : fields) {
-                if(((ATypedVar) field).getName().getText().equals(idName)) {
-                    fieldDecls.put(node, (ATypedVar) field);
-                    variableDecls.put(node.getName(), (ATypedVar) field);
-                    return;
-                }
-            }
+        if(isUnresolved(obj)) {
+            return;
+        }
+        AClassDecl classDecl = getClassDecl(obj);
+        ATypedVar field = classDecl == null ? null : getClassScope(classDecl).lookup(idName);
+        if(field != null) {
+            fieldDecls.put(node, field);
+            variableDecls.put(node.getName(), field);
+            return;
         }
-        throw new TypeCheckingExpcetion(node, "No suitable field declaration for '" + idName + "' found.");
+        error(node, "No suitable field declaration for '" + idName + "' found.");
     }
 
     @Override
@@ -271,7 +297,13 @@ public class NameVisitor extends DepthFirstAdapter
         PExp obj = node.getObj();
         String idName = node.getName().getText();
 
-        for(AClassDecl classDecl = getClassDecl(obj); classDecl != null; classDecl = getSuperClass(classDecl)) {
+        if(isUnresolved(obj)) {
+            return;
+        }
+        // a chain longer than the number of classes is an inheritance cycle, reported by getClassScope
+        int steps = 0;
+        for(AClassDecl classDecl = getClassDecl(obj); classDecl != null && steps <= classIndex.size();
+                classDecl = getSuperClass(classDecl), steps++) {
             List<PMethodDecl> methods = classDecl.getMethods();
             for(PMethodDecl method : methods) {
                 if(((AMethodDecl) method).getName().getText().equals(idName)) {
@@ -281,7 +313,47 @@ public class NameVisitor extends DepthFirstAdapter
                 }
             }
         }
-        throw new TypeCheckingExpcetion(node, "No suitable method declaration for '" + idName + "' found.");
+        error(node, "No suitable method declaration for '" + idName + "' found.");
+    }
+
+    /**
+     * @param obj an expression
+     * @return true iff a name in obj could not be resolved, so that the error
+     *         is already reported
+     */
+    private boolean isUnresolved(PExp obj) {
+        if(obj instanceof AIdentifierExp) {
+            ATypedVar var = variableDecls.get(((AIdentifierExp) obj).getName());
+            return var == null || isUnresolved(var.getType());
+        }
+        if(obj instanceof AObjAllocExp) {
+            return !classDecls.containsKey(((AObjAllocExp) obj).getName());
+        }
+        if(obj instanceof AFieldAccessExp) {
+            ATypedVar field = fieldDecls.get((AFieldAccessExp) obj);
+            if(field == null) {
+                // either an error or the length of an array
+                return !((AFieldAccessExp) obj).getName().getText().equals("length")
+                        || isUnresolved(((AFieldAccessExp) obj).getObj());
+            }
+            return isUnresolved(field.getType());
+        }
+        if(obj instanceof AMethodCallExp) {
+            AMethodDecl method = methodDecls.get((AMethodCallExp) obj);
+            return method == null || isUnresolved(method.getRetType());
+        }
+        if(obj instanceof AThisExp) {
+            return currentClass == null;
+        }
+        return false;
+    }
+
+    /**
+     * @param type a type
+     * @return true iff the type names a class that could not be resolved
+     */
+    private boolean isUnresolved(PType type) {
+        return type instanceof AClassType && !classDecls.containsKey(((AClassType) type).getName());
     }
 
     /**
@@ -296,7 +368,8 @@ public class NameVisitor extends DepthFirstAdapter
                 TId classId = ((AClassType) type).getName();
                 return classDecls.get(classId);
             }
-            throw new TypeCheckingExpcetion(type, "Has to be a class type.");
+            error(type, "Has to be a class type.");
+            return null;
         }
         if(obj instanceof AObjAllocExp) {
             TId classId = ((AObjAllocExp) obj).getName();
@@ -304,12 +377,18 @@ public class NameVisitor extends DepthFirstAdapter
         }
         if(obj instanceof AFieldAccessExp) {
             ATypedVar field = fieldDecls.get((AFieldAccessExp) obj);
+            if(field == null) {
+                // the length of an array
+                error(obj, "Is no object.");
+                return null;
+            }
             PType type = field.getType();
             if(type instanceof AClassType) {
                 TId classId = ((AClassType) type).getName();
                 return classDecls.get(classId);
             }
-            throw new TypeCheckingExpcetion(type, "Has to be a class type.");
+            error(type, "Has to be a class type.");
+            return null;
         }
         if(obj instanceof AMethodCallExp) {
             AMethodDecl method = methodDecls.get((AMethodCallExp) obj);
@@ -319,33 +398,47 @@ public class NameVisitor extends DepthFirstAdapter
 
                 return classDecls.get(classId);
             }
-            throw new TypeCheckingExpcetion(type, "Has to be a class type.");
+            error(type, "Has to be a class type.");
+            return null;
         }
         if(obj instanceof AThisExp) {
-            for(Node iter = obj; !(iter instanceof Start); iter = iter.parent()) {
-                if(iter instanceof AClassDecl) {
-                    return (AClassDecl) iter;
-                }
-            }
-            throw new TypeCheckingExpcetion(obj, "Used 'this' outside of an object.");
+            return currentClass;
         }
-        throw new TypeCheckingExpcetion(obj, "Is no object.");
+        error(obj, "Is no object.");
+        return null;
     }
 
-    private AClassDecl getSuperClass(AClassDecl c) {
-        TId name = c.getSuper();
-        if(name == null) {
-            return null;
+    /**
+     * @param c a class declaration
+     * @return the scope with all fields of the class, including the inherited ones
+     */
+    private Scope getClassScope(AClassDecl c) {
+        Scope scope = classScopes.get(c);
+        if(scope == null) {
+            if(classScopes.containsKey(c)) {
+                error(c, "Cyclic inheritance involving '" + c.getId().getText() + "'.");
+                // continue with the fields of the class only
+                scope = new Scope(null);
+                scope.declareAll(c.getFields());
+                return scope;
+            }
+            classScopes.put(c, null);
+            scope = new Scope(null);
+            scope.declareAll(c.getFields());
+            AClassDecl superClass = getSuperClass(c);
+            if(superClass != null) {
+                scope.inherit(getClassScope(superClass));
+            }
+            classScopes.put(c, scope);
         }
+        return scope;
+    }
 
-        AProgram aProgram = (AProgram) c.parent();
-
-        List<PClassDecl> classes = aProgram.getDecls();
-        for(PClassDecl classDec : classes) {
-            if(((AClassDecl) classDec).getId().getText().equals(name.getText())) {
-                return (AClassDecl) classDec ;
-            }
+    private AClassDecl getSuperClass(AClassDecl c) {
+        if(diagnostics != null) {
+            // an unresolved super class is reported by inAClassDecl
+            return classIndex.findSuperClass(c);
         }
-        throw new TypeCheckingExpcetion(name, "No suitable class declaration for '" + name + "' found.");
+        return classIndex.getSuperClass(c);
     }
 }
@@ -0,0 +1,115 @@
+package minijava.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import minijava.node.Node;
+import minijava.node.TId;
+
+/**
+ * A dense numbering of the nodes of one AST, computed once after parsing.
+ * The productions and the identifier tokens are numbered 0 to size() - 1 in
+ * the order of a depth first traversal. Other tokens, like keywords and
+ * punctuation, are never looked up by the analysis and get no number.
+ *
+ * The generated node classes have no field for the number, so it is kept in
+ * an open addressing table keyed by node identity, which stores the numbers
+ * as ints. Side tables indexed by the number, see {@link NodeTable}, share
+ * this one table instead of hashing every node once per table.
+ */
+public class NodeIds {
+
+    /**
+     * The numbered nodes by id
+     */
+    private final Node[] nodes;
+
+    /**
+     * The keys of the hash table, null for an empty slot
+     */
+    private final Node[] keys;
+
+    /**
+     * The id of the node in the same slot of keys
+     */
+    private final int[] ids;
+
+    /**
+     * keys.length - 1
+     */
+    private final int mask;
+
+
+    /**
+     * Numbers the given node and all nodes below it
+     * @param root the root of the AST, usually the Start node
+     */
+    public NodeIds(Node root) {
+        final List<Node> numbered = new ArrayList<Node>();
+        root.apply(new DepthFirstAdapter() {
+            @Override
+            public void defaultIn(Node node) {
+                numbered.add(node);
+            }
+
+            @Override
+            public void caseTId(TId node) {
+                numbered.add(node);
+            }
+        });
+        this.nodes = numbered.toArray(new Node[numbered.size()]);
+
+        // a load factor of at most 1/2 keeps the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(1, nodes.length) * 2 - 1) * 2;
+        this.keys = new Node[capacity];
+        this.ids = new int[capacity];
+        this.mask = capacity - 1;
+        for(int id = 0; id < nodes.length; id++) {
+            int slot = slot(nodes[id]);
+            while(keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = nodes[id];
+            ids[slot] = id;
+        }
+    }
+
+
+    /**
+     * @param node a node
+     * @return the first slot to probe for the node
+     */
+    private int slot(Node node) {
+        // spread the identity hash code, like IdentityHashMap
+        int h = System.identityHashCode(node);
+        return ((h << 1) - (h << 8)) & mask;
+    }
+
+    /**
+     * @param node a node
+     * @return the id of the node, or -1 if it is not numbered
+     */
+    public int id(Node node) {
+        for(int slot = slot(node); keys[slot] != null; slot = (slot + 1) & mask) {
+            if(keys[slot] == node) {
+                return ids[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id an id
+     * @return the node with the given id
+     */
+    public Node node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * @return the number of numbered nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+}
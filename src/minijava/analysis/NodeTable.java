@@ -0,0 +1,193 @@
+package minijava.analysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import minijava.node.Node;
+
+/**
+ * A side table of the analysis that maps AST nodes to values, backed by an
+ * array indexed by the {@link NodeIds} of the nodes. Keys are compared by
+ * identity, like in an IdentityHashMap, and iterated in the order of the
+ * numbering. Only numbered nodes can be keys.
+ *
+ * @param <K> the kind of nodes used as keys
+ * @param <V> the values
+ */
+public class NodeTable<K extends Node, V> extends AbstractMap<K, V> {
+
+    /**
+     * The numbering of the nodes
+     */
+    private final NodeIds ids;
+
+    /**
+     * The value of each node by id, null if there is none
+     */
+    private final Object[] values;
+
+    /**
+     * The number of nodes with a value
+     */
+    private int size;
+
+
+    /**
+     * @param ids the numbering of the AST whose nodes are the keys
+     */
+    public NodeTable(NodeIds ids) {
+        this.ids = ids;
+        this.values = new Object[ids.size()];
+    }
+
+
+    /**
+     * @param ids the numbering of the AST, or null
+     * @param <K> the kind of nodes used as keys
+     * @param <V> the values
+     * @return a new NodeTable, or a new IdentityHashMap if ids is null
+     */
+    public static <K extends Node, V> Map<K, V> create(NodeIds ids) {
+        if(ids == null) {
+            return new IdentityHashMap<K, V>();
+        }
+        return new NodeTable<K, V>(ids);
+    }
+
+    /**
+     * @param id the id of a node
+     * @return the value of the node, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        return (V) values[id];
+    }
+
+    /**
+     * @param id the id of a node
+     * @param value the new value of the node, not null
+     * @return the previous value of the node, or null
+     */
+    public V put(int id, V value) {
+        V previous = get(id);
+        if(previous == null) {
+            size++;
+        }
+        values[id] = value;
+        return previous;
+    }
+
+    @Override
+    public V get(Object key) {
+        int id = id(key);
+        return id < 0 ? null : get(id);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key a numbered node
+     * @param value the new value of the node, not null
+     * @return the previous value of the node, or null
+     * @throws IllegalArgumentException if the node is not numbered
+     */
+    @Override
+    public V put(K key, V value) {
+        int id = ids.id(key);
+        if(id < 0) {
+            throw new IllegalArgumentException("Node without id: " + key);
+        }
+        return put(id, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int id = id(key);
+        if(id < 0 || values[id] == null) {
+            return null;
+        }
+        V previous = get(id);
+        values[id] = null;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key some object
+     * @return its id, or -1 if it is no numbered node
+     */
+    private int id(Object key) {
+        return key instanceof Node ? ids.id((Node) key) : -1;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterator<Map.Entry<K, V>>() {
+                    /** the id of the next entry, or values.length */
+                    private int next = advance(0);
+
+                    /**
+                     * @param from an id
+                     * @return the first id from there on with a value
+                     */
+                    private int advance(int from) {
+                        int id = from;
+                        while(id < values.length && values[id] == null) {
+                            id++;
+                        }
+                        return id;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<K, V> next() {
+                        if(!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<K, V> entry = new SimpleImmutableEntry<K, V>((K) ids.node(next), get(next));
+                        next = advance(next + 1);
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
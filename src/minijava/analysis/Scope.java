@@ -0,0 +1,85 @@
+package minijava.analysis;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import minijava.node.ATypedVar;
+import minijava.node.PTypedVar;
+
+/**
+ * A hash-indexed scope of variable declarations. There is one scope for the
+ * main class, one per class holding its own and all inherited fields, and one
+ * per method holding its parameters and local variables, whose parent is the
+ * scope of the enclosing class.
+ */
+public class Scope {
+
+    /**
+     * The declarations of this scope by name
+     */
+    private final Map<String, ATypedVar> vars;
+
+    /**
+     * The enclosing scope or null
+     */
+    private final Scope parent;
+
+
+    /**
+     * @param parent the enclosing scope or null
+     */
+    public Scope(Scope parent) {
+        this.vars = new HashMap<String, ATypedVar>();
+        this.parent = parent;
+    }
+
+
+    /**
+     * Adds a declaration. If a variable with the same name was declared
+     * before in this scope, the earlier declaration is kept.
+     * @param var the declaration
+     */
+    public void declare(ATypedVar var) {
+        String name = var.getName().getText();
+        if(!vars.containsKey(name)) {
+            vars.put(name, var);
+        }
+    }
+
+    /**
+     * Adds all declarations of the list, see {@link #declare(ATypedVar)}
+     * @param vars the declarations
+     */
+    public void declareAll(List<PTypedVar> vars) {
+        for(PTypedVar var : vars) {
+            declare((ATypedVar) var);
+        }
+    }
+
+    /**
+     * Adds all declarations of another scope that are not shadowed by a
+     * declaration of this scope. Used to flatten inherited fields into the
+     * scope of a subclass.
+     * @param inherited the scope to copy from
+     */
+    public void inherit(Scope inherited) {
+        for(ATypedVar var : inherited.vars.values()) {
+            declare(var);
+        }
+    }
+
+    /**
+     * @param name a variable name
+     * @return the declaration of the variable in this or an enclosing scope, or null
+     */
+    public ATypedVar lookup(String name) {
+        for(Scope scope = this; scope != null; scope = scope.parent) {
+            ATypedVar var = scope.vars.get(name);
+            if(var != null) {
+                return var;
+            }
+        }
+        return null;
+    }
+}
@@ -1,9 +1,16 @@
 package minijava.analysis;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import minijava.analysis.types.MjBool;
 import minijava.analysis.types.MjClass;
+import minijava.analysis.types.MjError;
 import minijava.analysis.types.MjInt;
 import minijava.analysis.types.MjIntArray;
 import minijava.analysis.types.MjType;
@@ -37,6 +44,7 @@ import minijava.node.ATrueExp;
 import minijava.node.ATypedVar;
 import minijava.node.AWhileStmt;
 import minijava.node.Node;
+import minijava.node.PClassDecl;
 import minijava.node.PExp;
 import minijava.node.PType;
 import minijava.node.PTypedVar;
@@ -57,13 +65,94 @@ public class TypeAnalyser implements TypeAnalysis {
      */
     private MjAnalysis mjAnalysis;
 
+    /**
+     * The types computed so far
+     */
+    private Map<PExp, MjType> typeCache;
+
+    /**
+     * The numbering of the AST if the typeCache is a NodeTable, or null
+     */
+    private NodeIds nodeIds;
+
+    /**
+     * The types found by the workers of the parallel check, in program order,
+     * that are not in the typeCache yet. Merging them into one large table
+     * costs about as much as the check itself, so it is only done when the
+     * types are asked for.
+     */
+    private List<Map<PExp, MjType>> pendingTypes;
+
+    /**
+     * The canonical MjClass instance of each class
+     */
+    private IdentityHashMap<AClassDecl, MjClass> classTypes;
+
+    /**
+     * Number of getType calls answered from the typeCache
+     */
+    private long cacheHits;
+
+    /**
+     * Number of getType calls that computed a type
+     */
+    private long cacheMisses;
+
+    /**
+     * The errors found so far, or null to throw on the first error
+     */
+    private List<Diagnostic> diagnostics;
+
 
     /**
      * @param mjAnalysis reverence to the complete analysis
      */
     protected TypeAnalyser(MjAnalysis mjAnalysis) {
+        this(mjAnalysis, null);
+    }
+
+    /**
+     * @param mjAnalysis reverence to the complete analysis
+     * @param diagnostics the list that collects all type errors, or null to
+     *                    throw a TypeCheckingExpcetion on the first error. When
+     *                    errors are collected, expressions whose names could
+     *                    not be resolved get the type MjError.
+     */
+    protected TypeAnalyser(MjAnalysis mjAnalysis, List<Diagnostic> diagnostics) {
+        this(mjAnalysis, diagnostics, null);
+    }
+
+    /**
+     * @param mjAnalysis reverence to the complete analysis
+     * @param diagnostics the list that collects all type errors, or null to
+     *                    throw a TypeCheckingExpcetion on the first error
+     * @param nodeIds the numbering of the AST to keep the types in a
+     *                NodeTable, or null to use an IdentityHashMap
+     */
+    protected TypeAnalyser(MjAnalysis mjAnalysis, List<Diagnostic> diagnostics, NodeIds nodeIds) {
         this.mjAnalysis = mjAnalysis;
+        this.diagnostics = diagnostics;
         this.nameAnalysis = mjAnalysis.getNameAnalysis();
+        this.nodeIds = nodeIds;
+        this.typeCache = NodeTable.create(nodeIds);
+        this.classTypes = new IdentityHashMap<AClassDecl, MjClass>();
+    }
+
+    /**
+     * A worker of the parallel check. It shares the name analysis and the
+     * class types of its parent, which are only read, but has its own type
+     * cache, statistics and errors.
+     * @param parent the analyser that runs the parallel check
+     * @param diagnostics the list that collects the type errors of the
+     *                    worker, or null to throw on the first error
+     */
+    private TypeAnalyser(TypeAnalyser parent, List<Diagnostic> diagnostics) {
+        this.mjAnalysis = parent.mjAnalysis;
+        this.diagnostics = diagnostics;
+        this.nameAnalysis = parent.nameAnalysis;
+        // a NodeTable has a slot for every node, too large for one method
+        this.typeCache = new IdentityHashMap<PExp, MjType>();
+        this.classTypes = parent.classTypes;
     }
 
 
@@ -73,77 +162,181 @@ public class TypeAnalyser implements TypeAnalysis {
 	 */
 	@Override
 	public MjType getType(PExp e) {
+        mergePendingTypes();
+        MjType type = typeCache.get(e);
+        if(type != null) {
+            cacheHits++;
+            return type;
+        }
+        cacheMisses++;
+        type = computeType(e);
+        typeCache.put(e, type);
+        return type;
+	}
+
+	/**
+	 * @return the types computed so far, by expression
+	 */
+	@Override
+	public Map<PExp, MjType> getTypeCache() {
+        mergePendingTypes();
+        return Collections.unmodifiableMap(typeCache);
+	}
+
+	/**
+	 * @return the number of getType calls answered from the cache
+	 */
+	@Override
+	public long getCacheHits() {
+        return cacheHits;
+	}
+
+	/**
+	 * @return the number of getType calls that computed a type
+	 */
+	@Override
+	public long getCacheMisses() {
+        return cacheMisses;
+	}
+
+    /**
+     * Adds the types of the parallel check to the typeCache
+     */
+    private void mergePendingTypes() {
+        if(pendingTypes == null) {
+            return;
+        }
+        if(nodeIds == null) {
+            int size = typeCache.size();
+            for(Map<PExp, MjType> types : pendingTypes) {
+                size += types.size();
+            }
+            IdentityHashMap<PExp, MjType> merged = new IdentityHashMap<PExp, MjType>(size);
+            merged.putAll(typeCache);
+            typeCache = merged;
+        }
+        for(Map<PExp, MjType> types : pendingTypes) {
+            typeCache.putAll(types);
+        }
+        pendingTypes = null;
+    }
+
+    /**
+     * @param e some expression
+     * @return the type of the given expression, computed without the cache
+     */
+    private MjType computeType(PExp e) {
         if(e instanceof AAndExp) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(e instanceof ACmpExp) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(e instanceof AAddExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof ASubExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof AMultExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof ANotExp) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(e instanceof ANegExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof AIntLiteralExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof AIdentifierExp) {
             TId id = ((AIdentifierExp) e).getName();
-            ATypedVar varDecl = nameAnalysis.lookupVar(id);
+            ATypedVar varDecl = diagnostics == null ? nameAnalysis.lookupVar(id) : nameAnalysis.findVar(id);
+            if(varDecl == null) {
+                return MjError.INSTANCE;
+            }
             PType t = varDecl.getType();
             return pTypeToMjType(t);
         }
         if(e instanceof AArrayAllocExp) {
-            return new MjIntArray();
+            return MjIntArray.INSTANCE;
         }
         if(e instanceof AObjAllocExp) {
             TId className = ((AObjAllocExp) e).getName();
-            AClassDecl classDecl = nameAnalysis.lookupClass(className);
-            return new MjClass(classDecl);
+            return classType(className);
         }
         if(e instanceof AArrayLookupExp) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(e instanceof AFieldAccessExp) {
             PExp obj = ((AFieldAccessExp) e).getObj();
             String idName = ((AFieldAccessExp) e).getName().getText();
 
             if(idName.equals("length")) {
-                if(getType(obj).isSubtypeOf(new MjIntArray(), mjAnalysis)) {
-                    return new MjInt();
+                if(getType(obj).isSubtypeOf(MjIntArray.INSTANCE, mjAnalysis)) {
+                    return MjInt.INSTANCE;
                 }
             }
-            ATypedVar varDecl = nameAnalysis.getField((AFieldAccessExp) e);
+            ATypedVar varDecl = diagnostics == null ? nameAnalysis.getField((AFieldAccessExp) e)
+                    : nameAnalysis.findField((AFieldAccessExp) e);
+            if(varDecl == null) {
+                return MjError.INSTANCE;
+            }
             PType t = varDecl.getType();
             return pTypeToMjType(t);
         }
         if(e instanceof AMethodCallExp) {
-            AMethodDecl methodDecl = nameAnalysis.getMethod((AMethodCallExp) e);
+            AMethodDecl methodDecl = diagnostics == null ? nameAnalysis.getMethod((AMethodCallExp) e)
+                    : nameAnalysis.findMethod((AMethodCallExp) e);
+            if(methodDecl == null) {
+                return MjError.INSTANCE;
+            }
             PType t = methodDecl.getRetType();
             return pTypeToMjType(t);
         }
         if(e instanceof ATrueExp) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(e instanceof AFalseExp) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(e instanceof AThisExp) {
             AClassDecl classDecl = nameAnalysis.getNearestClass(e);
-            return new MjClass(classDecl);
+            if(classDecl == null) {
+                // 'this' in the main class, reported by the name analysis
+                return MjError.INSTANCE;
+            }
+            return classType(classDecl);
         }
         throw new RuntimeException("Unknown subclass of PExp: " + e);
-	}
+    }
+
+    /**
+     * @param classDecl a class declaration
+     * @return the canonical type of the class
+     */
+    private MjClass classType(AClassDecl classDecl) {
+        MjClass type = classTypes.get(classDecl);
+        if(type == null) {
+            type = new MjClass(classDecl);
+            classTypes.put(classDecl, type);
+        }
+        return type;
+    }
+
+    /**
+     * @param className a use of a class name
+     * @return the canonical type of the class, or MjError if the class could
+     *         not be found and errors are collected
+     */
+    private MjType classType(TId className) {
+        AClassDecl classDecl = diagnostics == null ? nameAnalysis.lookupClass(className) : nameAnalysis.findClass(className);
+        if(classDecl == null) {
+            return MjError.INSTANCE;
+        }
+        return classType(classDecl);
+    }
 
     /**
      * @param t a PType
@@ -151,18 +344,16 @@ public class TypeAnalyser implements TypeAnalysis {
      */
     private MjType pTypeToMjType(PType t) {
         if(t instanceof ABoolType) {
-            return new MjBool();
+            return MjBool.INSTANCE;
         }
         if(t instanceof AClassType) {
-            TId className = ((AClassType) t).getName();
-            AClassDecl classDecl = nameAnalysis.lookupClass(className);
-            return new MjClass(classDecl);
+            return classType(((AClassType) t).getName());
         }
         if(t instanceof AIntType) {
-            return new MjInt();
+            return MjInt.INSTANCE;
         }
         if(t instanceof AIntarrayType) {
-            return new MjIntArray();
+            return MjIntArray.INSTANCE;
         }
         throw new RuntimeException("Unknown subclass of PType: " + t);
     }
@@ -175,15 +366,112 @@ public class TypeAnalyser implements TypeAnalysis {
 	 */
 	@Override
 	public void checkProgram(AProgram prog) {
+        typeCache.clear();
+        pendingTypes = null;
         prog.apply(new TypeCheckVisitor());
 	}
 
+	/**
+	 * Checks a whole program for type errors like {@link #checkProgram(AProgram)},
+	 * but checks the main class and every method in a separate fork/join task.
+	 * The tasks only read the name analysis, which is complete at this point.
+	 * Their types, statistics and errors are merged in program order, so the
+	 * result does not depend on the scheduling of the tasks.
+	 * @param prog the program to check
+	 * @param pool the pool that runs the tasks
+	 * @throws TypeCheckingExpcetion when there is a type error, the first one in program order
+	 */
+	public void checkProgram(AProgram prog, ForkJoinPool pool) {
+        typeCache.clear();
+        pendingTypes = null;
+        List<Node> units = new ArrayList<Node>();
+        units.add(prog.getMain());
+        for(PClassDecl decl : prog.getDecls()) {
+            // create all class types now, so that the tasks only read classTypes
+            classType((AClassDecl) decl);
+            units.addAll(((AClassDecl) decl).getMethods());
+        }
+        TypeAnalyser[] workers = new TypeAnalyser[units.size()];
+        TypeCheckingExpcetion[] failures = new TypeCheckingExpcetion[units.size()];
+        pool.invoke(new CheckTask(units, workers, failures, 0, units.size()));
+
+        pendingTypes = new ArrayList<Map<PExp, MjType>>();
+        for(int i = 0; i < workers.length; i++) {
+            pendingTypes.add(workers[i].typeCache);
+            cacheHits += workers[i].cacheHits;
+            cacheMisses += workers[i].cacheMisses;
+            if(diagnostics != null) {
+                diagnostics.addAll(workers[i].diagnostics);
+            }
+            if(failures[i] != null) {
+                throw failures[i];
+            }
+        }
+	}
+
+    /**
+     * Checks a range of the units of the parallel check, forking one task per unit
+     */
+    private class CheckTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** the main class and all methods of the program */
+        private final List<Node> units;
+        /** the worker of each unit */
+        private final TypeAnalyser[] workers;
+        /** the error of each unit when errors are not collected */
+        private final TypeCheckingExpcetion[] failures;
+        /** the first unit of the range */
+        private final int from;
+        /** the end of the range, exclusive */
+        private final int to;
+
+        CheckTask(List<Node> units, TypeAnalyser[] workers, TypeCheckingExpcetion[] failures, int from, int to) {
+            this.units = units;
+            this.workers = workers;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CheckTask(units, workers, failures, from, middle),
+                        new CheckTask(units, workers, failures, middle, to));
+                return;
+            }
+            TypeAnalyser worker = new TypeAnalyser(TypeAnalyser.this,
+                    diagnostics == null ? null : new ArrayList<Diagnostic>());
+            workers[from] = worker;
+            try {
+                units.get(from).apply(worker.new TypeCheckVisitor());
+            } catch(TypeCheckingExpcetion e) {
+                failures[from] = e;
+            }
+        }
+    }
+
     /**
      * Visitor that checks if a AST is typecorrect. Uses there
      * nameAnalysis field of the TypeAnalyser as context for the analysis.
      */
     private class TypeCheckVisitor extends DepthFirstAdapter
     {
+        /**
+         * Throws the error, or records it when all errors are collected
+         * @param blame the node where the error was found
+         * @param msg the error message
+         * @throws TypeCheckingExpcetion when errors are not collected
+         */
+        private void error(Node blame, String msg) {
+            if(diagnostics == null) {
+                throw new TypeCheckingExpcetion(blame, msg);
+            }
+            diagnostics.add(new Diagnostic(blame, msg));
+        }
+
         /**
          * Check if an argument has the expected type
          * @param context a context for the possible exception
@@ -194,8 +482,12 @@ public class TypeAnalyser implements TypeAnalysis {
          */
         private void check(Node context, PExp argument, String argumentName, MjType expected) {
             MjType argType = getType(argument);
+            if(argType == MjError.INSTANCE || expected == MjError.INSTANCE) {
+                // the error is already reported
+                return;
+            }
             if(! argType.isSubtypeOf(expected, mjAnalysis)) {
-                throw new TypeCheckingExpcetion(context, argumentName + " should have type " + expected + " but has type " + argType + ".");
+                error(context, argumentName + " should have type " + expected + " but has type " + argType + ".");
             }
         }
 
@@ -211,95 +503,82 @@ public class TypeAnalyser implements TypeAnalysis {
 
         @Override
         public void outAIfStmt(AIfStmt node) {
-            check(node, node.getCond(), "Condition", new MjBool());
+            check(node, node.getCond(), "Condition", MjBool.INSTANCE);
         }
 
         @Override
         public void outAWhileStmt(AWhileStmt node) {
-            check(node, node.getCond(), "Condition", new MjBool());
+            check(node, node.getCond(), "Condition", MjBool.INSTANCE);
         }
 
         @Override
         public void caseACallStmt(ACallStmt node) {
 
             //Special case for System.out.println
-            if(node.getExp() != null) {
+            if(Builtins.isPrintln(node.getExp())) {
                 PExp exp = node.getExp();
-                if(((AMethodCallExp) exp).getName().getText().equals("println")) {
-                    PExp obj = ((AMethodCallExp) exp).getObj();
-                    if(obj instanceof AFieldAccessExp) {
-                        if(((AFieldAccessExp) obj).getName().getText().equals("out")) {
-                            PExp obj2 = ((AFieldAccessExp) obj).getObj();
-                            if(obj2 instanceof AIdentifierExp) {
-                                if(((AIdentifierExp) obj2).getName().getText().equals("System")) {
-                                    List<PExp> args = ((AMethodCallExp) exp).getArgs();
-                                    for(PExp e : args) {
-                                        e.apply(this);
-                                    }
-                                    if(args.size() == 1) {
-                                        if(getType(args.get(0)).isSubtypeOf(new MjInt(), mjAnalysis)) {
-                                            return;
-                                        }
-                                    }
-                                    throw new TypeCheckingExpcetion(exp, "Invalid parameter for System.out.println");
-                                }
-                            }
-                        }
-                    }
+                List<PExp> args = ((AMethodCallExp) exp).getArgs();
+                for(PExp e : args) {
+                    e.apply(this);
                 }
+                if(args.size() == 1 && getType(args.get(0)).isSubtypeOf(MjInt.INSTANCE, mjAnalysis)) {
+                    return;
+                }
+                error(exp, "Invalid parameter for System.out.println");
+                return;
             }
             super.caseACallStmt(node);
         }
 
         @Override
         public void outAAndExp(AAndExp node) {
-            check(node, node.getLeft(), "Left argument", new MjBool());
-            check(node, node.getRight(), "Right argument", new MjBool());
+            check(node, node.getLeft(), "Left argument", MjBool.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjBool.INSTANCE);
         }
 
         @Override
         public void outACmpExp(ACmpExp node) {
-            check(node, node.getLeft(), "Left argument", new MjInt());
-            check(node, node.getRight(), "Right argument", new MjInt());
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
         }
 
         @Override
         public void outAAddExp(AAddExp node) {
-            check(node, node.getLeft(), "Left argument", new MjInt());
-            check(node, node.getRight(), "Right argument", new MjInt());
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
         }
 
         @Override
         public void outASubExp(ASubExp node) {
-            check(node, node.getLeft(), "Left argument", new MjInt());
-            check(node, node.getRight(), "Right argument", new MjInt());
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
         }
 
         @Override
         public void outAMultExp(AMultExp node) {
-            check(node, node.getLeft(), "Left argument", new MjInt());
-            check(node, node.getRight(), "Right argument", new MjInt());
+            check(node, node.getLeft(), "Left argument", MjInt.INSTANCE);
+            check(node, node.getRight(), "Right argument", MjInt.INSTANCE);
         }
 
         @Override
         public void outANotExp(ANotExp node) {
-            check(node, node.getExp(), "Argument", new MjBool());
+            check(node, node.getExp(), "Argument", MjBool.INSTANCE);
         }
 
         @Override
         public void outANegExp(ANegExp node) {
-            check(node, node.getExp(), "Argument", new MjInt());
+            check(node, node.getExp(), "Argument", MjInt.INSTANCE);
         }
 
         @Override
         public void outAArrayAllocExp(AArrayAllocExp node) {
-            check(node, node.getSize(), "Size", new MjInt());
+            check(node, node.getSize(), "Size", MjInt.INSTANCE);
         }
 
         @Override
         public void outAArrayLookupExp(AArrayLookupExp node) {
-            check(node, node.getExp(), "Array", new MjIntArray());
-            check(node, node.getOffset(), "Index", new MjInt());
+            check(node, node.getExp(), "Array", MjIntArray.INSTANCE);
+            check(node, node.getOffset(), "Index", MjInt.INSTANCE);
         }
 
 
@@ -311,7 +590,7 @@ public class TypeAnalyser implements TypeAnalysis {
             //Special case for length
             if(idName.equals("length")) {
                 obj.apply(this);
-                if(getType(obj).isSubtypeOf(new MjIntArray(), mjAnalysis)) {
+                if(getType(obj).isSubtypeOf(MjIntArray.INSTANCE, mjAnalysis)) {
                     return;
                 }
             }
@@ -329,14 +608,20 @@ public class TypeAnalyser implements TypeAnalysis {
             TId name = node.getName();
             List<PExp> args = node.getArgs();
 
-            AMethodDecl methodDecl = nameAnalysis.getMethod(node);
+            AMethodDecl methodDecl = diagnostics == null ? nameAnalysis.getMethod(node) : nameAnalysis.findMethod(node);
+            if(methodDecl == null) {
+                // the name error is already reported
+                return;
+            }
             List<PTypedVar> formalParams = methodDecl.getFormalParams();
 
             if(args.size() < formalParams.size()) {
-                throw new TypeCheckingExpcetion(node, "To few parameters applied: Only " + args.size() + " out of " + formalParams.size() + ".");
+                error(node, "To few parameters applied: Only " + args.size() + " out of " + formalParams.size() + ".");
+                return;
             }
             if(args.size() > formalParams.size()) {
-                throw new TypeCheckingExpcetion(node, "To many parameters applied: " + args.size() + " instead of " + formalParams.size() + ".");
+                error(node, "To many parameters applied: " + args.size() + " instead of " + formalParams.size() + ".");
+                return;
             }
 
             for(int i = 0; i < args.size(); i++) {
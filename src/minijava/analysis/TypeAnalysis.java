@@ -1,5 +1,7 @@
 package minijava.analysis;
 
+import java.util.Map;
+
 import minijava.analysis.types.MjType;
 import minijava.node.AProgram;
 import minijava.node.PExp;
@@ -15,6 +17,22 @@ public interface TypeAnalysis {
 	 */
 	public abstract MjType getType(PExp e);
 
+	/**
+	 * @return the types computed so far, by expression. After checkProgram
+	 *         this contains every expression that was checked.
+	 */
+	public abstract Map<PExp, MjType> getTypeCache();
+
+	/**
+	 * @return the number of getType calls answered from the cache
+	 */
+	public abstract long getCacheHits();
+
+	/**
+	 * @return the number of getType calls that computed a type
+	 */
+	public abstract long getCacheMisses();
+
 	/**
 	 * Checks a whole program for type errors
 	 * @param prog the program to check
@@ -1,10 +1,25 @@
 package minijava.analysis;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import minijava.node.Start;
 import minijava.node.AProgram;
 
 public class TypeChecker {
 
+	/** orders diagnostics by the line and then the position of their node */
+	private static final Comparator<Diagnostic> SOURCE_ORDER = new Comparator<Diagnostic>() {
+		@Override
+		public int compare(Diagnostic a, Diagnostic b) {
+			int byLine = Integer.compare(a.getBlame().getLine(), b.getBlame().getLine());
+			return byLine != 0 ? byLine : Integer.compare(a.getBlame().getPos(), b.getBlame().getPos());
+		}
+	};
+
 	/**
 	 * Checks if a given program is type correct
 	 * 
@@ -22,4 +37,80 @@ public class TypeChecker {
         mjAnalysis.checkProgram();
         return mjAnalysis;
 	}
+
+	/**
+	 * Checks if a given program is type correct, checking the methods in
+	 * parallel after the name analysis
+	 * 
+	 * @param ast
+	 *            the AST of the program to analyze
+	 * @param pool
+	 *            the pool that runs the checks of the methods
+	 * @return An analysis object which provides the same results as the one
+	 *         of {@link #typecheckOrFail(Start)}
+	 * @throws TypeCheckingExpcetion
+	 *             when there is a type error in the program, the first one in
+	 *             program order
+	 */
+	public static MjAnalysis typecheckOrFail(Start ast, ForkJoinPool pool)
+			throws TypeCheckingExpcetion {
+        AProgram aProgram = (AProgram) ast.getPProgram();
+        MjAnalyser mjAnalysis = new MjAnalyser(aProgram);
+        mjAnalysis.checkProgram(pool);
+        return mjAnalysis;
+	}
+
+	/**
+	 * Checks if a given program is type correct, using a single traversal
+	 * for name and type analysis
+	 * 
+	 * @param ast
+	 *            the AST of the program to analyze
+	 * @return An analysis object which provides the same results as the one
+	 *         of {@link #typecheckOrFail(Start)}
+	 * @throws TypeCheckingExpcetion
+	 *             when there is a type error in the program
+	 */
+	public static MjAnalysis typecheckFusedOrFail(Start ast)
+			throws TypeCheckingExpcetion {
+        AProgram aProgram = (AProgram) ast.getPProgram();
+        MjAnalysis mjAnalysis = new FusedAnalyser(aProgram);
+        mjAnalysis.checkProgram();
+        return mjAnalysis;
+	}
+
+	/**
+	 * Checks a program and collects all name and type errors instead of
+	 * stopping at the first one
+	 * 
+	 * @param ast
+	 *            the AST of the program to analyze
+	 * @return the errors in source order, a name error before a type error
+	 *         at the same position; empty iff the program is type correct
+	 */
+	public static List<Diagnostic> collectErrors(Start ast) {
+        AProgram aProgram = (AProgram) ast.getPProgram();
+        List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+        new MjAnalyser(aProgram, diagnostics).checkProgram();
+        Collections.sort(diagnostics, SOURCE_ORDER);
+        return diagnostics;
+	}
+
+	/**
+	 * Collects all name and type errors like {@link #collectErrors(Start)},
+	 * checking the methods in parallel after the name analysis
+	 * 
+	 * @param ast
+	 *            the AST of the program to analyze
+	 * @param pool
+	 *            the pool that runs the checks of the methods
+	 * @return the same errors as {@link #collectErrors(Start)}, in the same order
+	 */
+	public static List<Diagnostic> collectErrors(Start ast, ForkJoinPool pool) {
+        AProgram aProgram = (AProgram) ast.getPProgram();
+        List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+        new MjAnalyser(aProgram, diagnostics).checkProgram(pool);
+        Collections.sort(diagnostics, SOURCE_ORDER);
+        return diagnostics;
+	}
 }
@@ -2,9 +2,20 @@ package minijava.analysis.types;
 
 import minijava.analysis.MjAnalysis;
 
-public class MjBool extends MjType {
+public final class MjBool extends MjType {
+	/** the only instance */
+	public static final MjBool INSTANCE = new MjBool();
+
+	private MjBool() {
+	}
+
 	@Override
 	public boolean isSubtypeOf(MjType other, MjAnalysis analysis) {
-        return other instanceof MjBool;
+        return other == INSTANCE;
     }
-}
\ No newline at end of file
+
+	@Override
+	public String toString() {
+		return "boolean";
+	}
+}
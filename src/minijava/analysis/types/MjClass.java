@@ -3,6 +3,10 @@ package minijava.analysis.types;
 import minijava.analysis.MjAnalysis;
 import minijava.node.AClassDecl;
 
+/**
+ * The type of objects of a class. The TypeAnalyser creates exactly one
+ * instance per class declaration.
+ */
 public class MjClass extends MjType {
     private AClassDecl classDecl;
     private String className;
@@ -21,12 +25,7 @@ public class MjClass extends MjType {
             return false;
         }
 
-        if(this.className == ((MjClass) other).className)  {
-            return true;
-        }
-
-        AClassDecl superClassDecl = analysis.getNameAnalysis().getSuperClass(classDecl);
-        return (superClassDecl != null) && new MjClass(superClassDecl).isSubtypeOf(other, analysis);
+        return analysis.getNameAnalysis().isSubclassOf(classDecl, ((MjClass) other).classDecl);
     }
 
 
@@ -38,4 +37,10 @@ public class MjClass extends MjType {
     public String getClassName() {
         return className;
     }
+
+
+    @Override
+    public String toString() {
+        return className;
+    }
 }
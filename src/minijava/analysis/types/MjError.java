@@ -0,0 +1,26 @@
+package minijava.analysis.types;
+
+import minijava.analysis.MjAnalysis;
+
+/**
+ * The type of an expression that could not be typed because of an error that
+ * was already reported. It is compatible with every type, so that one error
+ * does not cause further errors in the enclosing expressions.
+ */
+public final class MjError extends MjType {
+	/** the only instance */
+	public static final MjError INSTANCE = new MjError();
+
+	private MjError() {
+	}
+
+	@Override
+	public boolean isSubtypeOf(MjType other, MjAnalysis analysis) {
+        return true;
+    }
+
+	@Override
+	public String toString() {
+		return "<error>";
+	}
+}
@@ -2,9 +2,20 @@ package minijava.analysis.types;
 
 import minijava.analysis.MjAnalysis;
 
-public class MjInt extends MjType {
+public final class MjInt extends MjType {
+	/** the only instance */
+	public static final MjInt INSTANCE = new MjInt();
+
+	private MjInt() {
+	}
+
 	@Override
 	public boolean isSubtypeOf(MjType other, MjAnalysis analysis) {
-        return other instanceof MjInt;
+        return other == INSTANCE;
     }
-}
\ No newline at end of file
+
+	@Override
+	public String toString() {
+		return "int";
+	}
+}
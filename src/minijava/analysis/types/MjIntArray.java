@@ -2,9 +2,20 @@ package minijava.analysis.types;
 
 import minijava.analysis.MjAnalysis;
 
-public class MjIntArray extends MjType {
+public final class MjIntArray extends MjType {
+	/** the only instance */
+	public static final MjIntArray INSTANCE = new MjIntArray();
+
+	private MjIntArray() {
+	}
+
 	@Override
 	public boolean isSubtypeOf(MjType other, MjAnalysis analysis) {
-        return other instanceof MjIntArray;
+        return other == INSTANCE;
     }
-}
\ No newline at end of file
+
+	@Override
+	public String toString() {
+		return "int[]";
+	}
+}
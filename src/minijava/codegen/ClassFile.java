@@ -0,0 +1,275 @@
+package minijava.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * A JVM class file under construction: the constant pool, fields and methods
+ * of one class. See chapter 4 of the Java Virtual Machine Specification.
+ */
+class ClassFile {
+
+	/** the internal name of the class, e.g. "Foo" */
+	private final String name;
+
+	/** the internal name of the super class */
+	private final String superName;
+
+	/** the constant pool entries written so far */
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+	/** the index of every constant pool entry by a key describing it */
+	private final HashMap<String, Integer> constants = new HashMap<String, Integer>();
+
+	/** the number of constant pool slots used, slot 0 is reserved */
+	private int poolCount = 1;
+
+	/** the field_info structures written so far */
+	private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+
+	/** the number of fields */
+	private int fieldCount;
+
+	/** the method_info structures written so far */
+	private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+
+	/** the number of methods */
+	private int methodCount;
+
+	/**
+	 * @param name
+	 *            the internal name of the class
+	 * @param superName
+	 *            the internal name of the super class
+	 */
+	ClassFile(String name, String superName) {
+		this.name = name;
+		this.superName = superName;
+	}
+
+	/**
+	 * @return the internal name of the class
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @param key
+	 *            a unique description of the constant
+	 * @return the index of the constant, or null if it is not yet in the pool
+	 */
+	private Integer lookup(String key) {
+		return constants.get(key);
+	}
+
+	/**
+	 * @param key
+	 *            a unique description of the constant
+	 * @param tag
+	 *            the constant pool tag
+	 * @param content
+	 *            the bytes following the tag
+	 * @return the index of the new constant
+	 */
+	private int add(String key, int tag, byte[] content) {
+		pool.write(tag);
+		pool.write(content, 0, content.length);
+		int index = poolCount++;
+		constants.put(key, index);
+		return index;
+	}
+
+	/**
+	 * @param values
+	 *            unsigned 16 bit values
+	 * @return the values in big endian order
+	 */
+	private static byte[] u2s(int... values) {
+		byte[] bytes = new byte[2 * values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[2 * i] = (byte) (values[i] >> 8);
+			bytes[2 * i + 1] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param s
+	 *            a string
+	 * @return the index of a CONSTANT_Utf8 entry
+	 */
+	int utf8(String s) {
+		Integer index = lookup("U" + s);
+		if (index != null) {
+			return index;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			// class files use the same modified UTF-8 as DataOutput
+			new DataOutputStream(bytes).writeUTF(s);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return add("U" + s, 1, bytes.toByteArray());
+	}
+
+	/**
+	 * @param value
+	 *            an int
+	 * @return the index of a CONSTANT_Integer entry
+	 */
+	int integer(int value) {
+		Integer index = lookup("I" + value);
+		if (index != null) {
+			return index;
+		}
+		return add("I" + value, 3, new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8),
+				(byte) value });
+	}
+
+	/**
+	 * @param internalName
+	 *            the internal name of a class
+	 * @return the index of a CONSTANT_Class entry
+	 */
+	int classRef(String internalName) {
+		Integer index = lookup("C" + internalName);
+		if (index != null) {
+			return index;
+		}
+		return add("C" + internalName, 7, u2s(utf8(internalName)));
+	}
+
+	/**
+	 * @param memberName
+	 *            the name of a field or method
+	 * @param descriptor
+	 *            its descriptor
+	 * @return the index of a CONSTANT_NameAndType entry
+	 */
+	private int nameAndType(String memberName, String descriptor) {
+		String key = "N" + memberName + ":" + descriptor;
+		Integer index = lookup(key);
+		if (index != null) {
+			return index;
+		}
+		return add(key, 12, u2s(utf8(memberName), utf8(descriptor)));
+	}
+
+	/**
+	 * @param owner
+	 *            the internal name of the declaring class
+	 * @param fieldName
+	 *            the name of the field
+	 * @param descriptor
+	 *            the field descriptor
+	 * @return the index of a CONSTANT_Fieldref entry
+	 */
+	int fieldRef(String owner, String fieldName, String descriptor) {
+		String key = "F" + owner + "." + fieldName + ":" + descriptor;
+		Integer index = lookup(key);
+		if (index != null) {
+			return index;
+		}
+		return add(key, 9, u2s(classRef(owner), nameAndType(fieldName, descriptor)));
+	}
+
+	/**
+	 * @param owner
+	 *            the internal name of the class to search the method in
+	 * @param methodName
+	 *            the name of the method
+	 * @param descriptor
+	 *            the method descriptor
+	 * @return the index of a CONSTANT_Methodref entry
+	 */
+	int methodRef(String owner, String methodName, String descriptor) {
+		String key = "M" + owner + "." + methodName + ":" + descriptor;
+		Integer index = lookup(key);
+		if (index != null) {
+			return index;
+		}
+		return add(key, 10, u2s(classRef(owner), nameAndType(methodName, descriptor)));
+	}
+
+	/**
+	 * @param access
+	 *            the access flags
+	 * @param fieldName
+	 *            the name of the field
+	 * @param descriptor
+	 *            the field descriptor
+	 */
+	void addField(int access, String fieldName, String descriptor) {
+		byte[] info = u2s(access, utf8(fieldName), utf8(descriptor), 0);
+		fields.write(info, 0, info.length);
+		fieldCount++;
+	}
+
+	/**
+	 * @param access
+	 *            the access flags
+	 * @param methodName
+	 *            the name of the method
+	 * @param descriptor
+	 *            the method descriptor
+	 * @param code
+	 *            the finished code of the method
+	 */
+	void addMethod(int access, String methodName, String descriptor, Code code) {
+		byte[] bytecode = code.toByteArray();
+		int codeAttributeLength = 12 + bytecode.length;
+		ByteArrayOutputStream info = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(info);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(methodName));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(1); // attributes: Code
+			out.writeShort(utf8("Code"));
+			out.writeInt(codeAttributeLength);
+			out.writeShort(code.getMaxStack());
+			out.writeShort(code.getMaxLocals());
+			out.writeInt(bytecode.length);
+			out.write(bytecode);
+			out.writeShort(0); // exception table
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		methods.write(info.toByteArray(), 0, info.size());
+		methodCount++;
+	}
+
+	/**
+	 * @return the complete class file
+	 */
+	byte[] toByteArray() {
+		int thisIndex = classRef(name);
+		int superIndex = classRef(superName);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(Opcodes.MAJOR_VERSION);
+			out.writeShort(poolCount);
+			pool.writeTo(out);
+			out.writeShort(Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(0); // interfaces
+			out.writeShort(fieldCount);
+			fields.writeTo(out);
+			out.writeShort(methodCount);
+			methods.writeTo(out);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
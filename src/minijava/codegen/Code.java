@@ -0,0 +1,335 @@
+package minijava.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytecode of one method under construction. Keeps track of the operand
+ * stack depth while instructions are appended, so that max_stack is known when
+ * the method is finished.
+ */
+class Code {
+
+	/**
+	 * A position in the code that branches can jump to, before or after it is
+	 * bound
+	 */
+	static final class Label {
+		/** the bound position, or -1 */
+		private int position = -1;
+		/** the stack depth at the label, or -1 if not yet known */
+		private int stack = -1;
+		/** positions of branch instructions that still need the offset */
+		private final List<Integer> fixups = new ArrayList<Integer>();
+	}
+
+	/** the class this code belongs to, for constant pool entries */
+	private final ClassFile classFile;
+
+	/** the bytecode */
+	private byte[] code = new byte[64];
+
+	/** the number of bytes used */
+	private int length;
+
+	/**
+	 * the current stack depth; behind an unconditional jump or return the
+	 * depth at that instruction, which the code up to the next label keeps
+	 */
+	private int stack;
+
+	/** false behind an unconditional jump or return until the next label */
+	private boolean reachable = true;
+
+	/** the maximal stack depth */
+	private int maxStack;
+
+	/** the number of local variable slots */
+	private final int maxLocals;
+
+	/**
+	 * @param classFile
+	 *            the class this code belongs to
+	 * @param maxLocals
+	 *            the number of local variable slots, including this and the
+	 *            parameters
+	 */
+	Code(ClassFile classFile, int maxLocals) {
+		this.classFile = classFile;
+		this.maxLocals = maxLocals;
+	}
+
+	/**
+	 * @return the maximal stack depth
+	 */
+	int getMaxStack() {
+		return maxStack;
+	}
+
+	/**
+	 * @return the number of local variable slots
+	 */
+	int getMaxLocals() {
+		return maxLocals;
+	}
+
+	/**
+	 * @return the bytecode
+	 */
+	byte[] toByteArray() {
+		byte[] result = new byte[length];
+		System.arraycopy(code, 0, result, 0, length);
+		return result;
+	}
+
+	/**
+	 * @param b
+	 *            a byte to append
+	 */
+	private void u1(int b) {
+		if (length == code.length) {
+			byte[] larger = new byte[2 * code.length];
+			System.arraycopy(code, 0, larger, 0, length);
+			code = larger;
+		}
+		code[length++] = (byte) b;
+	}
+
+	/**
+	 * @param value
+	 *            a 16 bit value to append
+	 */
+	private void u2(int value) {
+		u1(value >> 8);
+		u1(value);
+	}
+
+	/**
+	 * @param delta
+	 *            the change of the stack depth by an instruction
+	 */
+	private void adjustStack(int delta) {
+		stack += delta;
+		maxStack = Math.max(maxStack, stack);
+	}
+
+	/**
+	 * Append an instruction without operands
+	 *
+	 * @param opcode
+	 *            the opcode
+	 * @param delta
+	 *            the change of the stack depth
+	 */
+	void op(int opcode, int delta) {
+		adjustStack(delta);
+		u1(opcode);
+		if (opcode == Opcodes.RETURN || opcode == Opcodes.IRETURN || opcode == Opcodes.ARETURN) {
+			reachable = false;
+		}
+	}
+
+	/**
+	 * @param value
+	 *            an int to push
+	 */
+	void pushInt(int value) {
+		adjustStack(1);
+		if (value >= -1 && value <= 5) {
+			u1(Opcodes.ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			u1(Opcodes.BIPUSH);
+			u1(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			u1(Opcodes.SIPUSH);
+			u2(value);
+		} else {
+			int index = classFile.integer(value);
+			if (index < 256) {
+				u1(Opcodes.LDC);
+				u1(index);
+			} else {
+				u1(Opcodes.LDC_W);
+				u2(index);
+			}
+		}
+	}
+
+	/**
+	 * @param opcode
+	 *            a load or store opcode
+	 * @param slot
+	 *            the local variable slot
+	 * @param delta
+	 *            the change of the stack depth
+	 */
+	private void local(int opcode, int slot, int delta) {
+		adjustStack(delta);
+		if (slot < 256) {
+			u1(opcode);
+			u1(slot);
+		} else {
+			u1(Opcodes.WIDE);
+			u1(opcode);
+			u2(slot);
+		}
+	}
+
+	/**
+	 * @param slot
+	 *            the local variable slot
+	 * @param reference
+	 *            true for a reference, false for an int or boolean
+	 */
+	void load(int slot, boolean reference) {
+		local(reference ? Opcodes.ALOAD : Opcodes.ILOAD, slot, 1);
+	}
+
+	/**
+	 * @param slot
+	 *            the local variable slot
+	 * @param reference
+	 *            true for a reference, false for an int or boolean
+	 */
+	void store(int slot, boolean reference) {
+		local(reference ? Opcodes.ASTORE : Opcodes.ISTORE, slot, -1);
+	}
+
+	/**
+	 * Append a field instruction
+	 *
+	 * @param opcode
+	 *            GETFIELD, PUTFIELD or GETSTATIC
+	 * @param owner
+	 *            the internal name of the declaring class
+	 * @param name
+	 *            the name of the field
+	 * @param descriptor
+	 *            the field descriptor
+	 */
+	void field(int opcode, String owner, String name, String descriptor) {
+		int delta = opcode == Opcodes.GETFIELD ? 0 : opcode == Opcodes.PUTFIELD ? -2 : 1;
+		adjustStack(delta);
+		u1(opcode);
+		u2(classFile.fieldRef(owner, name, descriptor));
+	}
+
+	/**
+	 * Append a method invocation
+	 *
+	 * @param opcode
+	 *            INVOKEVIRTUAL or INVOKESPECIAL
+	 * @param owner
+	 *            the internal name of the class
+	 * @param name
+	 *            the name of the method
+	 * @param descriptor
+	 *            the method descriptor
+	 * @param argumentCount
+	 *            the number of arguments, without the receiver
+	 */
+	void invoke(int opcode, String owner, String name, String descriptor, int argumentCount) {
+		adjustStack(-(argumentCount + 1) + (descriptor.endsWith(")V") ? 0 : 1));
+		u1(opcode);
+		u2(classFile.methodRef(owner, name, descriptor));
+	}
+
+	/**
+	 * @param internalName
+	 *            the class of the new object
+	 */
+	void newObject(String internalName) {
+		adjustStack(1);
+		u1(Opcodes.NEW);
+		u2(classFile.classRef(internalName));
+	}
+
+	/**
+	 * Create an int[] of the size on top of the stack
+	 */
+	void newIntArray() {
+		adjustStack(0);
+		u1(Opcodes.NEWARRAY);
+		u1(Opcodes.T_INT);
+	}
+
+	/**
+	 * Append a branch instruction
+	 *
+	 * @param opcode
+	 *            a conditional branch or GOTO
+	 * @param target
+	 *            the label to jump to
+	 */
+	void jump(int opcode, Label target) {
+		int delta = opcode == Opcodes.GOTO ? 0 : opcode == Opcodes.IFEQ || opcode == Opcodes.IFNE ? -1 : -2;
+		adjustStack(delta);
+		if (target.stack >= 0 && target.stack != stack) {
+			throw new IllegalStateException("inconsistent stack depth at branch target");
+		}
+		target.stack = stack;
+		int position = length;
+		u1(opcode);
+		if (target.position >= 0) {
+			u2(offset(position, target.position));
+		} else {
+			target.fixups.add(position);
+			u2(0);
+		}
+		if (opcode == Opcodes.GOTO) {
+			reachable = false;
+		}
+	}
+
+	/**
+	 * Declare that the stack depth at a label is the current one. Needed for
+	 * a label that may be bound behind an unconditional jump without any
+	 * branch to it, at a depth other than the one at the jump.
+	 *
+	 * @param label
+	 *            a label without branches to it
+	 */
+	void expectCurrentStack(Label label) {
+		label.stack = stack;
+	}
+
+	/**
+	 * Bind a label to the current position. Behind an unconditional jump the
+	 * depth of the label is taken, or if no branch to it is known yet the
+	 * depth at the jump, e.g. for the body of a loop whose condition follows.
+	 *
+	 * @param label
+	 *            a label that is not yet bound
+	 */
+	void bind(Label label) {
+		if (!reachable && label.stack >= 0) {
+			stack = label.stack;
+		} else if (label.stack >= 0 && label.stack != stack) {
+			throw new IllegalStateException("inconsistent stack depth at label");
+		}
+		reachable = true;
+		label.stack = stack;
+		label.position = length;
+		for (int branch : label.fixups) {
+			int offset = offset(branch, length);
+			code[branch + 1] = (byte) (offset >> 8);
+			code[branch + 2] = (byte) offset;
+		}
+		label.fixups.clear();
+	}
+
+	/**
+	 * @param from
+	 *            the position of a branch instruction
+	 * @param to
+	 *            the position of its target
+	 * @return the 16 bit branch offset
+	 */
+	private static int offset(int from, int to) {
+		int offset = to - from;
+		if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+			throw new IllegalStateException("method too large: branch offset " + offset);
+		}
+		return offset;
+	}
+}
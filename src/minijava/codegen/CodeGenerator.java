@@ -0,0 +1,481 @@
+package minijava.codegen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import minijava.analysis.Builtins;
+import minijava.analysis.MjAnalysis;
+import minijava.analysis.NameAnalysis;
+import minijava.analysis.types.MjIntArray;
+import minijava.node.AAddExp;
+import minijava.node.AAndExp;
+import minijava.node.AArrayAllocExp;
+import minijava.node.AArrayLookupExp;
+import minijava.node.AAssignStmt;
+import minijava.node.ABlockStmt;
+import minijava.node.ABoolType;
+import minijava.node.ACallStmt;
+import minijava.node.AClassDecl;
+import minijava.node.AClassType;
+import minijava.node.ACmpExp;
+import minijava.node.AFalseExp;
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AIfStmt;
+import minijava.node.AIntLiteralExp;
+import minijava.node.AIntType;
+import minijava.node.AIntarrayType;
+import minijava.node.AMainClass;
+import minijava.node.AMethodCallExp;
+import minijava.node.AMethodDecl;
+import minijava.node.AMultExp;
+import minijava.node.ANegExp;
+import minijava.node.ANotExp;
+import minijava.node.AObjAllocExp;
+import minijava.node.ASubExp;
+import minijava.node.AThisExp;
+import minijava.node.ATrueExp;
+import minijava.node.ATypedVar;
+import minijava.node.AWhileStmt;
+import minijava.node.PClassDecl;
+import minijava.node.PExp;
+import minijava.node.PMethodDecl;
+import minijava.node.PStmt;
+import minijava.node.PType;
+import minijava.node.PTypedVar;
+
+/**
+ * Lowers a type checked program to JVM class files: one class per class
+ * declaration plus the main class. The classes are in the default package and
+ * can be run with {@code java -cp <dir> <MainClass>}.
+ */
+public class CodeGenerator {
+
+	/** the analysis of the program */
+	private final MjAnalysis analysis;
+
+	/** the name analysis of the program */
+	private final NameAnalysis nameAnalysis;
+
+	/** the code of the method that is currently generated */
+	private Code code;
+
+	/** the local variable slots of the method that is currently generated */
+	private IdentityHashMap<ATypedVar, Integer> slots;
+
+	/**
+	 * @param analysis
+	 *            the analysis of a type correct program
+	 */
+	public CodeGenerator(MjAnalysis analysis) {
+		this.analysis = analysis;
+		this.nameAnalysis = analysis.getNameAnalysis();
+	}
+
+	/**
+	 * @return the class files by class name, the main class first
+	 */
+	public Map<String, byte[]> generate() {
+		Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+		ClassFile main = generateMainClass((AMainClass) analysis.getProgram().getMain());
+		classes.put(main.getName(), main.toByteArray());
+		for (PClassDecl decl : analysis.getProgram().getDecls()) {
+			ClassFile classFile = generateClass((AClassDecl) decl);
+			classes.put(classFile.getName(), classFile.toByteArray());
+		}
+		return classes;
+	}
+
+	/**
+	 * Write class files to a directory
+	 *
+	 * @param classes
+	 *            the class files by class name
+	 * @param dir
+	 *            the output directory, created if necessary
+	 * @throws IOException
+	 *             if a file cannot be written
+	 */
+	public static void writeClasses(Map<String, byte[]> classes, File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create directory " + dir);
+		}
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			try (OutputStream out = new FileOutputStream(new File(dir, entry.getKey() + ".class"))) {
+				out.write(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @param main
+	 *            the main class
+	 * @return its class file with a static main method
+	 */
+	private ClassFile generateMainClass(AMainClass main) {
+		ClassFile classFile = new ClassFile(main.getId().getText(), "java/lang/Object");
+		generateConstructor(classFile, "java/lang/Object");
+
+		slots = new IdentityHashMap<ATypedVar, Integer>();
+		code = new Code(classFile, 1 + main.getLocalVars().size());
+		initLocals(main.getLocalVars(), 1);
+		generate(main.getStms());
+		code.op(Opcodes.RETURN, 0);
+		classFile.addMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", code);
+		return classFile;
+	}
+
+	/**
+	 * @param classDecl
+	 *            a class declaration
+	 * @return its class file
+	 */
+	private ClassFile generateClass(AClassDecl classDecl) {
+		String superName = classDecl.getSuper() == null ? "java/lang/Object" : classDecl.getSuper().getText();
+		ClassFile classFile = new ClassFile(classDecl.getId().getText(), superName);
+		generateConstructor(classFile, superName);
+		for (PTypedVar field : classDecl.getFields()) {
+			ATypedVar var = (ATypedVar) field;
+			classFile.addField(Opcodes.ACC_PUBLIC, var.getName().getText(), descriptor(var.getType()));
+		}
+		for (PMethodDecl method : classDecl.getMethods()) {
+			generateMethod(classFile, (AMethodDecl) method);
+		}
+		return classFile;
+	}
+
+	/**
+	 * @param classFile
+	 *            a class
+	 * @param superName
+	 *            the internal name of its super class
+	 */
+	private void generateConstructor(ClassFile classFile, String superName) {
+		Code init = new Code(classFile, 1);
+		init.load(0, true);
+		init.invoke(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", 0);
+		init.op(Opcodes.RETURN, 0);
+		classFile.addMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", init);
+	}
+
+	/**
+	 * @param classFile
+	 *            the class of the method
+	 * @param method
+	 *            a method declaration
+	 */
+	private void generateMethod(ClassFile classFile, AMethodDecl method) {
+		List<PTypedVar> params = method.getFormalParams();
+		slots = new IdentityHashMap<ATypedVar, Integer>();
+		code = new Code(classFile, 1 + params.size() + method.getLocalVars().size());
+		for (int i = 0; i < params.size(); i++) {
+			slots.put((ATypedVar) params.get(i), 1 + i);
+		}
+		initLocals(method.getLocalVars(), 1 + params.size());
+		generate(method.getStmts());
+		generate(method.getRetExp());
+		code.op(isReference(method.getRetType()) ? Opcodes.ARETURN : Opcodes.IRETURN, -1);
+		classFile.addMethod(Opcodes.ACC_PUBLIC, method.getName().getText(), descriptor(method), code);
+	}
+
+	/**
+	 * Assign slots to local variables and initialize them with the default
+	 * value of their type, like the interpreter does
+	 *
+	 * @param vars
+	 *            the local variables
+	 * @param firstSlot
+	 *            the slot of the first variable
+	 */
+	private void initLocals(List<PTypedVar> vars, int firstSlot) {
+		int slot = firstSlot;
+		for (PTypedVar v : vars) {
+			ATypedVar var = (ATypedVar) v;
+			slots.put(var, slot);
+			if (isReference(var.getType())) {
+				code.op(Opcodes.ACONST_NULL, 1);
+			} else {
+				code.pushInt(0);
+			}
+			code.store(slot, isReference(var.getType()));
+			slot++;
+		}
+	}
+
+	/**
+	 * @param type
+	 *            a type
+	 * @return true iff values of the type are references
+	 */
+	private static boolean isReference(PType type) {
+		return type instanceof AIntarrayType || type instanceof AClassType;
+	}
+
+	/**
+	 * @param type
+	 *            a type
+	 * @return its field descriptor
+	 */
+	static String descriptor(PType type) {
+		if (type instanceof AIntType) {
+			return "I";
+		}
+		if (type instanceof ABoolType) {
+			return "Z";
+		}
+		if (type instanceof AIntarrayType) {
+			return "[I";
+		}
+		if (type instanceof AClassType) {
+			return "L" + ((AClassType) type).getName().getText() + ";";
+		}
+		throw new RuntimeException("Unknown subclass of PType: " + type);
+	}
+
+	/**
+	 * @param method
+	 *            a method declaration
+	 * @return its method descriptor
+	 */
+	static String descriptor(AMethodDecl method) {
+		StringBuilder sb = new StringBuilder("(");
+		for (PTypedVar param : method.getFormalParams()) {
+			sb.append(descriptor(((ATypedVar) param).getType()));
+		}
+		return sb.append(")").append(descriptor(method.getRetType())).toString();
+	}
+
+	/**
+	 * @param var
+	 *            a variable declaration
+	 * @return the internal name of the declaring class if the variable is a
+	 *         field, otherwise null
+	 */
+	private static String fieldOwner(ATypedVar var) {
+		if (var.parent() instanceof AClassDecl) {
+			return ((AClassDecl) var.parent()).getId().getText();
+		}
+		return null;
+	}
+
+	/**
+	 * @param stmts
+	 *            statements to generate in order
+	 */
+	private void generate(List<PStmt> stmts) {
+		for (PStmt stmt : stmts) {
+			generate(stmt);
+		}
+	}
+
+	/**
+	 * @param s
+	 *            a statement
+	 */
+	private void generate(PStmt s) {
+		if (s instanceof ABlockStmt) {
+			generate(((ABlockStmt) s).getStmts());
+		} else if (s instanceof AAssignStmt) {
+			generateAssign((AAssignStmt) s);
+		} else if (s instanceof AIfStmt) {
+			AIfStmt stmt = (AIfStmt) s;
+			Code.Label otherwise = new Code.Label();
+			Code.Label end = new Code.Label();
+			generateCondition(stmt.getCond(), otherwise, false);
+			generate(stmt.getTstmt());
+			code.jump(Opcodes.GOTO, end);
+			code.bind(otherwise);
+			generate(stmt.getFstmt());
+			code.bind(end);
+		} else if (s instanceof AWhileStmt) {
+			AWhileStmt stmt = (AWhileStmt) s;
+			Code.Label body = new Code.Label();
+			Code.Label cond = new Code.Label();
+			code.jump(Opcodes.GOTO, cond);
+			code.bind(body);
+			generate(stmt.getBody());
+			code.bind(cond);
+			generateCondition(stmt.getCond(), body, true);
+		} else if (s instanceof ACallStmt) {
+			PExp exp = ((ACallStmt) s).getExp();
+			if (Builtins.isPrintln(exp)) {
+				code.field(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+				generate(((AMethodCallExp) exp).getArgs().get(0));
+				code.invoke(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V", 1);
+			} else {
+				generate(exp);
+				code.op(Opcodes.POP, -1);
+			}
+		} else {
+			throw new RuntimeException("Unknown subclass of PStmt: " + s);
+		}
+	}
+
+	/**
+	 * @param stmt
+	 *            an assignment
+	 */
+	private void generateAssign(AAssignStmt stmt) {
+		PExp lhs = stmt.getLhs();
+		if (lhs instanceof AIdentifierExp) {
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) lhs).getName());
+			String owner = fieldOwner(var);
+			if (owner != null) {
+				code.load(0, true);
+				generate(stmt.getRhs());
+				code.field(Opcodes.PUTFIELD, owner, var.getName().getText(), descriptor(var.getType()));
+			} else {
+				generate(stmt.getRhs());
+				code.store(slots.get(var), isReference(var.getType()));
+			}
+		} else if (lhs instanceof AFieldAccessExp) {
+			ATypedVar var = nameAnalysis.getField((AFieldAccessExp) lhs);
+			generate(((AFieldAccessExp) lhs).getObj());
+			generate(stmt.getRhs());
+			code.field(Opcodes.PUTFIELD, fieldOwner(var), var.getName().getText(), descriptor(var.getType()));
+		} else if (lhs instanceof AArrayLookupExp) {
+			generate(((AArrayLookupExp) lhs).getExp());
+			generate(((AArrayLookupExp) lhs).getOffset());
+			generate(stmt.getRhs());
+			code.op(Opcodes.IASTORE, -3);
+		} else {
+			throw new RuntimeException("Illegal left-hand side of an assignment: " + lhs);
+		}
+	}
+
+	/**
+	 * Generate a jump to target that is taken iff the condition evaluates to
+	 * jumpIf, and falls through otherwise
+	 *
+	 * @param e
+	 *            a boolean expression
+	 * @param target
+	 *            the label to jump to
+	 * @param jumpIf
+	 *            the value of the condition for which to jump
+	 */
+	private void generateCondition(PExp e, Code.Label target, boolean jumpIf) {
+		if (e instanceof ATrueExp || e instanceof AFalseExp) {
+			if ((e instanceof ATrueExp) == jumpIf) {
+				code.jump(Opcodes.GOTO, target);
+			}
+		} else if (e instanceof ANotExp) {
+			generateCondition(((ANotExp) e).getExp(), target, !jumpIf);
+		} else if (e instanceof ACmpExp) {
+			generate(((ACmpExp) e).getLeft());
+			generate(((ACmpExp) e).getRight());
+			code.jump(jumpIf ? Opcodes.IF_ICMPLT : Opcodes.IF_ICMPGE, target);
+		} else if (e instanceof AAndExp) {
+			AAndExp and = (AAndExp) e;
+			if (jumpIf) {
+				Code.Label skip = new Code.Label();
+				generateCondition(and.getLeft(), skip, false);
+				generateCondition(and.getRight(), target, true);
+				code.bind(skip);
+			} else {
+				generateCondition(and.getLeft(), target, false);
+				generateCondition(and.getRight(), target, false);
+			}
+		} else {
+			generate(e);
+			code.jump(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, target);
+		}
+	}
+
+	/**
+	 * Generate code that pushes the value of an expression
+	 *
+	 * @param e
+	 *            an expression
+	 */
+	private void generate(PExp e) {
+		if (e instanceof AAndExp || e instanceof ACmpExp) {
+			Code.Label isFalse = new Code.Label();
+			Code.Label end = new Code.Label();
+			// a constant true condition does not branch to isFalse
+			code.expectCurrentStack(isFalse);
+			generateCondition(e, isFalse, false);
+			code.pushInt(1);
+			code.jump(Opcodes.GOTO, end);
+			code.bind(isFalse);
+			code.pushInt(0);
+			code.bind(end);
+		} else if (e instanceof AAddExp) {
+			generate(((AAddExp) e).getLeft());
+			generate(((AAddExp) e).getRight());
+			code.op(Opcodes.IADD, -1);
+		} else if (e instanceof ASubExp) {
+			generate(((ASubExp) e).getLeft());
+			generate(((ASubExp) e).getRight());
+			code.op(Opcodes.ISUB, -1);
+		} else if (e instanceof AMultExp) {
+			generate(((AMultExp) e).getLeft());
+			generate(((AMultExp) e).getRight());
+			code.op(Opcodes.IMUL, -1);
+		} else if (e instanceof ANotExp) {
+			generate(((ANotExp) e).getExp());
+			code.pushInt(1);
+			code.op(Opcodes.IXOR, -1);
+		} else if (e instanceof ANegExp) {
+			generate(((ANegExp) e).getExp());
+			code.op(Opcodes.INEG, 0);
+		} else if (e instanceof AIntLiteralExp) {
+			code.pushInt(Integer.parseInt(((AIntLiteralExp) e).getInteger().getText()));
+		} else if (e instanceof ATrueExp) {
+			code.pushInt(1);
+		} else if (e instanceof AFalseExp) {
+			code.pushInt(0);
+		} else if (e instanceof AThisExp) {
+			code.load(0, true);
+		} else if (e instanceof AIdentifierExp) {
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) e).getName());
+			String owner = fieldOwner(var);
+			if (owner != null) {
+				code.load(0, true);
+				code.field(Opcodes.GETFIELD, owner, var.getName().getText(), descriptor(var.getType()));
+			} else {
+				code.load(slots.get(var), isReference(var.getType()));
+			}
+		} else if (e instanceof AArrayAllocExp) {
+			generate(((AArrayAllocExp) e).getSize());
+			code.newIntArray();
+		} else if (e instanceof AObjAllocExp) {
+			String className = nameAnalysis.lookupClass(((AObjAllocExp) e).getName()).getId().getText();
+			code.newObject(className);
+			code.op(Opcodes.DUP, 1);
+			code.invoke(Opcodes.INVOKESPECIAL, className, "<init>", "()V", 0);
+		} else if (e instanceof AArrayLookupExp) {
+			generate(((AArrayLookupExp) e).getExp());
+			generate(((AArrayLookupExp) e).getOffset());
+			code.op(Opcodes.IALOAD, -1);
+		} else if (e instanceof AFieldAccessExp) {
+			AFieldAccessExp access = (AFieldAccessExp) e;
+			generate(access.getObj());
+			if (access.getName().getText().equals("length")
+					&& analysis.getTypeAnalysis().getType(access.getObj()) == MjIntArray.INSTANCE) {
+				code.op(Opcodes.ARRAYLENGTH, 0);
+			} else {
+				ATypedVar var = nameAnalysis.getField(access);
+				code.field(Opcodes.GETFIELD, fieldOwner(var), var.getName().getText(), descriptor(var.getType()));
+			}
+		} else if (e instanceof AMethodCallExp) {
+			AMethodCallExp call = (AMethodCallExp) e;
+			AMethodDecl method = nameAnalysis.getMethod(call);
+			generate(call.getObj());
+			for (PExp arg : call.getArgs()) {
+				generate(arg);
+			}
+			String owner = ((AClassDecl) method.parent()).getId().getText();
+			code.invoke(Opcodes.INVOKEVIRTUAL, owner, method.getName().getText(), descriptor(method),
+					call.getArgs().size());
+		} else {
+			throw new RuntimeException("Unknown subclass of PExp: " + e);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package minijava.codegen;
+
+/**
+ * The JVM opcodes and constants used by the code generator
+ */
+final class Opcodes {
+
+	private Opcodes() {
+	}
+
+	/** class file version 49 (Java 5), verified without StackMapTable frames */
+	static final int MAJOR_VERSION = 49;
+
+	/** access flag public */
+	static final int ACC_PUBLIC = 0x0001;
+	/** access flag static */
+	static final int ACC_STATIC = 0x0008;
+	/** access flag super, required for classes */
+	static final int ACC_SUPER = 0x0020;
+
+	/** push null */
+	static final int ACONST_NULL = 0x01;
+	/** push int constant 0, the constants -1 to 5 are consecutive */
+	static final int ICONST_0 = 0x03;
+	/** push byte */
+	static final int BIPUSH = 0x10;
+	/** push short */
+	static final int SIPUSH = 0x11;
+	/** push constant */
+	static final int LDC = 0x12;
+	/** push constant, wide index */
+	static final int LDC_W = 0x13;
+	/** load int local */
+	static final int ILOAD = 0x15;
+	/** load reference local */
+	static final int ALOAD = 0x19;
+	/** load int from array */
+	static final int IALOAD = 0x2e;
+	/** store int local */
+	static final int ISTORE = 0x36;
+	/** store reference local */
+	static final int ASTORE = 0x3a;
+	/** store int into array */
+	static final int IASTORE = 0x4f;
+	/** pop one value */
+	static final int POP = 0x57;
+	/** duplicate the top value */
+	static final int DUP = 0x59;
+	/** add int */
+	static final int IADD = 0x60;
+	/** subtract int */
+	static final int ISUB = 0x64;
+	/** multiply int */
+	static final int IMUL = 0x68;
+	/** negate int */
+	static final int INEG = 0x74;
+	/** xor int */
+	static final int IXOR = 0x82;
+	/** branch if int is zero */
+	static final int IFEQ = 0x99;
+	/** branch if int is not zero */
+	static final int IFNE = 0x9a;
+	/** branch if int comparison less than succeeds */
+	static final int IF_ICMPLT = 0xa1;
+	/** branch if int comparison greater or equal succeeds */
+	static final int IF_ICMPGE = 0xa2;
+	/** branch always */
+	static final int GOTO = 0xa7;
+	/** return int */
+	static final int IRETURN = 0xac;
+	/** return reference */
+	static final int ARETURN = 0xb0;
+	/** return void */
+	static final int RETURN = 0xb1;
+	/** get static field */
+	static final int GETSTATIC = 0xb2;
+	/** get field */
+	static final int GETFIELD = 0xb4;
+	/** set field */
+	static final int PUTFIELD = 0xb5;
+	/** invoke instance method, dispatched on the receiver */
+	static final int INVOKEVIRTUAL = 0xb6;
+	/** invoke constructor or super method */
+	static final int INVOKESPECIAL = 0xb7;
+	/** create object */
+	static final int NEW = 0xbb;
+	/** create primitive array */
+	static final int NEWARRAY = 0xbc;
+	/** array length */
+	static final int ARRAYLENGTH = 0xbe;
+	/** wide local index prefix */
+	static final int WIDE = 0xc4;
+
+	/** the array type code of int for NEWARRAY */
+	static final int T_INT = 10;
+}
@@ -0,0 +1,291 @@
+package minijava.generator;
+
+import java.util.Random;
+
+/**
+ * Generates large, type correct MiniJava programs for scaling tests. The
+ * output only depends on the parameters and the seed.
+ *
+ * Classes C0 to Cn-1 form inheritance chains of the given depth: Ci extends
+ * Ci-1 unless i is a multiple of depth + 1. Every class declares the methods
+ * m0 to mk-1, so subclasses override the methods of their super classes. A
+ * method body initializes all its locals, assigns them again and then runs
+ * one if/while statement of the given nesting depth. Since no local is read
+ * before it is initialized, the programs are valid Java, too. Method mj only
+ * calls methods with a smaller index on this, or methods of classes with a
+ * smaller index, and every loop counts a counter that is not assigned
+ * otherwise up to 3, so all generated programs terminate (though not
+ * necessarily quickly).
+ */
+public class ProgramGenerator {
+
+	/** the number of classes besides the main class */
+	private final int classes;
+
+	/** the number of super classes of the deepest class of each chain */
+	private final int inheritanceDepth;
+
+	/** the number of methods declared in every class */
+	private final int methods;
+
+	/** the number of int locals of every method */
+	private final int locals;
+
+	/** the nesting depth of if and while statements */
+	private final int nesting;
+
+	/** the number of binary operators in every generated expression */
+	private final int expressionSize;
+
+	/** the random number generator of the current program */
+	private Random random;
+
+	/** the output */
+	private StringBuilder out;
+
+	/**
+	 * @param classes
+	 *            the number of classes besides the main class, at least 1
+	 * @param inheritanceDepth
+	 *            the length of the inheritance chains minus one
+	 * @param methods
+	 *            the number of methods per class, at least 1
+	 * @param locals
+	 *            the number of int locals per method, at least 1
+	 * @param nesting
+	 *            the nesting depth of if and while statements
+	 * @param expressionSize
+	 *            the number of binary operators per expression
+	 */
+	public ProgramGenerator(int classes, int inheritanceDepth, int methods, int locals, int nesting,
+			int expressionSize) {
+		if (classes < 1 || inheritanceDepth < 0 || methods < 1 || locals < 1 || nesting < 0
+				|| expressionSize < 0) {
+			throw new IllegalArgumentException("Invalid program shape");
+		}
+		this.classes = classes;
+		this.inheritanceDepth = inheritanceDepth;
+		this.methods = methods;
+		this.locals = locals;
+		this.nesting = nesting;
+		this.expressionSize = expressionSize;
+	}
+
+	/**
+	 * @param seed
+	 *            the seed of the random choices
+	 * @return the source text of a program with main class Main
+	 */
+	public String generate(long seed) {
+		random = new Random(seed);
+		out = new StringBuilder();
+		out.append("class Main {\n\tpublic static void main(String[] args) {\n");
+		for (int c = 0; c < classes; c++) {
+			out.append("\t\tSystem.out.println(new C").append(c).append("().m").append(methods - 1)
+					.append("(").append(c).append(", 1));\n");
+		}
+		out.append("\t}\n}\n");
+		for (int c = 0; c < classes; c++) {
+			generateClass(c);
+		}
+		String result = out.toString();
+		out = null;
+		random = null;
+		return result;
+	}
+
+	/**
+	 * @return the source text for seed 0
+	 */
+	public String generate() {
+		return generate(0);
+	}
+
+	/**
+	 * @param c
+	 *            the index of a class
+	 * @return true iff the class extends class c - 1
+	 */
+	private boolean hasSuper(int c) {
+		return c % (inheritanceDepth + 1) != 0;
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class to generate
+	 */
+	private void generateClass(int c) {
+		out.append("\nclass C").append(c);
+		if (hasSuper(c)) {
+			out.append(" extends C").append(c - 1);
+		}
+		out.append(" {\n\tint f").append(c).append(";\n");
+		for (int m = 0; m < methods; m++) {
+			generateMethod(c, m);
+		}
+		out.append("}\n");
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 */
+	private void generateMethod(int c, int m) {
+		out.append("\n\tpublic int m").append(m).append("(int p, int q) {\n");
+		for (int i = 0; i < locals; i++) {
+			out.append("\t\tint v").append(i).append(";\n");
+		}
+		for (int d = 0; d < nesting; d++) {
+			out.append("\t\tint i").append(d).append(";\n");
+		}
+		out.append("\t\tboolean b;\n\t\tint[] a;\n");
+		out.append("\t\ta = new int[5];\n\t\tb = false;\n");
+		for (int i = 0; i < locals; i++) {
+			out.append("\t\tv").append(i).append(" = ").append(i).append(";\n");
+		}
+		out.append("\t\tb = ").append(bool(c, m)).append(";\n");
+		for (int i = 0; i < locals; i++) {
+			out.append("\t\tv").append(i).append(" = ").append(intExp(c, m, expressionSize)).append(";\n");
+		}
+		generateNested(c, m, 0, "\t\t");
+		out.append("\t\tf").append(fieldOwner(c)).append(" = ").append(intExp(c, m, expressionSize))
+				.append(";\n");
+		out.append("\t\treturn ").append(intExp(c, m, expressionSize)).append(";\n\t}\n");
+	}
+
+	/**
+	 * @param c
+	 *            the index of a class
+	 * @return the index of a class whose field is visible in class c
+	 */
+	private int fieldOwner(int c) {
+		int owner = c;
+		while (hasSuper(owner) && random.nextBoolean()) {
+			owner--;
+		}
+		return owner;
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 * @param depth
+	 *            the nesting depth of the statement
+	 * @param indent
+	 *            the indentation of the statement
+	 */
+	private void generateNested(int c, int m, int depth, String indent) {
+		if (depth == nesting) {
+			out.append(indent).append(simpleStmt(c, m)).append("\n");
+			return;
+		}
+		String inner = indent + "\t";
+		if (random.nextBoolean()) {
+			out.append(indent).append("if (").append(bool(c, m)).append(") {\n");
+			generateNested(c, m, depth + 1, inner);
+			out.append(indent).append("} else {\n");
+			out.append(inner).append(simpleStmt(c, m)).append("\n");
+			out.append(indent).append("}\n");
+		} else {
+			out.append(indent).append("i").append(depth).append(" = 0;\n");
+			out.append(indent).append("while (i").append(depth).append(" < 3) {\n");
+			generateNested(c, m, depth + 1, inner);
+			out.append(inner).append("i").append(depth).append(" = i").append(depth).append(" + 1;\n");
+			out.append(indent).append("}\n");
+		}
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 * @return a statement without nested statements
+	 */
+	private String simpleStmt(int c, int m) {
+		switch (random.nextInt(4)) {
+		case 0:
+			return "a[0] = " + intExp(c, m, expressionSize) + ";";
+		case 1:
+			return "b = " + bool(c, m) + ";";
+		case 2:
+			return "System.out.println(" + intExp(c, m, expressionSize) + ");";
+		default:
+			return "v" + random.nextInt(locals) + " = " + intExp(c, m, expressionSize) + ";";
+		}
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 * @return a small boolean expression
+	 */
+	private String bool(int c, int m) {
+		switch (random.nextInt(4)) {
+		case 0:
+			return "v" + random.nextInt(locals) + " < " + intExp(c, m, 1);
+		case 1:
+			return "!b";
+		case 2:
+			return "b && p < q";
+		default:
+			return random.nextBoolean() ? "true" : "false";
+		}
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 * @param operators
+	 *            the number of binary operators
+	 * @return an int expression
+	 */
+	private String intExp(int c, int m, int operators) {
+		if (operators == 0) {
+			return intLeaf(c, m);
+		}
+		int left = random.nextInt(operators);
+		String op = random.nextInt(3) == 0 ? " * " : random.nextBoolean() ? " + " : " - ";
+		return "(" + intExp(c, m, left) + op + intExp(c, m, operators - 1 - left) + ")";
+	}
+
+	/**
+	 * @param c
+	 *            the index of the class
+	 * @param m
+	 *            the index of the method
+	 * @return an int expression without binary operators
+	 */
+	private String intLeaf(int c, int m) {
+		switch (random.nextInt(8)) {
+		case 0:
+			return String.valueOf(random.nextInt(100));
+		case 1:
+			return "p";
+		case 2:
+			return "a[0]";
+		case 3:
+			return "a.length";
+		case 4:
+			return "f" + fieldOwner(c);
+		case 5:
+			if (m > 0) {
+				return "this.m" + random.nextInt(m) + "(q, p)";
+			}
+			if (c > 0) {
+				return "new C" + random.nextInt(c) + "().m" + random.nextInt(methods) + "(1, q)";
+			}
+			return "q";
+		default:
+			return "v" + random.nextInt(locals);
+		}
+	}
+}
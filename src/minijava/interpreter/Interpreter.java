@@ -0,0 +1,489 @@
+package minijava.interpreter;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import minijava.analysis.Builtins;
+import minijava.analysis.MjAnalysis;
+import minijava.analysis.NameAnalysis;
+import minijava.analysis.TypeChecker;
+import minijava.analysis.types.MjIntArray;
+import minijava.node.AAddExp;
+import minijava.node.AAndExp;
+import minijava.node.AArrayAllocExp;
+import minijava.node.AArrayLookupExp;
+import minijava.node.AAssignStmt;
+import minijava.node.ABlockStmt;
+import minijava.node.ABoolType;
+import minijava.node.ACallStmt;
+import minijava.node.AClassDecl;
+import minijava.node.ACmpExp;
+import minijava.node.AFalseExp;
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AIfStmt;
+import minijava.node.AIntLiteralExp;
+import minijava.node.AIntType;
+import minijava.node.AMainClass;
+import minijava.node.AMethodCallExp;
+import minijava.node.AMethodDecl;
+import minijava.node.AMultExp;
+import minijava.node.ANegExp;
+import minijava.node.ANotExp;
+import minijava.node.AObjAllocExp;
+import minijava.node.ASubExp;
+import minijava.node.AThisExp;
+import minijava.node.ATrueExp;
+import minijava.node.ATypedVar;
+import minijava.node.AWhileStmt;
+import minijava.node.Node;
+import minijava.node.PExp;
+import minijava.node.PMethodDecl;
+import minijava.node.PStmt;
+import minijava.node.PType;
+import minijava.node.PTypedVar;
+import minijava.node.Start;
+
+/**
+ * Executes a type checked MiniJava program by walking its AST. Variables,
+ * fields and methods are resolved with the bindings of the MjAnalysis, method
+ * calls are dispatched on the class of the receiver at runtime.
+ * <p>
+ * Values are represented as Integer, Boolean, int[] and {@link MjObject};
+ * null is the value of object and array variables that were not assigned.
+ * </p>
+ */
+public class Interpreter {
+
+	/** the analysis of the program */
+	private final MjAnalysis analysis;
+
+	/** the name analysis of the program */
+	private final NameAnalysis nameAnalysis;
+
+	/** the stream System.out.println writes to */
+	private final PrintStream out;
+
+	/** the methods of each class by name, including the inherited ones */
+	private final IdentityHashMap<AClassDecl, HashMap<String, AMethodDecl>> methodTables;
+
+	/**
+	 * The variables of one method activation
+	 */
+	private static final class Frame {
+		/** the receiver of the method, null in the main method */
+		private final MjObject thisObject;
+		/** the values of parameters and local variables */
+		private final IdentityHashMap<ATypedVar, Object> locals;
+
+		/**
+		 * @param thisObject
+		 *            the receiver of the method
+		 */
+		Frame(MjObject thisObject) {
+			this.thisObject = thisObject;
+			this.locals = new IdentityHashMap<ATypedVar, Object>();
+		}
+	}
+
+	/**
+	 * @param analysis
+	 *            the analysis of a type correct program
+	 * @param out
+	 *            the stream System.out.println writes to
+	 */
+	public Interpreter(MjAnalysis analysis, PrintStream out) {
+		this.analysis = analysis;
+		this.nameAnalysis = analysis.getNameAnalysis();
+		this.out = out;
+		this.methodTables = new IdentityHashMap<AClassDecl, HashMap<String, AMethodDecl>>();
+	}
+
+	/**
+	 * Type check and run a program
+	 *
+	 * @param ast
+	 *            the program
+	 * @param out
+	 *            the stream System.out.println writes to
+	 * @throws minijava.analysis.TypeCheckingExpcetion
+	 *             when the program is not type correct
+	 * @throws MjRuntimeException
+	 *             when the execution fails
+	 */
+	public static void run(Start ast, PrintStream out) {
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		new Interpreter(analysis, out).run();
+	}
+
+	/**
+	 * Run the main method of the program
+	 *
+	 * @throws MjRuntimeException
+	 *             when the execution fails
+	 */
+	public void run() {
+		AMainClass main = (AMainClass) analysis.getProgram().getMain();
+		Frame frame = new Frame(null);
+		declareLocals(frame, main.getLocalVars());
+		try {
+			execute(main.getStms(), frame);
+		} catch (StackOverflowError e) {
+			throw new MjRuntimeException(main, "Stack overflow");
+		}
+		out.flush();
+	}
+
+	/**
+	 * @param frame
+	 *            a frame
+	 * @param vars
+	 *            the variables to initialize with the default value of their
+	 *            type
+	 */
+	private void declareLocals(Frame frame, List<PTypedVar> vars) {
+		for (PTypedVar var : vars) {
+			frame.locals.put((ATypedVar) var, defaultValue(((ATypedVar) var).getType()));
+		}
+	}
+
+	/**
+	 * @param type
+	 *            a type
+	 * @return the initial value of variables of that type
+	 */
+	private static Object defaultValue(PType type) {
+		if (type instanceof AIntType) {
+			return 0;
+		}
+		if (type instanceof ABoolType) {
+			return false;
+		}
+		return null;
+	}
+
+	/**
+	 * @param stmts
+	 *            statements to execute in order
+	 * @param frame
+	 *            the current frame
+	 */
+	private void execute(List<PStmt> stmts, Frame frame) {
+		for (PStmt stmt : stmts) {
+			execute(stmt, frame);
+		}
+	}
+
+	/**
+	 * @param s
+	 *            a statement to execute
+	 * @param frame
+	 *            the current frame
+	 */
+	private void execute(PStmt s, Frame frame) {
+		if (s instanceof ABlockStmt) {
+			execute(((ABlockStmt) s).getStmts(), frame);
+		} else if (s instanceof AAssignStmt) {
+			assign((AAssignStmt) s, frame);
+		} else if (s instanceof AIfStmt) {
+			AIfStmt stmt = (AIfStmt) s;
+			if (evalBool(stmt.getCond(), frame)) {
+				execute(stmt.getTstmt(), frame);
+			} else {
+				execute(stmt.getFstmt(), frame);
+			}
+		} else if (s instanceof AWhileStmt) {
+			AWhileStmt stmt = (AWhileStmt) s;
+			while (evalBool(stmt.getCond(), frame)) {
+				execute(stmt.getBody(), frame);
+			}
+		} else if (s instanceof ACallStmt) {
+			PExp exp = ((ACallStmt) s).getExp();
+			if (Builtins.isPrintln(exp)) {
+				out.println(evalInt(((AMethodCallExp) exp).getArgs().get(0), frame));
+			} else {
+				eval(exp, frame);
+			}
+		} else {
+			throw new RuntimeException("Unknown subclass of PStmt: " + s);
+		}
+	}
+
+	/**
+	 * @param stmt
+	 *            an assignment to execute
+	 * @param frame
+	 *            the current frame
+	 */
+	private void assign(AAssignStmt stmt, Frame frame) {
+		PExp lhs = stmt.getLhs();
+		if (lhs instanceof AIdentifierExp) {
+			Object value = eval(stmt.getRhs(), frame);
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) lhs).getName());
+			if (isField(var)) {
+				frame.thisObject.set(var, value);
+			} else {
+				frame.locals.put(var, value);
+			}
+		} else if (lhs instanceof AFieldAccessExp) {
+			// like Java, evaluate both sides before the null check
+			MjObject obj = (MjObject) eval(((AFieldAccessExp) lhs).getObj(), frame);
+			Object value = eval(stmt.getRhs(), frame);
+			checkNotNull(lhs, obj).set(nameAnalysis.getField((AFieldAccessExp) lhs), value);
+		} else if (lhs instanceof AArrayLookupExp) {
+			AArrayLookupExp lookup = (AArrayLookupExp) lhs;
+			int[] array = (int[]) eval(lookup.getExp(), frame);
+			int index = evalInt(lookup.getOffset(), frame);
+			int value = evalInt(stmt.getRhs(), frame);
+			checkIndex(lookup, checkNotNull(lookup, array), index);
+			array[index] = value;
+		} else {
+			throw new MjRuntimeException(stmt, "Illegal left-hand side of an assignment");
+		}
+	}
+
+	/**
+	 * @param var
+	 *            a variable declaration
+	 * @return true iff the variable is a field
+	 */
+	private static boolean isField(ATypedVar var) {
+		return var.parent() instanceof AClassDecl;
+	}
+
+	/**
+	 * @param e
+	 *            an expression of type int
+	 * @param frame
+	 *            the current frame
+	 * @return the value of the expression
+	 */
+	private int evalInt(PExp e, Frame frame) {
+		return (Integer) eval(e, frame);
+	}
+
+	/**
+	 * @param e
+	 *            an expression of type boolean
+	 * @param frame
+	 *            the current frame
+	 * @return the value of the expression
+	 */
+	private boolean evalBool(PExp e, Frame frame) {
+		return (Boolean) eval(e, frame);
+	}
+
+	/**
+	 * @param e
+	 *            an expression of type int[]
+	 * @param frame
+	 *            the current frame
+	 * @return the value of the expression, never null
+	 */
+	private int[] evalArray(PExp e, Frame frame) {
+		return checkNotNull(e, (int[]) eval(e, frame));
+	}
+
+	/**
+	 * @param e
+	 *            an expression of a class type
+	 * @param frame
+	 *            the current frame
+	 * @return the value of the expression, never null
+	 */
+	private MjObject evalObject(PExp e, Frame frame) {
+		return checkNotNull(e, (MjObject) eval(e, frame));
+	}
+
+	/**
+	 * @param node
+	 *            the node to blame
+	 * @param value
+	 *            an object or array
+	 * @param <T>
+	 *            the type of the value
+	 * @return the value if it is not null
+	 */
+	private static <T> T checkNotNull(Node node, T value) {
+		if (value == null) {
+			throw new MjRuntimeException(node, "Null pointer");
+		}
+		return value;
+	}
+
+	/**
+	 * @param node
+	 *            the node to blame
+	 * @param array
+	 *            an array
+	 * @param index
+	 *            an index into the array
+	 */
+	private static void checkIndex(Node node, int[] array, int index) {
+		if (index < 0 || index >= array.length) {
+			throw new MjRuntimeException(node, "Array index " + index + " out of bounds for length " + array.length);
+		}
+	}
+
+	/**
+	 * @param e
+	 *            an expression
+	 * @param frame
+	 *            the current frame
+	 * @return the value of the expression
+	 */
+	private Object eval(PExp e, Frame frame) {
+		if (e instanceof AAndExp) {
+			return evalBool(((AAndExp) e).getLeft(), frame) && evalBool(((AAndExp) e).getRight(), frame);
+		}
+		if (e instanceof ACmpExp) {
+			return evalInt(((ACmpExp) e).getLeft(), frame) < evalInt(((ACmpExp) e).getRight(), frame);
+		}
+		if (e instanceof AAddExp) {
+			return evalInt(((AAddExp) e).getLeft(), frame) + evalInt(((AAddExp) e).getRight(), frame);
+		}
+		if (e instanceof ASubExp) {
+			return evalInt(((ASubExp) e).getLeft(), frame) - evalInt(((ASubExp) e).getRight(), frame);
+		}
+		if (e instanceof AMultExp) {
+			return evalInt(((AMultExp) e).getLeft(), frame) * evalInt(((AMultExp) e).getRight(), frame);
+		}
+		if (e instanceof ANotExp) {
+			return !evalBool(((ANotExp) e).getExp(), frame);
+		}
+		if (e instanceof ANegExp) {
+			return -evalInt(((ANegExp) e).getExp(), frame);
+		}
+		if (e instanceof AIntLiteralExp) {
+			return parseInt((AIntLiteralExp) e);
+		}
+		if (e instanceof AIdentifierExp) {
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) e).getName());
+			if (isField(var)) {
+				return frame.thisObject.get(var);
+			}
+			return frame.locals.get(var);
+		}
+		if (e instanceof AArrayAllocExp) {
+			int size = evalInt(((AArrayAllocExp) e).getSize(), frame);
+			if (size < 0) {
+				throw new MjRuntimeException(e, "Negative array size " + size);
+			}
+			return new int[size];
+		}
+		if (e instanceof AObjAllocExp) {
+			return allocate(nameAnalysis.lookupClass(((AObjAllocExp) e).getName()));
+		}
+		if (e instanceof AArrayLookupExp) {
+			AArrayLookupExp lookup = (AArrayLookupExp) e;
+			int[] array = (int[]) eval(lookup.getExp(), frame);
+			int index = evalInt(lookup.getOffset(), frame);
+			checkIndex(lookup, checkNotNull(lookup, array), index);
+			return array[index];
+		}
+		if (e instanceof AFieldAccessExp) {
+			AFieldAccessExp access = (AFieldAccessExp) e;
+			if (access.getName().getText().equals("length")
+					&& analysis.getTypeAnalysis().getType(access.getObj()) == MjIntArray.INSTANCE) {
+				return evalArray(access.getObj(), frame).length;
+			}
+			return evalObject(access.getObj(), frame).get(nameAnalysis.getField(access));
+		}
+		if (e instanceof AMethodCallExp) {
+			return call((AMethodCallExp) e, frame);
+		}
+		if (e instanceof ATrueExp) {
+			return true;
+		}
+		if (e instanceof AFalseExp) {
+			return false;
+		}
+		if (e instanceof AThisExp) {
+			return frame.thisObject;
+		}
+		throw new RuntimeException("Unknown subclass of PExp: " + e);
+	}
+
+	/**
+	 * @param e
+	 *            an integer literal
+	 * @return its value
+	 */
+	private static int parseInt(AIntLiteralExp e) {
+		try {
+			return Integer.parseInt(e.getInteger().getText());
+		} catch (NumberFormatException ex) {
+			throw new MjRuntimeException(e, "Integer literal out of range: " + e.getInteger().getText());
+		}
+	}
+
+	/**
+	 * @param classDecl
+	 *            a class
+	 * @return a new object of the class with all fields set to their default
+	 *         values
+	 */
+	private MjObject allocate(AClassDecl classDecl) {
+		MjObject obj = new MjObject(classDecl);
+		for (AClassDecl c = classDecl; c != null; c = nameAnalysis.getSuperClass(c)) {
+			for (PTypedVar field : c.getFields()) {
+				obj.set((ATypedVar) field, defaultValue(((ATypedVar) field).getType()));
+			}
+		}
+		return obj;
+	}
+
+	/**
+	 * @param e
+	 *            a method call
+	 * @param frame
+	 *            the current frame
+	 * @return the return value of the called method
+	 */
+	private Object call(AMethodCallExp e, Frame frame) {
+		MjObject receiver = (MjObject) eval(e.getObj(), frame);
+		List<PExp> args = e.getArgs();
+		Object[] values = new Object[args.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = eval(args.get(i), frame);
+		}
+		checkNotNull(e, receiver);
+
+		AMethodDecl method = lookupMethod(receiver.getClassDecl(), e.getName().getText());
+		Frame callee = new Frame(receiver);
+		List<PTypedVar> params = method.getFormalParams();
+		for (int i = 0; i < values.length; i++) {
+			callee.locals.put((ATypedVar) params.get(i), values[i]);
+		}
+		declareLocals(callee, method.getLocalVars());
+		execute(method.getStmts(), callee);
+		return eval(method.getRetExp(), callee);
+	}
+
+	/**
+	 * @param classDecl
+	 *            the class of a receiver
+	 * @param name
+	 *            the name of the called method
+	 * @return the method that is executed for the receiver, i.e. the one
+	 *         declared nearest to its class
+	 */
+	private AMethodDecl lookupMethod(AClassDecl classDecl, String name) {
+		HashMap<String, AMethodDecl> table = methodTables.get(classDecl);
+		if (table == null) {
+			table = new HashMap<String, AMethodDecl>();
+			for (AClassDecl c = classDecl; c != null; c = nameAnalysis.getSuperClass(c)) {
+				for (PMethodDecl m : c.getMethods()) {
+					String methodName = ((AMethodDecl) m).getName().getText();
+					if (!table.containsKey(methodName)) {
+						table.put(methodName, (AMethodDecl) m);
+					}
+				}
+			}
+			methodTables.put(classDecl, table);
+		}
+		return table.get(name);
+	}
+}
@@ -0,0 +1,57 @@
+package minijava.interpreter;
+
+import java.util.IdentityHashMap;
+
+import minijava.node.AClassDecl;
+import minijava.node.ATypedVar;
+
+/**
+ * An object at runtime: its class and the values of all its fields,
+ * including the inherited ones
+ */
+public class MjObject {
+	/** the class the object was created from */
+	private final AClassDecl classDecl;
+	/** the field values by field declaration */
+	private final IdentityHashMap<ATypedVar, Object> fields;
+
+	/**
+	 * @param classDecl
+	 *            the class the object is created from
+	 */
+	MjObject(AClassDecl classDecl) {
+		this.classDecl = classDecl;
+		this.fields = new IdentityHashMap<ATypedVar, Object>();
+	}
+
+	/**
+	 * @return the class the object was created from
+	 */
+	public AClassDecl getClassDecl() {
+		return classDecl;
+	}
+
+	/**
+	 * @param field
+	 *            a field declaration
+	 * @return the value of the field
+	 */
+	public Object get(ATypedVar field) {
+		return fields.get(field);
+	}
+
+	/**
+	 * @param field
+	 *            a field declaration
+	 * @param value
+	 *            the new value of the field
+	 */
+	public void set(ATypedVar field, Object value) {
+		fields.put(field, value);
+	}
+
+	@Override
+	public String toString() {
+		return classDecl.getId().getText() + "@" + Integer.toHexString(System.identityHashCode(this));
+	}
+}
@@ -0,0 +1,41 @@
+package minijava.interpreter;
+
+import minijava.node.Node;
+
+/**
+ * Thrown when the execution of a MiniJava program fails, for example on a
+ * null receiver or an array index out of bounds
+ */
+public class MjRuntimeException extends RuntimeException {
+	private static final long serialVersionUID = 3311804930283726117L;
+	/** the node whose execution failed */
+	private Node blame;
+	/** the message of the exception */
+	private String msg;
+
+	/**
+	 * @param blame
+	 *            the node whose execution failed
+	 * @param msg
+	 *            the message of the exception
+	 */
+	public MjRuntimeException(Node blame, String msg) {
+		super("Runtime error in line " + blame.getLine() + ": " + msg);
+		this.blame = blame;
+		this.msg = msg;
+	}
+
+	/**
+	 * @return the node whose execution failed
+	 */
+	public Node getBlame() {
+		return blame;
+	}
+
+	/**
+	 * @return the message of the exception
+	 */
+	public String getMsg() {
+		return msg;
+	}
+}
@@ -0,0 +1,22 @@
+package minijava.ir;
+
+/**
+ * dest = array.length; fails if the array is null
+ */
+public class ArrayLength extends Instruction {
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param array
+	 *            the array
+	 */
+	public ArrayLength(Temp dest, Value array) {
+		super(dest, array);
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "length " + getOperand(0);
+	}
+}
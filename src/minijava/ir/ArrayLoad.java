@@ -0,0 +1,24 @@
+package minijava.ir;
+
+/**
+ * dest = array[index]; fails if the array is null or the index out of bounds
+ */
+public class ArrayLoad extends Instruction {
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param array
+	 *            the array
+	 * @param index
+	 *            the index
+	 */
+	public ArrayLoad(Temp dest, Value array, Value index) {
+		super(dest, array, index);
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "aload " + operandString(0);
+	}
+}
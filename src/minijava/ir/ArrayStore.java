@@ -0,0 +1,24 @@
+package minijava.ir;
+
+/**
+ * array[index] = value; fails if the array is null or the index out of bounds
+ */
+public class ArrayStore extends Instruction {
+
+	/**
+	 * @param array
+	 *            the array
+	 * @param index
+	 *            the index
+	 * @param value
+	 *            the value to store
+	 */
+	public ArrayStore(Value array, Value index, Value value) {
+		super(null, array, index, value);
+	}
+
+	@Override
+	public String toString() {
+		return "astore " + operandString(0);
+	}
+}
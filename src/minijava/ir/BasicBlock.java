@@ -0,0 +1,85 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of instructions that is entered at the top and left through the
+ * terminator at the bottom
+ */
+public class BasicBlock {
+
+	/** the position of the block in its method */
+	private int id = -1;
+
+	/** the instructions without the terminator */
+	private final List<Instruction> instructions = new ArrayList<Instruction>();
+
+	/** the last instruction, or null while the block is under construction */
+	private Terminator terminator;
+
+	/**
+	 * @return the position of the block in its method
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @param id
+	 *            the position of the block in its method
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the name of the block in the textual dump
+	 */
+	public String getLabel() {
+		return "L" + id;
+	}
+
+	/**
+	 * @return the instructions without the terminator, modifiable
+	 */
+	public List<Instruction> getInstructions() {
+		return instructions;
+	}
+
+	/**
+	 * @param instruction
+	 *            an instruction to append before the terminator
+	 */
+	public void add(Instruction instruction) {
+		instructions.add(instruction);
+	}
+
+	/**
+	 * @return the last instruction, or null while the block is under
+	 *         construction
+	 */
+	public Terminator getTerminator() {
+		return terminator;
+	}
+
+	/**
+	 * @param terminator
+	 *            the last instruction
+	 */
+	public void setTerminator(Terminator terminator) {
+		this.terminator = terminator;
+	}
+
+	/**
+	 * @return the blocks control can continue with
+	 */
+	public List<BasicBlock> getSuccessors() {
+		return terminator.getSuccessors();
+	}
+
+	@Override
+	public String toString() {
+		return getLabel();
+	}
+}
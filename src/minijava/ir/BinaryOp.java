@@ -0,0 +1,93 @@
+package minijava.ir;
+
+/**
+ * dest = left op right, for the int operators of MiniJava. Arithmetic wraps
+ * around like in Java.
+ */
+public class BinaryOp extends Instruction {
+
+	/**
+	 * The operators
+	 */
+	public enum Operator {
+		/** int addition */
+		ADD("add"),
+		/** int subtraction */
+		SUB("sub"),
+		/** int multiplication */
+		MUL("mul"),
+		/** int less than */
+		LT("lt");
+
+		/** the name in the textual dump */
+		private final String name;
+
+		/**
+		 * @param name
+		 *            the name in the textual dump
+		 */
+		Operator(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @param left
+		 *            the left operand
+		 * @param right
+		 *            the right operand
+		 * @return the result: an Integer, or a Boolean for LT
+		 */
+		public Object evaluate(int left, int right) {
+			switch (this) {
+			case ADD:
+				return left + right;
+			case SUB:
+				return left - right;
+			case MUL:
+				return left * right;
+			default:
+				return left < right;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/** the operator */
+	private final Operator operator;
+
+	/**
+	 * @param operator
+	 *            the operator
+	 * @param dest
+	 *            the temporary to write
+	 * @param left
+	 *            the left operand
+	 * @param right
+	 *            the right operand
+	 */
+	public BinaryOp(Operator operator, Temp dest, Value left, Value right) {
+		super(dest, left, right);
+		this.operator = operator;
+	}
+
+	/**
+	 * @return the operator
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	@Override
+	public boolean isPure() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + operator + " " + operandString(0);
+	}
+}
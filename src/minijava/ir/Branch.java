@@ -0,0 +1,64 @@
+package minijava.ir;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * continue with one of two blocks, depending on a boolean
+ */
+public class Branch extends Terminator {
+
+	/** the block to continue with if the condition is true */
+	private BasicBlock ifTrue;
+
+	/** the block to continue with if the condition is false */
+	private BasicBlock ifFalse;
+
+	/**
+	 * @param condition
+	 *            a boolean
+	 * @param ifTrue
+	 *            the block to continue with if the condition is true
+	 * @param ifFalse
+	 *            the block to continue with if the condition is false
+	 */
+	public Branch(Value condition, BasicBlock ifTrue, BasicBlock ifFalse) {
+		super(condition);
+		this.ifTrue = ifTrue;
+		this.ifFalse = ifFalse;
+	}
+
+	/**
+	 * @return the block to continue with if the condition is true
+	 */
+	public BasicBlock getIfTrue() {
+		return ifTrue;
+	}
+
+	/**
+	 * @return the block to continue with if the condition is false
+	 */
+	public BasicBlock getIfFalse() {
+		return ifFalse;
+	}
+
+	@Override
+	public List<BasicBlock> getSuccessors() {
+		return Arrays.asList(ifTrue, ifFalse);
+	}
+
+	@Override
+	public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+		if (ifTrue == from) {
+			ifTrue = to;
+		}
+		if (ifFalse == from) {
+			ifFalse = to;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "branch " + getOperand(0) + ", " + ifTrue.getLabel() + ", " + ifFalse.getLabel();
+	}
+}
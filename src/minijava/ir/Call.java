@@ -0,0 +1,60 @@
+package minijava.ir;
+
+/**
+ * dest = receiver.method(args); fails if the receiver is null. The first
+ * operand is the receiver, the others are the arguments. A virtual call
+ * executes the method of the same name that is declared nearest to the class
+ * of the receiver, a direct call always executes the target.
+ */
+public class Call extends Instruction {
+
+	/** the method the call was resolved to by the type checker */
+	private final IrMethod target;
+
+	/** whether the method is looked up on the class of the receiver */
+	private boolean virtual;
+
+	/**
+	 * Create a virtual call
+	 *
+	 * @param dest
+	 *            the temporary to write
+	 * @param target
+	 *            the method the call was resolved to by the type checker
+	 * @param receiverAndArgs
+	 *            the receiver followed by the arguments
+	 */
+	public Call(Temp dest, IrMethod target, Value... receiverAndArgs) {
+		super(dest, receiverAndArgs);
+		this.target = target;
+		this.virtual = true;
+	}
+
+	/**
+	 * @return the method the call was resolved to by the type checker
+	 */
+	public IrMethod getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return true iff the method is looked up on the class of the receiver
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * @param virtual
+	 *            false if the target is the only method the call can execute
+	 */
+	public void setVirtual(boolean virtual) {
+		this.virtual = virtual;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "call " + (virtual ? "virtual " : "direct ") + target.getQualifiedName() + "("
+				+ operandString(0) + ")";
+	}
+}
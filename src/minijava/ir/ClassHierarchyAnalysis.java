@@ -0,0 +1,136 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import minijava.analysis.types.MjClass;
+import minijava.node.AClassDecl;
+
+/**
+ * Class hierarchy analysis: a call whose receiver has static class C can
+ * only execute the method that C inherits or declares, or one that overrides
+ * it in a subclass of C. If no subclass of C declares a method of that name,
+ * the method the type checker resolved the call to is the only
+ * implementation, and the call can be made direct, so that a backend can call
+ * or inline it without a lookup on the class of the receiver.
+ *
+ * The analysis sees the whole program, which MiniJava programs always are;
+ * it does not consider which classes are instantiated.
+ */
+public class ClassHierarchyAnalysis {
+
+	/** the program */
+	private final IrProgram program;
+
+	/** the class of each declaration */
+	private final IdentityHashMap<AClassDecl, IrClass> classes;
+
+	/** the names of the methods declared in the strict subclasses of each class */
+	private final IdentityHashMap<IrClass, Set<String>> declaredBelow;
+
+	/**
+	 * @param program
+	 *            a program
+	 */
+	public ClassHierarchyAnalysis(IrProgram program) {
+		this.program = program;
+		this.classes = new IdentityHashMap<AClassDecl, IrClass>();
+		this.declaredBelow = new IdentityHashMap<IrClass, Set<String>>();
+		IdentityHashMap<IrClass, List<IrClass>> subclasses = new IdentityHashMap<IrClass, List<IrClass>>();
+		List<IrClass> roots = new ArrayList<IrClass>();
+		for (IrClass c : program.getClasses()) {
+			classes.put(c.getDecl(), c);
+			declaredBelow.put(c, new HashSet<String>());
+			if (c.getSuperClass() == null) {
+				roots.add(c);
+			} else {
+				List<IrClass> children = subclasses.get(c.getSuperClass());
+				if (children == null) {
+					children = new ArrayList<IrClass>();
+					subclasses.put(c.getSuperClass(), children);
+				}
+				children.add(c);
+			}
+		}
+
+		// postorder with an explicit stack: add the names of each class and
+		// its subclasses to its superclass once all its subclasses are done
+		List<IrClass> stack = new ArrayList<IrClass>();
+		IdentityHashMap<IrClass, Boolean> entered = new IdentityHashMap<IrClass, Boolean>();
+		for (IrClass root : roots) {
+			stack.add(root);
+			while (!stack.isEmpty()) {
+				IrClass c = stack.get(stack.size() - 1);
+				if (entered.put(c, Boolean.TRUE) == null) {
+					List<IrClass> children = subclasses.get(c);
+					if (children != null) {
+						stack.addAll(children);
+					}
+					continue;
+				}
+				stack.remove(stack.size() - 1);
+				IrClass superClass = c.getSuperClass();
+				if (superClass != null) {
+					Set<String> names = declaredBelow.get(superClass);
+					names.addAll(declaredBelow.get(c));
+					for (IrMethod m : c.getMethods()) {
+						names.add(m.getName());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param call
+	 *            a call of the program
+	 * @return true iff the method the call was resolved to is the only one
+	 *         it can execute
+	 */
+	public boolean isMonomorphic(Call call) {
+		IrClass staticClass = classes.get(((MjClass) call.getOperand(0).getType()).getClassDecl());
+		return staticClass != null && !declaredBelow.get(staticClass).contains(call.getTarget().getName());
+	}
+
+	/**
+	 * Make all monomorphic calls of the program direct
+	 *
+	 * @return the number of calls made direct
+	 */
+	public int devirtualize() {
+		int direct = 0;
+		for (IrMethod m : program.getMethods()) {
+			for (BasicBlock b : m.getBlocks()) {
+				for (Instruction i : b.getInstructions()) {
+					if (i instanceof Call && ((Call) i).isVirtual() && isMonomorphic((Call) i)) {
+						((Call) i).setVirtual(false);
+						direct++;
+					}
+				}
+			}
+		}
+		return direct;
+	}
+
+	/**
+	 * @param program
+	 *            a program
+	 * @return the number of its calls
+	 */
+	public static int callCount(IrProgram program) {
+		int calls = 0;
+		for (IrMethod m : program.getMethods()) {
+			for (BasicBlock b : m.getBlocks()) {
+				for (Instruction i : b.getInstructions()) {
+					if (i instanceof Call) {
+						calls++;
+					}
+				}
+			}
+		}
+		return calls;
+	}
+}
@@ -0,0 +1,121 @@
+package minijava.ir;
+
+import minijava.analysis.types.MjBool;
+import minijava.analysis.types.MjInt;
+import minijava.analysis.types.MjType;
+
+/**
+ * An int, boolean or null constant. Constants are compared by value.
+ */
+public final class Constant extends Value {
+
+	/** the constant true */
+	public static final Constant TRUE = new Constant(MjBool.INSTANCE, Boolean.TRUE);
+
+	/** the constant false */
+	public static final Constant FALSE = new Constant(MjBool.INSTANCE, Boolean.FALSE);
+
+	/** the type of the constant */
+	private final MjType type;
+
+	/** the value: an Integer, a Boolean or null */
+	private final Object value;
+
+	/**
+	 * @param type
+	 *            the type of the constant
+	 * @param value
+	 *            the value: an Integer, a Boolean or null
+	 */
+	private Constant(MjType type, Object value) {
+		this.type = type;
+		this.value = value;
+	}
+
+	/**
+	 * @param value
+	 *            an int
+	 * @return the constant
+	 */
+	public static Constant of(int value) {
+		return new Constant(MjInt.INSTANCE, value);
+	}
+
+	/**
+	 * @param value
+	 *            a boolean
+	 * @return the constant
+	 */
+	public static Constant of(boolean value) {
+		return value ? TRUE : FALSE;
+	}
+
+	/**
+	 * @param type
+	 *            an array or class type
+	 * @return the null constant of that type
+	 */
+	public static Constant nullOf(MjType type) {
+		return new Constant(type, null);
+	}
+
+	/**
+	 * @param type
+	 *            the type of a value
+	 * @param value
+	 *            the value at runtime: an Integer, a Boolean or null
+	 * @return the constant
+	 */
+	public static Constant of(MjType type, Object value) {
+		if (value instanceof Boolean) {
+			return of(((Boolean) value).booleanValue());
+		}
+		return new Constant(type, value);
+	}
+
+	/**
+	 * @param type
+	 *            a type
+	 * @return the initial value of variables and fields of that type
+	 */
+	public static Constant defaultValue(MjType type) {
+		if (type == MjInt.INSTANCE) {
+			return of(0);
+		}
+		if (type == MjBool.INSTANCE) {
+			return FALSE;
+		}
+		return nullOf(type);
+	}
+
+	@Override
+	public MjType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the value: an Integer, a Boolean or null
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Constant)) {
+			return false;
+		}
+		Constant other = (Constant) obj;
+		return value == null ? other.value == null && type == other.type : value.equals(other.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return value == null ? 0 : value.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(value);
+	}
+}
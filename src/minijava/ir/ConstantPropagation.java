@@ -0,0 +1,510 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) on a method in
+ * SSA form. Every temporary starts as unknown and can only become a constant
+ * and then overdefined; only the blocks reachable through branches whose
+ * condition is not a known constant are evaluated, and a phi only meets the
+ * operands of edges found executable. The operators fold with the
+ * semantics of the {@link IrInterpreter}, so int arithmetic wraps around
+ * like in Java; + - * and < of the AST become {@link BinaryOp}s, ! and unary
+ * minus {@link UnaryOp}s, and && becomes branches and a phi, which fold as
+ * well.
+ *
+ * Afterwards the reads of constant temporaries read the constant, the pure
+ * instructions that compute them are removed, branches on constants become
+ * jumps and the blocks that cannot be executed are removed with their phi
+ * operands; the straight-line chains of blocks this leaves are merged.
+ *
+ * Calls, fields and array elements are not tracked, so the results of calls
+ * and loads are never constant.
+ */
+public class ConstantPropagation {
+
+	/** the method */
+	private final IrMethod method;
+
+	/** the graph of the method */
+	private final ControlFlowGraph cfg;
+
+	/** the constant value of each temporary, null while unknown */
+	private final Constant[] values;
+
+	/** whether each temporary is known to have more than one value */
+	private final boolean[] overdefined;
+
+	/** whether each edge, by block and successor index, can be taken */
+	private final boolean[][] edgeExecutable;
+
+	/** whether each block can be executed */
+	private final boolean[] blockExecutable;
+
+	/** the instructions that read each temporary, by id */
+	private final List<List<Instruction>> uses;
+
+	/** the blocks of these instructions */
+	private final List<List<Integer>> useBlocks;
+
+	/** the edges to visit as block and successor index */
+	private final List<int[]> edgeWork = new ArrayList<int[]>();
+
+	/** the instructions to evaluate again */
+	private final List<Instruction> instructionWork = new ArrayList<Instruction>();
+
+	/** the blocks of the instructions to evaluate again */
+	private final List<Integer> instructionWorkBlocks = new ArrayList<Integer>();
+
+	/**
+	 * @param method
+	 *            a method in SSA form
+	 */
+	private ConstantPropagation(IrMethod method) {
+		if (!method.isSsa()) {
+			throw new IllegalStateException(method + " is not in SSA form");
+		}
+		this.method = method;
+		this.cfg = new ControlFlowGraph(method);
+		int n = cfg.size();
+		int count = method.getTempCount();
+		this.values = new Constant[count];
+		this.overdefined = new boolean[count];
+		this.edgeExecutable = new boolean[n][];
+		for (int b = 0; b < n; b++) {
+			edgeExecutable[b] = new boolean[cfg.getSuccessors(b).length];
+		}
+		this.blockExecutable = new boolean[n];
+		this.uses = new ArrayList<List<Instruction>>(count);
+		this.useBlocks = new ArrayList<List<Integer>>(count);
+		for (int t = 0; t < count; t++) {
+			uses.add(null);
+			useBlocks.add(null);
+		}
+		if (method.getThis() != null) {
+			overdefined[method.getThis().getId()] = true;
+		}
+		for (Temp param : method.getParams()) {
+			overdefined[param.getId()] = true;
+		}
+	}
+
+	/**
+	 * Propagate the constants of a method and remove the code they make
+	 * unnecessary
+	 *
+	 * @param method
+	 *            a method in SSA form
+	 * @return the number of removed instructions, not counting terminators
+	 */
+	public static int propagate(IrMethod method) {
+		int before = instructionCount(method);
+		ConstantPropagation propagation = new ConstantPropagation(method);
+		propagation.collectUses();
+		propagation.solve();
+		propagation.rewrite();
+		return before - instructionCount(method);
+	}
+
+	/**
+	 * Propagate the constants of all methods of a program
+	 *
+	 * @param program
+	 *            a program whose methods are in SSA form
+	 * @return the number of removed instructions, not counting terminators
+	 */
+	public static int propagate(IrProgram program) {
+		int removed = 0;
+		for (IrMethod m : program.getMethods()) {
+			removed += propagate(m);
+		}
+		return removed;
+	}
+
+	/**
+	 * @param method
+	 *            a method
+	 * @return the number of instructions in its blocks, not counting
+	 *         terminators
+	 */
+	static int instructionCount(IrMethod method) {
+		int count = 0;
+		for (BasicBlock b : method.getBlocks()) {
+			count += b.getInstructions().size();
+		}
+		return count;
+	}
+
+	/**
+	 * Find the instructions that read each temporary
+	 */
+	private void collectUses() {
+		for (int b = 0; b < cfg.size(); b++) {
+			BasicBlock block = cfg.getBlock(b);
+			for (Instruction i : block.getInstructions()) {
+				addUses(i, b);
+			}
+			addUses(block.getTerminator(), b);
+		}
+	}
+
+	/**
+	 * @param i
+	 *            an instruction
+	 * @param b
+	 *            its block
+	 */
+	private void addUses(Instruction i, int b) {
+		for (int k = 0; k < i.getOperandCount(); k++) {
+			if (i.getOperand(k) instanceof Temp) {
+				int t = ((Temp) i.getOperand(k)).getId();
+				if (uses.get(t) == null) {
+					uses.set(t, new ArrayList<Instruction>());
+					useBlocks.set(t, new ArrayList<Integer>());
+				}
+				uses.get(t).add(i);
+				useBlocks.get(t).add(b);
+			}
+		}
+	}
+
+	/**
+	 * Run the two worklists until nothing changes
+	 */
+	private void solve() {
+		if (cfg.size() == 0) {
+			return;
+		}
+		visitBlock(0);
+		while (!edgeWork.isEmpty() || !instructionWork.isEmpty()) {
+			while (!edgeWork.isEmpty()) {
+				int[] edge = edgeWork.remove(edgeWork.size() - 1);
+				int s = cfg.getSuccessors(edge[0])[edge[1]];
+				if (blockExecutable[s]) {
+					// only the phis can see the new edge
+					BasicBlock block = cfg.getBlock(s);
+					for (int k = 0; k < SsaDestructor.phiCount(block); k++) {
+						evaluate(block.getInstructions().get(k), s);
+					}
+				} else {
+					visitBlock(s);
+				}
+			}
+			while (!instructionWork.isEmpty()) {
+				int last = instructionWork.size() - 1;
+				Instruction i = instructionWork.remove(last);
+				int b = instructionWorkBlocks.remove(last);
+				if (blockExecutable[b]) {
+					evaluate(i, b);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param b
+	 *            a block that was found executable
+	 */
+	private void visitBlock(int b) {
+		blockExecutable[b] = true;
+		BasicBlock block = cfg.getBlock(b);
+		for (Instruction i : block.getInstructions()) {
+			evaluate(i, b);
+		}
+		evaluate(block.getTerminator(), b);
+	}
+
+	/**
+	 * @param b
+	 *            a block
+	 * @param k
+	 *            the index of one of its successors
+	 */
+	private void markEdge(int b, int k) {
+		if (!edgeExecutable[b][k]) {
+			edgeExecutable[b][k] = true;
+			edgeWork.add(new int[] { b, k });
+		}
+	}
+
+	/**
+	 * @param i
+	 *            an instruction of an executable block
+	 * @param b
+	 *            the block
+	 */
+	private void evaluate(Instruction i, int b) {
+		if (i instanceof Terminator) {
+			if (i instanceof Branch) {
+				Value condition = i.getOperand(0);
+				Constant c = constant(condition);
+				if (c == null && !isOverdefined(condition)) {
+					return;
+				}
+				// the successors of a branch are its true and false target
+				if (c == null || Boolean.TRUE.equals(c.getValue())) {
+					markEdge(b, 0);
+				}
+				if (c == null || Boolean.FALSE.equals(c.getValue())) {
+					markEdge(b, 1);
+				}
+			} else if (i instanceof Jump) {
+				markEdge(b, 0);
+			}
+			return;
+		}
+		Temp dest = i.getDest();
+		if (dest == null || overdefined[dest.getId()]) {
+			return;
+		}
+		if (i instanceof Phi) {
+			Phi phi = (Phi) i;
+			Constant result = null;
+			for (int k = 0; k < phi.getOperandCount(); k++) {
+				if (!edgeExecutable(cfg.indexOf(phi.getIncoming(k)), b)) {
+					continue;
+				}
+				Value operand = phi.getOperand(k);
+				if (isOverdefined(operand)) {
+					setOverdefined(dest);
+					return;
+				}
+				Constant c = constant(operand);
+				if (c == null) {
+					continue;
+				}
+				if (result != null && !result.equals(c)) {
+					setOverdefined(dest);
+					return;
+				}
+				result = c;
+			}
+			if (result != null) {
+				setConstant(dest, result);
+			}
+		} else if (i instanceof Copy || i instanceof BinaryOp || i instanceof UnaryOp) {
+			Constant[] operands = new Constant[i.getOperandCount()];
+			for (int k = 0; k < operands.length; k++) {
+				if (isOverdefined(i.getOperand(k))) {
+					setOverdefined(dest);
+					return;
+				}
+				operands[k] = constant(i.getOperand(k));
+				if (operands[k] == null) {
+					return;
+				}
+			}
+			setConstant(dest, fold(i, operands));
+		} else {
+			setOverdefined(dest);
+		}
+	}
+
+	/**
+	 * @param i
+	 *            a copy, binary or unary operation
+	 * @param operands
+	 *            the values of its operands
+	 * @return the value it computes
+	 */
+	private static Constant fold(Instruction i, Constant[] operands) {
+		if (i instanceof Copy) {
+			return operands[0];
+		}
+		Object result;
+		if (i instanceof BinaryOp) {
+			result = ((BinaryOp) i).getOperator().evaluate((Integer) operands[0].getValue(),
+					(Integer) operands[1].getValue());
+		} else {
+			result = ((UnaryOp) i).getOperator().evaluate(operands[0].getValue());
+		}
+		return Constant.of(i.getDest().getType(), result);
+	}
+
+	/**
+	 * @param p
+	 *            a block
+	 * @param s
+	 *            a successor of it
+	 * @return true iff an edge from p to s was found executable
+	 */
+	private boolean edgeExecutable(int p, int s) {
+		int[] succs = cfg.getSuccessors(p);
+		for (int k = 0; k < succs.length; k++) {
+			if (succs[k] == s && edgeExecutable[p][k]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param v
+	 *            an operand
+	 * @return its constant value, or null if it is unknown or overdefined
+	 */
+	private Constant constant(Value v) {
+		return v instanceof Constant ? (Constant) v : values[((Temp) v).getId()];
+	}
+
+	/**
+	 * @param v
+	 *            an operand
+	 * @return true iff it can have more than one value
+	 */
+	private boolean isOverdefined(Value v) {
+		return v instanceof Temp && overdefined[((Temp) v).getId()];
+	}
+
+	/**
+	 * @param t
+	 *            a temporary that is not overdefined
+	 * @param c
+	 *            its value
+	 */
+	private void setConstant(Temp t, Constant c) {
+		if (values[t.getId()] == null) {
+			values[t.getId()] = c;
+			queueUses(t);
+		} else if (!values[t.getId()].equals(c)) {
+			setOverdefined(t);
+		}
+	}
+
+	/**
+	 * @param t
+	 *            a temporary
+	 */
+	private void setOverdefined(Temp t) {
+		if (!overdefined[t.getId()]) {
+			overdefined[t.getId()] = true;
+			values[t.getId()] = null;
+			queueUses(t);
+		}
+	}
+
+	/**
+	 * @param t
+	 *            a temporary whose value changed
+	 */
+	private void queueUses(Temp t) {
+		if (uses.get(t.getId()) != null) {
+			instructionWork.addAll(uses.get(t.getId()));
+			instructionWorkBlocks.addAll(useBlocks.get(t.getId()));
+		}
+	}
+
+	/**
+	 * Replace the reads of constants, remove the instructions that compute
+	 * them, turn the branches on constants into jumps and remove the blocks
+	 * that cannot be executed
+	 */
+	private void rewrite() {
+		for (int b = 0; b < cfg.size(); b++) {
+			if (!blockExecutable[b]) {
+				continue;
+			}
+			BasicBlock block = cfg.getBlock(b);
+			List<Instruction> kept = new ArrayList<Instruction>(block.getInstructions().size());
+			for (Instruction i : block.getInstructions()) {
+				if (i.isPure() && i.getDest() != null && values[i.getDest().getId()] != null) {
+					continue;
+				}
+				replaceConstants(i);
+				kept.add(i);
+			}
+			block.getInstructions().clear();
+			block.getInstructions().addAll(kept);
+			Terminator t = block.getTerminator();
+			replaceConstants(t);
+			if (t instanceof Branch && t.getOperand(0) instanceof Constant) {
+				Branch branch = (Branch) t;
+				boolean taken = (Boolean) ((Constant) t.getOperand(0)).getValue();
+				BasicBlock target = taken ? branch.getIfTrue() : branch.getIfFalse();
+				BasicBlock dropped = taken ? branch.getIfFalse() : branch.getIfTrue();
+				Jump jump = new Jump(target);
+				jump.setSource(t.getSource());
+				block.setTerminator(jump);
+				// the phis of the dropped edge lose its operand
+				for (int k = 0; k < SsaDestructor.phiCount(dropped); k++) {
+					Phi phi = (Phi) dropped.getInstructions().get(k);
+					phi.removeIncoming(phi.indexOf(block));
+				}
+			}
+		}
+		method.removeUnreachableBlocks();
+		mergeBlocks();
+	}
+
+	/**
+	 * Replace the phis of joins that lost all predecessors but one by copies,
+	 * and append every block to its predecessor if that one jumps to it and
+	 * nothing else does
+	 */
+	private void mergeBlocks() {
+		List<BasicBlock> blocks = method.getBlocks();
+		int[] predCount = new int[blocks.size()];
+		for (BasicBlock b : blocks) {
+			for (BasicBlock s : b.getSuccessors()) {
+				predCount[s.getId()]++;
+			}
+			List<Instruction> instructions = b.getInstructions();
+			for (int k = 0; k < SsaDestructor.phiCount(b); k++) {
+				Phi phi = (Phi) instructions.get(k);
+				if (phi.getOperandCount() == 1) {
+					Copy copy = new Copy(phi.getDest(), phi.getOperand(0));
+					copy.setSource(phi.getSource());
+					instructions.set(k, copy);
+				}
+			}
+		}
+		boolean[] merged = new boolean[blocks.size()];
+		for (BasicBlock b : blocks) {
+			if (merged[b.getId()]) {
+				continue;
+			}
+			while (b.getTerminator() instanceof Jump) {
+				BasicBlock next = ((Jump) b.getTerminator()).getTarget();
+				if (next == b || next == method.getEntry() || predCount[next.getId()] != 1) {
+					break;
+				}
+				b.getInstructions().addAll(next.getInstructions());
+				b.setTerminator(next.getTerminator());
+				for (BasicBlock s : next.getSuccessors()) {
+					for (int k = 0; k < SsaDestructor.phiCount(s); k++) {
+						Phi phi = (Phi) s.getInstructions().get(k);
+						for (int j = 0; j < phi.getOperandCount(); j++) {
+							if (phi.getIncoming(j) == next) {
+								phi.setIncoming(j, b);
+							}
+						}
+					}
+				}
+				merged[next.getId()] = true;
+			}
+		}
+		List<BasicBlock> kept = new ArrayList<BasicBlock>(blocks.size());
+		for (BasicBlock b : blocks) {
+			if (!merged[b.getId()]) {
+				kept.add(b);
+			}
+		}
+		blocks.clear();
+		blocks.addAll(kept);
+		method.renumberBlocks();
+	}
+
+	/**
+	 * @param i
+	 *            an instruction of an executable block
+	 */
+	private void replaceConstants(Instruction i) {
+		for (int k = 0; k < i.getOperandCount(); k++) {
+			Value v = i.getOperand(k);
+			if (v instanceof Temp && values[((Temp) v).getId()] != null) {
+				i.setOperand(k, values[((Temp) v).getId()]);
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The control-flow graph of a method: the blocks reachable from the entry,
+ * numbered in reverse postorder, with their successors and predecessors as
+ * arrays of these numbers. The entry has number 0, and every block comes
+ * before its successors except along back edges of loops.
+ *
+ * The blocks of if and while statements and of the operands of && are
+ * already split by the {@link IrLowering}; the graph only adds the
+ * predecessors and the numbering. It is a snapshot: after the blocks or
+ * terminators of the method change, a new graph has to be built.
+ */
+public class ControlFlowGraph {
+
+	/** the method */
+	private final IrMethod method;
+
+	/** the reachable blocks in reverse postorder */
+	private final BasicBlock[] blocks;
+
+	/** the number of each block of the method by id, -1 if unreachable */
+	private final int[] indexById;
+
+	/** the successors of each block */
+	private final int[][] successors;
+
+	/** the predecessors of each block */
+	private final int[][] predecessors;
+
+	/**
+	 * @param method
+	 *            a method whose blocks all have terminators; its blocks are
+	 *            renumbered by position
+	 */
+	public ControlFlowGraph(IrMethod method) {
+		this.method = method;
+		method.renumberBlocks();
+		List<BasicBlock> all = method.getBlocks();
+		int n = all.size();
+
+		// depth-first search with an explicit stack, methods can have tens of
+		// thousands of nested blocks
+		int[] postorder = new int[n];
+		int count = 0;
+		boolean[] visited = new boolean[n];
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int depth = 0;
+		stack[depth++] = 0;
+		visited[0] = true;
+		while (depth > 0) {
+			int b = stack[depth - 1];
+			List<BasicBlock> succs = all.get(b).getSuccessors();
+			if (next[b] < succs.size()) {
+				int s = succs.get(next[b]++).getId();
+				if (!visited[s]) {
+					visited[s] = true;
+					stack[depth++] = s;
+				}
+			} else {
+				postorder[count++] = b;
+				depth--;
+			}
+		}
+
+		this.blocks = new BasicBlock[count];
+		this.indexById = new int[n];
+		Arrays.fill(indexById, -1);
+		for (int i = 0; i < count; i++) {
+			blocks[i] = all.get(postorder[count - 1 - i]);
+			indexById[blocks[i].getId()] = i;
+		}
+
+		this.successors = new int[count][];
+		int[] predCount = new int[count];
+		for (int i = 0; i < count; i++) {
+			List<BasicBlock> succs = blocks[i].getSuccessors();
+			successors[i] = new int[succs.size()];
+			for (int j = 0; j < succs.size(); j++) {
+				int s = indexById[succs.get(j).getId()];
+				successors[i][j] = s;
+				predCount[s]++;
+			}
+		}
+		this.predecessors = new int[count][];
+		for (int i = 0; i < count; i++) {
+			predecessors[i] = new int[predCount[i]];
+			predCount[i] = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			for (int s : successors[i]) {
+				predecessors[s][predCount[s]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * @return the method
+	 */
+	public IrMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the number of reachable blocks
+	 */
+	public int size() {
+		return blocks.length;
+	}
+
+	/**
+	 * @param i
+	 *            the number of a block
+	 * @return the block
+	 */
+	public BasicBlock getBlock(int i) {
+		return blocks[i];
+	}
+
+	/**
+	 * @param block
+	 *            a block of the method
+	 * @return its number, or -1 if it is not reachable from the entry
+	 */
+	public int indexOf(BasicBlock block) {
+		int id = block.getId();
+		return id >= 0 && id < indexById.length && method.getBlocks().get(id) == block ? indexById[id] : -1;
+	}
+
+	/**
+	 * @param i
+	 *            the number of a block
+	 * @return the numbers of its successors, in the order of its terminator;
+	 *         do not modify
+	 */
+	public int[] getSuccessors(int i) {
+		return successors[i];
+	}
+
+	/**
+	 * @param i
+	 *            the number of a block
+	 * @return the numbers of its predecessors, once per edge; do not modify
+	 */
+	public int[] getPredecessors(int i) {
+		return predecessors[i];
+	}
+
+	/**
+	 * @return the reachable blocks in reverse postorder
+	 */
+	public List<BasicBlock> getBlocks() {
+		return new ArrayList<BasicBlock>(Arrays.asList(blocks));
+	}
+}
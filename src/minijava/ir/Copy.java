@@ -0,0 +1,27 @@
+package minijava.ir;
+
+/**
+ * dest = value
+ */
+public class Copy extends Instruction {
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param value
+	 *            the value to copy
+	 */
+	public Copy(Temp dest, Value value) {
+		super(dest, value);
+	}
+
+	@Override
+	public boolean isPure() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "copy " + getOperand(0);
+	}
+}
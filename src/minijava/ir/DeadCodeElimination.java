@@ -0,0 +1,90 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the pure instructions whose results are never needed. The
+ * instructions with effects and the terminators are needed; an instruction
+ * is needed if it writes a temporary that a needed instruction reads. Marking
+ * follows the reads from the needed instructions back to the writes, so
+ * loops of phis and increments whose values are never used are removed as
+ * well. In SSA form every temporary has one write and the pass is linear;
+ * before, all writes of a read temporary are needed.
+ */
+public class DeadCodeElimination {
+
+	/**
+	 * @param method
+	 *            a method
+	 * @return the number of removed instructions
+	 */
+	public static int eliminate(IrMethod method) {
+		int count = method.getTempCount();
+		List<List<Instruction>> writes = new ArrayList<List<Instruction>>(count);
+		for (int t = 0; t < count; t++) {
+			writes.add(null);
+		}
+		List<Instruction> work = new ArrayList<Instruction>();
+		for (BasicBlock b : method.getBlocks()) {
+			for (Instruction i : b.getInstructions()) {
+				if (!i.isPure()) {
+					work.add(i);
+				} else {
+					int t = i.getDest().getId();
+					if (writes.get(t) == null) {
+						writes.set(t, new ArrayList<Instruction>(1));
+					}
+					writes.get(t).add(i);
+				}
+			}
+			work.add(b.getTerminator());
+		}
+
+		boolean[] needed = new boolean[count];
+		while (!work.isEmpty()) {
+			Instruction i = work.remove(work.size() - 1);
+			for (int k = 0; k < i.getOperandCount(); k++) {
+				Value v = i.getOperand(k);
+				if (!(v instanceof Temp) || needed[((Temp) v).getId()]) {
+					continue;
+				}
+				int t = ((Temp) v).getId();
+				needed[t] = true;
+				if (writes.get(t) != null) {
+					work.addAll(writes.get(t));
+				}
+			}
+		}
+
+		int removed = 0;
+		for (BasicBlock b : method.getBlocks()) {
+			List<Instruction> instructions = b.getInstructions();
+			List<Instruction> kept = new ArrayList<Instruction>(instructions.size());
+			for (Instruction i : instructions) {
+				if (!i.isPure() || needed[i.getDest().getId()]) {
+					kept.add(i);
+				}
+			}
+			removed += instructions.size() - kept.size();
+			instructions.clear();
+			instructions.addAll(kept);
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove the unneeded instructions of all methods of a program
+	 *
+	 * @param program
+	 *            a program
+	 * @return the number of removed instructions
+	 */
+	public static int eliminate(IrProgram program) {
+		int removed = 0;
+		for (IrMethod m : program.getMethods()) {
+			removed += eliminate(m);
+		}
+		return removed;
+	}
+}
@@ -0,0 +1,314 @@
+package minijava.ir;
+
+import java.util.Arrays;
+
+/**
+ * The dominators of a control-flow graph: block a dominates block b if every
+ * path from the entry to b passes through a. The immediate dominators are
+ * computed with the algorithm of Lengauer and Tarjan with path compression,
+ * in O(m log n) for n blocks and m edges; the dominance frontiers with the
+ * algorithm of Cooper, Harvey and Kennedy, in time proportional to their
+ * size. All traversals use explicit stacks, so deeply nested methods cannot
+ * overflow the Java stack.
+ *
+ * Blocks are identified by their numbers in the {@link ControlFlowGraph}.
+ */
+public class DominatorTree {
+
+	/** the graph */
+	private final ControlFlowGraph cfg;
+
+	/** the immediate dominator of each block, -1 for the entry */
+	private final int[] idom;
+
+	/** the children of each block in the dominator tree */
+	private final int[][] children;
+
+	/** the number of each block in a preorder walk of the tree */
+	private final int[] preorder;
+
+	/** the number of each block in a postorder walk of the tree */
+	private final int[] postorder;
+
+	/** the dominance frontier of each block, computed on demand */
+	private int[][] frontiers;
+
+	/**
+	 * @param cfg
+	 *            a control-flow graph
+	 */
+	public DominatorTree(ControlFlowGraph cfg) {
+		this.cfg = cfg;
+		int n = cfg.size();
+		this.idom = immediateDominators(cfg);
+
+		int[] childCount = new int[n];
+		for (int b = 1; b < n; b++) {
+			childCount[idom[b]]++;
+		}
+		this.children = new int[n][];
+		for (int b = 0; b < n; b++) {
+			children[b] = new int[childCount[b]];
+			childCount[b] = 0;
+		}
+		for (int b = 1; b < n; b++) {
+			children[idom[b]][childCount[idom[b]]++] = b;
+		}
+
+		this.preorder = new int[n];
+		this.postorder = new int[n];
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int depth = 0;
+		int pre = 0;
+		int post = 0;
+		if (n > 0) {
+			stack[depth++] = 0;
+			preorder[0] = pre++;
+		}
+		while (depth > 0) {
+			int b = stack[depth - 1];
+			if (next[b] < children[b].length) {
+				int c = children[b][next[b]++];
+				preorder[c] = pre++;
+				stack[depth++] = c;
+			} else {
+				postorder[b] = post++;
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Lengauer-Tarjan with simple path compression. The vertices are
+	 * numbered in depth-first preorder; the semidominator of a vertex is kept
+	 * as the preorder number of the semidominator.
+	 *
+	 * @param cfg
+	 *            a control-flow graph
+	 * @return the immediate dominator of each block, -1 for the entry
+	 */
+	private static int[] immediateDominators(ControlFlowGraph cfg) {
+		int n = cfg.size();
+		int[] dfnum = new int[n];
+		int[] vertex = new int[n];
+		int[] parent = new int[n];
+		Arrays.fill(dfnum, -1);
+
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int depth = 0;
+		int count = 0;
+		if (n > 0) {
+			stack[depth++] = 0;
+			dfnum[0] = count;
+			vertex[count++] = 0;
+			parent[0] = -1;
+		}
+		while (depth > 0) {
+			int v = stack[depth - 1];
+			int[] succs = cfg.getSuccessors(v);
+			if (next[v] < succs.length) {
+				int w = succs[next[v]++];
+				if (dfnum[w] < 0) {
+					dfnum[w] = count;
+					vertex[count++] = w;
+					parent[w] = v;
+					stack[depth++] = w;
+				}
+			} else {
+				depth--;
+			}
+		}
+
+		int[] semi = dfnum.clone();
+		int[] idom = new int[n];
+		int[] ancestor = new int[n];
+		int[] label = new int[n];
+		int[] bucketHead = new int[n];
+		int[] bucketNext = new int[n];
+		Arrays.fill(ancestor, -1);
+		Arrays.fill(bucketHead, -1);
+		for (int v = 0; v < n; v++) {
+			label[v] = v;
+		}
+
+		for (int i = count - 1; i > 0; i--) {
+			int w = vertex[i];
+			for (int v : cfg.getPredecessors(w)) {
+				int u = eval(v, ancestor, label, semi, stack);
+				if (semi[u] < semi[w]) {
+					semi[w] = semi[u];
+				}
+			}
+			int s = vertex[semi[w]];
+			bucketNext[w] = bucketHead[s];
+			bucketHead[s] = w;
+
+			int p = parent[w];
+			ancestor[w] = p;
+			for (int v = bucketHead[p]; v >= 0; v = bucketNext[v]) {
+				int u = eval(v, ancestor, label, semi, stack);
+				idom[v] = semi[u] < semi[v] ? u : p;
+			}
+			bucketHead[p] = -1;
+		}
+		for (int i = 1; i < count; i++) {
+			int w = vertex[i];
+			if (idom[w] != vertex[semi[w]]) {
+				idom[w] = idom[idom[w]];
+			}
+		}
+		if (n > 0) {
+			idom[0] = -1;
+		}
+		return idom;
+	}
+
+	/**
+	 * @param v
+	 *            a vertex
+	 * @param ancestor
+	 *            the ancestor of each vertex in the forest of processed
+	 *            vertices, -1 for roots
+	 * @param label
+	 *            the vertex with the least semidominator on the compressed
+	 *            path of each vertex
+	 * @param semi
+	 *            the semidominators
+	 * @param stack
+	 *            scratch space for the path
+	 * @return the vertex with the least semidominator on the path from v to
+	 *         the root of its tree, excluding the root
+	 */
+	private static int eval(int v, int[] ancestor, int[] label, int[] semi, int[] stack) {
+		if (ancestor[v] < 0) {
+			return v;
+		}
+		// compress the path from v to the child of the root, the vertices
+		// next to the root first
+		int depth = 0;
+		for (int u = v; ancestor[ancestor[u]] >= 0; u = ancestor[u]) {
+			stack[depth++] = u;
+		}
+		while (depth > 0) {
+			int u = stack[--depth];
+			int a = ancestor[u];
+			if (semi[label[a]] < semi[label[u]]) {
+				label[u] = label[a];
+			}
+			ancestor[u] = ancestor[a];
+		}
+		return label[v];
+	}
+
+	/**
+	 * @return the graph
+	 */
+	public ControlFlowGraph getGraph() {
+		return cfg;
+	}
+
+	/**
+	 * @param b
+	 *            a block
+	 * @return its immediate dominator, or -1 for the entry
+	 */
+	public int getIdom(int b) {
+		return idom[b];
+	}
+
+	/**
+	 * @param b
+	 *            a block
+	 * @return the blocks it immediately dominates; do not modify
+	 */
+	public int[] getChildren(int b) {
+		return children[b];
+	}
+
+	/**
+	 * @param a
+	 *            a block
+	 * @param b
+	 *            another block
+	 * @return true iff a dominates b; every block dominates itself
+	 */
+	public boolean dominates(int a, int b) {
+		return preorder[a] <= preorder[b] && postorder[b] <= postorder[a];
+	}
+
+	/**
+	 * @return the blocks in a preorder walk of the dominator tree, so that
+	 *         every block comes after its dominators
+	 */
+	public int[] preorder() {
+		int[] blocks = new int[preorder.length];
+		for (int b = 0; b < preorder.length; b++) {
+			blocks[preorder[b]] = b;
+		}
+		return blocks;
+	}
+
+	/**
+	 * @param b
+	 *            a block
+	 * @return the blocks where the dominance of b ends: the blocks that have
+	 *         a predecessor dominated by b but are not strictly dominated by
+	 *         b themselves; do not modify
+	 */
+	public int[] getFrontier(int b) {
+		if (frontiers == null) {
+			frontiers = computeFrontiers();
+		}
+		return frontiers[b];
+	}
+
+	/**
+	 * @return the dominance frontier of each block
+	 */
+	private int[][] computeFrontiers() {
+		int n = cfg.size();
+		int[] size = new int[n];
+		// count first, then fill, to avoid a list per block
+		walkFrontiers(null, size);
+		int[][] result = new int[n][];
+		for (int b = 0; b < n; b++) {
+			result[b] = new int[size[b]];
+			size[b] = 0;
+		}
+		walkFrontiers(result, size);
+		return result;
+	}
+
+	/**
+	 * Cooper, Harvey and Kennedy: walk up the dominator tree from every
+	 * predecessor of a join block to the immediate dominator of the join
+	 * block; the join block is in the frontier of every block on the way.
+	 *
+	 * @param result
+	 *            receives the frontiers, or null to only count
+	 * @param size
+	 *            the number of frontier blocks found so far for each block
+	 */
+	private void walkFrontiers(int[][] result, int[] size) {
+		int[] last = new int[cfg.size()];
+		Arrays.fill(last, -1);
+		for (int b = 0; b < cfg.size(); b++) {
+			int[] preds = cfg.getPredecessors(b);
+			if (preds.length < 2) {
+				continue;
+			}
+			for (int p : preds) {
+				// stop where an earlier walk to the same join block went on
+				for (int runner = p; runner != idom[b] && last[runner] != b; runner = idom[runner]) {
+					last[runner] = b;
+					if (result != null) {
+						result[runner][size[runner]] = b;
+					}
+					size[runner]++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package minijava.ir;
+
+/**
+ * dest = object.field; fails if the object is null
+ */
+public class FieldLoad extends Instruction {
+
+	/** the field */
+	private final IrField field;
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param object
+	 *            the object
+	 * @param field
+	 *            the field
+	 */
+	public FieldLoad(Temp dest, Value object, IrField field) {
+		super(dest, object);
+		this.field = field;
+	}
+
+	/**
+	 * @return the field
+	 */
+	public IrField getField() {
+		return field;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "getfield " + getOperand(0) + ", " + field;
+	}
+}
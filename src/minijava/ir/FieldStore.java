@@ -0,0 +1,35 @@
+package minijava.ir;
+
+/**
+ * object.field = value; fails if the object is null
+ */
+public class FieldStore extends Instruction {
+
+	/** the field */
+	private final IrField field;
+
+	/**
+	 * @param object
+	 *            the object
+	 * @param field
+	 *            the field
+	 * @param value
+	 *            the value to store
+	 */
+	public FieldStore(Value object, IrField field, Value value) {
+		super(null, object, value);
+		this.field = field;
+	}
+
+	/**
+	 * @return the field
+	 */
+	public IrField getField() {
+		return field;
+	}
+
+	@Override
+	public String toString() {
+		return "putfield " + getOperand(0) + ", " + field + ", " + getOperand(1);
+	}
+}
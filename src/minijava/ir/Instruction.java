@@ -0,0 +1,132 @@
+package minijava.ir;
+
+import minijava.node.Node;
+
+/**
+ * An instruction of three-address code: it reads its operands and writes at
+ * most one temporary, the destination. The operands are kept in an array, so
+ * that passes can rewrite them without knowing the kind of instruction.
+ */
+public abstract class Instruction {
+
+	/** the temporary written by the instruction, or null */
+	private Temp dest;
+
+	/** the operands read by the instruction */
+	private Value[] operands;
+
+	/** the AST node the instruction was lowered from, or null */
+	private Node source;
+
+	/**
+	 * @param dest
+	 *            the temporary written by the instruction, or null
+	 * @param operands
+	 *            the operands read by the instruction
+	 */
+	protected Instruction(Temp dest, Value... operands) {
+		this.dest = dest;
+		this.operands = operands;
+	}
+
+	/**
+	 * @return the temporary written by the instruction, or null
+	 */
+	public Temp getDest() {
+		return dest;
+	}
+
+	/**
+	 * @param dest
+	 *            the new temporary written by the instruction
+	 */
+	public void setDest(Temp dest) {
+		this.dest = dest;
+	}
+
+	/**
+	 * @return the number of operands
+	 */
+	public int getOperandCount() {
+		return operands.length;
+	}
+
+	/**
+	 * @param i
+	 *            the index of an operand
+	 * @return the operand
+	 */
+	public Value getOperand(int i) {
+		return operands[i];
+	}
+
+	/**
+	 * @param i
+	 *            the index of an operand
+	 * @param value
+	 *            the new operand
+	 */
+	public void setOperand(int i, Value value) {
+		operands[i] = value;
+	}
+
+	/**
+	 * @param i
+	 *            the index of an operand to remove, for instructions with a
+	 *            variable number of operands
+	 */
+	protected void removeOperand(int i) {
+		Value[] values = new Value[operands.length - 1];
+		System.arraycopy(operands, 0, values, 0, i);
+		System.arraycopy(operands, i + 1, values, i, values.length - i);
+		operands = values;
+	}
+
+	/**
+	 * @return the AST node the instruction was lowered from, or null
+	 */
+	public Node getSource() {
+		return source;
+	}
+
+	/**
+	 * @param source
+	 *            the AST node the instruction was lowered from; runtime errors
+	 *            of the instruction are reported at its line
+	 */
+	public void setSource(Node source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return true iff the instruction has no effect besides writing its
+	 *         destination and cannot fail, so that it can be removed when the
+	 *         destination is not used
+	 */
+	public boolean isPure() {
+		return false;
+	}
+
+	/**
+	 * @return the destination followed by " = ", or nothing
+	 */
+	protected String destString() {
+		return dest == null ? "" : dest + ":" + dest.getType() + " = ";
+	}
+
+	/**
+	 * @param first
+	 *            the index of the first operand
+	 * @return the operands from first on, separated by commas
+	 */
+	protected String operandString(int first) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = first; i < operands.length; i++) {
+			if (i > first) {
+				sb.append(", ");
+			}
+			sb.append(operands[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,171 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import minijava.analysis.types.MjClass;
+import minijava.analysis.types.MjType;
+import minijava.node.AClassDecl;
+import minijava.node.ATypedVar;
+
+/**
+ * A class with its fields and methods
+ */
+public class IrClass {
+
+	/** the declaration of the class */
+	private final AClassDecl decl;
+
+	/** the super class, or null */
+	private final IrClass superClass;
+
+	/** the type of the objects of the class */
+	private final MjClass type;
+
+	/** the fields declared in this class */
+	private final List<IrField> fields = new ArrayList<IrField>();
+
+	/** the methods declared in this class */
+	private final List<IrMethod> methods = new ArrayList<IrMethod>();
+
+	/** the methods executed for objects of this class by name, built on demand */
+	private HashMap<String, IrMethod> methodTable;
+
+	/**
+	 * @param decl
+	 *            the declaration of the class
+	 * @param superClass
+	 *            the super class, or null
+	 */
+	IrClass(AClassDecl decl, IrClass superClass) {
+		this.decl = decl;
+		this.superClass = superClass;
+		this.type = new MjClass(decl);
+	}
+
+	/**
+	 * @return the declaration of the class
+	 */
+	public AClassDecl getDecl() {
+		return decl;
+	}
+
+	/**
+	 * @return the name of the class
+	 */
+	public String getName() {
+		return decl.getId().getText();
+	}
+
+	/**
+	 * @return the super class, or null
+	 */
+	public IrClass getSuperClass() {
+		return superClass;
+	}
+
+	/**
+	 * @return the type of the objects of the class
+	 */
+	public MjClass getType() {
+		return type;
+	}
+
+	/**
+	 * Declare a field after all fields of the super class are declared
+	 *
+	 * @param var
+	 *            the declaration of the field
+	 * @param fieldType
+	 *            the type of the field
+	 * @return the field
+	 */
+	IrField addField(ATypedVar var, MjType fieldType) {
+		IrField field = new IrField(this, var, fieldType, getFieldCount());
+		fields.add(field);
+		return field;
+	}
+
+	/**
+	 * @return the fields declared in this class
+	 */
+	public List<IrField> getDeclaredFields() {
+		return Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * @return the number of fields of the objects of the class, including the
+	 *         inherited ones
+	 */
+	public int getFieldCount() {
+		return (superClass == null ? 0 : superClass.getFieldCount()) + fields.size();
+	}
+
+	/**
+	 * @return all fields of the objects of the class by slot, the inherited
+	 *         ones first
+	 */
+	public List<IrField> getAllFields() {
+		List<IrField> all = superClass == null ? new ArrayList<IrField>() : superClass.getAllFields();
+		all.addAll(fields);
+		return all;
+	}
+
+	/**
+	 * @param method
+	 *            a method declared in this class
+	 */
+	void addMethod(IrMethod method) {
+		methods.add(method);
+	}
+
+	/**
+	 * @return the methods declared in this class
+	 */
+	public List<IrMethod> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+
+	/**
+	 * @param name
+	 *            the name of a method
+	 * @return the method executed by a virtual call on an object of this
+	 *         class, i.e. the one declared nearest to this class, or null
+	 */
+	public IrMethod lookupMethod(String name) {
+		if (methodTable == null) {
+			HashMap<String, IrMethod> table = new HashMap<String, IrMethod>();
+			for (IrClass c = this; c != null; c = c.superClass) {
+				for (IrMethod m : c.methods) {
+					if (!table.containsKey(m.getName())) {
+						table.put(m.getName(), m);
+					}
+				}
+			}
+			methodTable = table;
+		}
+		return methodTable.get(name);
+	}
+
+	/**
+	 * @param other
+	 *            a class
+	 * @return true iff this class is the other class or a direct or indirect
+	 *         subclass of it
+	 */
+	public boolean isSubclassOf(IrClass other) {
+		for (IrClass c = this; c != null; c = c.superClass) {
+			if (c == other) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,81 @@
+package minijava.ir;
+
+import minijava.analysis.types.MjType;
+import minijava.node.ATypedVar;
+
+/**
+ * A field of a class. The fields of an object are numbered, the inherited
+ * fields first.
+ */
+public class IrField {
+
+	/** the declaring class */
+	private final IrClass owner;
+
+	/** the declaration of the field */
+	private final ATypedVar decl;
+
+	/** the type of the field */
+	private final MjType type;
+
+	/** the index of the field in the objects of its class */
+	private final int slot;
+
+	/**
+	 * @param owner
+	 *            the declaring class
+	 * @param decl
+	 *            the declaration of the field
+	 * @param type
+	 *            the type of the field
+	 * @param slot
+	 *            the index of the field in the objects of its class
+	 */
+	IrField(IrClass owner, ATypedVar decl, MjType type, int slot) {
+		this.owner = owner;
+		this.decl = decl;
+		this.type = type;
+		this.slot = slot;
+	}
+
+	/**
+	 * @return the declaring class
+	 */
+	public IrClass getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @return the declaration of the field
+	 */
+	public ATypedVar getDecl() {
+		return decl;
+	}
+
+	/**
+	 * @return the name of the field
+	 */
+	public String getName() {
+		return decl.getName().getText();
+	}
+
+	/**
+	 * @return the type of the field
+	 */
+	public MjType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the index of the field in the objects of its class and its
+	 *         subclasses
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public String toString() {
+		return owner.getName() + "." + getName();
+	}
+}
@@ -0,0 +1,277 @@
+package minijava.ir;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import minijava.analysis.TypeChecker;
+import minijava.interpreter.MjRuntimeException;
+import minijava.node.Start;
+
+/**
+ * Executes a program in three-address code, so that the lowering and the
+ * passes on the IR can be checked against the {@link minijava.interpreter.Interpreter}.
+ * Values are represented like there: as Integer, Boolean, int[] and
+ * {@link IrObject}; every activation keeps the values of its temporaries in
+ * an array indexed by their number.
+ */
+public class IrInterpreter {
+
+	/** the program */
+	private final IrProgram program;
+
+	/** the stream System.out.println writes to */
+	private final PrintStream out;
+
+	/** the initial field values of the objects of each class by slot */
+	private final IdentityHashMap<IrClass, Object[]> initialFields;
+
+	/**
+	 * @param program
+	 *            a program lowered from a type correct program
+	 * @param out
+	 *            the stream System.out.println writes to
+	 */
+	public IrInterpreter(IrProgram program, PrintStream out) {
+		this.program = program;
+		this.out = out;
+		this.initialFields = new IdentityHashMap<IrClass, Object[]>();
+	}
+
+	/**
+	 * Type check, lower and run a program
+	 *
+	 * @param ast
+	 *            the program
+	 * @param out
+	 *            the stream System.out.println writes to
+	 * @throws minijava.analysis.TypeCheckingExpcetion
+	 *             when the program is not type correct
+	 * @throws MjRuntimeException
+	 *             when the execution fails
+	 */
+	public static void run(Start ast, PrintStream out) {
+		IrProgram program = new IrLowering(TypeChecker.typecheckOrFail(ast)).lower();
+		new IrInterpreter(program, out).run();
+	}
+
+	/**
+	 * Run the main method of the program
+	 *
+	 * @throws MjRuntimeException
+	 *             when the execution fails
+	 */
+	public void run() {
+		try {
+			execute(program.getMain(), null, new Object[0]);
+		} catch (StackOverflowError e) {
+			throw new MjRuntimeException(program.getMain().getDecl(), "Stack overflow");
+		}
+		out.flush();
+	}
+
+	/**
+	 * @param method
+	 *            a method
+	 * @param receiver
+	 *            the receiver, null for the main method
+	 * @param args
+	 *            the arguments
+	 * @return the return value, null for the main method
+	 */
+	private Object execute(IrMethod method, IrObject receiver, Object[] args) {
+		Object[] temps = new Object[method.getTempCount()];
+		if (method.getThis() != null) {
+			temps[method.getThis().getId()] = receiver;
+		}
+		List<Temp> params = method.getParams();
+		for (int i = 0; i < args.length; i++) {
+			temps[params.get(i).getId()] = args[i];
+		}
+		BasicBlock previous = null;
+		BasicBlock block = method.getEntry();
+		while (true) {
+			List<Instruction> instructions = block.getInstructions();
+			int first = enterBlock(instructions, previous, temps);
+			for (int k = first; k < instructions.size(); k++) {
+				execute(instructions.get(k), temps);
+			}
+			Terminator terminator = block.getTerminator();
+			previous = block;
+			if (terminator instanceof Jump) {
+				block = ((Jump) terminator).getTarget();
+			} else if (terminator instanceof Branch) {
+				Branch branch = (Branch) terminator;
+				block = (Boolean) value(branch.getOperand(0), temps) ? branch.getIfTrue() : branch.getIfFalse();
+			} else if (terminator instanceof Return) {
+				Value result = ((Return) terminator).getValue();
+				return result == null ? null : value(result, temps);
+			} else {
+				throw new RuntimeException("Unknown subclass of Terminator: " + terminator);
+			}
+		}
+	}
+
+	/**
+	 * Evaluate the phis at the start of a block together: all operands are
+	 * read before any destination is written
+	 *
+	 * @param instructions
+	 *            the instructions of the block
+	 * @param previous
+	 *            the block control came from, null on entry
+	 * @param temps
+	 *            the values of the temporaries
+	 * @return the number of phis
+	 */
+	private static int enterBlock(List<Instruction> instructions, BasicBlock previous, Object[] temps) {
+		int phis = 0;
+		while (phis < instructions.size() && instructions.get(phis) instanceof Phi) {
+			phis++;
+		}
+		if (phis > 0) {
+			Object[] values = new Object[phis];
+			for (int k = 0; k < phis; k++) {
+				Phi phi = (Phi) instructions.get(k);
+				values[k] = value(phi.getOperand(phi.indexOf(previous)), temps);
+			}
+			for (int k = 0; k < phis; k++) {
+				temps[instructions.get(k).getDest().getId()] = values[k];
+			}
+		}
+		return phis;
+	}
+
+	/**
+	 * @param v
+	 *            an operand
+	 * @param temps
+	 *            the values of the temporaries
+	 * @return the value of the operand
+	 */
+	private static Object value(Value v, Object[] temps) {
+		if (v instanceof Constant) {
+			return ((Constant) v).getValue();
+		}
+		return temps[((Temp) v).getId()];
+	}
+
+	/**
+	 * @param i
+	 *            an instruction
+	 * @param temps
+	 *            the values of the temporaries
+	 */
+	private void execute(Instruction i, Object[] temps) {
+		Object result = null;
+		if (i instanceof Copy) {
+			result = value(i.getOperand(0), temps);
+		} else if (i instanceof BinaryOp) {
+			result = ((BinaryOp) i).getOperator().evaluate((Integer) value(i.getOperand(0), temps),
+					(Integer) value(i.getOperand(1), temps));
+		} else if (i instanceof UnaryOp) {
+			result = ((UnaryOp) i).getOperator().evaluate(value(i.getOperand(0), temps));
+		} else if (i instanceof NewObject) {
+			result = allocate(((NewObject) i).getIrClass());
+		} else if (i instanceof NewArray) {
+			int size = (Integer) value(i.getOperand(0), temps);
+			if (size < 0) {
+				throw new MjRuntimeException(i.getSource(), "Negative array size " + size);
+			}
+			result = new int[size];
+		} else if (i instanceof ArrayLength) {
+			result = checkNotNull(i, (int[]) value(i.getOperand(0), temps)).length;
+		} else if (i instanceof ArrayLoad) {
+			int[] array = checkNotNull(i, (int[]) value(i.getOperand(0), temps));
+			result = array[checkIndex(i, array, (Integer) value(i.getOperand(1), temps))];
+		} else if (i instanceof ArrayStore) {
+			int[] array = checkNotNull(i, (int[]) value(i.getOperand(0), temps));
+			array[checkIndex(i, array, (Integer) value(i.getOperand(1), temps))] = (Integer) value(
+					i.getOperand(2), temps);
+		} else if (i instanceof FieldLoad) {
+			result = checkNotNull(i, (IrObject) value(i.getOperand(0), temps)).get(((FieldLoad) i).getField());
+		} else if (i instanceof FieldStore) {
+			checkNotNull(i, (IrObject) value(i.getOperand(0), temps)).set(((FieldStore) i).getField(),
+					value(i.getOperand(1), temps));
+		} else if (i instanceof Call) {
+			result = call((Call) i, temps);
+		} else if (i instanceof Print) {
+			out.println((int) (Integer) value(i.getOperand(0), temps));
+		} else {
+			throw new RuntimeException("Unknown subclass of Instruction: " + i);
+		}
+		if (i.getDest() != null) {
+			temps[i.getDest().getId()] = result;
+		}
+	}
+
+	/**
+	 * @param i
+	 *            the instruction to blame
+	 * @param value
+	 *            an object or array
+	 * @param <T>
+	 *            the type of the value
+	 * @return the value if it is not null
+	 */
+	private static <T> T checkNotNull(Instruction i, T value) {
+		if (value == null) {
+			throw new MjRuntimeException(i.getSource(), "Null pointer");
+		}
+		return value;
+	}
+
+	/**
+	 * @param i
+	 *            the instruction to blame
+	 * @param array
+	 *            an array
+	 * @param index
+	 *            an index into the array
+	 * @return the index if it is in bounds
+	 */
+	private static int checkIndex(Instruction i, int[] array, int index) {
+		if (index < 0 || index >= array.length) {
+			throw new MjRuntimeException(i.getSource(), "Array index " + index + " out of bounds for length "
+					+ array.length);
+		}
+		return index;
+	}
+
+	/**
+	 * @param irClass
+	 *            a class
+	 * @return a new object of the class with all fields set to their default
+	 *         values
+	 */
+	private IrObject allocate(IrClass irClass) {
+		Object[] initial = initialFields.get(irClass);
+		if (initial == null) {
+			List<IrField> fields = irClass.getAllFields();
+			initial = new Object[fields.size()];
+			for (IrField field : fields) {
+				initial[field.getSlot()] = Constant.defaultValue(field.getType()).getValue();
+			}
+			initialFields.put(irClass, initial);
+		}
+		return new IrObject(irClass, initial.clone());
+	}
+
+	/**
+	 * @param call
+	 *            a call instruction
+	 * @param temps
+	 *            the values of the temporaries
+	 * @return the return value of the called method
+	 */
+	private Object call(Call call, Object[] temps) {
+		IrObject receiver = checkNotNull(call, (IrObject) value(call.getOperand(0), temps));
+		Object[] args = new Object[call.getOperandCount() - 1];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = value(call.getOperand(1 + i), temps);
+		}
+		IrMethod method = call.isVirtual() ? receiver.getIrClass().lookupMethod(call.getTarget().getName())
+				: call.getTarget();
+		return execute(method, receiver, args);
+	}
+}
@@ -0,0 +1,549 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import minijava.analysis.Builtins;
+import minijava.analysis.MjAnalysis;
+import minijava.analysis.NameAnalysis;
+import minijava.analysis.TypeCheckingExpcetion;
+import minijava.analysis.types.MjBool;
+import minijava.analysis.types.MjClass;
+import minijava.analysis.types.MjInt;
+import minijava.analysis.types.MjIntArray;
+import minijava.analysis.types.MjType;
+import minijava.node.AAddExp;
+import minijava.node.AAndExp;
+import minijava.node.AArrayAllocExp;
+import minijava.node.AArrayLookupExp;
+import minijava.node.AAssignStmt;
+import minijava.node.ABlockStmt;
+import minijava.node.ABoolType;
+import minijava.node.ACallStmt;
+import minijava.node.AClassDecl;
+import minijava.node.AClassType;
+import minijava.node.ACmpExp;
+import minijava.node.AFalseExp;
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AIfStmt;
+import minijava.node.AIntLiteralExp;
+import minijava.node.AIntType;
+import minijava.node.AIntarrayType;
+import minijava.node.AMainClass;
+import minijava.node.AMethodCallExp;
+import minijava.node.AMethodDecl;
+import minijava.node.AMultExp;
+import minijava.node.ANegExp;
+import minijava.node.ANotExp;
+import minijava.node.AObjAllocExp;
+import minijava.node.ASubExp;
+import minijava.node.AThisExp;
+import minijava.node.ATrueExp;
+import minijava.node.ATypedVar;
+import minijava.node.AWhileStmt;
+import minijava.node.Node;
+import minijava.node.PClassDecl;
+import minijava.node.PExp;
+import minijava.node.PMethodDecl;
+import minijava.node.PStmt;
+import minijava.node.PType;
+import minijava.node.PTypedVar;
+
+/**
+ * Lowers a type checked program to three-address code. Variables, fields and
+ * methods are resolved with the bindings of the MjAnalysis. Every parameter
+ * and local variable becomes one temporary that is assigned by copies, local
+ * variables are initialized with the default value of their type at the
+ * start of the method. Conditions of if and while statements and the
+ * operands of && become branches, so evaluation is short-circuit like in the
+ * interpreter. The order of evaluation and of the runtime checks is the one
+ * of the interpreter.
+ */
+public class IrLowering {
+
+	/** the analysis of the program */
+	private final MjAnalysis analysis;
+
+	/** the name analysis of the program */
+	private final NameAnalysis nameAnalysis;
+
+	/** the classes by declaration */
+	private final IdentityHashMap<AClassDecl, IrClass> classes;
+
+	/** the classes, every class after its super class */
+	private final List<IrClass> superClassesFirst;
+
+	/** the methods by declaration */
+	private final IdentityHashMap<AMethodDecl, IrMethod> methods;
+
+	/** the fields by declaration */
+	private final IdentityHashMap<ATypedVar, IrField> fields;
+
+	/** the method that is currently lowered */
+	private IrMethod method;
+
+	/** the temporaries of the parameters and local variables of the method */
+	private IdentityHashMap<ATypedVar, Temp> locals;
+
+	/** the block instructions are appended to, null after a terminator */
+	private BasicBlock block;
+
+	/**
+	 * @param analysis
+	 *            the analysis of a type correct program
+	 */
+	public IrLowering(MjAnalysis analysis) {
+		this.analysis = analysis;
+		this.nameAnalysis = analysis.getNameAnalysis();
+		this.classes = new IdentityHashMap<AClassDecl, IrClass>();
+		this.superClassesFirst = new ArrayList<IrClass>();
+		this.methods = new IdentityHashMap<AMethodDecl, IrMethod>();
+		this.fields = new IdentityHashMap<ATypedVar, IrField>();
+	}
+
+	/**
+	 * @return the program in three-address code
+	 */
+	public IrProgram lower() {
+		List<IrClass> declared = new ArrayList<IrClass>();
+		for (PClassDecl decl : analysis.getProgram().getDecls()) {
+			declared.add(declareClass((AClassDecl) decl));
+		}
+		// the field slots of a class follow the ones of its super class
+		for (IrClass c : superClassesFirst) {
+			declareMembers(c);
+		}
+		for (IrClass c : declared) {
+			for (PMethodDecl decl : c.getDecl().getMethods()) {
+				lowerMethod((AMethodDecl) decl);
+			}
+		}
+		return new IrProgram(lowerMain((AMainClass) analysis.getProgram().getMain()), declared);
+	}
+
+	/**
+	 * @param decl
+	 *            a class declaration
+	 * @return its class, created together with its super classes if needed
+	 */
+	private IrClass declareClass(AClassDecl decl) {
+		IrClass c = classes.get(decl);
+		if (c == null) {
+			AClassDecl superDecl = nameAnalysis.getSuperClass(decl);
+			c = new IrClass(decl, superDecl == null ? null : declareClass(superDecl));
+			classes.put(decl, c);
+			superClassesFirst.add(c);
+		}
+		return c;
+	}
+
+	/**
+	 * Declare the fields of a class and the methods with their parameters
+	 *
+	 * @param c
+	 *            a class whose super class is complete
+	 */
+	private void declareMembers(IrClass c) {
+		for (PTypedVar field : c.getDecl().getFields()) {
+			ATypedVar var = (ATypedVar) field;
+			fields.put(var, c.addField(var, type(var.getType())));
+		}
+		for (PMethodDecl m : c.getDecl().getMethods()) {
+			AMethodDecl decl = (AMethodDecl) m;
+			IrMethod irMethod = new IrMethod(decl.getName().getText(), c, decl, type(decl.getRetType()));
+			for (PTypedVar param : decl.getFormalParams()) {
+				ATypedVar var = (ATypedVar) param;
+				irMethod.addParam(irMethod.newTemp(type(var.getType()), var));
+			}
+			c.addMethod(irMethod);
+			methods.put(decl, irMethod);
+		}
+	}
+
+	/**
+	 * @param t
+	 *            a type in the AST
+	 * @return the type of the IR
+	 */
+	private MjType type(PType t) {
+		if (t instanceof AIntType) {
+			return MjInt.INSTANCE;
+		}
+		if (t instanceof ABoolType) {
+			return MjBool.INSTANCE;
+		}
+		if (t instanceof AIntarrayType) {
+			return MjIntArray.INSTANCE;
+		}
+		if (t instanceof AClassType) {
+			return classes.get(nameAnalysis.lookupClass(((AClassType) t).getName())).getType();
+		}
+		throw new RuntimeException("Unknown subclass of PType: " + t);
+	}
+
+	/**
+	 * @param e
+	 *            an expression
+	 * @return its type, with class types from the IR classes
+	 */
+	private MjType type(PExp e) {
+		MjType t = analysis.getTypeAnalysis().getType(e);
+		if (t instanceof MjClass) {
+			return classes.get(((MjClass) t).getClassDecl()).getType();
+		}
+		return t;
+	}
+
+	/**
+	 * @param decl
+	 *            the main class
+	 * @return its main method
+	 */
+	private IrMethod lowerMain(AMainClass decl) {
+		IrMethod main = new IrMethod("main", null, decl, null);
+		begin(main);
+		declareLocals(decl.getLocalVars(), decl);
+		lower(decl.getStms());
+		terminate(new Return(), decl);
+		return main;
+	}
+
+	/**
+	 * @param decl
+	 *            a method declaration
+	 */
+	private void lowerMethod(AMethodDecl decl) {
+		IrMethod irMethod = methods.get(decl);
+		begin(irMethod);
+		for (Temp param : irMethod.getParams()) {
+			locals.put(param.getVar(), param);
+		}
+		declareLocals(decl.getLocalVars(), decl);
+		lower(decl.getStmts());
+		terminate(new Return(lower(decl.getRetExp())), decl.getRetExp());
+	}
+
+	/**
+	 * Start lowering a method with an empty entry block
+	 *
+	 * @param irMethod
+	 *            the method
+	 */
+	private void begin(IrMethod irMethod) {
+		method = irMethod;
+		locals = new IdentityHashMap<ATypedVar, Temp>();
+		start(new BasicBlock());
+	}
+
+	/**
+	 * Create the temporaries of local variables and initialize them with the
+	 * default value of their type, like the interpreter does
+	 *
+	 * @param vars
+	 *            the local variables
+	 * @param source
+	 *            the declaring method
+	 */
+	private void declareLocals(List<PTypedVar> vars, Node source) {
+		for (PTypedVar v : vars) {
+			ATypedVar var = (ATypedVar) v;
+			Temp temp = method.newTemp(type(var.getType()), var);
+			locals.put(var, temp);
+			emit(new Copy(temp, Constant.defaultValue(temp.getType())), var);
+		}
+	}
+
+	/**
+	 * @param b
+	 *            a new block to append instructions to
+	 */
+	private void start(BasicBlock b) {
+		method.addBlock(b);
+		block = b;
+	}
+
+	/**
+	 * @param instruction
+	 *            an instruction to append to the current block
+	 * @param source
+	 *            the AST node it is lowered from
+	 */
+	private void emit(Instruction instruction, Node source) {
+		instruction.setSource(source);
+		block.add(instruction);
+	}
+
+	/**
+	 * @param terminator
+	 *            the last instruction of the current block
+	 * @param source
+	 *            the AST node it is lowered from
+	 */
+	private void terminate(Terminator terminator, Node source) {
+		terminator.setSource(source);
+		block.setTerminator(terminator);
+		block = null;
+	}
+
+	/**
+	 * @param var
+	 *            a variable declaration
+	 * @return true iff the variable is a field
+	 */
+	private static boolean isField(ATypedVar var) {
+		return var.parent() instanceof AClassDecl;
+	}
+
+	/**
+	 * @param stmts
+	 *            statements to lower in order
+	 */
+	private void lower(List<PStmt> stmts) {
+		for (PStmt stmt : stmts) {
+			lower(stmt);
+		}
+	}
+
+	/**
+	 * @param s
+	 *            a statement
+	 */
+	private void lower(PStmt s) {
+		if (s instanceof ABlockStmt) {
+			lower(((ABlockStmt) s).getStmts());
+		} else if (s instanceof AAssignStmt) {
+			lowerAssign((AAssignStmt) s);
+		} else if (s instanceof AIfStmt) {
+			AIfStmt stmt = (AIfStmt) s;
+			BasicBlock then = new BasicBlock();
+			BasicBlock otherwise = new BasicBlock();
+			BasicBlock join = new BasicBlock();
+			lowerCondition(stmt.getCond(), then, otherwise);
+			start(then);
+			lower(stmt.getTstmt());
+			terminate(new Jump(join), stmt);
+			start(otherwise);
+			lower(stmt.getFstmt());
+			terminate(new Jump(join), stmt);
+			start(join);
+		} else if (s instanceof AWhileStmt) {
+			AWhileStmt stmt = (AWhileStmt) s;
+			BasicBlock header = new BasicBlock();
+			BasicBlock body = new BasicBlock();
+			BasicBlock exit = new BasicBlock();
+			terminate(new Jump(header), stmt);
+			start(header);
+			lowerCondition(stmt.getCond(), body, exit);
+			start(body);
+			lower(stmt.getBody());
+			terminate(new Jump(header), stmt);
+			start(exit);
+		} else if (s instanceof ACallStmt) {
+			PExp exp = ((ACallStmt) s).getExp();
+			if (Builtins.isPrintln(exp)) {
+				emit(new Print(lower(((AMethodCallExp) exp).getArgs().get(0))), s);
+			} else {
+				lower(exp);
+			}
+		} else {
+			throw new RuntimeException("Unknown subclass of PStmt: " + s);
+		}
+	}
+
+	/**
+	 * @param stmt
+	 *            an assignment
+	 */
+	private void lowerAssign(AAssignStmt stmt) {
+		PExp lhs = stmt.getLhs();
+		if (lhs instanceof AIdentifierExp) {
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) lhs).getName());
+			Value value = lower(stmt.getRhs());
+			if (isField(var)) {
+				emit(new FieldStore(method.getThis(), fields.get(var), value), stmt);
+			} else {
+				emit(new Copy(locals.get(var), value), stmt);
+			}
+		} else if (lhs instanceof AFieldAccessExp) {
+			Value obj = lower(((AFieldAccessExp) lhs).getObj());
+			Value value = lower(stmt.getRhs());
+			emit(new FieldStore(obj, fields.get(nameAnalysis.getField((AFieldAccessExp) lhs)), value), lhs);
+		} else if (lhs instanceof AArrayLookupExp) {
+			AArrayLookupExp lookup = (AArrayLookupExp) lhs;
+			Value array = lower(lookup.getExp());
+			Value index = lower(lookup.getOffset());
+			Value value = lower(stmt.getRhs());
+			emit(new ArrayStore(array, index, value), lookup);
+		} else {
+			throw new RuntimeException("Illegal left-hand side of an assignment: " + lhs);
+		}
+	}
+
+	/**
+	 * Lower a condition to branches: continue with ifTrue if it evaluates to
+	 * true and with ifFalse otherwise. Ends the current block.
+	 *
+	 * @param e
+	 *            a boolean expression
+	 * @param ifTrue
+	 *            the block to continue with if the condition is true
+	 * @param ifFalse
+	 *            the block to continue with if the condition is false
+	 */
+	private void lowerCondition(PExp e, BasicBlock ifTrue, BasicBlock ifFalse) {
+		if (e instanceof ATrueExp) {
+			terminate(new Jump(ifTrue), e);
+		} else if (e instanceof AFalseExp) {
+			terminate(new Jump(ifFalse), e);
+		} else if (e instanceof ANotExp) {
+			lowerCondition(((ANotExp) e).getExp(), ifFalse, ifTrue);
+		} else if (e instanceof AAndExp) {
+			BasicBlock right = new BasicBlock();
+			lowerCondition(((AAndExp) e).getLeft(), right, ifFalse);
+			start(right);
+			lowerCondition(((AAndExp) e).getRight(), ifTrue, ifFalse);
+		} else {
+			terminate(new Branch(lower(e), ifTrue, ifFalse), e);
+		}
+	}
+
+	/**
+	 * @param e
+	 *            an expression
+	 * @param operator
+	 *            the operator of the expression
+	 * @param left
+	 *            the left operand
+	 * @param right
+	 *            the right operand
+	 * @return the temporary holding the result
+	 */
+	private Temp lowerBinary(PExp e, BinaryOp.Operator operator, PExp left, PExp right) {
+		Value l = lower(left);
+		Value r = lower(right);
+		Temp result = method.newTemp(type(e));
+		emit(new BinaryOp(operator, result, l, r), e);
+		return result;
+	}
+
+	/**
+	 * Append the instructions that compute the value of an expression
+	 *
+	 * @param e
+	 *            an expression
+	 * @return the value of the expression: a constant, the temporary of a
+	 *         variable or a new temporary
+	 */
+	private Value lower(PExp e) {
+		if (e instanceof AAndExp) {
+			Temp result = method.newTemp(MjBool.INSTANCE);
+			BasicBlock isTrue = new BasicBlock();
+			BasicBlock isFalse = new BasicBlock();
+			BasicBlock join = new BasicBlock();
+			lowerCondition(e, isTrue, isFalse);
+			start(isTrue);
+			emit(new Copy(result, Constant.TRUE), e);
+			terminate(new Jump(join), e);
+			start(isFalse);
+			emit(new Copy(result, Constant.FALSE), e);
+			terminate(new Jump(join), e);
+			start(join);
+			return result;
+		}
+		if (e instanceof ACmpExp) {
+			return lowerBinary(e, BinaryOp.Operator.LT, ((ACmpExp) e).getLeft(), ((ACmpExp) e).getRight());
+		}
+		if (e instanceof AAddExp) {
+			return lowerBinary(e, BinaryOp.Operator.ADD, ((AAddExp) e).getLeft(), ((AAddExp) e).getRight());
+		}
+		if (e instanceof ASubExp) {
+			return lowerBinary(e, BinaryOp.Operator.SUB, ((ASubExp) e).getLeft(), ((ASubExp) e).getRight());
+		}
+		if (e instanceof AMultExp) {
+			return lowerBinary(e, BinaryOp.Operator.MUL, ((AMultExp) e).getLeft(), ((AMultExp) e).getRight());
+		}
+		if (e instanceof ANotExp || e instanceof ANegExp) {
+			boolean not = e instanceof ANotExp;
+			Value operand = lower(not ? ((ANotExp) e).getExp() : ((ANegExp) e).getExp());
+			Temp result = method.newTemp(type(e));
+			emit(new UnaryOp(not ? UnaryOp.Operator.NOT : UnaryOp.Operator.NEG, result, operand), e);
+			return result;
+		}
+		if (e instanceof AIntLiteralExp) {
+			String text = ((AIntLiteralExp) e).getInteger().getText();
+			try {
+				return Constant.of(Integer.parseInt(text));
+			} catch (NumberFormatException ex) {
+				throw new TypeCheckingExpcetion(e, "Integer literal out of range: " + text);
+			}
+		}
+		if (e instanceof ATrueExp) {
+			return Constant.TRUE;
+		}
+		if (e instanceof AFalseExp) {
+			return Constant.FALSE;
+		}
+		if (e instanceof AThisExp) {
+			return method.getThis();
+		}
+		if (e instanceof AIdentifierExp) {
+			ATypedVar var = nameAnalysis.lookupVar(((AIdentifierExp) e).getName());
+			if (!isField(var)) {
+				return locals.get(var);
+			}
+			IrField field = fields.get(var);
+			Temp result = method.newTemp(field.getType());
+			emit(new FieldLoad(result, method.getThis(), field), e);
+			return result;
+		}
+		if (e instanceof AArrayAllocExp) {
+			Value size = lower(((AArrayAllocExp) e).getSize());
+			Temp result = method.newTemp(MjIntArray.INSTANCE);
+			emit(new NewArray(result, size), e);
+			return result;
+		}
+		if (e instanceof AObjAllocExp) {
+			IrClass c = classes.get(nameAnalysis.lookupClass(((AObjAllocExp) e).getName()));
+			Temp result = method.newTemp(c.getType());
+			emit(new NewObject(result, c), e);
+			return result;
+		}
+		if (e instanceof AArrayLookupExp) {
+			AArrayLookupExp lookup = (AArrayLookupExp) e;
+			Value array = lower(lookup.getExp());
+			Value index = lower(lookup.getOffset());
+			Temp result = method.newTemp(MjInt.INSTANCE);
+			emit(new ArrayLoad(result, array, index), e);
+			return result;
+		}
+		if (e instanceof AFieldAccessExp) {
+			AFieldAccessExp access = (AFieldAccessExp) e;
+			Value obj = lower(access.getObj());
+			if (access.getName().getText().equals("length") && obj.getType() == MjIntArray.INSTANCE) {
+				Temp result = method.newTemp(MjInt.INSTANCE);
+				emit(new ArrayLength(result, obj), e);
+				return result;
+			}
+			IrField field = fields.get(nameAnalysis.getField(access));
+			Temp result = method.newTemp(field.getType());
+			emit(new FieldLoad(result, obj, field), e);
+			return result;
+		}
+		if (e instanceof AMethodCallExp) {
+			AMethodCallExp call = (AMethodCallExp) e;
+			IrMethod target = methods.get(nameAnalysis.getMethod(call));
+			List<PExp> args = call.getArgs();
+			Value[] operands = new Value[1 + args.size()];
+			operands[0] = lower(call.getObj());
+			for (int i = 0; i < args.size(); i++) {
+				operands[1 + i] = lower(args.get(i));
+			}
+			Temp result = method.newTemp(target.getReturnType());
+			emit(new Call(result, target, operands), e);
+			return result;
+		}
+		throw new RuntimeException("Unknown subclass of PExp: " + e);
+	}
+}
@@ -0,0 +1,269 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import minijava.analysis.types.MjType;
+import minijava.node.ATypedVar;
+import minijava.node.Node;
+
+/**
+ * A method, or the main method of the program, as a list of basic blocks. The
+ * first block is the entry.
+ */
+public class IrMethod {
+
+	/** the name of the method */
+	private final String name;
+
+	/** the declaring class, or null for the main method */
+	private final IrClass owner;
+
+	/** the AMethodDecl, or the AMainClass for the main method */
+	private final Node decl;
+
+	/** the return type, or null for the main method */
+	private final MjType returnType;
+
+	/** the receiver, or null for the main method */
+	private final Temp thisTemp;
+
+	/** the parameters */
+	private final List<Temp> params = new ArrayList<Temp>();
+
+	/** the blocks, the entry first */
+	private final List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+
+	/** the names of the temporaries, to keep them unique */
+	private final Set<String> tempNames = new HashSet<String>();
+
+	/** the number of temporaries */
+	private int tempCount;
+
+	/** whether the method is in SSA form */
+	private boolean ssa;
+
+	/**
+	 * @param name
+	 *            the name of the method
+	 * @param owner
+	 *            the declaring class, or null for the main method
+	 * @param decl
+	 *            the AMethodDecl, or the AMainClass for the main method
+	 * @param returnType
+	 *            the return type, or null for the main method
+	 */
+	IrMethod(String name, IrClass owner, Node decl, MjType returnType) {
+		this.name = name;
+		this.owner = owner;
+		this.decl = decl;
+		this.returnType = returnType;
+		this.thisTemp = owner == null ? null : newTemp(owner.getType(), "this");
+	}
+
+	/**
+	 * @return the name of the method
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the name of the method prefixed with the name of its class
+	 */
+	public String getQualifiedName() {
+		return owner == null ? name : owner.getName() + "." + name;
+	}
+
+	/**
+	 * @return the declaring class, or null for the main method
+	 */
+	public IrClass getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @return the AMethodDecl, or the AMainClass for the main method
+	 */
+	public Node getDecl() {
+		return decl;
+	}
+
+	/**
+	 * @return the return type, or null for the main method
+	 */
+	public MjType getReturnType() {
+		return returnType;
+	}
+
+	/**
+	 * @return the receiver, or null for the main method
+	 */
+	public Temp getThis() {
+		return thisTemp;
+	}
+
+	/**
+	 * @return the parameters
+	 */
+	public List<Temp> getParams() {
+		return Collections.unmodifiableList(params);
+	}
+
+	/**
+	 * @param param
+	 *            a temporary of this method to append to the parameters
+	 */
+	void addParam(Temp param) {
+		params.add(param);
+	}
+
+	/**
+	 * @return the blocks, the entry first, modifiable
+	 */
+	public List<BasicBlock> getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * @return the first block
+	 */
+	public BasicBlock getEntry() {
+		return blocks.get(0);
+	}
+
+	/**
+	 * @param block
+	 *            a block to append to the method
+	 */
+	public void addBlock(BasicBlock block) {
+		block.setId(blocks.size());
+		blocks.add(block);
+	}
+
+	/**
+	 * Number the blocks by their position, after blocks were removed or
+	 * reordered
+	 */
+	public void renumberBlocks() {
+		for (int i = 0; i < blocks.size(); i++) {
+			blocks.get(i).setId(i);
+		}
+	}
+
+	/**
+	 * @return true iff the method is in SSA form: every temporary is written
+	 *         by at most one instruction, which dominates its uses
+	 */
+	public boolean isSsa() {
+		return ssa;
+	}
+
+	/**
+	 * @param ssa
+	 *            whether the method is in SSA form
+	 */
+	void setSsa(boolean ssa) {
+		this.ssa = ssa;
+	}
+
+	/**
+	 * Remove the blocks that cannot be reached from the entry, and the phi
+	 * operands of their edges
+	 *
+	 * @return the number of removed blocks
+	 */
+	public int removeUnreachableBlocks() {
+		ControlFlowGraph cfg = new ControlFlowGraph(this);
+		int removed = blocks.size() - cfg.size();
+		if (removed == 0) {
+			return 0;
+		}
+		Set<BasicBlock> reachable = Collections.newSetFromMap(new IdentityHashMap<BasicBlock, Boolean>());
+		reachable.addAll(cfg.getBlocks());
+		List<BasicBlock> all = new ArrayList<BasicBlock>(blocks);
+		blocks.clear();
+		for (BasicBlock b : all) {
+			if (reachable.contains(b)) {
+				blocks.add(b);
+			}
+		}
+		for (BasicBlock b : blocks) {
+			for (Instruction i : b.getInstructions()) {
+				if (!(i instanceof Phi)) {
+					break;
+				}
+				Phi phi = (Phi) i;
+				for (int k = phi.getOperandCount() - 1; k >= 0; k--) {
+					if (!reachable.contains(phi.getIncoming(k))) {
+						phi.removeIncoming(k);
+					}
+				}
+			}
+		}
+		renumberBlocks();
+		return removed;
+	}
+
+	/**
+	 * @return the number of temporaries; their ids are below this number
+	 */
+	public int getTempCount() {
+		return tempCount;
+	}
+
+	/**
+	 * @param type
+	 *            the type of the temporary
+	 * @return a new temporary for an intermediate result
+	 */
+	public Temp newTemp(MjType type) {
+		return newTemp(type, (ATypedVar) null);
+	}
+
+	/**
+	 * @param type
+	 *            the type of the temporary
+	 * @param var
+	 *            the parameter or local variable the temporary stands for, or
+	 *            null
+	 * @return a new temporary, named after the variable if there is one
+	 */
+	public Temp newTemp(MjType type, ATypedVar var) {
+		return new Temp(tempCount++, type, var, uniqueName(var == null ? null : var.getName().getText()));
+	}
+
+	/**
+	 * @param type
+	 *            the type of the temporary
+	 * @param name
+	 *            the name of the temporary
+	 * @return a new temporary that stands for no variable
+	 */
+	private Temp newTemp(MjType type, String name) {
+		return new Temp(tempCount++, type, null, uniqueName(name));
+	}
+
+	/**
+	 * @param name
+	 *            a name, or null
+	 * @return the name if it is not used yet, otherwise the name with the
+	 *         number of the next temporary appended, or just the number if
+	 *         there is no name
+	 */
+	private String uniqueName(String name) {
+		int id = tempCount - 1;
+		String unique = name == null ? Integer.toString(id) : tempNames.contains(name) ? name + "." + id : name;
+		tempNames.add(unique);
+		return unique;
+	}
+
+	@Override
+	public String toString() {
+		return getQualifiedName();
+	}
+}
@@ -0,0 +1,56 @@
+package minijava.ir;
+
+/**
+ * An object at runtime of the {@link IrInterpreter}: its class and the values
+ * of its fields by slot
+ */
+public class IrObject {
+
+	/** the class the object was created from */
+	private final IrClass irClass;
+
+	/** the field values by slot */
+	private final Object[] fields;
+
+	/**
+	 * @param irClass
+	 *            the class the object is created from
+	 * @param fields
+	 *            the initial field values by slot
+	 */
+	IrObject(IrClass irClass, Object[] fields) {
+		this.irClass = irClass;
+		this.fields = fields;
+	}
+
+	/**
+	 * @return the class the object was created from
+	 */
+	public IrClass getIrClass() {
+		return irClass;
+	}
+
+	/**
+	 * @param field
+	 *            a field of the class of the object
+	 * @return the value of the field
+	 */
+	public Object get(IrField field) {
+		return fields[field.getSlot()];
+	}
+
+	/**
+	 * @param field
+	 *            a field of the class of the object
+	 * @param value
+	 *            the new value of the field
+	 */
+	void set(IrField field, Object value) {
+		fields[field.getSlot()] = value;
+	}
+
+	@Override
+	public String toString() {
+		return irClass.getName() + "@" + Integer.toHexString(System.identityHashCode(this));
+	}
+}
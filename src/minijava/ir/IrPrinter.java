@@ -0,0 +1,90 @@
+package minijava.ir;
+
+import minijava.node.AMainClass;
+
+/**
+ * Prints three-address code as text. A class lists its super class and the
+ * fields it declares with their slots; a method lists its blocks, one
+ * instruction per line, with the type of every temporary where it is
+ * written:
+ *
+ * <pre>
+ * method int Fac.ComputeFac(%this:Fac, %num:int) {
+ * L0:
+ * 	%num_aux:int = copy 0
+ * 	%2:boolean = lt %num, 1
+ * 	branch %2, L1, L2
+ * ...
+ * }
+ * </pre>
+ */
+public class IrPrinter {
+
+	/**
+	 * @param program
+	 *            a program
+	 * @return the textual dump of its classes, its main method and the
+	 *         methods of its classes
+	 */
+	public static String print(IrProgram program) {
+		StringBuilder sb = new StringBuilder();
+		for (IrClass c : program.getClasses()) {
+			sb.append("class ").append(c.getName());
+			if (c.getSuperClass() != null) {
+				sb.append(" extends ").append(c.getSuperClass().getName());
+			}
+			sb.append(" {\n");
+			for (IrField field : c.getDeclaredFields()) {
+				sb.append("\tfield ").append(field.getType()).append(' ').append(field.getName()).append(" #")
+						.append(field.getSlot()).append('\n');
+			}
+			sb.append("}\n");
+		}
+		for (IrMethod m : program.getMethods()) {
+			sb.append('\n');
+			print(m, sb);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param method
+	 *            a method
+	 * @return the textual dump of the method
+	 */
+	public static String print(IrMethod method) {
+		StringBuilder sb = new StringBuilder();
+		print(method, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * @param method
+	 *            a method
+	 * @param sb
+	 *            receives the textual dump of the method
+	 */
+	private static void print(IrMethod method, StringBuilder sb) {
+		if (method.getOwner() == null) {
+			sb.append("main ").append(((AMainClass) method.getDecl()).getId().getText());
+		} else {
+			sb.append("method ").append(method.getReturnType()).append(' ').append(method.getQualifiedName())
+					.append('(').append(method.getThis()).append(':').append(method.getThis().getType());
+			for (Temp param : method.getParams()) {
+				sb.append(", ").append(param).append(':').append(param.getType());
+			}
+			sb.append(')');
+		}
+		sb.append(" {\n");
+		for (BasicBlock b : method.getBlocks()) {
+			sb.append(b.getLabel()).append(":\n");
+			for (Instruction i : b.getInstructions()) {
+				sb.append('\t').append(i).append('\n');
+			}
+			if (b.getTerminator() != null) {
+				sb.append('\t').append(b.getTerminator()).append('\n');
+			}
+		}
+		sb.append("}\n");
+	}
+}
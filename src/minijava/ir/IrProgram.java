@@ -0,0 +1,59 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A program in three-address code: the classes and the main method
+ */
+public class IrProgram {
+
+	/** the main method */
+	private final IrMethod main;
+
+	/** the classes in the order of their declarations */
+	private final List<IrClass> classes;
+
+	/**
+	 * @param main
+	 *            the main method
+	 * @param classes
+	 *            the classes in the order of their declarations
+	 */
+	IrProgram(IrMethod main, List<IrClass> classes) {
+		this.main = main;
+		this.classes = classes;
+	}
+
+	/**
+	 * @return the main method
+	 */
+	public IrMethod getMain() {
+		return main;
+	}
+
+	/**
+	 * @return the classes in the order of their declarations
+	 */
+	public List<IrClass> getClasses() {
+		return Collections.unmodifiableList(classes);
+	}
+
+	/**
+	 * @return the main method followed by the methods of all classes
+	 */
+	public List<IrMethod> getMethods() {
+		List<IrMethod> methods = new ArrayList<IrMethod>();
+		methods.add(main);
+		for (IrClass c : classes) {
+			methods.addAll(c.getMethods());
+		}
+		return methods;
+	}
+
+	@Override
+	public String toString() {
+		return IrPrinter.print(this);
+	}
+}
@@ -0,0 +1,45 @@
+package minijava.ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * continue with the target block
+ */
+public class Jump extends Terminator {
+
+	/** the block to continue with */
+	private BasicBlock target;
+
+	/**
+	 * @param target
+	 *            the block to continue with
+	 */
+	public Jump(BasicBlock target) {
+		this.target = target;
+	}
+
+	/**
+	 * @return the block to continue with
+	 */
+	public BasicBlock getTarget() {
+		return target;
+	}
+
+	@Override
+	public List<BasicBlock> getSuccessors() {
+		return Collections.singletonList(target);
+	}
+
+	@Override
+	public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+		if (target == from) {
+			target = to;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "jump " + target.getLabel();
+	}
+}
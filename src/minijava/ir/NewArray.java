@@ -0,0 +1,22 @@
+package minijava.ir;
+
+/**
+ * dest = new int[size]; fails if the size is negative
+ */
+public class NewArray extends Instruction {
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param size
+	 *            the length of the array
+	 */
+	public NewArray(Temp dest, Value size) {
+		super(dest, size);
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "newarray " + getOperand(0);
+	}
+}
@@ -0,0 +1,38 @@
+package minijava.ir;
+
+/**
+ * dest = a new object of a class with all fields set to their default values
+ */
+public class NewObject extends Instruction {
+
+	/** the class of the object */
+	private final IrClass irClass;
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param irClass
+	 *            the class of the object
+	 */
+	public NewObject(Temp dest, IrClass irClass) {
+		super(dest);
+		this.irClass = irClass;
+	}
+
+	/**
+	 * @return the class of the object
+	 */
+	public IrClass getIrClass() {
+		return irClass;
+	}
+
+	@Override
+	public boolean isPure() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + "new " + irClass.getName();
+	}
+}
@@ -0,0 +1,89 @@
+package minijava.ir;
+
+/**
+ * dest = the operand of the edge control came in on. The phis of a block are
+ * its first instructions and are evaluated together, before the other
+ * instructions. Operand i belongs to the edge from incoming block i; a block
+ * that branches to the block twice is listed twice.
+ */
+public class Phi extends Instruction {
+
+	/** the predecessor of each operand */
+	private BasicBlock[] incoming;
+
+	/**
+	 * @param dest
+	 *            the temporary to write
+	 * @param incoming
+	 *            the predecessors of the block; the operands are null until
+	 *            they are set
+	 */
+	public Phi(Temp dest, BasicBlock[] incoming) {
+		super(dest, new Value[incoming.length]);
+		this.incoming = incoming.clone();
+	}
+
+	/**
+	 * @param i
+	 *            the index of an operand
+	 * @return the predecessor the operand belongs to
+	 */
+	public BasicBlock getIncoming(int i) {
+		return incoming[i];
+	}
+
+	/**
+	 * @param i
+	 *            the index of an operand
+	 * @param block
+	 *            the new predecessor the operand belongs to
+	 */
+	public void setIncoming(int i, BasicBlock block) {
+		incoming[i] = block;
+	}
+
+	/**
+	 * @param block
+	 *            a predecessor
+	 * @return the index of the first operand that belongs to it, or -1
+	 */
+	public int indexOf(BasicBlock block) {
+		for (int i = 0; i < incoming.length; i++) {
+			if (incoming[i] == block) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Remove an operand and its predecessor, when the edge is removed
+	 *
+	 * @param i
+	 *            the index of the operand
+	 */
+	public void removeIncoming(int i) {
+		BasicBlock[] blocks = new BasicBlock[incoming.length - 1];
+		System.arraycopy(incoming, 0, blocks, 0, i);
+		System.arraycopy(incoming, i + 1, blocks, i, blocks.length - i);
+		incoming = blocks;
+		removeOperand(i);
+	}
+
+	@Override
+	public boolean isPure() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(destString()).append("phi ");
+		for (int i = 0; i < incoming.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('[').append(getOperand(i)).append(", ").append(incoming[i].getLabel()).append(']');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,20 @@
+package minijava.ir;
+
+/**
+ * System.out.println(value)
+ */
+public class Print extends Instruction {
+
+	/**
+	 * @param value
+	 *            the int to print
+	 */
+	public Print(Value value) {
+		super(null, value);
+	}
+
+	@Override
+	public String toString() {
+		return "print " + getOperand(0);
+	}
+}
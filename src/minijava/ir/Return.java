@@ -0,0 +1,45 @@
+package minijava.ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * return from the method, with a value except in the main method
+ */
+public class Return extends Terminator {
+
+	/**
+	 * Return from the main method
+	 */
+	public Return() {
+	}
+
+	/**
+	 * @param value
+	 *            the return value
+	 */
+	public Return(Value value) {
+		super(value);
+	}
+
+	/**
+	 * @return the return value, or null in the main method
+	 */
+	public Value getValue() {
+		return getOperandCount() == 0 ? null : getOperand(0);
+	}
+
+	@Override
+	public List<BasicBlock> getSuccessors() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+	}
+
+	@Override
+	public String toString() {
+		return getOperandCount() == 0 ? "return" : "return " + getOperand(0);
+	}
+}
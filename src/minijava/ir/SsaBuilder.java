@@ -0,0 +1,367 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Converts a method to SSA form with the algorithm of Cytron et al. Every
+ * temporary that is written more than once - the parameters and local
+ * variables that are assigned, and the results of && - gets a new version
+ * per write, and phis merge the versions where control flow joins. Phis are
+ * placed at the iterated dominance frontiers of the writes, but only for
+ * temporaries that are read in some block before they are written there
+ * (semi-pruned SSA), so variables that never live across blocks get none.
+ * Fields and array elements stay in memory.
+ *
+ * Unreachable blocks are removed first. Versions are named after the
+ * variable with the number of the temporary, e.g. %i.12.
+ */
+public class SsaBuilder {
+
+	/** the method */
+	private final IrMethod method;
+
+	/** the graph of the method */
+	private final ControlFlowGraph cfg;
+
+	/** the dominators of the method */
+	private final DominatorTree tree;
+
+	/** the number of temporaries before the conversion */
+	private final int originalCount;
+
+	/** whether the temporary with the id is replaced by versions */
+	private final boolean[] renamed;
+
+	/** the temporary each placed phi merges the versions of */
+	private final IdentityHashMap<Phi, Temp> phiTemps;
+
+	/** the temporaries from before the conversion by id, filled on demand */
+	private Temp[] temps;
+
+	/**
+	 * @param method
+	 *            a method that is not in SSA form
+	 */
+	private SsaBuilder(IrMethod method) {
+		if (method.isSsa()) {
+			throw new IllegalStateException(method + " is already in SSA form");
+		}
+		method.removeUnreachableBlocks();
+		this.method = method;
+		this.cfg = new ControlFlowGraph(method);
+		this.tree = new DominatorTree(cfg);
+		this.originalCount = method.getTempCount();
+		this.renamed = new boolean[originalCount];
+		this.phiTemps = new IdentityHashMap<Phi, Temp>();
+	}
+
+	/**
+	 * Convert a method to SSA form
+	 *
+	 * @param method
+	 *            a method that is not in SSA form
+	 * @return the number of placed phis
+	 */
+	public static int construct(IrMethod method) {
+		SsaBuilder builder = new SsaBuilder(method);
+		builder.placePhis();
+		builder.rename();
+		method.setSsa(true);
+		return builder.phiTemps.size();
+	}
+
+	/**
+	 * Convert all methods of a program to SSA form
+	 *
+	 * @param program
+	 *            a program whose methods are not in SSA form
+	 * @return the number of placed phis
+	 */
+	public static int construct(IrProgram program) {
+		int phis = 0;
+		for (IrMethod m : program.getMethods()) {
+			phis += construct(m);
+		}
+		return phis;
+	}
+
+	/**
+	 * @param i
+	 *            an instruction
+	 * @return the id of its destination if that is a temporary from before
+	 *         the conversion, otherwise -1
+	 */
+	private int originalDest(Instruction i) {
+		Temp dest = i.getDest();
+		return dest != null && dest.getId() < originalCount ? dest.getId() : -1;
+	}
+
+	/**
+	 * Decide which temporaries are renamed and place their phis
+	 */
+	private void placePhis() {
+		int n = cfg.size();
+		// the parameters are written on entry
+		int[] writes = new int[originalCount];
+		for (Temp param : method.getParams()) {
+			writes[param.getId()]++;
+		}
+		for (int b = 0; b < n; b++) {
+			for (Instruction i : cfg.getBlock(b).getInstructions()) {
+				int t = originalDest(i);
+				if (t >= 0) {
+					writes[t]++;
+				}
+			}
+		}
+		for (int t = 0; t < originalCount; t++) {
+			renamed[t] = writes[t] > 1;
+		}
+
+		// the renamed temporaries that are read before they are written in
+		// some block, and the blocks that write them as linked lists
+		boolean[] live = new boolean[originalCount];
+		int[] writtenIn = new int[originalCount];
+		int[] first = new int[originalCount];
+		Arrays.fill(writtenIn, -1);
+		Arrays.fill(first, -1);
+		List<Integer> writeBlock = new ArrayList<Integer>();
+		List<Integer> nextWrite = new ArrayList<Integer>();
+		for (Temp param : method.getParams()) {
+			addWrite(param.getId(), 0, first, writeBlock, nextWrite);
+		}
+		for (int b = 0; b < n; b++) {
+			BasicBlock block = cfg.getBlock(b);
+			for (Instruction i : block.getInstructions()) {
+				markReads(i, b, writtenIn, live);
+				int t = originalDest(i);
+				if (t >= 0 && renamed[t]) {
+					if (writtenIn[t] != b) {
+						addWrite(t, b, first, writeBlock, nextWrite);
+					}
+					writtenIn[t] = b;
+				}
+			}
+			markReads(block.getTerminator(), b, writtenIn, live);
+		}
+
+		// iterated dominance frontiers
+		int[] hasPhi = new int[n];
+		int[] queued = new int[n];
+		int[] work = new int[n];
+		for (int t = 0; t < originalCount; t++) {
+			if (!renamed[t] || !live[t]) {
+				continue;
+			}
+			int stamp = t + 1;
+			int size = 0;
+			for (int w = first[t]; w >= 0; w = nextWrite.get(w)) {
+				int b = writeBlock.get(w);
+				queued[b] = stamp;
+				work[size++] = b;
+			}
+			Temp temp = null;
+			while (size > 0) {
+				int x = work[--size];
+				for (int y : tree.getFrontier(x)) {
+					if (hasPhi[y] == stamp) {
+						continue;
+					}
+					hasPhi[y] = stamp;
+					if (temp == null) {
+						temp = findTemp(t);
+					}
+					placePhi(temp, y);
+					if (queued[y] != stamp) {
+						queued[y] = stamp;
+						work[size++] = y;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param t
+	 *            the id of a temporary
+	 * @param b
+	 *            a block that writes it
+	 * @param first
+	 *            the first write of each temporary
+	 * @param writeBlock
+	 *            the block of each write
+	 * @param nextWrite
+	 *            the next write of the same temporary
+	 */
+	private static void addWrite(int t, int b, int[] first, List<Integer> writeBlock, List<Integer> nextWrite) {
+		writeBlock.add(b);
+		nextWrite.add(first[t]);
+		first[t] = writeBlock.size() - 1;
+	}
+
+	/**
+	 * @param i
+	 *            an instruction of block b
+	 * @param b
+	 *            a block
+	 * @param writtenIn
+	 *            the last block that wrote each temporary so far
+	 * @param live
+	 *            set for the renamed temporaries i reads before b writes them
+	 */
+	private void markReads(Instruction i, int b, int[] writtenIn, boolean[] live) {
+		for (int k = 0; k < i.getOperandCount(); k++) {
+			Value v = i.getOperand(k);
+			if (v instanceof Temp) {
+				int t = ((Temp) v).getId();
+				if (t < originalCount && renamed[t] && writtenIn[t] != b) {
+					live[t] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param t
+	 *            the id of a temporary that is written in the method
+	 * @return the temporary
+	 */
+	private Temp findTemp(int t) {
+		if (temps == null) {
+			temps = new Temp[originalCount];
+			for (Temp param : method.getParams()) {
+				temps[param.getId()] = param;
+			}
+			for (BasicBlock b : method.getBlocks()) {
+				for (Instruction i : b.getInstructions()) {
+					int id = originalDest(i);
+					if (id >= 0) {
+						temps[id] = i.getDest();
+					}
+				}
+			}
+		}
+		return temps[t];
+	}
+
+	/**
+	 * @param temp
+	 *            a renamed temporary
+	 * @param b
+	 *            the block to place a phi for it in
+	 */
+	private void placePhi(Temp temp, int b) {
+		int[] preds = cfg.getPredecessors(b);
+		BasicBlock[] incoming = new BasicBlock[preds.length];
+		for (int k = 0; k < preds.length; k++) {
+			incoming[k] = cfg.getBlock(preds[k]);
+		}
+		Phi phi = new Phi(temp, incoming);
+		phi.setSource(method.getDecl());
+		cfg.getBlock(b).getInstructions().add(0, phi);
+		phiTemps.put(phi, temp);
+	}
+
+	/**
+	 * Give every write of a renamed temporary a new version and let every
+	 * read use the version that reaches it, walking the dominator tree in
+	 * preorder with an explicit stack
+	 */
+	private void rename() {
+		int n = cfg.size();
+		Value[] current = new Value[originalCount];
+		for (Temp param : method.getParams()) {
+			current[param.getId()] = param;
+		}
+		List<Integer> undoTemps = new ArrayList<Integer>();
+		List<Value> undoValues = new ArrayList<Value>();
+		int[] mark = new int[n];
+		int[] stack = new int[2 * n];
+		int depth = 0;
+		if (n > 0) {
+			stack[depth++] = 0;
+		}
+		while (depth > 0) {
+			int x = stack[--depth];
+			if (x < 0) {
+				// leaving the subtree of ~x: restore the versions
+				for (int k = undoTemps.size() - 1; k >= mark[~x]; k--) {
+					current[undoTemps.remove(k)] = undoValues.remove(k);
+				}
+				continue;
+			}
+			mark[x] = undoTemps.size();
+			stack[depth++] = ~x;
+			for (int child : tree.getChildren(x)) {
+				stack[depth++] = child;
+			}
+
+			BasicBlock block = cfg.getBlock(x);
+			for (Instruction i : block.getInstructions()) {
+				if (!phiTemps.containsKey(i)) {
+					replaceReads(i, current);
+				}
+				int t = originalDest(i);
+				if (t >= 0 && renamed[t]) {
+					Temp version = method.newTemp(i.getDest().getType(), i.getDest().getVar());
+					undoTemps.add(t);
+					undoValues.add(current[t]);
+					current[t] = version;
+					i.setDest(version);
+				}
+			}
+			replaceReads(block.getTerminator(), current);
+
+			for (int s : cfg.getSuccessors(x)) {
+				for (Instruction i : cfg.getBlock(s).getInstructions()) {
+					if (!(i instanceof Phi)) {
+						break;
+					}
+					Temp temp = phiTemps.get(i);
+					if (temp == null) {
+						continue;
+					}
+					Phi phi = (Phi) i;
+					// a block that branches to s twice has two operands
+					for (int k = 0; k < phi.getOperandCount(); k++) {
+						if (phi.getIncoming(k) == block && phi.getOperand(k) == null) {
+							phi.setOperand(k, version(temp, current));
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param i
+	 *            an instruction
+	 * @param current
+	 *            the version of each renamed temporary
+	 */
+	private void replaceReads(Instruction i, Value[] current) {
+		for (int k = 0; k < i.getOperandCount(); k++) {
+			Value v = i.getOperand(k);
+			if (v instanceof Temp && ((Temp) v).getId() < originalCount && renamed[((Temp) v).getId()]) {
+				i.setOperand(k, version((Temp) v, current));
+			}
+		}
+	}
+
+	/**
+	 * @param temp
+	 *            a renamed temporary
+	 * @param current
+	 *            the version of each renamed temporary
+	 * @return its current version, or the default value of its type on paths
+	 *         that do not write it
+	 */
+	private static Value version(Temp temp, Value[] current) {
+		Value v = current[temp.getId()];
+		return v == null ? Constant.defaultValue(temp.getType()) : v;
+	}
+}
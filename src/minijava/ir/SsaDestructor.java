@@ -0,0 +1,790 @@
+package minijava.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a method out of SSA form. The temporaries connected by phis are
+ * coalesced into classes that share one temporary where their live ranges do
+ * not interfere, and the phis become copies at the end of the predecessors
+ * only for the operands that could not be coalesced. For a method fresh from
+ * the {@link SsaBuilder} this inserts no copies besides the constants of
+ * paths without a write; after optimizations that moved reads across writes,
+ * the interfering versions keep their own temporaries.
+ *
+ * Interference follows Budimlic et al.: in strict SSA two temporaries
+ * interfere iff one is live where the other is written, and a class is free
+ * of interference iff no temporary interferes with the nearest temporary of
+ * the class whose write dominates its own. These pairs are checked in one
+ * walk over a class in dominance order: first for each web of temporaries
+ * connected by phis, which for a method fresh from the builder is free of
+ * interference, and otherwise for each merge of two classes. Liveness is
+ * computed per phi-related temporary by walking up from its reads.
+ *
+ * Critical edges into blocks with phis are split first, so that the copies
+ * of an edge can be placed at the end of its predecessor, and the copies of
+ * one edge are ordered like a parallel assignment, with a new temporary to
+ * break cycles such as swaps.
+ */
+public class SsaDestructor {
+
+	/** the position of the parameters and the receiver, before all blocks */
+	private static final int PARAM_POSITION = -2;
+
+	/** the position of the phis of a block, before its other instructions */
+	private static final int PHI_POSITION = -1;
+
+	/** the method */
+	private final IrMethod method;
+
+	/** the graph of the method, after critical edges were split */
+	private ControlFlowGraph cfg;
+
+	/** the dominators of the method */
+	private DominatorTree tree;
+
+	/** the position of each block in a preorder walk of the dominator tree */
+	private int[] domOrder;
+
+	/** the temporaries by id */
+	private Temp[] temps;
+
+	/** the block that writes each temporary, -1 if none does */
+	private int[] defBlock;
+
+	/** the position of the write in its block */
+	private int[] defPosition;
+
+	/** the blocks at whose end each phi-related temporary is live, sorted */
+	private int[][] liveOut;
+
+	/** the reads of each phi-related temporary as block and position pairs */
+	private int[][] reads;
+
+	/** the union-find parent of each temporary */
+	private int[] parent;
+
+	/** the members of the class of each representative in dominance order */
+	private final Map<Integer, List<Temp>> classes = new HashMap<Integer, List<Temp>>();
+
+	/** the blocks created to split critical edges */
+	private final List<BasicBlock> splitBlocks = new ArrayList<BasicBlock>();
+
+	/** the number of copies inserted for phis */
+	private int copies;
+
+	/**
+	 * @param method
+	 *            a method in SSA form
+	 */
+	private SsaDestructor(IrMethod method) {
+		if (!method.isSsa()) {
+			throw new IllegalStateException(method + " is not in SSA form");
+		}
+		this.method = method;
+	}
+
+	/**
+	 * Translate a method out of SSA form
+	 *
+	 * @param method
+	 *            a method in SSA form
+	 * @return the number of copies inserted for phis
+	 */
+	public static int destruct(IrMethod method) {
+		SsaDestructor destructor = new SsaDestructor(method);
+		destructor.splitCriticalEdges();
+		destructor.analyze();
+		destructor.coalesce();
+		destructor.insertCopies();
+		destructor.removeSplitBlocks();
+		method.setSsa(false);
+		return destructor.copies;
+	}
+
+	/**
+	 * Translate all methods of a program out of SSA form
+	 *
+	 * @param program
+	 *            a program whose methods are in SSA form
+	 * @return the number of copies inserted for phis
+	 */
+	public static int destruct(IrProgram program) {
+		int copies = 0;
+		for (IrMethod m : program.getMethods()) {
+			copies += destruct(m);
+		}
+		return copies;
+	}
+
+	/**
+	 * @param block
+	 *            a block
+	 * @return the number of phis at its start
+	 */
+	static int phiCount(BasicBlock block) {
+		List<Instruction> instructions = block.getInstructions();
+		int phis = 0;
+		while (phis < instructions.size() && instructions.get(phis) instanceof Phi) {
+			phis++;
+		}
+		return phis;
+	}
+
+	/**
+	 * Give every edge from a block with two successors to a block with phis
+	 * a block of its own
+	 */
+	private void splitCriticalEdges() {
+		List<BasicBlock> blocks = new ArrayList<BasicBlock>(method.getBlocks());
+		for (BasicBlock b : blocks) {
+			Terminator t = b.getTerminator();
+			if (t instanceof Branch && ((Branch) t).getIfTrue() == ((Branch) t).getIfFalse()) {
+				// both edges lead to the same block, and so do the values
+				BasicBlock target = ((Branch) t).getIfTrue();
+				Jump jump = new Jump(target);
+				jump.setSource(t.getSource());
+				b.setTerminator(jump);
+				for (int k = 0; k < phiCount(target); k++) {
+					Phi phi = (Phi) target.getInstructions().get(k);
+					int first = phi.indexOf(b);
+					for (int j = phi.getOperandCount() - 1; j > first; j--) {
+						if (phi.getIncoming(j) == b) {
+							phi.removeIncoming(j);
+						}
+					}
+				}
+			}
+		}
+		for (BasicBlock b : blocks) {
+			Terminator t = b.getTerminator();
+			if (!(t instanceof Branch)) {
+				continue;
+			}
+			for (BasicBlock s : t.getSuccessors()) {
+				int phis = phiCount(s);
+				if (phis == 0) {
+					continue;
+				}
+				BasicBlock edge = new BasicBlock();
+				Jump jump = new Jump(s);
+				jump.setSource(t.getSource());
+				edge.setTerminator(jump);
+				t.replaceSuccessor(s, edge);
+				for (int k = 0; k < phis; k++) {
+					Phi phi = (Phi) s.getInstructions().get(k);
+					phi.setIncoming(phi.indexOf(b), edge);
+				}
+				method.getBlocks().add(method.getBlocks().indexOf(b) + 1, edge);
+				splitBlocks.add(edge);
+			}
+		}
+		method.renumberBlocks();
+	}
+
+	/**
+	 * Find the writes of all temporaries and the liveness of the
+	 * phi-related ones
+	 */
+	private void analyze() {
+		cfg = new ControlFlowGraph(method);
+		tree = new DominatorTree(cfg);
+		int n = cfg.size();
+		int[] preorder = tree.preorder();
+		domOrder = new int[n];
+		for (int k = 0; k < n; k++) {
+			domOrder[preorder[k]] = k;
+		}
+
+		int count = method.getTempCount();
+		temps = new Temp[count];
+		defBlock = new int[count];
+		defPosition = new int[count];
+		Arrays.fill(defBlock, -1);
+		boolean[] related = new boolean[count];
+		if (method.getThis() != null) {
+			define(method.getThis(), 0, PARAM_POSITION);
+		}
+		for (Temp param : method.getParams()) {
+			define(param, 0, PARAM_POSITION);
+		}
+		for (int b = 0; b < n; b++) {
+			List<Instruction> instructions = cfg.getBlock(b).getInstructions();
+			for (int k = 0; k < instructions.size(); k++) {
+				Instruction i = instructions.get(k);
+				if (i.getDest() != null) {
+					define(i.getDest(), b, i instanceof Phi ? PHI_POSITION : k);
+				}
+				if (i instanceof Phi) {
+					related[i.getDest().getId()] = true;
+					for (int j = 0; j < i.getOperandCount(); j++) {
+						if (i.getOperand(j) instanceof Temp) {
+							Temp t = (Temp) i.getOperand(j);
+							related[t.getId()] = true;
+							temps[t.getId()] = t;
+						}
+					}
+				}
+			}
+		}
+
+		// the reads of the related temporaries: a phi reads at the end of
+		// the predecessor, marked by the position Integer.MAX_VALUE
+		List<List<Integer>> readLists = new ArrayList<List<Integer>>(Collections.<List<Integer>> nCopies(count,
+				null));
+		for (int b = 0; b < n; b++) {
+			BasicBlock block = cfg.getBlock(b);
+			List<Instruction> instructions = block.getInstructions();
+			for (int k = 0; k <= instructions.size(); k++) {
+				Instruction i = k < instructions.size() ? instructions.get(k) : block.getTerminator();
+				for (int j = 0; j < i.getOperandCount(); j++) {
+					if (!(i.getOperand(j) instanceof Temp) || !related[((Temp) i.getOperand(j)).getId()]) {
+						continue;
+					}
+					int t = ((Temp) i.getOperand(j)).getId();
+					if (readLists.get(t) == null) {
+						readLists.set(t, new ArrayList<Integer>());
+					}
+					if (i instanceof Phi) {
+						readLists.get(t).add(cfg.indexOf(((Phi) i).getIncoming(j)));
+						readLists.get(t).add(Integer.MAX_VALUE);
+					} else {
+						readLists.get(t).add(b);
+						readLists.get(t).add(k);
+					}
+				}
+			}
+		}
+
+		reads = new int[count][];
+		liveOut = new int[count][];
+		int[] inStamp = new int[n];
+		int[] outStamp = new int[n];
+		int[] work = new int[n];
+		int[] out = new int[n];
+		for (int t = 0; t < count; t++) {
+			if (!related[t]) {
+				continue;
+			}
+			List<Integer> list = readLists.get(t);
+			reads[t] = new int[list == null ? 0 : list.size()];
+			for (int k = 0; k < reads[t].length; k++) {
+				reads[t][k] = list.get(k);
+			}
+			liveOut[t] = liveOut(t, t + 1, inStamp, outStamp, work, out);
+		}
+
+		parent = new int[count];
+		for (int t = 0; t < count; t++) {
+			parent[t] = t;
+			if (related[t]) {
+				List<Temp> members = new ArrayList<Temp>();
+				members.add(temps[t]);
+				classes.put(t, members);
+			}
+		}
+	}
+
+	/**
+	 * @param temp
+	 *            a temporary
+	 * @param block
+	 *            the block that writes it
+	 * @param position
+	 *            the position of the write in the block
+	 */
+	private void define(Temp temp, int block, int position) {
+		temps[temp.getId()] = temp;
+		defBlock[temp.getId()] = block;
+		defPosition[temp.getId()] = position;
+	}
+
+	/**
+	 * @param t
+	 *            the id of a phi-related temporary
+	 * @param stamp
+	 *            a number that is different for every temporary
+	 * @param inStamp
+	 *            marks the blocks where the temporary is live on entry
+	 * @param outStamp
+	 *            marks the blocks where the temporary is live at the end
+	 * @param work
+	 *            scratch space for the blocks to visit
+	 * @param out
+	 *            scratch space for the result
+	 * @return the blocks where the temporary is live at the end, sorted
+	 */
+	private int[] liveOut(int t, int stamp, int[] inStamp, int[] outStamp, int[] work, int[] out) {
+		int size = 0;
+		int outCount = 0;
+		int[] r = reads[t];
+		for (int k = 0; k < r.length; k += 2) {
+			int b = r[k];
+			if (r[k + 1] == Integer.MAX_VALUE) {
+				if (outStamp[b] != stamp) {
+					outStamp[b] = stamp;
+					out[outCount++] = b;
+					if (b != defBlock[t]) {
+						inStamp[b] = stamp;
+						work[size++] = b;
+					}
+				}
+			} else if ((b != defBlock[t] || r[k + 1] <= defPosition[t]) && inStamp[b] != stamp) {
+				inStamp[b] = stamp;
+				work[size++] = b;
+			}
+		}
+		while (size > 0) {
+			int b = work[--size];
+			for (int p : cfg.getPredecessors(b)) {
+				if (outStamp[p] == stamp) {
+					continue;
+				}
+				outStamp[p] = stamp;
+				out[outCount++] = p;
+				if (p != defBlock[t] && inStamp[p] != stamp) {
+					inStamp[p] = stamp;
+					work[size++] = p;
+				}
+			}
+		}
+		int[] result = Arrays.copyOf(out, outCount);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * @param x
+	 *            a temporary
+	 * @param y
+	 *            another temporary
+	 * @return true iff the write of x dominates the write of y, or they are
+	 *         written at the same point
+	 */
+	private boolean dominates(Temp x, Temp y) {
+		int bx = defBlock[x.getId()];
+		int by = defBlock[y.getId()];
+		if (bx == by) {
+			return defPosition[x.getId()] <= defPosition[y.getId()];
+		}
+		return tree.dominates(bx, by);
+	}
+
+	/**
+	 * @param x
+	 *            a phi-related temporary
+	 * @param y
+	 *            another temporary whose write is dominated by the one of x
+	 * @return true iff x is live right after the write of y
+	 */
+	private boolean liveAfter(Temp x, Temp y) {
+		int b = defBlock[y.getId()];
+		if (Arrays.binarySearch(liveOut[x.getId()], b) >= 0) {
+			return true;
+		}
+		int[] r = reads[x.getId()];
+		for (int k = 0; k < r.length; k += 2) {
+			if (r[k] == b && r[k + 1] != Integer.MAX_VALUE && r[k + 1] > defPosition[y.getId()]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param x
+	 *            a phi-related temporary
+	 * @param y
+	 *            another one, written at or after the write of x
+	 * @return true iff they cannot share a temporary
+	 */
+	private boolean interfere(Temp x, Temp y) {
+		if (liveAfter(x, y)) {
+			return true;
+		}
+		// written at the same point, e.g. two phis of a block
+		return dominates(y, x) && liveAfter(y, x);
+	}
+
+	/**
+	 * @param t
+	 *            the id of a temporary
+	 * @return the id of the representative of its class
+	 */
+	private int find(int t) {
+		int root = t;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		while (parent[t] != root) {
+			int next = parent[t];
+			parent[t] = root;
+			t = next;
+		}
+		return root;
+	}
+
+	/** orders temporaries by the position of their writes in the dominator tree */
+	private final Comparator<Temp> byDominance = new Comparator<Temp>() {
+		@Override
+		public int compare(Temp x, Temp y) {
+			int bx = domOrder[defBlock[x.getId()]];
+			int by = domOrder[defBlock[y.getId()]];
+			if (bx != by) {
+				return bx < by ? -1 : 1;
+			}
+			return Integer.compare(defPosition[x.getId()], defPosition[y.getId()]);
+		}
+	};
+
+	/**
+	 * Merge the classes of the phis and their operands where they do not
+	 * interfere. Each web of temporaries connected by phis is checked as a
+	 * whole first, in one walk; only the webs that interfere somewhere are
+	 * merged operand by operand, which costs time proportional to the size
+	 * of the classes for every merge.
+	 */
+	private void coalesce() {
+		List<Phi> phis = new ArrayList<Phi>();
+		for (int b = 0; b < cfg.size(); b++) {
+			BasicBlock block = cfg.getBlock(b);
+			for (int k = 0; k < phiCount(block); k++) {
+				Phi phi = (Phi) block.getInstructions().get(k);
+				phis.add(phi);
+				for (int j = 0; j < phi.getOperandCount(); j++) {
+					if (phi.getOperand(j) instanceof Temp) {
+						union(phi.getDest().getId(), ((Temp) phi.getOperand(j)).getId());
+					}
+				}
+			}
+		}
+
+		Map<Integer, List<Temp>> webs = new HashMap<Integer, List<Temp>>();
+		for (List<Temp> members : classes.values()) {
+			int root = find(members.get(0).getId());
+			List<Temp> web = webs.get(root);
+			if (web == null) {
+				web = new ArrayList<Temp>();
+				webs.put(root, web);
+			}
+			web.add(members.get(0));
+		}
+		classes.clear();
+		boolean[] failed = new boolean[parent.length];
+		for (Map.Entry<Integer, List<Temp>> e : webs.entrySet()) {
+			List<Temp> web = e.getValue();
+			Collections.sort(web, byDominance);
+			if (pinnedCount(web) <= 1 && !interfere(web, null)) {
+				classes.put(e.getKey(), web);
+				continue;
+			}
+			for (Temp t : web) {
+				failed[t.getId()] = true;
+				parent[t.getId()] = t.getId();
+				List<Temp> single = new ArrayList<Temp>();
+				single.add(t);
+				classes.put(t.getId(), single);
+			}
+		}
+
+		for (Phi phi : phis) {
+			if (!failed[phi.getDest().getId()]) {
+				continue;
+			}
+			for (int j = 0; j < phi.getOperandCount(); j++) {
+				if (phi.getOperand(j) instanceof Temp) {
+					tryMerge(phi.getDest().getId(), ((Temp) phi.getOperand(j)).getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param x
+	 *            the id of a temporary
+	 * @param y
+	 *            the id of another one
+	 */
+	private void union(int x, int y) {
+		int rx = find(x);
+		int ry = find(y);
+		if (rx != ry) {
+			parent[ry] = rx;
+		}
+	}
+
+	/**
+	 * @param x
+	 *            the id of a phi-related temporary
+	 * @param y
+	 *            the id of another one
+	 */
+	private void tryMerge(int x, int y) {
+		int rx = find(x);
+		int ry = find(y);
+		if (rx == ry) {
+			return;
+		}
+		List<Temp> a = classes.get(rx);
+		List<Temp> b = classes.get(ry);
+		if (pinnedCount(a) > 0 && pinnedCount(b) > 0) {
+			// the parameters and the receiver keep their temporaries
+			return;
+		}
+		List<Temp> merged = new ArrayList<Temp>(a.size() + b.size());
+		boolean[] fromA = new boolean[a.size() + b.size()];
+		int i = 0;
+		int j = 0;
+		while (i < a.size() || j < b.size()) {
+			if (j == b.size() || i < a.size() && byDominance.compare(a.get(i), b.get(j)) <= 0) {
+				fromA[merged.size()] = true;
+				merged.add(a.get(i++));
+			} else {
+				merged.add(b.get(j++));
+			}
+		}
+		if (interfere(merged, fromA)) {
+			return;
+		}
+		parent[ry] = rx;
+		classes.remove(ry);
+		classes.put(rx, merged);
+	}
+
+	/**
+	 * Walk the dominance forest of a set of temporaries: check each one
+	 * against the nearest one whose write dominates its own
+	 *
+	 * @param members
+	 *            phi-related temporaries in dominance order
+	 * @param side
+	 *            if not null, only pairs with different sides are checked,
+	 *            the temporaries of each side being free of interference
+	 * @return true iff two of the temporaries interfere
+	 */
+	private boolean interfere(List<Temp> members, boolean[] side) {
+		int[] stack = new int[members.size()];
+		int depth = 0;
+		for (int k = 0; k < members.size(); k++) {
+			Temp member = members.get(k);
+			while (depth > 0 && !dominates(members.get(stack[depth - 1]), member)) {
+				depth--;
+			}
+			if (depth > 0) {
+				int top = stack[depth - 1];
+				if ((side == null || side[top] != side[k]) && interfere(members.get(top), member)) {
+					return true;
+				}
+			}
+			stack[depth++] = k;
+		}
+		return false;
+	}
+
+	/**
+	 * @param members
+	 *            a class
+	 * @return the number of parameters and receivers in it
+	 */
+	private int pinnedCount(List<Temp> members) {
+		int count = 0;
+		for (Temp t : members) {
+			if (defPosition[t.getId()] == PARAM_POSITION) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param members
+	 *            a class
+	 * @return its parameter or receiver, or null
+	 */
+	private Temp pinned(List<Temp> members) {
+		for (Temp t : members) {
+			if (defPosition[t.getId()] == PARAM_POSITION) {
+				return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Replace every temporary by the one of its class, the phis by copies
+	 * at the end of the predecessors, and remove the copies that became
+	 * trivial
+	 */
+	private void insertCopies() {
+		Temp[] replacement = new Temp[temps.length];
+		for (List<Temp> members : classes.values()) {
+			Temp rep = pinned(members);
+			if (rep == null) {
+				rep = members.get(0);
+			}
+			for (Temp t : members) {
+				replacement[t.getId()] = rep;
+			}
+		}
+
+		for (BasicBlock block : method.getBlocks()) {
+			int phis = phiCount(block);
+			if (phis == 0) {
+				continue;
+			}
+			List<Phi> blockPhis = new ArrayList<Phi>();
+			for (int k = 0; k < phis; k++) {
+				blockPhis.add((Phi) block.getInstructions().get(k));
+			}
+			block.getInstructions().subList(0, phis).clear();
+			List<BasicBlock> preds = new ArrayList<BasicBlock>();
+			for (int j = 0; j < blockPhis.get(0).getOperandCount(); j++) {
+				preds.add(blockPhis.get(0).getIncoming(j));
+			}
+			for (BasicBlock pred : preds) {
+				List<Temp> dests = new ArrayList<Temp>();
+				List<Value> sources = new ArrayList<Value>();
+				for (Phi phi : blockPhis) {
+					Temp dest = replace(phi.getDest(), replacement);
+					Value source = phi.getOperand(phi.indexOf(pred));
+					if (source instanceof Temp) {
+						source = replace((Temp) source, replacement);
+					}
+					if (dest != source) {
+						dests.add(dest);
+						sources.add(source);
+					}
+				}
+				sequentialize(pred, dests, sources);
+			}
+		}
+
+		for (BasicBlock block : method.getBlocks()) {
+			List<Instruction> instructions = block.getInstructions();
+			List<Instruction> kept = new ArrayList<Instruction>(instructions.size());
+			for (Instruction i : instructions) {
+				rename(i, replacement);
+				if (!(i instanceof Copy && i.getDest() == i.getOperand(0))) {
+					kept.add(i);
+				}
+			}
+			rename(block.getTerminator(), replacement);
+			instructions.clear();
+			instructions.addAll(kept);
+		}
+	}
+
+	/**
+	 * @param t
+	 *            a temporary
+	 * @param replacement
+	 *            the temporary of the class of each phi-related temporary
+	 * @return the temporary to use instead of t
+	 */
+	private static Temp replace(Temp t, Temp[] replacement) {
+		Temp r = t.getId() < replacement.length ? replacement[t.getId()] : null;
+		return r == null ? t : r;
+	}
+
+	/**
+	 * @param i
+	 *            an instruction
+	 * @param replacement
+	 *            the temporary of the class of each phi-related temporary
+	 */
+	private static void rename(Instruction i, Temp[] replacement) {
+		if (i.getDest() != null) {
+			i.setDest(replace(i.getDest(), replacement));
+		}
+		for (int k = 0; k < i.getOperandCount(); k++) {
+			if (i.getOperand(k) instanceof Temp) {
+				i.setOperand(k, replace((Temp) i.getOperand(k), replacement));
+			}
+		}
+	}
+
+	/**
+	 * Append copies to a block that assign all sources to their destinations
+	 * at once
+	 *
+	 * @param block
+	 *            the block
+	 * @param dests
+	 *            distinct temporaries
+	 * @param sources
+	 *            the value for each of them
+	 */
+	private void sequentialize(BasicBlock block, List<Temp> dests, List<Value> sources) {
+		while (!dests.isEmpty()) {
+			boolean progress = false;
+			for (int k = 0; k < dests.size(); k++) {
+				if (!sources.contains(dests.get(k))) {
+					// no pending copy reads the destination any more
+					emitCopy(block, dests.remove(k), sources.remove(k));
+					k--;
+					progress = true;
+				}
+			}
+			if (!progress) {
+				// only cycles are left: save one destination
+				Temp saved = dests.get(0);
+				Temp temp = method.newTemp(saved.getType());
+				emitCopy(block, temp, saved);
+				for (int k = 0; k < sources.size(); k++) {
+					if (sources.get(k) == saved) {
+						sources.set(k, temp);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param block
+	 *            the block to append the copy to
+	 * @param dest
+	 *            the temporary to write
+	 * @param source
+	 *            the value to copy
+	 */
+	private void emitCopy(BasicBlock block, Temp dest, Value source) {
+		Copy copy = new Copy(dest, source);
+		copy.setSource(block.getTerminator().getSource());
+		block.add(copy);
+		copies++;
+	}
+
+	/**
+	 * Remove the blocks of split edges that did not get copies
+	 */
+	private void removeSplitBlocks() {
+		List<BasicBlock> empty = new ArrayList<BasicBlock>();
+		for (BasicBlock edge : splitBlocks) {
+			if (edge.getInstructions().isEmpty()) {
+				empty.add(edge);
+			}
+		}
+		if (empty.isEmpty()) {
+			return;
+		}
+		IdentityHashMap<BasicBlock, BasicBlock> target = new IdentityHashMap<BasicBlock, BasicBlock>();
+		for (BasicBlock edge : empty) {
+			target.put(edge, ((Jump) edge.getTerminator()).getTarget());
+		}
+		for (BasicBlock b : method.getBlocks()) {
+			for (BasicBlock s : new ArrayList<BasicBlock>(b.getSuccessors())) {
+				if (target.containsKey(s)) {
+					b.getTerminator().replaceSuccessor(s, target.get(s));
+				}
+			}
+		}
+		method.getBlocks().removeAll(empty);
+		method.renumberBlocks();
+	}
+}
@@ -0,0 +1,73 @@
+package minijava.ir;
+
+import minijava.analysis.types.MjType;
+import minijava.node.ATypedVar;
+
+/**
+ * A typed temporary of one method. Every parameter and local variable of the
+ * method has a temporary, the other temporaries hold intermediate results.
+ * Temporaries are created by {@link IrMethod#newTemp(MjType, ATypedVar)}.
+ */
+public class Temp extends Value {
+
+	/** the number of the temporary, unique within its method */
+	private final int id;
+
+	/** the type of the temporary */
+	private final MjType type;
+
+	/** the variable the temporary stands for, or null */
+	private final ATypedVar var;
+
+	/** the name in the textual dump, without the leading % */
+	private final String name;
+
+	/**
+	 * @param id
+	 *            the number of the temporary, unique within its method
+	 * @param type
+	 *            the type of the temporary
+	 * @param var
+	 *            the variable the temporary stands for, or null
+	 * @param name
+	 *            the name in the textual dump
+	 */
+	Temp(int id, MjType type, ATypedVar var, String name) {
+		this.id = id;
+		this.type = type;
+		this.var = var;
+		this.name = name;
+	}
+
+	/**
+	 * @return the number of the temporary, unique within its method
+	 */
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public MjType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the parameter or local variable the temporary stands for, or
+	 *         null for an intermediate result
+	 */
+	public ATypedVar getVar() {
+		return var;
+	}
+
+	/**
+	 * @return the name in the textual dump, without the leading %
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "%" + name;
+	}
+}
@@ -0,0 +1,31 @@
+package minijava.ir;
+
+import java.util.List;
+
+/**
+ * The last instruction of a basic block: transfers control to other blocks or
+ * returns from the method
+ */
+public abstract class Terminator extends Instruction {
+
+	/**
+	 * @param operands
+	 *            the operands read by the instruction
+	 */
+	protected Terminator(Value... operands) {
+		super(null, operands);
+	}
+
+	/**
+	 * @return the blocks control can continue with, in a fixed order
+	 */
+	public abstract List<BasicBlock> getSuccessors();
+
+	/**
+	 * @param from
+	 *            a successor
+	 * @param to
+	 *            the block to continue with instead
+	 */
+	public abstract void replaceSuccessor(BasicBlock from, BasicBlock to);
+}
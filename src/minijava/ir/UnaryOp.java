@@ -0,0 +1,78 @@
+package minijava.ir;
+
+/**
+ * dest = op value
+ */
+public class UnaryOp extends Instruction {
+
+	/**
+	 * The operators
+	 */
+	public enum Operator {
+		/** boolean negation */
+		NOT("not"),
+		/** int negation */
+		NEG("neg");
+
+		/** the name in the textual dump */
+		private final String name;
+
+		/**
+		 * @param name
+		 *            the name in the textual dump
+		 */
+		Operator(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @param value
+		 *            the operand: a Boolean for NOT, an Integer for NEG
+		 * @return the result
+		 */
+		public Object evaluate(Object value) {
+			if (this == NOT) {
+				return !(Boolean) value;
+			}
+			return -(Integer) value;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/** the operator */
+	private final Operator operator;
+
+	/**
+	 * @param operator
+	 *            the operator
+	 * @param dest
+	 *            the temporary to write
+	 * @param value
+	 *            the operand
+	 */
+	public UnaryOp(Operator operator, Temp dest, Value value) {
+		super(dest, value);
+		this.operator = operator;
+	}
+
+	/**
+	 * @return the operator
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	@Override
+	public boolean isPure() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return destString() + operator + " " + getOperand(0);
+	}
+}
@@ -0,0 +1,14 @@
+package minijava.ir;
+
+import minijava.analysis.types.MjType;
+
+/**
+ * An operand of an instruction: a {@link Temp} or a {@link Constant}
+ */
+public abstract class Value {
+
+	/**
+	 * @return the type of the value
+	 */
+	public abstract MjType getType();
+}
@@ -0,0 +1,294 @@
+package minijava.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import minijava.analysis.TypeChecker;
+import minijava.analysis.TypeCheckingExpcetion;
+import minijava.lexer.LexerException;
+import minijava.node.Start;
+import minijava.parser.ParserException;
+import minijava.postchecking.CustomParserException;
+
+/**
+ * Parses and type checks many files in one JVM. The files are processed on a
+ * work-stealing pool with one worker per available core. With a
+ * {@link CompilationCache}, the verdicts of unchanged files are taken from the
+ * cache instead.
+ */
+public class BatchCompiler {
+
+	/** the stream for the status lines */
+	private final PrintStream out;
+
+	/** the number of worker threads */
+	private final int parallelism;
+
+	/** the cache of verdicts, or null */
+	private final CompilationCache cache;
+
+	/**
+	 * @param out
+	 *            the stream for the status lines
+	 * @param parallelism
+	 *            the number of worker threads
+	 * @param cache
+	 *            the cache of verdicts, or null
+	 */
+	public BatchCompiler(PrintStream out, int parallelism, CompilationCache cache) {
+		this.out = out;
+		this.parallelism = parallelism;
+		this.cache = cache;
+	}
+
+	/**
+	 * @param out
+	 *            the stream for the status lines
+	 * @param parallelism
+	 *            the number of worker threads
+	 */
+	public BatchCompiler(PrintStream out, int parallelism) {
+		this(out, parallelism, null);
+	}
+
+	/**
+	 * @param out
+	 *            the stream for the status lines
+	 */
+	public BatchCompiler(PrintStream out) {
+		this(out, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Expand the command line arguments to a list of files. A directory stands
+	 * for all .java files below it, an argument starting with '@' names a file
+	 * that contains one file name per line, every other argument is a file.
+	 *
+	 * @param args
+	 *            directories, files and file lists
+	 * @return the files in a deterministic order
+	 * @throws IOException
+	 *             if a directory or file list cannot be read
+	 */
+	public static List<File> collectFiles(List<String> args) throws IOException {
+		List<File> files = new ArrayList<File>();
+		for (String arg : args) {
+			if (arg.startsWith("@")) {
+				for (String line : Files.readAllLines(new File(arg.substring(1)).toPath())) {
+					if (!line.trim().isEmpty()) {
+						files.add(new File(line.trim()));
+					}
+				}
+			} else {
+				File file = new File(arg);
+				if (file.isDirectory()) {
+					collectJavaFiles(file, files);
+				} else {
+					files.add(file);
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @param dir
+	 *            a directory
+	 * @param files
+	 *            the list to which all .java files below dir are added
+	 * @throws IOException
+	 *             if the directory cannot be listed
+	 */
+	private static void collectJavaFiles(File dir, List<File> files) throws IOException {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			throw new IOException("Cannot list directory " + dir);
+		}
+		List<File> sorted = new ArrayList<File>();
+		Collections.addAll(sorted, children);
+		Collections.sort(sorted);
+		for (File child : sorted) {
+			if (child.isDirectory()) {
+				collectJavaFiles(child, files);
+			} else if (child.getName().endsWith(".java")) {
+				files.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Parse and type check all files and print one status line per file, in
+	 * the order of the list, followed by a summary line.
+	 *
+	 * @param files
+	 *            the files to compile
+	 * @return the number of files that failed
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 */
+	public int compile(List<File> files) throws InterruptedException {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final File file : files) {
+				futures.add(pool.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return compile(file, cache);
+					}
+				}));
+			}
+
+			int failed = 0;
+			long lines = 0;
+			for (Future<Result> future : futures) {
+				Result result;
+				try {
+					result = future.get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+				out.println(result.file + ": " + result.status);
+				lines += result.lines;
+				if (!result.ok) {
+					failed++;
+				}
+			}
+
+			double seconds = (System.nanoTime() - start) / 1e9;
+			out.printf("%d files, %d failed, %d lines in %.3f s (%.1f files/s, %.1f lines/s, %d threads)%n",
+					files.size(), failed, lines, seconds, files.size() / seconds, lines / seconds, parallelism);
+			return failed;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parse and type check one file.
+	 *
+	 * @param file
+	 *            the file to compile
+	 * @return the outcome for this file
+	 */
+	static Result compile(File file) {
+		return compile(file, null);
+	}
+
+	/**
+	 * Parse and type check one file, or take its verdict from the cache. IO
+	 * and internal errors are not cached.
+	 *
+	 * @param file
+	 *            the file to compile
+	 * @param cache
+	 *            the cache of verdicts, or null
+	 * @return the outcome for this file
+	 */
+	static Result compile(File file, CompilationCache cache) {
+		SourceReader reader;
+		try {
+			reader = SourceReader.open(file);
+		} catch (IOException e) {
+			return new Result(file, false, "IO error: " + e.getMessage(), 0);
+		}
+		if (cache == null) {
+			return compileSource(file, reader);
+		}
+		String key = cache.key("batch", reader);
+		CompilationCache.Entry entry = cache.get(key);
+		if (entry != null) {
+			return new Result(file, entry.isOk(), entry.getMessages().get(0), entry.getLines());
+		}
+		Result result = compileSource(file, reader);
+		if (!result.status.startsWith("IO error: ") && !result.status.startsWith("Internal error: ")) {
+			List<String> messages = Collections.singletonList(result.status);
+			cache.put(key, new CompilationCache.Entry(result.ok, result.lines, messages));
+		}
+		return result;
+	}
+
+	/**
+	 * @param file
+	 *            the file to compile
+	 * @param reader
+	 *            a reader over its content
+	 * @return the outcome for this file
+	 */
+	private static Result compileSource(File file, SourceReader reader) {
+		int lines = reader.lineCount();
+		try {
+			Start ast = Main.parseToAST(reader);
+			TypeChecker.typecheckOrFail(ast);
+			return new Result(file, true, "OK", lines);
+		} catch (ParserException e) {
+			return new Result(file, false, "Parse error: " + e.getMessage(), lines);
+		} catch (LexerException e) {
+			return new Result(file, false, "Lexer error: " + e.getMessage(), lines);
+		} catch (CustomParserException e) {
+			return new Result(file, false, e.getMessage(), lines);
+		} catch (TypeCheckingExpcetion e) {
+			return new Result(file, false, "Type error: " + e.getMessage(), lines);
+		} catch (IOException e) {
+			return new Result(file, false, "IO error: " + e.getMessage(), lines);
+		} catch (RuntimeException e) {
+			return new Result(file, false, "Internal error: " + e, lines);
+		}
+	}
+
+	/**
+	 * The outcome of compiling one file
+	 */
+	static final class Result {
+		/** the compiled file */
+		private final File file;
+		/** true iff the file was parsed and type checked without errors */
+		private final boolean ok;
+		/** the status line */
+		private final String status;
+		/** the number of lines of the file */
+		private final int lines;
+
+		/**
+		 * @param file
+		 *            the compiled file
+		 * @param ok
+		 *            true iff there were no errors
+		 * @param status
+		 *            the status, line breaks are replaced by spaces
+		 * @param lines
+		 *            the number of lines of the file
+		 */
+		Result(File file, boolean ok, String status, int lines) {
+			this.file = file;
+			this.ok = ok;
+			this.status = status.replaceAll("\\s*[\\r\\n]+\\s*", " ");
+			this.lines = lines;
+		}
+
+		/**
+		 * @return true iff there were no errors
+		 */
+		boolean isOk() {
+			return ok;
+		}
+
+		/**
+		 * @return the status line
+		 */
+		String getStatus() {
+			return status;
+		}
+	}
+}
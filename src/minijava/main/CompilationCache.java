@@ -0,0 +1,495 @@
+package minijava.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import minijava.node.Start;
+import minijava.printer.AstSerializer;
+
+/**
+ * A cache of compilation verdicts in a directory, shared by all runs of the
+ * compiler on one machine. An entry is keyed by a SHA-256 hash of the
+ * compiler version stamp, the command that produced it, and the source
+ * text, so an unchanged file skips the whole pipeline, while a new compiler
+ * build starts with an empty cache. Entries can also hold the AST of the
+ * file.
+ *
+ * Entries are written to a temporary file and then renamed, so concurrent
+ * compilers never see partial entries. The last access of an entry is its
+ * modification time; {@link #evict()} deletes entries older than the maximal
+ * age, and then the least recently used ones until the cache fits its size.
+ */
+public class CompilationCache {
+
+	/** the version of the entry format and of the verdicts */
+	public static final int FORMAT_VERSION = 2;
+
+	/** the extension of verdict files */
+	private static final String VERDICT = ".verdict";
+
+	/** the extension of AST files */
+	private static final String AST = ".ast";
+
+	/** the first int of a verdict file */
+	private static final int MAGIC = 0x4d4a4356;
+
+	/** the stamp of the running compiler, computed on demand */
+	private static volatile String defaultStamp;
+
+	/**
+	 * A cached verdict
+	 */
+	public static final class Entry {
+		/** true iff the file was compiled without errors */
+		private final boolean ok;
+		/** the number of lines of the file */
+		private final int lines;
+		/** the status or error lines */
+		private final List<String> messages;
+
+		/**
+		 * @param ok
+		 *            true iff there were no errors
+		 * @param lines
+		 *            the number of lines of the file
+		 * @param messages
+		 *            the status or error lines
+		 */
+		public Entry(boolean ok, int lines, List<String> messages) {
+			this.ok = ok;
+			this.lines = lines;
+			this.messages = Collections.unmodifiableList(new ArrayList<String>(messages));
+		}
+
+		/**
+		 * @return true iff the file was compiled without errors
+		 */
+		public boolean isOk() {
+			return ok;
+		}
+
+		/**
+		 * @return the number of lines of the file
+		 */
+		public int getLines() {
+			return lines;
+		}
+
+		/**
+		 * @return the status or error lines
+		 */
+		public List<String> getMessages() {
+			return messages;
+		}
+	}
+
+	/** the cache directory */
+	private final File dir;
+
+	/** the compiler version stamp */
+	private final String stamp;
+
+	/** the size in bytes to which {@link #evict()} shrinks the cache */
+	private final long maxBytes;
+
+	/** the age in milliseconds after which {@link #evict()} deletes entries */
+	private final long maxAgeMillis;
+
+	/** the number of lookups that found an entry */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** the number of lookups that found no entry */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** the number of stored verdicts and ASTs */
+	private final AtomicLong stores = new AtomicLong();
+
+	/** the number of deleted verdicts and ASTs */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param dir
+	 *            the cache directory, created if necessary
+	 * @param stamp
+	 *            the compiler version stamp, see {@link #defaultStamp()}
+	 * @param maxBytes
+	 *            the size in bytes to which {@link #evict()} shrinks the cache
+	 * @param maxAgeMillis
+	 *            the time since the last access after which {@link #evict()}
+	 *            deletes an entry
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+	public CompilationCache(File dir, String stamp, long maxBytes, long maxAgeMillis) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + dir);
+		}
+		this.dir = dir;
+		this.stamp = stamp;
+		this.maxBytes = maxBytes;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * @return a stamp that changes with every build of the compiler: a hash
+	 *         of the jar or of the class directory the compiler runs from,
+	 *         see {@link #stamp(File)}; computed once per run
+	 */
+	public static String defaultStamp() {
+		String stamp = defaultStamp;
+		if (stamp == null) {
+			File code = null;
+			CodeSource source = CompilationCache.class.getProtectionDomain().getCodeSource();
+			if (source != null) {
+				try {
+					code = new File(source.getLocation().toURI());
+				} catch (URISyntaxException | IllegalArgumentException e) {
+					// not a local file, keep the format version only
+				}
+			}
+			stamp = stamp(code);
+			defaultStamp = stamp;
+		}
+		return stamp;
+	}
+
+	/**
+	 * @param code
+	 *            the jar or class directory of a compiler, or null if unknown
+	 * @return the format version and a SHA-256 hash of the jar, or of the
+	 *         class files and the lexer and parser tables below minijava in
+	 *         the directory, so that every rebuilt compiler gets a new stamp
+	 */
+	public static String stamp(File code) {
+		String stamp = "minijava-" + FORMAT_VERSION;
+		if (code == null || !code.exists()) {
+			return stamp;
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try {
+			if (code.isFile()) {
+				digest.update(Files.readAllBytes(code.toPath()));
+			} else {
+				List<String> paths = new ArrayList<String>();
+				collectCode(new File(code, "minijava"), "minijava", paths);
+				Collections.sort(paths);
+				for (String path : paths) {
+					digest.update(path.getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+					digest.update(Files.readAllBytes(new File(code, path).toPath()));
+				}
+			}
+		} catch (IOException e) {
+			// an unreadable compiler cannot be told apart from others
+			return stamp;
+		}
+		StringBuilder hex = new StringBuilder(stamp).append('-');
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @param dir
+	 *            a directory
+	 * @param path
+	 *            its path relative to the class directory
+	 * @param paths
+	 *            receives the relative paths of the class files and tables
+	 *            below the directory
+	 */
+	private static void collectCode(File dir, String path, List<String> paths) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			String name = path + "/" + f.getName();
+			if (f.isDirectory()) {
+				collectCode(f, name, paths);
+			} else if (f.getName().endsWith(".class") || f.getName().endsWith(".dat")) {
+				paths.add(name);
+			}
+		}
+	}
+
+	/**
+	 * @param command
+	 *            the command whose verdict is cached, e.g. "check"
+	 * @param source
+	 *            the source text
+	 * @return the key of the entry
+	 */
+	public String key(String command, SourceReader source) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(command.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(StandardCharsets.UTF_8.encode(source.chars()));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Look up a verdict and count a hit or a miss
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @return the cached verdict, or null if there is none or it cannot be
+	 *         read
+	 */
+	public Entry get(String key) {
+		File file = new File(dir, key + VERDICT);
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				misses.incrementAndGet();
+				return null;
+			}
+			boolean ok = in.readBoolean();
+			int lines = in.readInt();
+			int count = in.readInt();
+			List<String> messages = new ArrayList<String>();
+			for (int i = 0; i < count; i++) {
+				messages.add(in.readUTF());
+			}
+			touch(file);
+			hits.incrementAndGet();
+			return new Entry(ok, lines, messages);
+		} catch (IOException e) {
+			// missing, or cut short by a full disk
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Store a verdict. Errors are ignored, the cache is only an optimization.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the verdict
+	 */
+	public void put(String key, Entry entry) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeBoolean(entry.isOk());
+			out.writeInt(entry.getLines());
+			out.writeInt(entry.getMessages().size());
+			for (String message : entry.getMessages()) {
+				out.writeUTF(message);
+			}
+		} catch (IOException e) {
+			// a message longer than 64 KB, not worth caching
+			return;
+		}
+		if (write(key + VERDICT, bytes.toByteArray())) {
+			stores.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Store the AST of a file in the form of {@link AstSerializer}. Errors
+	 * are ignored.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param ast
+	 *            the AST
+	 */
+	public void putAst(String key, Start ast) {
+		if (write(key + AST, AstSerializer.serialize(ast))) {
+			stores.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Look up an AST and count a hit or a miss. The file of the entry is
+	 * memory-mapped and read without parsing.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @return the AST of the entry, or null if there is none or it cannot be
+	 *         read
+	 */
+	public Start getAst(String key) {
+		File file = new File(dir, key + AST);
+		try {
+			Start ast = AstSerializer.deserialize(file);
+			touch(file);
+			hits.incrementAndGet();
+			return ast;
+		} catch (IOException e) {
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * @param name
+	 *            the name of the file in the cache directory
+	 * @param bytes
+	 *            its new content
+	 * @return true iff the file was written
+	 */
+	private boolean write(String name, byte[] bytes) {
+		File tmp = null;
+		try {
+			tmp = File.createTempFile(name, ".tmp", dir);
+			Files.write(tmp.toPath(), bytes);
+			try {
+				Files.move(tmp.toPath(), new File(dir, name).toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), new File(dir, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch (IOException e) {
+			if (tmp != null && !tmp.delete()) {
+				tmp.deleteOnExit();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Mark a file as recently used
+	 *
+	 * @param file
+	 *            a file of an entry
+	 */
+	private static void touch(File file) {
+		// fails silently on read-only caches, which then evict by creation time
+		file.setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * Delete the entries that were not used for longer than the maximal age,
+	 * then the least recently used ones until the cache is not larger than its
+	 * maximal size. The verdict and the AST of an entry are deleted
+	 * separately. Leftover temporary files older than the maximal age are
+	 * deleted, too.
+	 */
+	public void evict() {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		final long[] modified = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		long size = 0;
+		for (int i = 0; i < files.length; i++) {
+			modified[i] = files[i].lastModified();
+			order[i] = i;
+			size += files[i].length();
+		}
+		// oldest first
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(modified[a], modified[b]);
+			}
+		});
+		long now = System.currentTimeMillis();
+		for (int i : order) {
+			File file = files[i];
+			boolean expired = now - modified[i] > maxAgeMillis;
+			if (!expired && size <= maxBytes) {
+				break;
+			}
+			String name = file.getName();
+			boolean entry = name.endsWith(VERDICT) || name.endsWith(AST);
+			if (!entry && !expired) {
+				continue;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				size -= length;
+				if (entry) {
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of lookups that found an entry
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that found no entry
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of stored verdicts and ASTs
+	 */
+	public long getStores() {
+		return stores.get();
+	}
+
+	/**
+	 * @return the number of verdicts and ASTs deleted by {@link #evict()}
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the share of lookups that found an entry, 0 if there were none
+	 */
+	public double getHitRate() {
+		long lookups = getHits() + getMisses();
+		return lookups == 0 ? 0 : (double) getHits() / lookups;
+	}
+
+	/**
+	 * @return one line with the statistics of this run
+	 */
+	public String statsLine() {
+		return String.format("cache %s: %d hits, %d misses (%.1f%% hit rate), %d stored, %d evicted", dir,
+				getHits(), getMisses(), 100 * getHitRate(), getStores(), getEvictions());
+	}
+}
@@ -0,0 +1,116 @@
+package minijava.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The thin client of the {@link CompileServer}. It only sends the request
+ * and copies the response, so it loads none of the compiler classes and
+ * starts as fast as the JVM does.
+ */
+public class CompileClient {
+
+	/**
+	 * Send one request to the daemon and exit with its status
+	 *
+	 * @param args
+	 *            optionally --port and a port, followed by check and a file
+	 *            name, compile, a file name and an output directory, batch and
+	 *            directories, files and @file-lists, ping, or stop
+	 */
+	public static void main(String[] args) {
+		List<String> request = new ArrayList<String>(Arrays.asList(args));
+		int port = CompileServer.DEFAULT_PORT;
+		if (request.size() >= 2 && request.get(0).equals("--port")) {
+			port = Integer.parseInt(request.get(1));
+			request = request.subList(2, request.size());
+		}
+		if (request.isEmpty()) {
+			System.err.println("Expected: [--port N] check FILE, compile FILE DIR, batch PATH..., ping or stop");
+			System.exit(1);
+		}
+		try {
+			System.exit(send(port, absolutePaths(request), System.out));
+		} catch (ConnectException e) {
+			System.err.println("No compile daemon on port " + port + ", start one with Main --daemon");
+			System.exit(3);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(3);
+		}
+	}
+
+	/**
+	 * @param request
+	 *            a command and its arguments, which are all paths
+	 * @return the request with absolute paths
+	 */
+	static List<String> absolutePaths(List<String> request) {
+		List<String> result = new ArrayList<String>();
+		result.add(request.get(0));
+		for (String arg : request.subList(1, request.size())) {
+			if (arg.startsWith("@")) {
+				result.add("@" + new File(arg.substring(1)).getAbsolutePath());
+			} else {
+				result.add(new File(arg).getAbsolutePath());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Send one request to the daemon
+	 *
+	 * @param port
+	 *            the port of the daemon on the loopback interface
+	 * @param request
+	 *            the command and its arguments
+	 * @param out
+	 *            the stream for the output of the command
+	 * @return the exit status of the command
+	 * @throws IOException
+	 *             if there is no daemon or the connection fails
+	 */
+	public static int send(int port, List<String> request, OutputStream out) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (String field : request) {
+			if (field.indexOf('\t') >= 0 || field.indexOf('\n') >= 0) {
+				throw new IOException("Unsupported character in " + field);
+			}
+			line.append(line.length() == 0 ? "" : "\t").append(field);
+		}
+		line.append('\n');
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			socket.getOutputStream().write(line.toString().getBytes(StandardCharsets.UTF_8));
+			socket.getOutputStream().flush();
+
+			InputStream in = socket.getInputStream();
+			StringBuilder status = new StringBuilder();
+			for (int c = in.read(); c != '\n'; c = in.read()) {
+				if (c < 0) {
+					throw new IOException("Incomplete response");
+				}
+				status.append((char) c);
+			}
+			if (!status.toString().startsWith("status ")) {
+				throw new IOException("Malformed response: " + status);
+			}
+			byte[] buffer = new byte[8192];
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+				out.write(buffer, 0, n);
+			}
+			out.flush();
+			return Integer.parseInt(status.substring("status ".length()));
+		}
+	}
+}
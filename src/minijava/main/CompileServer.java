@@ -0,0 +1,271 @@
+package minijava.main;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import minijava.analysis.TypeChecker;
+import minijava.analysis.TypeCheckingExpcetion;
+import minijava.generator.ProgramGenerator;
+import minijava.lexer.LexerException;
+import minijava.parser.ParserException;
+import minijava.postchecking.CustomParserException;
+
+/**
+ * A long-running compiler that serves requests of the {@link CompileClient}
+ * over a TCP socket on the loopback interface. The lexer and parser tables
+ * are loaded and the front end is compiled by the JIT once, so a request for
+ * a small file costs milliseconds instead of a JVM start.
+ *
+ * A request is one line of tab separated fields, the command followed by
+ * its arguments; file names must be absolute, since the daemon has its own
+ * working directory. The commands are
+ * <ul>
+ * <li>check FILE - the output of Main --check</li>
+ * <li>compile FILE DIR - the class files of Main --compile</li>
+ * <li>batch PATH... - the output of Main --batch</li>
+ * <li>ping - answers pong</li>
+ * <li>stop - stops the daemon after the running requests</li>
+ * </ul>
+ * The response is a line "status N" with the exit status of the command,
+ * followed by its output up to the end of the connection. A client that does
+ * not send its request within {@link #REQUEST_TIMEOUT_MILLIS} is answered
+ * with status 1, so that idle connections cannot hold the workers. After a
+ * check or batch request the cache is evicted, at most once every
+ * {@link #EVICT_INTERVAL_MILLIS}, so that a daemon that runs for days stays
+ * within the bounds of the cache. The protocol is
+ * plain enough for a shell to be the client, e.g. with bash:
+ * <pre>
+ * exec 3&lt;&gt;/dev/tcp/127.0.0.1/7171; printf 'check\t%s\n' "$PWD/A.java" &gt;&amp;3; cat &lt;&amp;3
+ * </pre>
+ */
+public class CompileServer {
+
+	/** the port of the daemon if none is given */
+	public static final int DEFAULT_PORT = 7171;
+
+	/** the time to wait for the request line of a connection */
+	public static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+	/** the minimal time between two evictions of the cache */
+	public static final long EVICT_INTERVAL_MILLIS = 60000;
+
+	/** the number of compilations of a generated program in {@link #warmUp()} */
+	private static final int WARMUP_ROUNDS = 30;
+
+	/** the listening socket */
+	private final ServerSocket socket;
+
+	/** the workers for the requests */
+	private final ExecutorService pool;
+
+	/** the cache of verdicts, or null */
+	private final CompilationCache cache;
+
+	/** the time to wait for the request line of a connection */
+	private volatile int requestTimeout = REQUEST_TIMEOUT_MILLIS;
+
+	/** the time of the last eviction of the cache */
+	private final AtomicLong lastEviction = new AtomicLong();
+
+	/**
+	 * Listen on the given port of the loopback interface
+	 *
+	 * @param port
+	 *            the port, or 0 for any free port
+	 * @param cache
+	 *            the cache of verdicts, or null
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public CompileServer(int port, CompilationCache cache) throws IOException {
+		this.socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the port the daemon listens on
+	 */
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	/**
+	 * @param millis
+	 *            the time to wait for the request line of a connection
+	 */
+	public void setRequestTimeout(int millis) {
+		this.requestTimeout = millis;
+	}
+
+	/**
+	 * Parse and type check a generated program a few times, so that the first
+	 * requests already run compiled code
+	 *
+	 * @throws Exception
+	 *             never for the generated program
+	 */
+	public void warmUp() throws Exception {
+		String source = new ProgramGenerator(10, 3, 4, 8, 3, 4).generate();
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			TypeChecker.collectErrors(Main.parseToAST(source));
+		}
+	}
+
+	/**
+	 * Accept and answer requests until a stop request arrives or
+	 * {@link #stop()} is called
+	 */
+	public void serve() {
+		try {
+			while (true) {
+				final Socket client = socket.accept();
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(client);
+					}
+				});
+			}
+		} catch (IOException e) {
+			// the socket was closed by stop()
+		} finally {
+			pool.shutdown();
+			try {
+				pool.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting requests
+	 */
+	public void stop() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+	/**
+	 * Answer one request
+	 *
+	 * @param client
+	 *            the connection of the request
+	 */
+	private void handle(Socket client) {
+		try (Socket connection = client) {
+			connection.setSoTimeout(requestTimeout);
+			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+					StandardCharsets.UTF_8));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			PrintStream out = new PrintStream(bytes, false, "UTF-8");
+			int status;
+			try {
+				String request = in.readLine();
+				status = request == null ? 1 : execute(Arrays.asList(request.split("\t")), out);
+			} catch (SocketTimeoutException e) {
+				out.println("No request within " + requestTimeout + " ms");
+				status = 1;
+			}
+			out.flush();
+			OutputStream response = connection.getOutputStream();
+			response.write(("status " + status + "\n").getBytes(StandardCharsets.UTF_8));
+			bytes.writeTo(response);
+			response.flush();
+		} catch (SocketException e) {
+			// the client went away
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Execute one command
+	 *
+	 * @param request
+	 *            the command and its arguments
+	 * @param out
+	 *            the stream for the output of the command
+	 * @return the exit status of the command
+	 */
+	int execute(List<String> request, PrintStream out) {
+		String command = request.get(0);
+		List<String> args = request.subList(1, request.size());
+		try {
+			if (command.equals("check") && args.size() == 1) {
+				int status = Main.check(new File(args.get(0)), cache, out);
+				evict();
+				return status;
+			} else if (command.equals("compile") && args.size() == 2) {
+				Main.compile(new File(args.get(0)), new File(args.get(1)));
+				return 0;
+			} else if (command.equals("batch")) {
+				List<File> files = BatchCompiler.collectFiles(new ArrayList<String>(args));
+				BatchCompiler compiler = new BatchCompiler(out, Runtime.getRuntime().availableProcessors(), cache);
+				int failed = compiler.compile(files);
+				evict();
+				return failed == 0 ? 0 : 2;
+			} else if (command.equals("ping") && args.isEmpty()) {
+				out.println("pong");
+				return 0;
+			} else if (command.equals("stop") && args.isEmpty()) {
+				stop();
+				return 0;
+			} else {
+				out.println("Unknown request: " + request);
+				return 1;
+			}
+		} catch (ParserException e) {
+			out.println("Parse error: " + e.getMessage());
+		} catch (LexerException e) {
+			out.println("Lexer error: " + e.getMessage());
+		} catch (CustomParserException e) {
+			out.println(e.getMessage());
+		} catch (TypeCheckingExpcetion e) {
+			out.println("Type error: " + e.getMessage());
+		} catch (IOException e) {
+			out.println("IO error: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			out.println("Interrupted");
+		} catch (RuntimeException e) {
+			e.printStackTrace(out);
+		}
+		return 2;
+	}
+
+	/**
+	 * Evict the cache unless that was done less than
+	 * {@link #EVICT_INTERVAL_MILLIS} ago; of concurrent requests only one
+	 * evicts
+	 */
+	private void evict() {
+		long last = lastEviction.get();
+		long now = System.currentTimeMillis();
+		if (cache != null && now - last >= EVICT_INTERVAL_MILLIS && lastEviction.compareAndSet(last, now)) {
+			cache.evict();
+		}
+	}
+}
@@ -2,11 +2,25 @@ package minijava.main;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PushbackReader;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import minijava.analysis.Diagnostic;
+import minijava.analysis.TypeChecker;
+import minijava.analysis.TypeCheckingExpcetion;
+import minijava.codegen.CodeGenerator;
+import minijava.interpreter.Interpreter;
+import minijava.ir.ClassHierarchyAnalysis;
+import minijava.ir.ConstantPropagation;
+import minijava.ir.DeadCodeElimination;
+import minijava.ir.IrLowering;
+import minijava.ir.IrProgram;
+import minijava.ir.SsaBuilder;
+import minijava.ir.SsaDestructor;
 import minijava.lexer.Lexer;
 import minijava.lexer.LexerException;
 import minijava.node.Start;
@@ -21,32 +35,280 @@ import minijava.printer.AstPrinter;
  */
 public class Main {
 
+	/** the default maximal size of the cache in megabytes */
+	private static final long DEFAULT_CACHE_MB = 256;
+
+	/** the default maximal age of a cache entry in days */
+	private static final long DEFAULT_CACHE_DAYS = 30;
+
 	/**
-	 * Main method. Read a file.
+	 * Main method. Read a file, run it with --run, list all its name and type
+	 * errors with --check, print its three-address code with --ir, in SSA form
+	 * with --ssa or optimized with --opt, compile it to class files with
+	 * --compile, measure the compiler phases with --stats, check many files
+	 * with --batch, or serve requests of the {@link CompileClient} with
+	 * --daemon.
+	 * 
+	 * With --cache-dir and a directory in front of the other arguments, the
+	 * results of --check and --batch and the AST of a single file are
+	 * cached across runs, see {@link CompilationCache}. --cache-max-mb and
+	 * --cache-max-age-days bound the cache, the statistics of the cache are
+	 * printed to stderr.
 	 * 
 	 * @param args
-	 *            must contain just one filename.
+	 *            optionally the cache options, followed by just one filename,
+	 *            --run, --check, --ir, --ssa or --opt and one filename, --compile, one
+	 *            filename and an output directory, --stats, optionally --json,
+	 *            and one filename, --batch followed by directories, files and
+	 *            file lists like @files.txt, or --daemon and optionally a port
 	 */
 	public static void main(String[] args) {
-		if (args.length == 1) {
+		List<String> rest = new ArrayList<String>(Arrays.asList(args));
+		CompilationCache cache = null;
+		try {
+			cache = openCache(rest);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+		args = rest.toArray(new String[rest.size()]);
+
+		if (args.length >= 1 && args[0].equals("--batch")) {
+			try {
+				List<File> files = BatchCompiler.collectFiles(Arrays.asList(args).subList(1, args.length));
+				BatchCompiler compiler = new BatchCompiler(System.out, Runtime.getRuntime().availableProcessors(),
+						cache);
+				int failed = compiler.compile(files);
+				report(cache);
+				System.exit(failed == 0 ? 0 : 2);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length == 2 && args[0].equals("--run")) {
+			try {
+				Interpreter.run(parseToAST(new File(args[1])), System.out);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length == 2 && args[0].equals("--check")) {
+			try {
+				int status = check(new File(args[1]), cache, System.out);
+				report(cache);
+				System.exit(status);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length == 2 && (args[0].equals("--ir") || args[0].equals("--ssa") || args[0].equals("--opt"))) {
+			try {
+				Start ast = parseToAST(new File(args[1]));
+				IrProgram program = new IrLowering(TypeChecker.typecheckOrFail(ast)).lower();
+				if (!args[0].equals("--ir")) {
+					SsaBuilder.construct(program);
+				}
+				if (args[0].equals("--opt")) {
+					System.err.println("class hierarchy analysis made "
+							+ new ClassHierarchyAnalysis(program).devirtualize() + " of "
+							+ ClassHierarchyAnalysis.callCount(program) + " calls direct");
+					System.err.println("constant propagation removed " + ConstantPropagation.propagate(program)
+							+ " instructions");
+					System.err.println("dead code elimination removed " + DeadCodeElimination.eliminate(program)
+							+ " instructions");
+					System.err.println("out of SSA inserted " + SsaDestructor.destruct(program) + " copies");
+				}
+				System.out.print(program);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length == 3 && args[0].equals("--compile")) {
+			try {
+				compile(new File(args[1]), new File(args[2]));
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length >= 2 && args.length <= 3 && args[0].equals("--stats")
+				&& (args.length == 2 || args[1].equals("--json"))) {
+			try {
+				PhaseStats stats = PhaseStats.measure(new File(args[args.length - 1]));
+				System.out.print(args.length == 3 ? stats.toJson() + System.lineSeparator() : stats.toText());
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length <= 2 && args.length >= 1 && args[0].equals("--daemon")) {
+			try {
+				int port = args.length == 2 ? Integer.parseInt(args[1]) : CompileServer.DEFAULT_PORT;
+				CompileServer server = new CompileServer(port, cache);
+				server.warmUp();
+				System.err.println("Compile daemon listening on localhost:" + server.getPort());
+				server.serve();
+				report(cache);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.exit(2);
+			}
+		} else if (args.length == 1 && !args[0].startsWith("--")) {
 			String filename = args[0];
 			try {
-				Start ast = parseToAST(new File(filename));
+				SourceReader source = SourceReader.open(new File(filename));
+				String key = cache == null ? null : cache.key("print", source);
+				Start ast = key == null ? null : cache.getAst(key);
+				if (ast == null) {
+					ast = parseToAST(source);
+					if (key != null) {
+						cache.putAst(key, ast);
+					}
+				}
 				System.out.print("Parse OK.");
-				System.out.println(AstPrinter.print(ast));
-
+				AstPrinter.print(ast, System.out);
+				System.out.println();
+				report(cache);
 			} catch (Exception e) {
 				e.printStackTrace();
 				System.exit(2);
 			}
 		} else {
-			System.err.println("Expected: one file name");
+			System.err.println("Expected: one file name, --run, --check, --ir, --ssa or --opt and one file name, --compile,"
+					+ " one file name and an output directory, --stats [--json] and one file name, --batch and directories or files, or"
+					+ " --daemon and an optional port,"
+					+ " optionally preceded by --cache-dir DIR [--cache-max-mb N] [--cache-max-age-days N]");
 			System.exit(1);
 		}
 	}
 
 	/**
-	 * Parse the file and create the AST
+	 * Remove the leading cache options from the arguments and open the cache.
+	 * 
+	 * @param args
+	 *            the command line arguments
+	 * @return the cache, or null if there is no --cache-dir option
+	 * @throws IllegalArgumentException
+	 *             if an option is malformed
+	 * @throws IOException
+	 *             if the cache directory cannot be created
+	 */
+	static CompilationCache openCache(List<String> args) throws IOException {
+		String dir = null;
+		long maxMb = DEFAULT_CACHE_MB;
+		long maxDays = DEFAULT_CACHE_DAYS;
+		while (!args.isEmpty() && args.get(0).startsWith("--cache-")) {
+			String option = args.remove(0);
+			if (args.isEmpty()) {
+				throw new IllegalArgumentException("Missing value of " + option);
+			}
+			String value = args.remove(0);
+			try {
+				if (option.equals("--cache-dir")) {
+					dir = value;
+				} else if (option.equals("--cache-max-mb")) {
+					maxMb = Long.parseLong(value);
+				} else if (option.equals("--cache-max-age-days")) {
+					maxDays = Long.parseLong(value);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number: " + option + " " + value);
+			}
+		}
+		if (dir == null) {
+			return null;
+		}
+		return new CompilationCache(new File(dir), CompilationCache.defaultStamp(), maxMb * 1024 * 1024,
+				maxDays * 24 * 60 * 60 * 1000);
+	}
+
+	/**
+	 * List all name and type errors of a file, followed by a summary line, or
+	 * take them from the cache.
+	 * 
+	 * @param file
+	 *            the file to check
+	 * @param cache
+	 *            the cache of verdicts, or null
+	 * @param out
+	 *            the stream for the errors
+	 * @return the exit status, 0 if there are no errors and 2 otherwise
+	 * @throws CustomParserException
+	 *             when there is a syntax error (Bad assignment or method call)
+	 * @throws ParserException
+	 *             in case of syntax errors
+	 * @throws LexerException
+	 *             in case of syntax errors
+	 * @throws IOException
+	 *             in case of file IO errors
+	 */
+	static int check(File file, CompilationCache cache, PrintStream out)
+			throws CustomParserException, ParserException, LexerException, IOException {
+		SourceReader source = SourceReader.open(file);
+		String key = cache == null ? null : cache.key("check", source);
+		CompilationCache.Entry verdict = key == null ? null : cache.get(key);
+		if (verdict == null) {
+			List<Diagnostic> errors = TypeChecker.collectErrors(parseToAST(source));
+			List<String> lines = new ArrayList<String>();
+			for (Diagnostic error : errors) {
+				lines.add(error.toString());
+			}
+			lines.add(errors.isEmpty() ? "Type check OK." : errors.size() + " errors.");
+			verdict = new CompilationCache.Entry(errors.isEmpty(), source.lineCount(), lines);
+			if (key != null) {
+				cache.put(key, verdict);
+			}
+		}
+		for (String line : verdict.getMessages()) {
+			out.println(line);
+		}
+		return verdict.isOk() ? 0 : 2;
+	}
+
+	/**
+	 * Compile a file to class files.
+	 * 
+	 * @param file
+	 *            the file to compile
+	 * @param outDir
+	 *            the directory for the class files
+	 * @throws CustomParserException
+	 *             when there is a syntax error (Bad assignment or method call)
+	 * @throws ParserException
+	 *             in case of syntax errors
+	 * @throws LexerException
+	 *             in case of syntax errors
+	 * @throws TypeCheckingExpcetion
+	 *             in case of type errors
+	 * @throws IOException
+	 *             in case of file IO errors
+	 */
+	static void compile(File file, File outDir)
+			throws CustomParserException, ParserException, LexerException, IOException {
+		Start ast = parseToAST(file);
+		CodeGenerator generator = new CodeGenerator(TypeChecker.typecheckOrFail(ast));
+		CodeGenerator.writeClasses(generator.generate(), outDir);
+	}
+
+	/**
+	 * Evict old entries from the cache and print its statistics.
+	 * 
+	 * @param cache
+	 *            the cache, or null
+	 */
+	private static void report(CompilationCache cache) {
+		if (cache != null) {
+			cache.evict();
+			System.err.println(cache.statsLine());
+		}
+	}
+
+	/**
+	 * Parse the file and create the AST. The file is memory-mapped and decoded
+	 * at once, the lexer then reads from the in-memory buffer.
 	 * 
 	 * @param file
 	 *            the file to parse
@@ -64,8 +326,7 @@ public class Main {
 	 */
 	public static Start parseToAST(File file) 
 			throws FileNotFoundException, CustomParserException, ParserException, LexerException, IOException {
-		PushbackReader reader = new PushbackReader(new FileReader(file));
-		return parseToAST(reader);
+		return parseToAST(SourceReader.open(file));
 	}
 
 	/**
@@ -110,6 +371,6 @@ public class Main {
 	 */
 	public static Start parseToAST(String input) 
 			throws CustomParserException, ParserException, LexerException, IOException {
-		return parseToAST(new PushbackReader(new StringReader(input)));
+		return parseToAST(new SourceReader(input));
 	}
 }
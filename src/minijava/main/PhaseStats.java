@@ -0,0 +1,322 @@
+package minijava.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import minijava.analysis.DepthFirstAdapter;
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.NameAnalyser;
+import minijava.analysis.TypeCheckingExpcetion;
+import minijava.lexer.Lexer;
+import minijava.lexer.LexerException;
+import minijava.node.AProgram;
+import minijava.node.EOF;
+import minijava.node.Node;
+import minijava.node.Start;
+import minijava.parser.Parser;
+import minijava.parser.ParserException;
+import minijava.postchecking.CustomParserException;
+import minijava.postchecking.IllegalStatementChecker;
+
+/**
+ * Wall time, allocated bytes and node counts of every phase of the compiler
+ * pipeline for one file. The phases are run one after the other on the
+ * current thread: read, lex, parse, postcheck, name analysis and type check.
+ * Lexing is measured in a separate pass over the source text, the parse phase
+ * includes the lexing done by the parser.
+ */
+public class PhaseStats {
+
+	/** the name of the phase that reads and decodes the file */
+	public static final String READ = "read";
+	/** the name of the phase that only runs the lexer */
+	public static final String LEX = "lex";
+	/** the name of the phase that runs the parser */
+	public static final String PARSE = "parse";
+	/** the name of the phase that runs the IllegalStatementChecker */
+	public static final String POSTCHECK = "postcheck";
+	/** the name of the phase that constructs the NameAnalyser */
+	public static final String NAME_ANALYSIS = "name analysis";
+	/** the name of the phase that runs TypeAnalyser.checkProgram */
+	public static final String TYPE_CHECK = "type check";
+
+	/**
+	 * The measurements of one phase
+	 */
+	public static final class Phase {
+		/** the name of the phase */
+		private final String name;
+		/** the wall time in nanoseconds */
+		private final long nanos;
+		/** the bytes allocated by the current thread, or -1 if unsupported */
+		private final long allocatedBytes;
+		/** the number of nodes produced or visited by the phase */
+		private final int nodes;
+
+		/**
+		 * @param name
+		 *            the name of the phase
+		 * @param nanos
+		 *            the wall time in nanoseconds
+		 * @param allocatedBytes
+		 *            the allocated bytes, or -1 if unsupported
+		 * @param nodes
+		 *            the number of nodes
+		 */
+		Phase(String name, long nanos, long allocatedBytes, int nodes) {
+			this.name = name;
+			this.nanos = nanos;
+			this.allocatedBytes = allocatedBytes;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * @return the name of the phase
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the wall time in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the bytes allocated by the phase, or -1 if the JVM does not
+		 *         support per-thread allocation counters
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		/**
+		 * @return the number of nodes produced or visited by the phase: 0 for
+		 *         read, the tokens for lex, the AST nodes for parse, postcheck
+		 *         and name analysis and the typed expressions for type check
+		 */
+		public int getNodes() {
+			return nodes;
+		}
+	}
+
+	/** the measured file */
+	private final File file;
+
+	/** the phases in the order they were run */
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	/** the allocation counters, or null if unsupported */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/** the wall time at the start of the current phase */
+	private long startNanos;
+
+	/** the allocated bytes at the start of the current phase */
+	private long startBytes;
+
+	/**
+	 * @param file
+	 *            the measured file
+	 */
+	private PhaseStats(File file) {
+		this.file = file;
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			this.threads = (com.sun.management.ThreadMXBean) bean;
+			this.threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			this.threads = null;
+		}
+	}
+
+	/**
+	 * Run the pipeline on a file and measure every phase
+	 *
+	 * @param file
+	 *            the file to compile
+	 * @return the measurements
+	 * @throws CustomParserException
+	 *             when there is a syntax error (Bad assignment or method call)
+	 * @throws ParserException
+	 *             when there is a syntax error
+	 * @throws LexerException
+	 *             when there is a lexical syntax error
+	 * @throws TypeCheckingExpcetion
+	 *             when there is a type error
+	 * @throws IOException
+	 *             when the file cannot be read
+	 */
+	public static PhaseStats measure(File file)
+			throws CustomParserException, ParserException, LexerException, IOException {
+		PhaseStats stats = new PhaseStats(file);
+
+		stats.begin();
+		SourceReader reader = SourceReader.open(file);
+		stats.end(READ, 0);
+
+		SourceReader lexReader = reader.reopen();
+		stats.begin();
+		Lexer lexer = new Lexer(lexReader);
+		int tokens = 0;
+		while (!(lexer.next() instanceof EOF)) {
+			tokens++;
+		}
+		stats.end(LEX, tokens);
+
+		stats.begin();
+		Start ast = new Parser(new Lexer(reader)).parse();
+		stats.end(PARSE, countNodes(ast));
+
+		stats.begin();
+		ast.apply(new IllegalStatementChecker());
+		stats.end(POSTCHECK, stats.getPhase(PARSE).getNodes());
+
+		AProgram program = (AProgram) ast.getPProgram();
+		stats.begin();
+		NameAnalyser nameAnalysis = new NameAnalyser(program);
+		stats.end(NAME_ANALYSIS, stats.getPhase(PARSE).getNodes());
+
+		MjAnalyser analysis = new MjAnalyser(program, nameAnalysis);
+		stats.begin();
+		analysis.checkProgram();
+		stats.end(TYPE_CHECK, analysis.getTypeAnalysis().getTypeCache().size());
+		return stats;
+	}
+
+	/**
+	 * @param ast
+	 *            an AST
+	 * @return the number of its nodes, including the tokens
+	 */
+	private static int countNodes(Node ast) {
+		final int[] count = new int[1];
+		ast.apply(new DepthFirstAdapter() {
+			@Override
+			public void defaultIn(Node node) {
+				count[0]++;
+			}
+
+			@Override
+			public void defaultCase(Node node) {
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+
+	/**
+	 * Start measuring a phase
+	 */
+	private void begin() {
+		startBytes = allocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Finish measuring a phase
+	 *
+	 * @param name
+	 *            the name of the phase
+	 * @param nodes
+	 *            the number of nodes of the phase
+	 */
+	private void end(String name, int nodes) {
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = threads == null ? -1 : allocatedBytes() - startBytes;
+		phases.add(new Phase(name, nanos, bytes, nodes));
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1
+	 */
+	private long allocatedBytes() {
+		return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return the measured file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the phases in the order they were run
+	 */
+	public List<Phase> getPhases() {
+		return Collections.unmodifiableList(phases);
+	}
+
+	/**
+	 * @param name
+	 *            the name of a phase, e.g. {@link #PARSE}
+	 * @return its measurements
+	 * @throws IllegalArgumentException
+	 *             if there is no such phase
+	 */
+	public Phase getPhase(String name) {
+		for (Phase phase : phases) {
+			if (phase.getName().equals(name)) {
+				return phase;
+			}
+		}
+		throw new IllegalArgumentException("No phase " + name);
+	}
+
+	/**
+	 * @return one line per phase and a total line
+	 */
+	public String toText() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-15s %12s %15s %10s%n", "phase", "ms", "bytes", "nodes"));
+		long nanos = 0;
+		long bytes = 0;
+		for (Phase phase : phases) {
+			sb.append(String.format("%-15s %12.3f %15d %10d%n", phase.getName(), phase.getNanos() / 1e6,
+					phase.getAllocatedBytes(), phase.getNodes()));
+			nanos += phase.getNanos();
+			bytes = bytes < 0 || phase.getAllocatedBytes() < 0 ? -1 : bytes + phase.getAllocatedBytes();
+		}
+		sb.append(String.format("%-15s %12.3f %15d%n", "total", nanos / 1e6, bytes));
+		return sb.toString();
+	}
+
+	/**
+	 * @return the measurements as a JSON object
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"file\":\"");
+		String path = file.getPath();
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append("\",\"phases\":[");
+		for (int i = 0; i < phases.size(); i++) {
+			Phase phase = phases.get(i);
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"name\":\"").append(phase.getName()).append("\",\"nanos\":").append(phase.getNanos())
+					.append(",\"allocatedBytes\":").append(phase.getAllocatedBytes()).append(",\"nodes\":")
+					.append(phase.getNodes()).append('}');
+		}
+		return sb.append("]}").toString();
+	}
+}
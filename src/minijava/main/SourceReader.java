@@ -0,0 +1,181 @@
+package minijava.main;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A PushbackReader over a fully decoded in-memory source text. The lexer
+ * reads one character at a time, so unlike a PushbackReader wrapping a
+ * FileReader, every read and unread here is a plain array access without
+ * locking or per-character decoding. Any number of characters may be pushed
+ * back, as long as they were read from this reader before.
+ */
+public class SourceReader extends PushbackReader {
+
+	/** the decoded source text */
+	private final char[] buffer;
+
+	/** the index of the first character of the source text */
+	private final int start;
+
+	/** the index of the next character to read */
+	private int position;
+
+	/** the index after the last character of the source text */
+	private final int end;
+
+	/**
+	 * Create a reader over the given characters. The array is not copied.
+	 *
+	 * @param buffer
+	 *            the source text
+	 * @param offset
+	 *            the index of the first character
+	 * @param length
+	 *            the number of characters
+	 */
+	public SourceReader(char[] buffer, int offset, int length) {
+		super(new CharArrayReader(buffer, offset, length));
+		this.buffer = buffer;
+		this.start = offset;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * Create a reader over the given string.
+	 *
+	 * @param input
+	 *            the source text
+	 */
+	public SourceReader(String input) {
+		this(input.toCharArray(), 0, input.length());
+	}
+
+	/**
+	 * Memory-map the given file and decode it in one step with the platform
+	 * default charset, just like a FileReader would.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return a reader over the decoded content of the file
+	 * @throws FileNotFoundException
+	 *             if the file does not exist
+	 * @throws IOException
+	 *             if the file cannot be read or is too large to be mapped
+	 */
+	public static SourceReader open(File file) throws FileNotFoundException, IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + file);
+			}
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			CharBuffer chars = Charset.defaultCharset().decode(bytes);
+			return new SourceReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+		}
+	}
+
+	/**
+	 * @return a new reader over the same source text, positioned at its start
+	 */
+	public SourceReader reopen() {
+		return new SourceReader(buffer, start, end - start);
+	}
+
+	/**
+	 * @return a read-only view of the whole source text, independent of the
+	 *         position of this reader
+	 */
+	public CharBuffer chars() {
+		return CharBuffer.wrap(buffer, start, end - start).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the number of characters of the source text
+	 */
+	public int length() {
+		return end - start;
+	}
+
+	/**
+	 * @return the number of lines of the source text
+	 */
+	public int lineCount() {
+		int lines = 0;
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == '\n') {
+				lines++;
+			}
+		}
+		if (end > start && buffer[end - 1] != '\n') {
+			lines++;
+		}
+		return lines;
+	}
+
+	@Override
+	public int read() {
+		if (position < end) {
+			return buffer[position++];
+		}
+		return -1;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		int count = Math.min(len, end - position);
+		if (count <= 0) {
+			return -1;
+		}
+		System.arraycopy(buffer, position, cbuf, off, count);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public void unread(int c) throws IOException {
+		if (position == start || buffer[position - 1] != (char) c) {
+			throw new IOException("Pushback of a character that was not read before");
+		}
+		position--;
+	}
+
+	@Override
+	public void unread(char[] cbuf, int off, int len) throws IOException {
+		for (int i = off + len - 1; i >= off; i--) {
+			unread(cbuf[i]);
+		}
+	}
+
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0, Math.min(n, end - position));
+		position += count;
+		return count;
+	}
+
+	@Override
+	public boolean ready() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		position = end;
+	}
+}
@@ -1,5 +1,7 @@
 package minijava.printer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import minijava.analysis.AnalysisAdapter;
@@ -42,28 +44,86 @@ import minijava.node.Start;
  */
 public class AstPrinter {
 
+	/** the number of characters buffered before they are written out */
+	private static final int BUFFER_SIZE = 8192;
+
 	/**
 	 * @param n
 	 *            a node to print
 	 * @return a string representation of the given node
 	 */
 	public static String print(Node n) {
-		PrintVisitor printer = new PrintVisitor();
-		n.apply(printer);
-		return printer.result.toString();
+		StringBuilder result = new StringBuilder();
+		n.apply(new PrintVisitor(result));
+		return result.toString();
+	}
+
+	/**
+	 * Print a node without building its whole string representation. The
+	 * output is written in chunks of about {@value #BUFFER_SIZE} characters,
+	 * so the memory needed does not grow with the size of the AST.
+	 *
+	 * @param n
+	 *            a node to print
+	 * @param out
+	 *            the destination of the string representation, e.g. a Writer
+	 *            or a PrintStream. It is not flushed.
+	 * @throws IOException
+	 *             if the destination throws one
+	 */
+	public static void print(Node n, Appendable out) throws IOException {
+		PrintVisitor printer = new PrintVisitor(out);
+		try {
+			n.apply(printer);
+			printer.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 	}
 
 	/** the visitor for printing expressions */
 	private static class PrintVisitor extends AnalysisAdapter {
-		/** StringBuilder for building the result string */
-		private StringBuilder result = new StringBuilder();
+		/**
+		 * StringBuilder for building the result string. Unless it is the
+		 * destination itself, it is written out at the end of each line that
+		 * fills it to {@link AstPrinter#BUFFER_SIZE}.
+		 */
+		private final StringBuilder result;
+		/** the destination of the result */
+		private final Appendable out;
 		/**
 		 * the current indentation level of the code (how many tab characters to
 		 * insert before a line
 		 */
 		private int indentation = 0;
 
+		/**
+		 * @param out
+		 *            the destination of the result
+		 */
+		PrintVisitor(Appendable out) {
+			this.out = out;
+			this.result = out instanceof StringBuilder ? (StringBuilder) out : new StringBuilder(2 * BUFFER_SIZE);
+		}
+
+		/**
+		 * Write the buffered result to the destination
+		 */
+		private void flush() {
+			if (result != out) {
+				try {
+					out.append(result);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				result.setLength(0);
+			}
+		}
+
 		private void newlines(int count) {
+			if (result.length() >= BUFFER_SIZE) {
+				flush();
+			}
 			for (int i = 0; i < count; i++) {
 				result.append("\n");
 			}
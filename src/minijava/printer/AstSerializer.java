@@ -0,0 +1,843 @@
+package minijava.printer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import minijava.analysis.AnalysisAdapter;
+import minijava.node.AAddExp;
+import minijava.node.AAndExp;
+import minijava.node.AArrayAllocExp;
+import minijava.node.AArrayLookupExp;
+import minijava.node.AAssignStmt;
+import minijava.node.ABlockStmt;
+import minijava.node.ABoolType;
+import minijava.node.ACallStmt;
+import minijava.node.AClassDecl;
+import minijava.node.AClassType;
+import minijava.node.ACmpExp;
+import minijava.node.AFalseExp;
+import minijava.node.AFieldAccessExp;
+import minijava.node.AIdentifierExp;
+import minijava.node.AIfStmt;
+import minijava.node.AIntLiteralExp;
+import minijava.node.AIntType;
+import minijava.node.AIntarrayType;
+import minijava.node.AMainClass;
+import minijava.node.AMethodCallExp;
+import minijava.node.AMethodDecl;
+import minijava.node.AMultExp;
+import minijava.node.ANegExp;
+import minijava.node.ANotExp;
+import minijava.node.AObjAllocExp;
+import minijava.node.AProgram;
+import minijava.node.ASubExp;
+import minijava.node.AThisExp;
+import minijava.node.ATrueExp;
+import minijava.node.ATypedVar;
+import minijava.node.AWhileStmt;
+import minijava.node.EOF;
+import minijava.node.Node;
+import minijava.node.PClassDecl;
+import minijava.node.PExp;
+import minijava.node.PMainClass;
+import minijava.node.PMethodDecl;
+import minijava.node.PProgram;
+import minijava.node.PStmt;
+import minijava.node.PType;
+import minijava.node.PTypedVar;
+import minijava.node.Start;
+import minijava.node.TId;
+import minijava.node.TInteger;
+import minijava.node.Token;
+
+/**
+ * A compact binary form of an AST, which can be read back much faster than
+ * the source text can be parsed again. The line of every node and the line
+ * and position of every token are kept, so error messages about a read AST
+ * are the same as about the parsed one.
+ *
+ * The format consists of a header (magic number and format version), a table
+ * of all distinct token texts and the nodes in preorder. Each production node
+ * is a tag byte for its alternative followed by its children; a token is the
+ * index of its text in the table followed by its position; a list is its
+ * length followed by its elements. All numbers are unsigned variable length
+ * ints of 7 bits per byte. Lines are only stored when they differ from the
+ * line of the previous node, as the zigzag encoded difference after the tag
+ * or the text index, whose highest respectively lowest bit marks the change.
+ */
+public class AstSerializer {
+
+	/** the first int of the format */
+	private static final int MAGIC = 0x4d4a4153;
+
+	/** the version of the format */
+	public static final int FORMAT_VERSION = 1;
+
+	// tags of the alternatives
+	private static final byte PROGRAM = 1;
+	private static final byte MAIN_CLASS = 2;
+	private static final byte CLASS_DECL = 3;
+	private static final byte TYPED_VAR = 4;
+	private static final byte METHOD_DECL = 5;
+	private static final byte INTARRAY_TYPE = 6;
+	private static final byte BOOL_TYPE = 7;
+	private static final byte INT_TYPE = 8;
+	private static final byte CLASS_TYPE = 9;
+	private static final byte BLOCK_STMT = 10;
+	private static final byte ASSIGN_STMT = 11;
+	private static final byte IF_STMT = 12;
+	private static final byte WHILE_STMT = 13;
+	private static final byte CALL_STMT = 14;
+	private static final byte AND_EXP = 15;
+	private static final byte CMP_EXP = 16;
+	private static final byte ADD_EXP = 17;
+	private static final byte SUB_EXP = 18;
+	private static final byte MULT_EXP = 19;
+	private static final byte NOT_EXP = 20;
+	private static final byte NEG_EXP = 21;
+	private static final byte INT_LITERAL_EXP = 22;
+	private static final byte IDENTIFIER_EXP = 23;
+	private static final byte ARRAY_ALLOC_EXP = 24;
+	private static final byte OBJ_ALLOC_EXP = 25;
+	private static final byte ARRAY_LOOKUP_EXP = 26;
+	private static final byte FIELD_ACCESS_EXP = 27;
+	private static final byte METHOD_CALL_EXP = 28;
+	private static final byte TRUE_EXP = 29;
+	private static final byte FALSE_EXP = 30;
+	private static final byte THIS_EXP = 31;
+	/** the tag of a missing optional token */
+	private static final byte NONE = 0;
+	/** the bit of a tag that marks a node on another line than the last one */
+	private static final int LINE_CHANGED = 0x80;
+
+	/**
+	 * @param ast
+	 *            an AST
+	 * @return the binary form of the AST
+	 */
+	public static byte[] serialize(Start ast) {
+		WriteVisitor writer = new WriteVisitor();
+		ast.apply(writer);
+
+		Output header = new Output(16 + 8 * writer.texts.size());
+		header.writeInt(MAGIC);
+		header.writeVarint(FORMAT_VERSION);
+		header.writeVarint(writer.texts.size());
+		for (String text : writer.texts) {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			header.writeVarint(bytes.length);
+			header.write(bytes, 0, bytes.length);
+		}
+		byte[] result = Arrays.copyOf(header.bytes, header.size + writer.out.size);
+		System.arraycopy(writer.out.bytes, 0, result, header.size, writer.out.size);
+		return result;
+	}
+
+	/**
+	 * @param bytes
+	 *            the binary form of an AST, from the position to the limit of
+	 *            the buffer. The position is advanced to the end of the AST.
+	 * @return the AST
+	 * @throws IOException
+	 *             if the bytes are no AST of this format version
+	 */
+	public static Start deserialize(ByteBuffer bytes) throws IOException {
+		try {
+			return new Reader(bytes).readStart();
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated AST");
+		}
+	}
+
+	/**
+	 * Memory-map the given file and read the AST in it
+	 *
+	 * @param file
+	 *            a file written with the bytes of {@link #serialize(Start)}
+	 * @return the AST
+	 * @throws IOException
+	 *             if the file cannot be read or contains no AST
+	 */
+	public static Start deserialize(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return deserialize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @param value
+	 *            an int
+	 * @return the value with the sign in the lowest bit, so that small
+	 *         negative numbers are small unsigned numbers
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * A growable byte array
+	 */
+	private static final class Output {
+		/** the bytes, valid up to size */
+		private byte[] bytes;
+		/** the number of written bytes */
+		private int size;
+
+		/**
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		Output(int capacity) {
+			bytes = new byte[capacity];
+		}
+
+		/**
+		 * @param count
+		 *            the number of bytes about to be written
+		 */
+		private void reserve(int count) {
+			if (size + count > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + count));
+			}
+		}
+
+		void writeByte(int b) {
+			reserve(1);
+			bytes[size++] = (byte) b;
+		}
+
+		void writeInt(int value) {
+			reserve(4);
+			bytes[size++] = (byte) (value >>> 24);
+			bytes[size++] = (byte) (value >>> 16);
+			bytes[size++] = (byte) (value >>> 8);
+			bytes[size++] = (byte) value;
+		}
+
+		void writeVarint(int value) {
+			reserve(5);
+			int v = value;
+			while ((v & ~0x7f) != 0) {
+				bytes[size++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			bytes[size++] = (byte) v;
+		}
+
+		void write(byte[] b, int off, int len) {
+			reserve(len);
+			System.arraycopy(b, off, bytes, size, len);
+			size += len;
+		}
+	}
+
+	/** the visitor that writes the nodes */
+	private static class WriteVisitor extends AnalysisAdapter {
+		/** the nodes */
+		private final Output out = new Output(1 << 12);
+		/** the distinct token texts in the order of their first occurrence */
+		private final List<String> texts = new ArrayList<String>();
+		/** the index of each token text in texts */
+		private final Map<String, Integer> textIndex = new HashMap<String, Integer>();
+		/** the line of the last written node */
+		private int line;
+
+		/**
+		 * @param tag
+		 *            the tag of the node
+		 * @param node
+		 *            a production node
+		 */
+		private void node(byte tag, Node node) {
+			if (node.getLine() == line) {
+				out.writeByte(tag);
+			} else {
+				out.writeByte(tag | LINE_CHANGED);
+				line(node.getLine());
+			}
+		}
+
+		/**
+		 * @param next
+		 *            the line of the next node
+		 */
+		private void line(int next) {
+			out.writeVarint(zigzag(next - line));
+			line = next;
+		}
+
+		/**
+		 * @param token
+		 *            a token
+		 */
+		private void token(Token token) {
+			Integer index = textIndex.get(token.getText());
+			if (index == null) {
+				index = texts.size();
+				texts.add(token.getText());
+				textIndex.put(token.getText(), index);
+			}
+			if (token.getLine() == line) {
+				out.writeVarint(index << 1);
+			} else {
+				out.writeVarint(index << 1 | 1);
+				line(token.getLine());
+			}
+			out.writeVarint(token.getPos());
+		}
+
+		/**
+		 * @param nodes
+		 *            a list of production nodes
+		 */
+		private void list(List<? extends Node> nodes) {
+			out.writeVarint(nodes.size());
+			for (Node node : nodes) {
+				node.apply(this);
+			}
+		}
+
+		@Override
+		public void caseStart(Start node) {
+			node.getPProgram().apply(this);
+			line(node.getEOF().getLine());
+			out.writeVarint(node.getEOF().getPos());
+		}
+
+		@Override
+		public void caseAProgram(AProgram node) {
+			node(PROGRAM, node);
+			node.getMain().apply(this);
+			list(node.getDecls());
+		}
+
+		@Override
+		public void caseAMainClass(AMainClass node) {
+			node(MAIN_CLASS, node);
+			token(node.getId());
+			token(node.getMainArgs());
+			list(node.getLocalVars());
+			list(node.getStms());
+		}
+
+		@Override
+		public void caseAClassDecl(AClassDecl node) {
+			node(CLASS_DECL, node);
+			token(node.getId());
+			if (node.getSuper() == null) {
+				out.writeByte(NONE);
+			} else {
+				out.writeByte(CLASS_DECL);
+				token(node.getSuper());
+			}
+			list(node.getFields());
+			list(node.getMethods());
+		}
+
+		@Override
+		public void caseATypedVar(ATypedVar node) {
+			node(TYPED_VAR, node);
+			node.getType().apply(this);
+			token(node.getName());
+		}
+
+		@Override
+		public void caseAMethodDecl(AMethodDecl node) {
+			node(METHOD_DECL, node);
+			node.getRetType().apply(this);
+			token(node.getName());
+			list(node.getFormalParams());
+			list(node.getLocalVars());
+			list(node.getStmts());
+			node.getRetExp().apply(this);
+		}
+
+		@Override
+		public void caseAIntarrayType(AIntarrayType node) {
+			node(INTARRAY_TYPE, node);
+		}
+
+		@Override
+		public void caseABoolType(ABoolType node) {
+			node(BOOL_TYPE, node);
+		}
+
+		@Override
+		public void caseAIntType(AIntType node) {
+			node(INT_TYPE, node);
+		}
+
+		@Override
+		public void caseAClassType(AClassType node) {
+			node(CLASS_TYPE, node);
+			token(node.getName());
+		}
+
+		@Override
+		public void caseABlockStmt(ABlockStmt node) {
+			node(BLOCK_STMT, node);
+			list(node.getStmts());
+		}
+
+		@Override
+		public void caseAAssignStmt(AAssignStmt node) {
+			node(ASSIGN_STMT, node);
+			node.getLhs().apply(this);
+			node.getRhs().apply(this);
+		}
+
+		@Override
+		public void caseAIfStmt(AIfStmt node) {
+			node(IF_STMT, node);
+			node.getCond().apply(this);
+			node.getTstmt().apply(this);
+			node.getFstmt().apply(this);
+		}
+
+		@Override
+		public void caseAWhileStmt(AWhileStmt node) {
+			node(WHILE_STMT, node);
+			node.getCond().apply(this);
+			node.getBody().apply(this);
+		}
+
+		@Override
+		public void caseACallStmt(ACallStmt node) {
+			node(CALL_STMT, node);
+			node.getExp().apply(this);
+		}
+
+		@Override
+		public void caseAAndExp(AAndExp node) {
+			node(AND_EXP, node);
+			node.getLeft().apply(this);
+			node.getRight().apply(this);
+		}
+
+		@Override
+		public void caseACmpExp(ACmpExp node) {
+			node(CMP_EXP, node);
+			node.getLeft().apply(this);
+			node.getRight().apply(this);
+		}
+
+		@Override
+		public void caseAAddExp(AAddExp node) {
+			node(ADD_EXP, node);
+			node.getLeft().apply(this);
+			node.getRight().apply(this);
+		}
+
+		@Override
+		public void caseASubExp(ASubExp node) {
+			node(SUB_EXP, node);
+			node.getLeft().apply(this);
+			node.getRight().apply(this);
+		}
+
+		@Override
+		public void caseAMultExp(AMultExp node) {
+			node(MULT_EXP, node);
+			node.getLeft().apply(this);
+			node.getRight().apply(this);
+		}
+
+		@Override
+		public void caseANotExp(ANotExp node) {
+			node(NOT_EXP, node);
+			node.getExp().apply(this);
+		}
+
+		@Override
+		public void caseANegExp(ANegExp node) {
+			node(NEG_EXP, node);
+			node.getExp().apply(this);
+		}
+
+		@Override
+		public void caseAIntLiteralExp(AIntLiteralExp node) {
+			node(INT_LITERAL_EXP, node);
+			token(node.getInteger());
+		}
+
+		@Override
+		public void caseAIdentifierExp(AIdentifierExp node) {
+			node(IDENTIFIER_EXP, node);
+			token(node.getName());
+		}
+
+		@Override
+		public void caseAArrayAllocExp(AArrayAllocExp node) {
+			node(ARRAY_ALLOC_EXP, node);
+			node.getSize().apply(this);
+		}
+
+		@Override
+		public void caseAObjAllocExp(AObjAllocExp node) {
+			node(OBJ_ALLOC_EXP, node);
+			token(node.getName());
+		}
+
+		@Override
+		public void caseAArrayLookupExp(AArrayLookupExp node) {
+			node(ARRAY_LOOKUP_EXP, node);
+			node.getExp().apply(this);
+			node.getOffset().apply(this);
+		}
+
+		@Override
+		public void caseAFieldAccessExp(AFieldAccessExp node) {
+			node(FIELD_ACCESS_EXP, node);
+			node.getObj().apply(this);
+			token(node.getName());
+		}
+
+		@Override
+		public void caseAMethodCallExp(AMethodCallExp node) {
+			node(METHOD_CALL_EXP, node);
+			node.getObj().apply(this);
+			token(node.getName());
+			list(node.getArgs());
+		}
+
+		@Override
+		public void caseATrueExp(ATrueExp node) {
+			node(TRUE_EXP, node);
+		}
+
+		@Override
+		public void caseAFalseExp(AFalseExp node) {
+			node(FALSE_EXP, node);
+		}
+
+		@Override
+		public void caseAThisExp(AThisExp node) {
+			node(THIS_EXP, node);
+		}
+	}
+
+	/**
+	 * Reads the nodes from a buffer by recursive descent
+	 */
+	private static final class Reader {
+		/** the input */
+		private final ByteBuffer in;
+		/** the token texts */
+		private final String[] texts;
+		/** the line of the last read node */
+		private int line;
+
+		/**
+		 * Read the header and the token texts
+		 *
+		 * @param in
+		 *            the input
+		 * @throws IOException
+		 *             if the header does not match
+		 */
+		Reader(ByteBuffer in) throws IOException {
+			this.in = in;
+			if (in.getInt() != MAGIC) {
+				throw new IOException("Not an AST");
+			}
+			int version = readVarint();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported AST format version " + version);
+			}
+			texts = new String[readCount()];
+			byte[] buffer = new byte[64];
+			for (int i = 0; i < texts.length; i++) {
+				int length = readVarint();
+				if (length > buffer.length) {
+					buffer = new byte[Math.max(length, 2 * buffer.length)];
+				}
+				in.get(buffer, 0, length);
+				texts[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+			}
+		}
+
+		private int readVarint() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = in.get();
+				value |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed number in AST");
+		}
+
+		/**
+		 * @return the length of a list, which cannot be larger than the rest
+		 *         of the input
+		 * @throws IOException
+		 *             if the length is out of range
+		 */
+		private int readCount() throws IOException {
+			int count = readVarint();
+			if (count < 0 || count > in.remaining()) {
+				throw new IOException("List length " + count + " out of range");
+			}
+			return count;
+		}
+
+		private int readLine() throws IOException {
+			int delta = readVarint();
+			line += (delta >>> 1) ^ -(delta & 1);
+			return line;
+		}
+
+		/**
+		 * Read a tag and the line of its node
+		 *
+		 * @return the tag
+		 * @throws IOException
+		 *             if the line is malformed
+		 */
+		private byte readTag() throws IOException {
+			byte tag = in.get();
+			if ((tag & LINE_CHANGED) != 0) {
+				readLine();
+			}
+			return (byte) (tag & ~LINE_CHANGED);
+		}
+
+		/**
+		 * Read the text index and the line of a token
+		 *
+		 * @return the text of the token
+		 * @throws IOException
+		 *             if the index is out of range
+		 */
+		private String readText() throws IOException {
+			int value = readVarint();
+			if ((value & 1) != 0) {
+				readLine();
+			}
+			int index = value >>> 1;
+			if (index >= texts.length) {
+				throw new IOException("Token text " + index + " out of range");
+			}
+			return texts[index];
+		}
+
+		private TId readId() throws IOException {
+			String text = readText();
+			return new TId(text, line, readVarint());
+		}
+
+		private TInteger readInteger() throws IOException {
+			String text = readText();
+			return new TInteger(text, line, readVarint());
+		}
+
+		/**
+		 * @param expected
+		 *            the expected tag
+		 * @return the line of the node
+		 * @throws IOException
+		 *             if another tag is read
+		 */
+		private int expect(byte expected) throws IOException {
+			byte tag = readTag();
+			if (tag != expected) {
+				throw new IOException("Unexpected tag " + tag + " in AST, expected " + expected);
+			}
+			return line;
+		}
+
+		private static <N extends Node> N at(N node, int line) {
+			node.setLine(line);
+			return node;
+		}
+
+		Start readStart() throws IOException {
+			PProgram program = readProgram();
+			int eofLine = readLine();
+			return new Start(program, new EOF("", eofLine, readVarint()));
+		}
+
+		private PProgram readProgram() throws IOException {
+			int nodeLine = expect(PROGRAM);
+			PMainClass main = readMainClass();
+			int count = readCount();
+			List<PClassDecl> decls = new ArrayList<PClassDecl>(count);
+			for (int i = 0; i < count; i++) {
+				decls.add(readClassDecl());
+			}
+			return at(new AProgram(main, decls), nodeLine);
+		}
+
+		private PMainClass readMainClass() throws IOException {
+			int nodeLine = expect(MAIN_CLASS);
+			TId id = readId();
+			TId mainArgs = readId();
+			List<PTypedVar> localVars = readTypedVars();
+			List<PStmt> stms = readStmts();
+			return at(new AMainClass(id, mainArgs, localVars, stms), nodeLine);
+		}
+
+		private PClassDecl readClassDecl() throws IOException {
+			int nodeLine = expect(CLASS_DECL);
+			TId id = readId();
+			TId superId = in.get() == NONE ? null : readId();
+			List<PTypedVar> fields = readTypedVars();
+			int count = readCount();
+			List<PMethodDecl> methods = new ArrayList<PMethodDecl>(count);
+			for (int i = 0; i < count; i++) {
+				methods.add(readMethodDecl());
+			}
+			return at(new AClassDecl(id, superId, fields, methods), nodeLine);
+		}
+
+		private List<PTypedVar> readTypedVars() throws IOException {
+			int count = readCount();
+			List<PTypedVar> vars = new ArrayList<PTypedVar>(count);
+			for (int i = 0; i < count; i++) {
+				int nodeLine = expect(TYPED_VAR);
+				PType type = readType();
+				vars.add(at(new ATypedVar(type, readId()), nodeLine));
+			}
+			return vars;
+		}
+
+		private PMethodDecl readMethodDecl() throws IOException {
+			int nodeLine = expect(METHOD_DECL);
+			PType retType = readType();
+			TId name = readId();
+			List<PTypedVar> formalParams = readTypedVars();
+			List<PTypedVar> localVars = readTypedVars();
+			List<PStmt> stmts = readStmts();
+			PExp retExp = readExp();
+			return at(new AMethodDecl(retType, name, formalParams, localVars, stmts, retExp), nodeLine);
+		}
+
+		private PType readType() throws IOException {
+			byte tag = readTag();
+			int nodeLine = line;
+			switch (tag) {
+			case INTARRAY_TYPE:
+				return at(new AIntarrayType(), nodeLine);
+			case BOOL_TYPE:
+				return at(new ABoolType(), nodeLine);
+			case INT_TYPE:
+				return at(new AIntType(), nodeLine);
+			case CLASS_TYPE:
+				return at(new AClassType(readId()), nodeLine);
+			default:
+				throw new IOException("Unexpected tag " + tag + " in AST, expected a type");
+			}
+		}
+
+		private List<PStmt> readStmts() throws IOException {
+			int count = readCount();
+			List<PStmt> stmts = new ArrayList<PStmt>(count);
+			for (int i = 0; i < count; i++) {
+				stmts.add(readStmt());
+			}
+			return stmts;
+		}
+
+		private PStmt readStmt() throws IOException {
+			byte tag = readTag();
+			int nodeLine = line;
+			switch (tag) {
+			case BLOCK_STMT:
+				return at(new ABlockStmt(readStmts()), nodeLine);
+			case ASSIGN_STMT: {
+				PExp lhs = readExp();
+				return at(new AAssignStmt(lhs, readExp()), nodeLine);
+			}
+			case IF_STMT: {
+				PExp cond = readExp();
+				PStmt tstmt = readStmt();
+				return at(new AIfStmt(cond, tstmt, readStmt()), nodeLine);
+			}
+			case WHILE_STMT: {
+				PExp cond = readExp();
+				return at(new AWhileStmt(cond, readStmt()), nodeLine);
+			}
+			case CALL_STMT:
+				return at(new ACallStmt(readExp()), nodeLine);
+			default:
+				throw new IOException("Unexpected tag " + tag + " in AST, expected a statement");
+			}
+		}
+
+		private PExp readExp() throws IOException {
+			byte tag = readTag();
+			int nodeLine = line;
+			switch (tag) {
+			case AND_EXP: {
+				PExp left = readExp();
+				return at(new AAndExp(left, readExp()), nodeLine);
+			}
+			case CMP_EXP: {
+				PExp left = readExp();
+				return at(new ACmpExp(left, readExp()), nodeLine);
+			}
+			case ADD_EXP: {
+				PExp left = readExp();
+				return at(new AAddExp(left, readExp()), nodeLine);
+			}
+			case SUB_EXP: {
+				PExp left = readExp();
+				return at(new ASubExp(left, readExp()), nodeLine);
+			}
+			case MULT_EXP: {
+				PExp left = readExp();
+				return at(new AMultExp(left, readExp()), nodeLine);
+			}
+			case NOT_EXP:
+				return at(new ANotExp(readExp()), nodeLine);
+			case NEG_EXP:
+				return at(new ANegExp(readExp()), nodeLine);
+			case INT_LITERAL_EXP:
+				return at(new AIntLiteralExp(readInteger()), nodeLine);
+			case IDENTIFIER_EXP:
+				return at(new AIdentifierExp(readId()), nodeLine);
+			case ARRAY_ALLOC_EXP:
+				return at(new AArrayAllocExp(readExp()), nodeLine);
+			case OBJ_ALLOC_EXP:
+				return at(new AObjAllocExp(readId()), nodeLine);
+			case ARRAY_LOOKUP_EXP: {
+				PExp array = readExp();
+				return at(new AArrayLookupExp(array, readExp()), nodeLine);
+			}
+			case FIELD_ACCESS_EXP: {
+				PExp obj = readExp();
+				return at(new AFieldAccessExp(obj, readId()), nodeLine);
+			}
+			case METHOD_CALL_EXP: {
+				PExp obj = readExp();
+				TId name = readId();
+				int count = readCount();
+				List<PExp> args = new ArrayList<PExp>(count);
+				for (int i = 0; i < count; i++) {
+					args.add(readExp());
+				}
+				return at(new AMethodCallExp(obj, name, args), nodeLine);
+			}
+			case TRUE_EXP:
+				return at(new ATrueExp(), nodeLine);
+			case FALSE_EXP:
+				return at(new AFalseExp(), nodeLine);
+			case THIS_EXP:
+				return at(new AThisExp(), nodeLine);
+			default:
+				throw new IOException("Unexpected tag " + tag + " in AST, expected an expression");
+			}
+		}
+	}
+}
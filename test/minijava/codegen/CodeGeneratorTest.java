@@ -0,0 +1,127 @@
+package minijava.codegen;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import minijava.analysis.TypeChecker;
+import minijava.interpreter.Interpreter;
+import minijava.interpreter.InterpreterTest;
+import minijava.interpreter.InterpreterTest.LimitedOutputStream;
+import minijava.interpreter.InterpreterTest.OutputLimitReached;
+import minijava.interpreter.MjRuntimeException;
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import de.unifr.proglang.testing.LabeledParameterized;
+import de.unifr.proglang.testing.LabeledParameterized.LabeledParameters;
+
+/**
+ * Compiles every well typed program of the test data to class files, loads
+ * them with the verifier enabled and compares their output with the
+ * interpreter.
+ */
+@RunWith(LabeledParameterized.class)
+public class CodeGeneratorTest {
+
+	@Rule
+	public Timeout globalTimeout = new Timeout(10000);
+
+	/**
+	 * The program to compile.
+	 */
+	private final File inputFile;
+
+	/**
+	 * Create a new test case (to be called by JUnit, not by you)
+	 *
+	 * @param inputFile
+	 *            the program to compile
+	 */
+	public CodeGeneratorTest(File inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	@Test
+	public void testSameOutputAsInterpreter() throws Exception {
+		Start ast = Main.parseToAST(inputFile);
+		Map<String, byte[]> classes = new CodeGenerator(TypeChecker.typecheckOrFail(ast)).generate();
+
+		LimitedOutputStream actual = new LimitedOutputStream();
+		String outcome = InterpreterTest.runMain(new GeneratedClassLoader(classes),
+				InterpreterTest.mainClassName(ast), new PrintStream(actual, true));
+
+		LimitedOutputStream expected = new LimitedOutputStream();
+		String expectedOutcome = "terminated";
+		try {
+			Interpreter.run(ast, new PrintStream(expected, true));
+		} catch (MjRuntimeException e) {
+			expectedOutcome = "runtime error";
+		} catch (OutputLimitReached e) {
+			expectedOutcome = "output limit reached";
+		}
+
+		Assert.assertEquals(expected.toString(), actual.toString());
+		Assert.assertEquals(inputFile.getName(), expectedOutcome, outcome);
+	}
+
+	@Test
+	public void testOneClassPerDeclaration() throws Exception {
+		Start ast = Main.parseToAST(inputFile);
+		Map<String, byte[]> classes = new CodeGenerator(TypeChecker.typecheckOrFail(ast)).generate();
+		Assert.assertEquals(InterpreterTest.mainClassName(ast), classes.keySet().iterator().next());
+		for (byte[] classFile : classes.values()) {
+			Assert.assertEquals(0xCAFEBABE, ((classFile[0] & 0xff) << 24) | ((classFile[1] & 0xff) << 16)
+					| ((classFile[2] & 0xff) << 8) | (classFile[3] & 0xff));
+		}
+	}
+
+	/**
+	 * Defines the generated classes, delegating everything else to the
+	 * system class loader
+	 */
+	private static class GeneratedClassLoader extends ClassLoader {
+		/** the class files by name */
+		private final Map<String, byte[]> classes;
+
+		/**
+		 * @param classes
+		 *            the class files by name
+		 */
+		GeneratedClassLoader(Map<String, byte[]> classes) {
+			super(CodeGeneratorTest.class.getClassLoader());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] classFile = classes.get(name);
+			if (classFile == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+
+	@LabeledParameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> ctorParams = new ArrayList<Object[]>();
+		File[] files = new File("testdata/typechecker/ok").listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.isFile()) {
+					ctorParams.add(new Object[] { f.getName(), f });
+				}
+			}
+		}
+		return ctorParams;
+	}
+}
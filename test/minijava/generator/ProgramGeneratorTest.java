@@ -0,0 +1,43 @@
+package minijava.generator;
+
+import minijava.analysis.TypeChecker;
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProgramGeneratorTest {
+
+	@Test
+	public void testDeterministic() {
+		ProgramGenerator generator = new ProgramGenerator(5, 2, 3, 4, 2, 3);
+		Assert.assertEquals(generator.generate(7), generator.generate(7));
+		Assert.assertEquals(generator.generate(), new ProgramGenerator(5, 2, 3, 4, 2, 3).generate());
+	}
+
+	@Test
+	public void testTypeCorrect() throws Exception {
+		int[][] shapes = { { 1, 0, 1, 1, 0, 0 }, { 10, 3, 4, 5, 3, 4 }, { 20, 19, 2, 2, 6, 1 },
+				{ 3, 1, 6, 20, 1, 12 } };
+		for (int[] s : shapes) {
+			for (long seed = 0; seed < 5; seed++) {
+				String source = new ProgramGenerator(s[0], s[1], s[2], s[3], s[4], s[5]).generate(seed);
+				Start ast = Main.parseToAST(source);
+				TypeChecker.typecheckOrFail(ast);
+			}
+		}
+	}
+
+	@Test
+	public void testScalesWithClasses() {
+		int small = new ProgramGenerator(10, 2, 2, 2, 2, 2).generate().length();
+		int large = new ProgramGenerator(100, 2, 2, 2, 2, 2).generate().length();
+		Assert.assertTrue(large > 5 * small);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidShape() {
+		new ProgramGenerator(0, 0, 1, 1, 0, 0);
+	}
+}
@@ -0,0 +1,212 @@
+package minijava.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import minijava.main.Main;
+import minijava.node.AMainClass;
+import minijava.node.AProgram;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import de.unifr.proglang.testing.LabeledParameterized;
+import de.unifr.proglang.testing.LabeledParameterized.LabeledParameters;
+
+/**
+ * Runs every well typed program of the test data with the interpreter and
+ * compares its output with the output of the same program compiled by javac.
+ * MiniJava is a subset of Java, so javac serves as the reference.
+ */
+@RunWith(LabeledParameterized.class)
+public class InterpreterTest {
+
+	@Rule
+	public Timeout globalTimeout = new Timeout(10000);
+
+	/**
+	 * The program to run.
+	 */
+	private final File inputFile;
+
+	/**
+	 * Create a new test case (to be called by JUnit, not by you)
+	 * 
+	 * @param inputFile
+	 *            the program to run
+	 */
+	public InterpreterTest(File inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	@Test
+	public void testSameOutputAsJava() throws Exception {
+		Start ast = Main.parseToAST(inputFile);
+
+		LimitedOutputStream actual = new LimitedOutputStream();
+		String outcome = "terminated";
+		try {
+			Interpreter.run(ast, new PrintStream(actual, true));
+		} catch (MjRuntimeException e) {
+			outcome = "runtime error";
+		} catch (OutputLimitReached e) {
+			outcome = "output limit reached";
+		}
+
+		LimitedOutputStream expected = new LimitedOutputStream();
+		String expectedOutcome = runWithJava(inputFile, mainClassName(ast), new PrintStream(expected, true));
+
+		Assert.assertEquals(expected.toString(), actual.toString());
+		Assert.assertEquals(inputFile.getName(), expectedOutcome, outcome);
+	}
+
+	/**
+	 * Thrown when a program writes more than {@link LimitedOutputStream#LIMIT}
+	 * bytes, so that programs with infinite loops can be compared, too.
+	 */
+	public static class OutputLimitReached extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Collects the output of a program up to a limit
+	 */
+	public static class LimitedOutputStream extends ByteArrayOutputStream {
+		/** the maximal number of bytes */
+		public static final int LIMIT = 16 * 1024;
+
+		@Override
+		public synchronized void write(int b) {
+			if (size() >= LIMIT) {
+				throw new OutputLimitReached();
+			}
+			super.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			for (int i = 0; i < len; i++) {
+				write(b[off + i]);
+			}
+		}
+	}
+
+	/**
+	 * @param ast
+	 *            a program
+	 * @return the name of its main class
+	 */
+	public static String mainClassName(Start ast) {
+		return ((AMainClass) ((AProgram) ast.getPProgram()).getMain()).getId().getText();
+	}
+
+	/**
+	 * Compile the file with javac and run its main class.
+	 * 
+	 * @param file
+	 *            a MiniJava program
+	 * @param mainClass
+	 *            the name of the main class
+	 * @param out
+	 *            receives the output of the program
+	 * @return how the program ended: "terminated", "runtime error" or
+	 *         "output limit reached"
+	 * @throws Exception
+	 *             if the program cannot be compiled or loaded
+	 */
+	static String runWithJava(File file, String mainClass, PrintStream out) throws Exception {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(javac);
+		File dir = Files.createTempDirectory("minijava-reference").toFile();
+		try {
+			int status = javac.run(null, null, null, "-nowarn", "-d", dir.getPath(), file.getPath());
+			Assert.assertEquals("javac failed on " + file, 0, status);
+
+			try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() })) {
+				return runMain(loader, mainClass, out);
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	/**
+	 * Delete a file or a directory with its contents.
+	 * 
+	 * @param file
+	 *            the file or directory
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Run the main method of a class with System.out redirected.
+	 * 
+	 * @param loader
+	 *            the class loader of the program
+	 * @param mainClass
+	 *            the name of the main class
+	 * @param out
+	 *            receives the output of the program
+	 * @return how the program ended: "terminated", "runtime error" or
+	 *         "output limit reached"
+	 * @throws Exception
+	 *             if the main class cannot be loaded
+	 */
+	public static String runMain(ClassLoader loader, String mainClass, PrintStream out) throws Exception {
+		Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+		main.setAccessible(true);
+		synchronized (System.class) {
+			PrintStream systemOut = System.out;
+			System.setOut(out);
+			try {
+				main.invoke(null, (Object) new String[0]);
+				return "terminated";
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof OutputLimitReached) {
+					return "output limit reached";
+				}
+				return "runtime error";
+			} finally {
+				System.setOut(systemOut);
+			}
+		}
+	}
+
+	@LabeledParameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> ctorParams = new ArrayList<Object[]>();
+		File[] files = new File("testdata/typechecker/ok").listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.isFile()) {
+					ctorParams.add(new Object[] { f.getName(), f });
+				}
+			}
+		}
+		return ctorParams;
+	}
+}
@@ -0,0 +1,73 @@
+package minijava.ir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassHierarchyAnalysisTest {
+
+	private static List<Call> calls(IrProgram program) {
+		List<Call> calls = new ArrayList<Call>();
+		for (IrMethod m : program.getMethods()) {
+			for (BasicBlock b : m.getBlocks()) {
+				for (Instruction i : b.getInstructions()) {
+					if (i instanceof Call) {
+						calls.add((Call) i);
+					}
+				}
+			}
+		}
+		return calls;
+	}
+
+	@Test
+	public void testHierarchy() throws Exception {
+		Start ast = Main.parseToAST("class Main { public static void main(String[] args) {"
+				+ " System.out.println(new Test().run()); } }\n"
+				+ "class Test { public int run() { A a; B b; C c; int x; a = new B(); b = new B(); c = new D();"
+				+ " x = a.m(); x = a.n(); x = b.m(); x = c.m(); return x; } }\n"
+				+ "class A { public int m() { return 1; } public int n() { return this.m(); } }\n"
+				+ "class B extends A { public int m() { return 2; } }\n"
+				+ "class C extends A { }\n"
+				+ "class D extends C { public int n() { return 3; } }");
+		IrProgram program = SsaTest.lower(ast);
+		ClassHierarchyAnalysis cha = new ClassHierarchyAnalysis(program);
+		List<String> kinds = new ArrayList<String>();
+		for (Call call : calls(program)) {
+			kinds.add(call.getTarget().getQualifiedName() + (cha.isMonomorphic(call) ? " direct" : " virtual"));
+		}
+		// a.m() and this.m() can run B.m, a.n() can run D.n; c.m() only A.m
+		Assert.assertEquals("[Test.run direct, A.m virtual, A.n virtual, B.m direct, A.m direct, A.m virtual]", kinds.toString());
+		Assert.assertEquals(3, cha.devirtualize());
+		Assert.assertEquals(SsaTest.run(ast, null), SsaTest.run(ast, program));
+	}
+
+	@Test
+	public void testTestdata() throws Exception {
+		for (File file : new File("testdata/typechecker/ok").listFiles()) {
+			Start ast = Main.parseToAST(file);
+			IrProgram program = SsaTest.lower(ast);
+			int direct = new ClassHierarchyAnalysis(program).devirtualize();
+			if (file.getName().equals("TreeVisitor.java")) {
+				// only v.visit(this) can run Visitor.visit or MyVisitor.visit
+				Assert.assertEquals(91, direct);
+				Assert.assertEquals(92, ClassHierarchyAnalysis.callCount(program));
+				for (Call call : calls(program)) {
+					if (call.isVirtual()) {
+						Assert.assertEquals("Visitor.visit", call.getTarget().getQualifiedName());
+					}
+				}
+			} else if (file.getName().equals("BinaryTree.java")) {
+				Assert.assertEquals(78, direct);
+				Assert.assertEquals(78, ClassHierarchyAnalysis.callCount(program));
+			}
+			Assert.assertEquals(file.getName(), SsaTest.run(ast, null), SsaTest.run(ast, program));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package minijava.ir;
+
+import java.io.File;
+
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConstantPropagationTest {
+
+	private static String program(String body) {
+		return "class Main { public static void main(String[] args) { System.out.println(new A().run(7)); } }\n"
+				+ "class A { public int run(int n) { " + body + " } }";
+	}
+
+	private static IrMethod optimize(IrProgram program) {
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		SsaBuilder.construct(run);
+		ConstantPropagation.propagate(run);
+		SsaTest.assertSsa(run);
+		return run;
+	}
+
+	@Test
+	public void testTestdata() throws Exception {
+		for (File file : new File("testdata/typechecker/ok").listFiles()) {
+			Start ast = Main.parseToAST(file);
+			String expected = SsaTest.run(ast, null);
+			IrProgram program = SsaTest.lower(ast);
+			SsaBuilder.construct(program);
+			ConstantPropagation.propagate(program);
+			DeadCodeElimination.eliminate(program);
+			for (IrMethod m : program.getMethods()) {
+				SsaTest.assertSsa(m);
+			}
+			Assert.assertEquals(file.getName(), expected, SsaTest.run(ast, program));
+			SsaDestructor.destruct(program);
+			Assert.assertEquals(file.getName(), expected, SsaTest.run(ast, program));
+		}
+	}
+
+	@Test
+	public void testFolding() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST(program("int x; boolean b; x = 2147483647; x = x + 1;"
+				+ " System.out.println(x); System.out.println(x * 3 - 1); b = !(x < 0) && true;"
+				+ " if (b) { x = 1; } else { x = 0 - x; } return x;")));
+		IrMethod run = optimize(program);
+		Assert.assertEquals("method int A.run(%this:A, %n:int) {\n"
+				+ "L0:\n"
+				+ "\tprint -2147483648\n"
+				+ "\tprint 2147483647\n"
+				+ "\treturn -2147483648\n"
+				+ "}\n", IrPrinter.print(run));
+	}
+
+	@Test
+	public void testPruning() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST(program("int i; int s; i = 3;"
+				+ " while (i < 2) { System.out.println(i); i = i + 1; }"
+				+ " if (1 < 2) { s = n; } else { s = n * 2; System.out.println(s); } return s;")));
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		SsaBuilder.construct(run);
+		int before = ConstantPropagation.instructionCount(run);
+		int removed = ConstantPropagation.propagate(run);
+		Assert.assertEquals(before - ConstantPropagation.instructionCount(run), removed);
+		SsaTest.assertSsa(run);
+		for (BasicBlock b : run.getBlocks()) {
+			for (Instruction i : b.getInstructions()) {
+				Assert.assertFalse(i.toString(), i instanceof Print || i instanceof BinaryOp || i instanceof Phi);
+			}
+			Assert.assertFalse(b.getTerminator() instanceof Branch);
+		}
+		Assert.assertEquals("7\nterminated", SsaTest.run(null, program).trim().replace("\r", ""));
+	}
+
+	@Test
+	public void testLoopIsNotConstant() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST(program("int i; int c; i = 0; c = 5;"
+				+ " while (i < n) { i = i + 1; c = c * 1; } return i + c;")));
+		IrMethod run = optimize(program);
+		// c stays 5 around the loop, i does not
+		Assert.assertEquals(1, SsaTest.phiCount(run));
+		Assert.assertTrue(IrPrinter.print(run), IrPrinter.print(run).contains("add %i."));
+		Assert.assertTrue(IrPrinter.print(run), IrPrinter.print(run).contains(", 5\n"));
+		Assert.assertEquals("12\nterminated", SsaTest.run(null, program).trim().replace("\r", ""));
+	}
+
+	@Test
+	public void testDeadCode() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST(program("int i; int unused; int[] a; i = 0; unused = 0;"
+				+ " a = new int[n]; while (i < n) { unused = unused + i; i = i + 1; } return a.length;")));
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		SsaBuilder.construct(run);
+		ConstantPropagation.propagate(run);
+		// the phi, add and copy of unused only feed each other
+		Assert.assertEquals(3, DeadCodeElimination.eliminate(run));
+		SsaTest.assertSsa(run);
+		Assert.assertFalse(IrPrinter.print(run), IrPrinter.print(run).contains("%unused"));
+		Assert.assertEquals("7\nterminated", SsaTest.run(null, program).trim().replace("\r", ""));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRequiresSsa() throws Exception {
+		ConstantPropagation.propagate(SsaTest.lower(Main.parseToAST(program("return 1;"))));
+	}
+}
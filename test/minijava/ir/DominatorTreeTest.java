@@ -0,0 +1,157 @@
+package minijava.ir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DominatorTreeTest {
+
+	/**
+	 * The dominators by the textbook data flow equations
+	 */
+	private static BitSet[] naiveDominators(ControlFlowGraph cfg) {
+		int n = cfg.size();
+		BitSet[] dom = new BitSet[n];
+		for (int b = 0; b < n; b++) {
+			dom[b] = new BitSet();
+			if (b == 0) {
+				dom[b].set(0);
+			} else {
+				dom[b].set(0, n);
+			}
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b = 1; b < n; b++) {
+				BitSet next = new BitSet();
+				next.set(0, n);
+				for (int p : cfg.getPredecessors(b)) {
+					next.and(dom[p]);
+				}
+				next.set(b);
+				if (!next.equals(dom[b])) {
+					dom[b] = next;
+					changed = true;
+				}
+			}
+		}
+		return dom;
+	}
+
+	private static void check(IrMethod method) {
+		ControlFlowGraph cfg = new ControlFlowGraph(method);
+		DominatorTree tree = new DominatorTree(cfg);
+		BitSet[] dom = naiveDominators(cfg);
+		int n = cfg.size();
+		for (int b = 0; b < n; b++) {
+			for (int a = 0; a < n; a++) {
+				Assert.assertEquals(method + ": " + a + " dom " + b, dom[b].get(a), tree.dominates(a, b));
+			}
+			if (b > 0) {
+				BitSet strict = (BitSet) dom[b].clone();
+				strict.clear(b);
+				Assert.assertEquals(method.toString(), strict.length() - 1, tree.getIdom(b));
+			}
+		}
+		for (int a = 0; a < n; a++) {
+			BitSet frontier = new BitSet();
+			for (int b = 0; b < n; b++) {
+				for (int p : cfg.getPredecessors(b)) {
+					if (dom[p].get(a) && !(dom[b].get(a) && a != b)) {
+						frontier.set(b);
+					}
+				}
+			}
+			BitSet actual = new BitSet();
+			for (int b : tree.getFrontier(a)) {
+				Assert.assertFalse(method + ": duplicate in frontier", actual.get(b));
+				actual.set(b);
+			}
+			Assert.assertEquals(method + ": frontier of " + a, frontier, actual);
+		}
+	}
+
+	@Test
+	public void testAgainstDataFlow() throws Exception {
+		for (File file : new File("testdata/typechecker/ok").listFiles()) {
+			for (IrMethod method : SsaTest.lower(Main.parseToAST(file)).getMethods()) {
+				check(method);
+			}
+		}
+		for (IrMethod method : SsaTest.lower(Main.parseToAST(new ProgramGenerator(10, 2, 3, 4, 4, 3).generate()))
+				.getMethods()) {
+			check(method);
+		}
+	}
+
+	@Test
+	public void testReversePostorder() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST("class M { public static void main(String[] a) {"
+				+ " int i; while (i < 3) { if (i < 1 && 0 < i) i = i + 1; else i = i + 2; } } }"));
+		ControlFlowGraph cfg = new ControlFlowGraph(program.getMain());
+		Assert.assertEquals(program.getMain().getEntry(), cfg.getBlock(0));
+		Assert.assertEquals(program.getMain().getBlocks().size(), cfg.size());
+		DominatorTree tree = new DominatorTree(cfg);
+		for (int b = 1; b < cfg.size(); b++) {
+			Assert.assertTrue(tree.getIdom(b) < b);
+		}
+		int[] preorder = tree.preorder();
+		Assert.assertEquals(0, preorder[0]);
+		Assert.assertEquals(cfg.size(), preorder.length);
+	}
+
+	@Test
+	public void testUnreachableBlocks() throws Exception {
+		IrProgram program = SsaTest.lower(Main.parseToAST("class M { public static void main(String[] a) {"
+				+ " while (true) { System.out.println(1); } } }"));
+		IrMethod main = program.getMain();
+		ControlFlowGraph cfg = new ControlFlowGraph(main);
+		BasicBlock exit = main.getBlocks().get(main.getBlocks().size() - 1);
+		Assert.assertEquals(-1, cfg.indexOf(exit));
+		Assert.assertEquals(main.getBlocks().size() - 1, cfg.size());
+		check(main);
+	}
+
+	@Test(timeout = 20000)
+	public void testLargeMethod() throws Exception {
+		// the sequence of if statements is deeper than the Java stack allows
+		// for recursive traversals of the blocks
+		StringBuilder sb = new StringBuilder("class M { public static void main(String[] a) {"
+				+ " System.out.println(new A().run()); } }\nclass A { public int run() { int x; int i;\n");
+		for (int k = 0; k < 20000; k++) {
+			sb.append("if (x < ").append(k).append(" && 0 < i) x = x + 1; else x = x - 1;\n");
+		}
+		for (int k = 0; k < 200; k++) {
+			sb.append("while (i < ").append(k).append(") {\n");
+		}
+		sb.append("i = i + 1;\n");
+		for (int k = 0; k < 200; k++) {
+			sb.append("}\n");
+		}
+		sb.append("return x; } }\n");
+		IrMethod run = SsaTest.lower(Main.parseToAST(sb.toString())).getClasses().get(0).getMethods().get(0);
+		ControlFlowGraph cfg = new ControlFlowGraph(run);
+		DominatorTree tree = new DominatorTree(cfg);
+		int exit = cfg.size() - 1;
+		List<Integer> chain = new ArrayList<Integer>();
+		for (int b = exit; b >= 0; b = tree.getIdom(b)) {
+			chain.add(b);
+		}
+		// every if statement and every loop header is on the path to the end
+		Assert.assertTrue(chain.size() > 20200);
+		Assert.assertTrue(tree.dominates(0, exit));
+		int frontiers = 0;
+		for (int b = 0; b < cfg.size(); b++) {
+			frontiers += tree.getFrontier(b).length;
+		}
+		Assert.assertTrue(frontiers + " of " + cfg.size(), frontiers <= 2 * cfg.size());
+	}
+}
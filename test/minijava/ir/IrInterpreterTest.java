@@ -0,0 +1,103 @@
+package minijava.ir;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import minijava.interpreter.Interpreter;
+import minijava.interpreter.InterpreterTest.LimitedOutputStream;
+import minijava.interpreter.InterpreterTest.OutputLimitReached;
+import minijava.interpreter.MjRuntimeException;
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import de.unifr.proglang.testing.LabeledParameterized;
+import de.unifr.proglang.testing.LabeledParameterized.LabeledParameters;
+
+/**
+ * Lowers every well typed program of the test data to three-address code,
+ * runs it with the IR interpreter and compares its output with the AST
+ * interpreter.
+ */
+@RunWith(LabeledParameterized.class)
+public class IrInterpreterTest {
+
+	@Rule
+	public Timeout globalTimeout = new Timeout(10000);
+
+	/**
+	 * The program to lower.
+	 */
+	private final File inputFile;
+
+	/**
+	 * Create a new test case (to be called by JUnit, not by you)
+	 *
+	 * @param inputFile
+	 *            the program to lower
+	 */
+	public IrInterpreterTest(File inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	/**
+	 * @param ast
+	 *            a program
+	 * @param ir
+	 *            true to run it with the IR interpreter, false with the AST
+	 *            interpreter
+	 * @param out
+	 *            receives the output
+	 * @return how the program ended: "terminated", "runtime error" or
+	 *         "output limit reached"
+	 */
+	static String run(Start ast, boolean ir, PrintStream out) {
+		try {
+			if (ir) {
+				IrInterpreter.run(ast, out);
+			} else {
+				Interpreter.run(ast, out);
+			}
+			return "terminated";
+		} catch (MjRuntimeException e) {
+			return "runtime error";
+		} catch (OutputLimitReached e) {
+			return "output limit reached";
+		}
+	}
+
+	@Test
+	public void testSameOutputAsInterpreter() throws Exception {
+		Start ast = Main.parseToAST(inputFile);
+
+		LimitedOutputStream actual = new LimitedOutputStream();
+		String outcome = run(ast, true, new PrintStream(actual, true));
+
+		LimitedOutputStream expected = new LimitedOutputStream();
+		String expectedOutcome = run(ast, false, new PrintStream(expected, true));
+
+		Assert.assertEquals(expected.toString(), actual.toString());
+		Assert.assertEquals(inputFile.getName(), expectedOutcome, outcome);
+	}
+
+	@LabeledParameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> ctorParams = new ArrayList<Object[]>();
+		File[] files = new File("testdata/typechecker/ok").listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.isFile()) {
+					ctorParams.add(new Object[] { f.getName(), f });
+				}
+			}
+		}
+		return ctorParams;
+	}
+}
@@ -0,0 +1,97 @@
+package minijava.ir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import minijava.analysis.TypeChecker;
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IrLoweringTest {
+
+	private static IrProgram lower(String source) throws Exception {
+		return new IrLowering(TypeChecker.typecheckOrFail(Main.parseToAST(source))).lower();
+	}
+
+	private static String program(String main, String classes) {
+		return "class Main { public static void main(String[] args) { " + main + " } }\n" + classes;
+	}
+
+	@Test
+	public void testDump() throws Exception {
+		IrProgram program = lower(program("System.out.println(new A().run(3));",
+				"class A { int[] a; public int run(int n) { int i; boolean b; a = new int[n];"
+						+ " while (i < a.length && !b) { a[i] = i * 2; i = i + 1; }"
+						+ " return a[n - 1]; } }"));
+		Assert.assertEquals("class A {\n\tfield int[] a #0\n}\n", IrPrinter.print(program).substring(0, 30));
+		Assert.assertEquals("method int A.run(%this:A, %n:int) {\n"
+				+ "L0:\n"
+				+ "\t%i:int = copy 0\n"
+				+ "\t%b:boolean = copy false\n"
+				+ "\t%4:int[] = newarray %n\n"
+				+ "\tputfield %this, A.a, %4\n"
+				+ "\tjump L1\n"
+				+ "L1:\n"
+				+ "\t%5:int[] = getfield %this, A.a\n"
+				+ "\t%6:int = length %5\n"
+				+ "\t%7:boolean = lt %i, %6\n"
+				+ "\tbranch %7, L2, L4\n"
+				+ "L2:\n"
+				+ "\tbranch %b, L4, L3\n"
+				+ "L3:\n"
+				+ "\t%8:int[] = getfield %this, A.a\n"
+				+ "\t%9:int = mul %i, 2\n"
+				+ "\tastore %8, %i, %9\n"
+				+ "\t%10:int = add %i, 1\n"
+				+ "\t%i:int = copy %10\n"
+				+ "\tjump L1\n"
+				+ "L4:\n"
+				+ "\t%11:int[] = getfield %this, A.a\n"
+				+ "\t%12:int = sub %n, 1\n"
+				+ "\t%13:int = aload %11, %12\n"
+				+ "\treturn %13\n"
+				+ "}\n", IrPrinter.print(program.getClasses().get(0).getMethods().get(0)));
+	}
+
+	@Test
+	public void testInheritedFieldSlots() throws Exception {
+		IrProgram program = lower(program("System.out.println(new B().get());",
+				"class B extends A { int y; public int get() { x = 1; y = 2; return x + y; } }"
+						+ " class A { int x; }"));
+		IrClass b = program.getClasses().get(0);
+		Assert.assertEquals("A", b.getSuperClass().getName());
+		Assert.assertEquals(2, b.getFieldCount());
+		Assert.assertEquals(1, b.getDeclaredFields().get(0).getSlot());
+		Assert.assertEquals(0, b.getSuperClass().getDeclaredFields().get(0).getSlot());
+	}
+
+	@Test
+	public void testRuntimeErrors() throws Exception {
+		String[] programs = {
+				program("System.out.println(new A().nothing().get());",
+						"class A { public A nothing() { A a; return a; } public int get() { return 1; } }"),
+				program("System.out.println(new A().get());",
+						"class A { public int get() { int[] a; a = new int[2]; System.out.println(1); a[2] = 1;"
+								+ " return 0; } }"),
+				program("System.out.println(new A().get());",
+						"class A { public int get() { int[] a; a = new int[0 - 1]; return 0; } }"),
+				program("System.out.println(new A().get());",
+						"class A { A next; public int get() { next.next = this.print(); return 0; }"
+								+ " public A print() { System.out.println(7); return this; } }"),
+				program("System.out.println(new A().get(1));",
+						"class A { public int get(int n) { return this.get(n + 1); } }"), };
+		for (String source : programs) {
+			Start ast = Main.parseToAST(source);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			String expectedOutcome = IrInterpreterTest.run(ast, false, new PrintStream(expected, true));
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			Assert.assertEquals(source, expectedOutcome, IrInterpreterTest.run(ast, true, new PrintStream(actual,
+					true)));
+			Assert.assertEquals(source, "runtime error", expectedOutcome);
+			Assert.assertEquals(source, expected.toString(), actual.toString());
+		}
+	}
+}
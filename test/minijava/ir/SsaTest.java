@@ -0,0 +1,300 @@
+package minijava.ir;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import minijava.analysis.TypeChecker;
+import minijava.generator.ProgramGenerator;
+import minijava.interpreter.Interpreter;
+import minijava.interpreter.InterpreterTest.LimitedOutputStream;
+import minijava.interpreter.InterpreterTest.OutputLimitReached;
+import minijava.interpreter.MjRuntimeException;
+import minijava.main.Main;
+import minijava.node.Start;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SsaTest {
+
+	/**
+	 * Lower a type correct program to the IR
+	 */
+	static IrProgram lower(Start ast) {
+		return new IrLowering(TypeChecker.typecheckOrFail(ast)).lower();
+	}
+
+	private static String program(String main, String classes) {
+		return "class Main { public static void main(String[] args) { " + main + " } }\n" + classes;
+	}
+
+	/**
+	 * Run a program with the IR interpreter, or with the AST interpreter if
+	 * it is null
+	 */
+	static String run(Start ast, IrProgram program) {
+		LimitedOutputStream out = new LimitedOutputStream();
+		PrintStream print = new PrintStream(out, true);
+		String outcome;
+		try {
+			if (program == null) {
+				Interpreter.run(ast, print);
+			} else {
+				new IrInterpreter(program, print).run();
+			}
+			outcome = "terminated";
+		} catch (MjRuntimeException e) {
+			outcome = "runtime error";
+		} catch (OutputLimitReached e) {
+			outcome = "output limit reached";
+		}
+		return out + outcome;
+	}
+
+	/**
+	 * Check that every temporary is written once, that its write dominates
+	 * its reads and that the phis match the predecessors
+	 */
+	static void assertSsa(IrMethod method) {
+		Assert.assertTrue(method.isSsa());
+		ControlFlowGraph cfg = new ControlFlowGraph(method);
+		DominatorTree tree = new DominatorTree(cfg);
+		Assert.assertEquals(method.getBlocks().size(), cfg.size());
+		IdentityHashMap<Temp, int[]> defs = new IdentityHashMap<Temp, int[]>();
+		if (method.getThis() != null) {
+			defs.put(method.getThis(), new int[] { 0, -1 });
+		}
+		for (Temp param : method.getParams()) {
+			defs.put(param, new int[] { 0, -1 });
+		}
+		for (int b = 0; b < cfg.size(); b++) {
+			List<Instruction> instructions = cfg.getBlock(b).getInstructions();
+			for (int k = 0; k < instructions.size(); k++) {
+				Temp dest = instructions.get(k).getDest();
+				if (dest != null) {
+					Assert.assertNull(method + ": " + dest + " written twice", defs.put(dest, new int[] { b, k }));
+				}
+			}
+		}
+		for (int b = 0; b < cfg.size(); b++) {
+			BasicBlock block = cfg.getBlock(b);
+			List<Instruction> instructions = block.getInstructions();
+			boolean phis = true;
+			for (int k = 0; k <= instructions.size(); k++) {
+				Instruction i = k < instructions.size() ? instructions.get(k) : block.getTerminator();
+				if (i instanceof Phi) {
+					Assert.assertTrue(method + ": phi after other instructions", phis);
+					int[] preds = cfg.getPredecessors(b).clone();
+					int[] incoming = new int[i.getOperandCount()];
+					for (int j = 0; j < incoming.length; j++) {
+						incoming[j] = cfg.indexOf(((Phi) i).getIncoming(j));
+					}
+					Arrays.sort(preds);
+					Arrays.sort(incoming);
+					Assert.assertArrayEquals(method + ": " + i, preds, incoming);
+				} else {
+					phis = false;
+				}
+				for (int j = 0; j < i.getOperandCount(); j++) {
+					if (!(i.getOperand(j) instanceof Temp)) {
+						continue;
+					}
+					int[] def = defs.get(i.getOperand(j));
+					Assert.assertNotNull(method + ": " + i + " reads an unwritten temporary", def);
+					if (i instanceof Phi) {
+						int pred = cfg.indexOf(((Phi) i).getIncoming(j));
+						Assert.assertTrue(method + ": " + i, tree.dominates(def[0], pred));
+					} else if (def[0] == b) {
+						Assert.assertTrue(method + ": " + i + " reads before the write", def[1] < k);
+					} else {
+						Assert.assertTrue(method + ": " + i, tree.dominates(def[0], b));
+					}
+				}
+			}
+		}
+	}
+
+	static int phiCount(IrMethod method) {
+		int phis = 0;
+		for (BasicBlock b : method.getBlocks()) {
+			for (Instruction i : b.getInstructions()) {
+				if (i instanceof Phi) {
+					phis++;
+				}
+			}
+		}
+		return phis;
+	}
+
+	/**
+	 * Replace the reads of every copied temporary by the original, which
+	 * makes versions of a variable live at the same time
+	 */
+	private static void propagateCopies(IrMethod method) {
+		IdentityHashMap<Temp, Temp> copied = new IdentityHashMap<Temp, Temp>();
+		for (BasicBlock b : method.getBlocks()) {
+			List<Instruction> kept = new ArrayList<Instruction>();
+			for (Instruction i : b.getInstructions()) {
+				if (i instanceof Copy && i.getOperand(0) instanceof Temp) {
+					copied.put(i.getDest(), (Temp) i.getOperand(0));
+				} else {
+					kept.add(i);
+				}
+			}
+			b.getInstructions().clear();
+			b.getInstructions().addAll(kept);
+		}
+		for (BasicBlock b : method.getBlocks()) {
+			List<Instruction> all = new ArrayList<Instruction>(b.getInstructions());
+			all.add(b.getTerminator());
+			for (Instruction i : all) {
+				for (int j = 0; j < i.getOperandCount(); j++) {
+					Value v = i.getOperand(j);
+					while (copied.containsKey(v)) {
+						v = copied.get(v);
+					}
+					i.setOperand(j, v);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTestdata() throws Exception {
+		for (File file : new File("testdata/typechecker/ok").listFiles()) {
+			Start ast = Main.parseToAST(file);
+			String expected = run(ast, null);
+			IrProgram program = lower(ast);
+			SsaBuilder.construct(program);
+			for (IrMethod m : program.getMethods()) {
+				assertSsa(m);
+			}
+			Assert.assertEquals(file.getName(), expected, run(ast, program));
+			SsaDestructor.destruct(program);
+			for (IrMethod m : program.getMethods()) {
+				Assert.assertFalse(m.isSsa());
+				Assert.assertEquals(0, phiCount(m));
+			}
+			Assert.assertEquals(file.getName(), expected, run(ast, program));
+		}
+	}
+
+	@Test
+	public void testCopyPropagatedTestdata() throws Exception {
+		for (File file : new File("testdata/typechecker/ok").listFiles()) {
+			Start ast = Main.parseToAST(file);
+			String expected = run(ast, null);
+			IrProgram program = lower(ast);
+			SsaBuilder.construct(program);
+			for (IrMethod m : program.getMethods()) {
+				propagateCopies(m);
+				assertSsa(m);
+			}
+			Assert.assertEquals(file.getName(), expected, run(ast, program));
+			SsaDestructor.destruct(program);
+			Assert.assertEquals(file.getName(), expected, run(ast, program));
+		}
+	}
+
+	@Test
+	public void testGenerated() throws Exception {
+		IrProgram program = lower(Main.parseToAST(new ProgramGenerator(10, 2, 3, 4, 4, 3).generate()));
+		SsaBuilder.construct(program);
+		for (IrMethod m : program.getMethods()) {
+			assertSsa(m);
+			SsaDestructor.destruct(m);
+			Assert.assertEquals(0, phiCount(m));
+		}
+	}
+
+	@Test
+	public void testLoop() throws Exception {
+		IrProgram program = lower(Main.parseToAST(program("System.out.println(new A().run(10));",
+				"class A { public int run(int n) { int i; int s; while (i < n) { s = s + i; i = i + 1; }"
+						+ " return s; } }")));
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		Assert.assertEquals(2, SsaBuilder.construct(run));
+		Assert.assertEquals("method int A.run(%this:A, %n:int) {\n"
+				+ "L0:\n"
+				+ "\t%i.7:int = copy 0\n"
+				+ "\t%s.8:int = copy 0\n"
+				+ "\tjump L1\n"
+				+ "L1:\n"
+				+ "\t%s.9:int = phi [%s.8, L0], [%s.11, L2]\n"
+				+ "\t%i.10:int = phi [%i.7, L0], [%i.12, L2]\n"
+				+ "\t%4:boolean = lt %i.10, %n\n"
+				+ "\tbranch %4, L2, L3\n"
+				+ "L2:\n"
+				+ "\t%5:int = add %s.9, %i.10\n"
+				+ "\t%s.11:int = copy %5\n"
+				+ "\t%6:int = add %i.10, 1\n"
+				+ "\t%i.12:int = copy %6\n"
+				+ "\tjump L1\n"
+				+ "L3:\n"
+				+ "\treturn %s.9\n"
+				+ "}\n", IrPrinter.print(run));
+		// every version of a variable shares one temporary again
+		Assert.assertEquals(0, SsaDestructor.destruct(run));
+		Assert.assertEquals("45\nterminated", run(null, program).trim().replace("\r", ""));
+	}
+
+	@Test
+	public void testSwap() throws Exception {
+		// after copy propagation the phis of a and b read each other
+		Start ast = Main.parseToAST(program("System.out.println(new A().run(5));",
+				"class A { public int run(int n) { int a; int b; int t; a = 1; b = 2;"
+						+ " while (0 < n) { t = a; a = b; b = t; n = n - 1; System.out.println(a); }"
+						+ " return b; } }"));
+		String expected = run(ast, null);
+		IrProgram program = lower(ast);
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		SsaBuilder.construct(run);
+		propagateCopies(run);
+		assertSsa(run);
+		Assert.assertTrue(SsaDestructor.destruct(run) > 0);
+		Assert.assertEquals(expected, run(ast, program));
+	}
+
+	@Test
+	public void testLostCopy() throws Exception {
+		// after copy propagation the old version of x is read after the loop
+		Start ast = Main.parseToAST(program("System.out.println(new A().run(5));",
+				"class A { public int run(int n) { int x; int y; x = 1;"
+						+ " while (x < n) { y = x; x = x + 1; } return y; } }"));
+		String expected = run(ast, null);
+		IrProgram program = lower(ast);
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		SsaBuilder.construct(run);
+		propagateCopies(run);
+		assertSsa(run);
+		SsaDestructor.destruct(run);
+		Assert.assertEquals(expected, run(ast, program));
+	}
+
+	@Test(timeout = 20000)
+	public void testLargeMethod() throws Exception {
+		// one web of 20000 versions of x, coalesced in one walk
+		StringBuilder body = new StringBuilder("int x; int y; x = 0; y = 0;");
+		for (int i = 0; i < 20000; i++) {
+			body.append(" if (x < ").append(i).append(") { x = x + y; } else { y = y + 1; }");
+		}
+		body.append(" return x;");
+		IrProgram program = lower(Main.parseToAST(program("System.out.println(new A().run());",
+				"class A { public int run() { " + body + " } }")));
+		IrMethod run = program.getClasses().get(0).getMethods().get(0);
+		Assert.assertEquals(40000, SsaBuilder.construct(run));
+		Assert.assertEquals(0, SsaDestructor.destruct(run));
+		Assert.assertEquals(0, phiCount(run));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testConstructTwice() throws Exception {
+		IrProgram program = lower(Main.parseToAST(program("System.out.println(1);", "")));
+		SsaBuilder.construct(program);
+		SsaBuilder.construct(program);
+	}
+}
@@ -0,0 +1,36 @@
+package minijava.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchCompilerTest {
+
+	@Test
+	public void testCompileDirectories() throws Exception {
+		List<File> ok = BatchCompiler.collectFiles(Arrays.asList("testdata/typechecker/ok"));
+		List<File> error = BatchCompiler.collectFiles(Arrays.asList("testdata/typechecker/error"));
+		List<File> all = BatchCompiler.collectFiles(Arrays.asList("testdata/typechecker/ok", "testdata/typechecker/error"));
+		Assert.assertEquals(ok.size() + error.size(), all.size());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int failed = new BatchCompiler(new PrintStream(bytes), 4).compile(all);
+		Assert.assertEquals(error.size(), failed);
+
+		String[] lines = bytes.toString().split("\n");
+		Assert.assertEquals(all.size() + 1, lines.length);
+		Assert.assertTrue(lines[0].startsWith(all.get(0).toString() + ": "));
+		Assert.assertTrue(lines[all.size()].contains("files/s"));
+	}
+
+	@Test
+	public void testSingleFile() {
+		BatchCompiler.Result result = BatchCompiler.compile(new File("testdata/typechecker/ok/Factorial.java"));
+		Assert.assertTrue(result.getStatus(), result.isOk());
+	}
+}
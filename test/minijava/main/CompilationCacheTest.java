@@ -0,0 +1,160 @@
+package minijava.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import minijava.node.Start;
+import minijava.printer.AstPrinter;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompilationCacheTest {
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testHitAndMiss() throws Exception {
+		CompilationCache cache = new CompilationCache(folder.getRoot(), "test", Long.MAX_VALUE, DAY);
+		String key = cache.key("check", new SourceReader("class A {}"));
+		Assert.assertNull(cache.get(key));
+
+		cache.put(key, new CompilationCache.Entry(false, 3, Arrays.asList("Error in line 1: x", "1 errors.")));
+		CompilationCache.Entry entry = cache.get(key);
+		Assert.assertFalse(entry.isOk());
+		Assert.assertEquals(3, entry.getLines());
+		Assert.assertEquals(Arrays.asList("Error in line 1: x", "1 errors."), entry.getMessages());
+
+		Assert.assertNull(cache.getAst(key));
+		Start ast = Main.parseToAST("class Main { public static void main(String[] a) { System.out.println(1); }}");
+		cache.putAst(key, ast);
+		Assert.assertEquals(AstPrinter.print(ast), AstPrinter.print(cache.getAst(key)));
+
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+		Assert.assertEquals(0.5, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void testKeys() throws IOException {
+		CompilationCache cache = new CompilationCache(folder.getRoot(), "test", Long.MAX_VALUE, DAY);
+		CompilationCache other = new CompilationCache(folder.getRoot(), "other", Long.MAX_VALUE, DAY);
+		SourceReader source = new SourceReader("class A {}");
+		Assert.assertEquals(cache.key("check", source), cache.key("check", new SourceReader("class A {}")));
+		Assert.assertNotEquals(cache.key("check", source), cache.key("check", new SourceReader("class B {}")));
+		Assert.assertNotEquals(cache.key("check", source), cache.key("batch", source));
+		Assert.assertNotEquals(cache.key("check", source), other.key("check", source));
+	}
+
+	@Test
+	public void testStamp() throws IOException {
+		File build = folder.newFolder("build");
+		File classes = new File(build, "minijava/main");
+		Assert.assertTrue(classes.mkdirs());
+		Files.write(new File(classes, "Main.class").toPath(), new byte[] { 1, 2, 3 });
+		Files.write(new File(build, "minijava/parser.dat").toPath(), new byte[] { 4 });
+		String stamp = CompilationCache.stamp(build);
+		Assert.assertEquals(stamp, CompilationCache.stamp(build));
+		Assert.assertNotEquals("minijava-" + CompilationCache.FORMAT_VERSION, stamp);
+
+		// a rebuilt type checker or parser table changes the stamp
+		Files.write(new File(classes, "Main.class").toPath(), new byte[] { 1, 2, 4 });
+		String rebuilt = CompilationCache.stamp(build);
+		Assert.assertNotEquals(stamp, rebuilt);
+		Files.write(new File(build, "minijava/parser.dat").toPath(), new byte[] { 5 });
+		Assert.assertNotEquals(rebuilt, CompilationCache.stamp(build));
+
+		// the tests run from a class directory as well
+		Assert.assertNotEquals("minijava-" + CompilationCache.FORMAT_VERSION, CompilationCache.defaultStamp());
+	}
+
+	@Test
+	public void testOtherStampMisses() throws IOException {
+		SourceReader source = new SourceReader("class A {}");
+		CompilationCache old = new CompilationCache(folder.getRoot(), "old build", Long.MAX_VALUE, DAY);
+		old.put(old.key("check", source), new CompilationCache.Entry(true, 1, Arrays.asList("OK")));
+		Assert.assertNotNull(old.get(old.key("check", source)));
+
+		CompilationCache rebuilt = new CompilationCache(folder.getRoot(), "new build", Long.MAX_VALUE, DAY);
+		Assert.assertNull(rebuilt.get(rebuilt.key("check", source)));
+		Assert.assertEquals(1, rebuilt.getMisses());
+	}
+
+	@Test
+	public void testEvictBySize() throws IOException {
+		CompilationCache cache = new CompilationCache(folder.getRoot(), "test", 150, DAY);
+		List<String> messages = Arrays.asList(new String(new char[40]).replace('\0', 'x'));
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 4; i++) {
+			cache.put("k" + i, new CompilationCache.Entry(true, 1, messages));
+			new File(folder.getRoot(), "k" + i + ".verdict").setLastModified(now - (10 - i) * 1000);
+		}
+		// k0 is the least recently used entry unless it is read again
+		Assert.assertNotNull(cache.get("k0"));
+		cache.evict();
+
+		Assert.assertNotNull(cache.get("k0"));
+		Assert.assertNull(cache.get("k1"));
+		Assert.assertNull(cache.get("k2"));
+		Assert.assertNotNull(cache.get("k3"));
+		Assert.assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	public void testEvictByAge() throws IOException {
+		CompilationCache cache = new CompilationCache(folder.getRoot(), "test", Long.MAX_VALUE, DAY);
+		List<String> messages = Arrays.asList("OK");
+		cache.put("old", new CompilationCache.Entry(true, 1, messages));
+		cache.put("new", new CompilationCache.Entry(true, 1, messages));
+		new File(folder.getRoot(), "old.verdict").setLastModified(System.currentTimeMillis() - 2 * DAY);
+		cache.evict();
+
+		Assert.assertNull(cache.get("old"));
+		Assert.assertNotNull(cache.get("new"));
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		List<File> files = BatchCompiler.collectFiles(Arrays.asList("testdata/typechecker/ok",
+				"testdata/typechecker/error"));
+		CompilationCache first = new CompilationCache(folder.getRoot(), "test", Long.MAX_VALUE, DAY);
+		ByteArrayOutputStream uncached = new ByteArrayOutputStream();
+		int failed = new BatchCompiler(new PrintStream(uncached), 2, first).compile(files);
+		Assert.assertEquals(0, first.getHits());
+		Assert.assertEquals(files.size(), first.getStores());
+
+		CompilationCache second = new CompilationCache(folder.getRoot(), "test", Long.MAX_VALUE, DAY);
+		ByteArrayOutputStream cached = new ByteArrayOutputStream();
+		Assert.assertEquals(failed, new BatchCompiler(new PrintStream(cached), 2, second).compile(files));
+		Assert.assertEquals(files.size(), second.getHits());
+		Assert.assertEquals(0, second.getMisses());
+		Assert.assertEquals(withoutSummary(uncached.toString()), withoutSummary(cached.toString()));
+	}
+
+	private static String withoutSummary(String output) {
+		return output.substring(0, output.lastIndexOf('\n', output.length() - 2));
+	}
+
+	@Test
+	public void testOptions() throws IOException {
+		List<String> args = new ArrayList<String>(Arrays.asList("--cache-dir",
+				folder.getRoot().getPath(), "--cache-max-mb", "1", "--check", "A.java"));
+		Assert.assertNotNull(Main.openCache(args));
+		Assert.assertEquals(Arrays.asList("--check", "A.java"), args);
+
+		args = new ArrayList<String>(Arrays.asList("--check", "A.java"));
+		Assert.assertNull(Main.openCache(args));
+		Assert.assertEquals(2, args.size());
+	}
+}
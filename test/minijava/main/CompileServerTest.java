@@ -0,0 +1,149 @@
+package minijava.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompileServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CompileServer server;
+
+	private Thread serving;
+
+	@Before
+	public void start() throws Exception {
+		server = new CompileServer(0, null);
+		serving = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				server.serve();
+			}
+		});
+		serving.start();
+	}
+
+	@After
+	public void stop() throws Exception {
+		server.stop();
+		serving.join(10000);
+	}
+
+	private String send(int expectedStatus, String... request) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		List<String> paths = CompileClient.absolutePaths(Arrays.asList(request));
+		Assert.assertEquals(expectedStatus, CompileClient.send(server.getPort(), paths, out));
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	public void testCheck() throws Exception {
+		for (String name : Arrays.asList("testdata/typechecker/ok/Factorial.java",
+				"testdata/typechecker/error/AndTest.java")) {
+			ByteArrayOutputStream local = new ByteArrayOutputStream();
+			int status = Main.check(new File(name), null, new PrintStream(local, true, "UTF-8"));
+			Assert.assertEquals(local.toString("UTF-8"), send(status, "check", name));
+		}
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		String output = send(2, "batch", "testdata/typechecker/ok", "testdata/typechecker/error");
+		Assert.assertTrue(output, output.contains("Factorial.java: OK"));
+		Assert.assertTrue(output, output.contains("files/s"));
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		Assert.assertTrue(send(2, "check", "does/not/exist.java").startsWith("IO error: "));
+		Assert.assertTrue(send(1, "frobnicate").startsWith("Unknown request: "));
+		Assert.assertEquals("pong\n", send(0, "ping"));
+	}
+
+	@Test(timeout = 10000)
+	public void testIdleConnection() throws Exception {
+		server.setRequestTimeout(200);
+		try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			InputStream in = idle.getInputStream();
+			for (int c = in.read(); c != -1; c = in.read()) {
+				response.write(c);
+			}
+			Assert.assertEquals("status 1\nNo request within 200 ms\n", response.toString("UTF-8"));
+		}
+		Assert.assertEquals("pong\n", send(0, "ping"));
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		CompilationCache cache = new CompilationCache(folder.getRoot(), "test", 0, Long.MAX_VALUE);
+		CompileServer cached = new CompileServer(0, cache);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			List<String> request = Arrays.asList("check", "testdata/typechecker/ok/Factorial.java");
+			cached.execute(request, new PrintStream(out, true, "UTF-8"));
+			// the entry stored by the check exceeds the size of 0 bytes
+			Assert.assertEquals(1, cache.getStores());
+			Assert.assertEquals(1, cache.getEvictions());
+			Assert.assertEquals(0, folder.getRoot().list().length);
+		} finally {
+			cached.stop();
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testDefaultPort() throws Exception {
+		try (ServerSocket probe = new ServerSocket(CompileServer.DEFAULT_PORT, 1, InetAddress.getLoopbackAddress())) {
+			// the port is free
+		} catch (IOException e) {
+			Assume.assumeNoException(e);
+		}
+		String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+		Process daemon = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				Main.class.getName(), "--daemon").redirectErrorStream(true).start();
+		try {
+			List<String> ping = Arrays.asList("ping");
+			while (true) {
+				try {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					Assert.assertEquals(0, CompileClient.send(CompileServer.DEFAULT_PORT, ping, out));
+					Assert.assertEquals("pong\n", out.toString("UTF-8"));
+					break;
+				} catch (ConnectException e) {
+					// still warming up
+					Assert.assertTrue("the daemon exited", daemon.isAlive());
+					Thread.sleep(100);
+				}
+			}
+			CompileClient.send(CompileServer.DEFAULT_PORT, Arrays.asList("stop"), new ByteArrayOutputStream());
+			Assert.assertEquals(0, daemon.waitFor());
+		} finally {
+			daemon.destroy();
+		}
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		send(0, "stop");
+		serving.join(10000);
+		Assert.assertFalse(serving.isAlive());
+	}
+}
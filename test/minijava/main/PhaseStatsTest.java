@@ -0,0 +1,38 @@
+package minijava.main;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PhaseStatsTest {
+
+	@Test
+	public void testAllPhasesMeasured() throws Exception {
+		PhaseStats stats = PhaseStats.measure(new File("testdata/typechecker/ok/BinaryTree.java"));
+		String[] names = { PhaseStats.READ, PhaseStats.LEX, PhaseStats.PARSE, PhaseStats.POSTCHECK,
+				PhaseStats.NAME_ANALYSIS, PhaseStats.TYPE_CHECK };
+		Assert.assertEquals(names.length, stats.getPhases().size());
+		for (int i = 0; i < names.length; i++) {
+			PhaseStats.Phase phase = stats.getPhases().get(i);
+			Assert.assertEquals(names[i], phase.getName());
+			Assert.assertTrue(phase.getNanos() >= 0);
+		}
+		Assert.assertTrue(stats.getPhase(PhaseStats.LEX).getNodes() > 0);
+		Assert.assertTrue(stats.getPhase(PhaseStats.PARSE).getNodes() > 0);
+		Assert.assertTrue(stats.getPhase(PhaseStats.TYPE_CHECK).getNodes() > 0);
+		Assert.assertTrue(stats.getPhase(PhaseStats.PARSE).getAllocatedBytes() != 0);
+	}
+
+	@Test
+	public void testReports() throws Exception {
+		PhaseStats stats = PhaseStats.measure(new File("testdata/typechecker/ok/Factorial.java"));
+		String json = stats.toJson();
+		Assert.assertTrue(json.startsWith("{\"file\":\""));
+		Assert.assertTrue(json.contains("{\"name\":\"type check\",\"nanos\":"));
+		Assert.assertTrue(json.endsWith("]}"));
+		String[] lines = stats.toText().split("\n");
+		Assert.assertEquals(1 + stats.getPhases().size() + 1, lines.length);
+		Assert.assertTrue(lines[lines.length - 1].startsWith("total"));
+	}
+}
@@ -0,0 +1,41 @@
+package minijava.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import minijava.node.Start;
+import minijava.printer.AstPrinter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SourceReaderTest {
+
+	@Test
+	public void testReadAndUnread() throws IOException {
+		SourceReader reader = new SourceReader("ab");
+		Assert.assertEquals('a', reader.read());
+		Assert.assertEquals('b', reader.read());
+		Assert.assertEquals(-1, reader.read());
+		reader.unread('b');
+		reader.unread('a');
+		Assert.assertEquals('a', reader.read());
+		Assert.assertEquals('b', reader.read());
+		Assert.assertEquals(-1, reader.read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnreadBeforeStart() throws IOException {
+		new SourceReader("ab").unread('a');
+	}
+
+	@Test
+	public void testSameAstAsString() throws Exception {
+		File file = new File("testdata/parser/ok/BinaryTree.java");
+		Start fromFile = Main.parseToAST(file);
+		String text = new String(Files.readAllBytes(file.toPath()));
+		Start fromString = Main.parseToAST(text);
+		Assert.assertEquals(AstPrinter.print(fromString), AstPrinter.print(fromFile));
+	}
+}
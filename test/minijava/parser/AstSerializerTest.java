@@ -0,0 +1,112 @@
+package minijava.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import minijava.analysis.DepthFirstAdapter;
+import minijava.generator.ProgramGenerator;
+import minijava.main.Main;
+import minijava.node.Node;
+import minijava.node.Start;
+import minijava.node.Token;
+import minijava.printer.AstPrinter;
+import minijava.printer.AstSerializer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AstSerializerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * @param ast
+	 *            an AST
+	 * @return the class and line of every node and the text and position of
+	 *         every token, in preorder
+	 */
+	private static List<String> describe(Start ast) {
+		final List<String> nodes = new ArrayList<String>();
+		ast.apply(new DepthFirstAdapter() {
+			@Override
+			public void defaultIn(Node node) {
+				nodes.add(node.getClass().getSimpleName() + "@" + node.getLine());
+			}
+
+			@Override
+			public void defaultCase(Node node) {
+				Token token = (Token) node;
+				nodes.add(token.getText() + "@" + token.getLine() + ":" + token.getPos());
+			}
+		});
+		return nodes;
+	}
+
+	private static Start roundTrip(Start ast) throws IOException {
+		return AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(ast)));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (String dir : Arrays.asList("testdata/typechecker/ok", "testdata/parser/ok")) {
+			for (File file : new File(dir).listFiles()) {
+				Start ast = Main.parseToAST(file);
+				Start copy = roundTrip(ast);
+				Assert.assertEquals(file.toString(), AstPrinter.print(ast), AstPrinter.print(copy));
+				Assert.assertEquals(file.toString(), describe(ast), describe(copy));
+			}
+		}
+	}
+
+	@Test
+	public void testAllAlternatives() throws Exception {
+		String input = "class Main { public static void main(String[] args) {\n"
+				+ "  int[] a; boolean b; A o;\n"
+				+ "  a = new int[3]; a[0] = 1 + 2 - 3 * 4; b = !(1 < 2) && true; b = false;\n"
+				+ "  if (b) { o = new A(); } else o = this.o;\n"
+				+ "  while (b) System.out.println(-a.length);\n"
+				+ "}}\n"
+				+ "class A extends B { int x; public int f(int y, A z) { return z.f(y, this); } }\n"
+				+ "class B { }\n";
+		Start ast = Main.parseToAST(input);
+		Start copy = roundTrip(ast);
+		Assert.assertEquals(AstPrinter.print(ast), AstPrinter.print(copy));
+		Assert.assertEquals(describe(ast), describe(copy));
+	}
+
+	@Test
+	public void testMappedFile() throws Exception {
+		Start ast = Main.parseToAST(new ProgramGenerator(20, 3, 4, 8, 3, 4).generate());
+		File file = folder.newFile("program.ast");
+		Files.write(file.toPath(), AstSerializer.serialize(ast));
+		Assert.assertEquals(describe(ast), describe(AstSerializer.deserialize(file)));
+	}
+
+	@Test
+	public void testCorruptInput() throws Exception {
+		byte[] bytes = AstSerializer.serialize(Main.parseToAST(new File("testdata/typechecker/ok/Factorial.java")));
+		for (int length : new int[] { 0, 3, 10, bytes.length / 2, bytes.length - 1 }) {
+			try {
+				AstSerializer.deserialize(ByteBuffer.wrap(bytes, 0, length));
+				Assert.fail("read a truncated AST of " + length + " bytes");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+		bytes[0]++;
+		try {
+			AstSerializer.deserialize(ByteBuffer.wrap(bytes));
+			Assert.fail("read an AST with a wrong magic number");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -1,6 +1,14 @@
 package minijava.parser;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import minijava.generator.ProgramGenerator;
 import minijava.main.Main;
+import minijava.node.AProgram;
+import minijava.node.Node;
 import minijava.node.Start;
 import minijava.printer.AstPrinter;
 
@@ -71,4 +79,33 @@ public class ParserAstTests {
 		Assert.assertTrue(printed.contains("x = ((((3 * 4) + 5) < 2) && (1 < 3))"));
 	}
 
+	@Test
+	public void streamingPrint() throws Exception {
+		Start ast = Main.parseToAST(new ProgramGenerator(50, 3, 4, 8, 3, 4).generate());
+		AProgram program = (AProgram) ast.getPProgram();
+		for (Node node : Arrays.<Node> asList(ast, program.getDecls().getFirst(), program.getDecls().getLast())) {
+			StringWriter out = new StringWriter();
+			AstPrinter.print(node, out);
+			Assert.assertEquals(AstPrinter.print(node), out.toString());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void streamingPrintError() throws Exception {
+		Start ast = Main.parseToAST("class Main { public static void main(String[] args) { }}");
+		AstPrinter.print(ast, new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+	}
 }
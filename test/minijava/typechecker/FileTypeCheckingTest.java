@@ -5,8 +5,12 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PushbackReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -20,12 +24,18 @@ import de.unifr.proglang.testing.LabeledParameterized.LabeledParameters;
 import minijava.lexer.Lexer;
 import minijava.lexer.LexerException;
 import minijava.main.Main;
+import minijava.node.PExp;
 import minijava.node.Start;
 import minijava.parser.Parser;
 import minijava.parser.ParserException;
 import minijava.postchecking.CustomParserException;
+import minijava.printer.AstSerializer;
+import minijava.analysis.Diagnostic;
+import minijava.analysis.FusedAnalyser;
+import minijava.analysis.MjAnalysis;
 import minijava.analysis.TypeChecker;
 import minijava.analysis.TypeCheckingExpcetion;
+import minijava.analysis.types.MjType;
 
 /**
  * <p>
@@ -49,6 +59,11 @@ public class FileTypeCheckingTest {
 	
 	@Rule
     public Timeout globalTimeout = new Timeout(1000);
+
+	/**
+	 * The pool of {@link #testParallel()}
+	 */
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
 	
 	/**
 	 * The text file to parse.
@@ -117,6 +132,124 @@ public class FileTypeCheckingTest {
 	}
 
 
+	/**
+	 * Collecting all errors must reject exactly the files that
+	 * {@link TypeChecker#typecheckOrFail} rejects.
+	 * 
+	 * @throws IOException
+	 *             if file IO goes wrong
+	 */
+	@Test
+	public void testCollectErrors() throws IOException {
+		Start ast;
+		try {
+			ast = Main.parseToAST(inputFile);
+		} catch (ParserException | CustomParserException | LexerException e) {
+			return;
+		}
+		List<Diagnostic> errors = TypeChecker.collectErrors(ast);
+		Assert.assertEquals(inputFile.getName() + ": " + errors, welltypedMeansTestPasses, errors.isEmpty());
+	}
+
+
+	/**
+	 * Checking an AST that went through the {@link AstSerializer} must report
+	 * the same errors, with the same lines, as checking the parsed AST.
+	 * 
+	 * @throws IOException
+	 *             if file IO goes wrong
+	 */
+	@Test
+	public void testSerializedAst() throws IOException {
+		Start ast;
+		try {
+			ast = Main.parseToAST(inputFile);
+		} catch (ParserException | CustomParserException | LexerException e) {
+			return;
+		}
+		Start copy = AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(ast)));
+		Assert.assertEquals(TypeChecker.collectErrors(ast).toString(), TypeChecker.collectErrors(copy).toString());
+	}
+
+
+	/**
+	 * The {@link FusedAnalyser} must reject exactly the files that
+	 * {@link TypeChecker#typecheckOrFail} rejects, and compute the same types.
+	 * 
+	 * @throws IOException
+	 *             if file IO goes wrong
+	 */
+	@Test
+	public void testFusedAnalyser() throws IOException {
+		Start ast;
+		try {
+			ast = Main.parseToAST(inputFile);
+		} catch (ParserException | CustomParserException | LexerException e) {
+			return;
+		}
+		MjAnalysis fused;
+		try {
+			fused = TypeChecker.typecheckFusedOrFail(ast);
+		} catch (TypeCheckingExpcetion e) {
+			Assert.assertFalse(inputFile.getName() + ": fused analysis rejected it, should accept it.\n" + e,
+					welltypedMeansTestPasses);
+			return;
+		}
+		Assert.assertTrue(inputFile.getName() + ": fused analysis accepted it, should reject it",
+				welltypedMeansTestPasses);
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		for (Map.Entry<PExp, MjType> entry : analysis.getTypeAnalysis().getTypeCache().entrySet()) {
+			Assert.assertEquals(inputFile.getName() + ": " + entry.getKey(), entry.getValue().toString(),
+					fused.getTypeAnalysis().getType(entry.getKey()).toString());
+		}
+	}
+
+
+	/**
+	 * Checking the methods in parallel must give the same verdict and the same
+	 * errors in the same order as the sequential check.
+	 * 
+	 * @throws IOException
+	 *             if file IO goes wrong
+	 */
+	@Test
+	public void testParallel() throws IOException {
+		Start ast;
+		try {
+			ast = Main.parseToAST(inputFile);
+		} catch (ParserException | CustomParserException | LexerException e) {
+			return;
+		}
+		Assert.assertEquals(inputFile.getName(), TypeChecker.collectErrors(ast).toString(),
+				TypeChecker.collectErrors(ast, POOL).toString());
+
+		String sequential = null;
+		MjAnalysis sequentialAnalysis = null;
+		try {
+			sequentialAnalysis = TypeChecker.typecheckOrFail(ast);
+		} catch (TypeCheckingExpcetion e) {
+			sequential = e.getMessage();
+		}
+		String parallel = null;
+		MjAnalysis parallelAnalysis = null;
+		try {
+			parallelAnalysis = TypeChecker.typecheckOrFail(ast, POOL);
+		} catch (TypeCheckingExpcetion e) {
+			parallel = e.getMessage();
+		}
+		Assert.assertEquals(inputFile.getName(), sequential, parallel);
+		if (sequentialAnalysis != null) {
+			Map<PExp, MjType> types = parallelAnalysis.getTypeAnalysis().getTypeCache();
+			Assert.assertEquals(inputFile.getName(), sequentialAnalysis.getTypeAnalysis().getTypeCache().size(),
+					types.size());
+			for (Map.Entry<PExp, MjType> entry : sequentialAnalysis.getTypeAnalysis().getTypeCache().entrySet()) {
+				Assert.assertEquals(inputFile.getName() + ": " + entry.getKey(), entry.getValue().toString(),
+						types.get(entry.getKey()).toString());
+			}
+		}
+	}
+
+
 	/**
 	 * For {@link Parameterized}, create a list of constructor argument arrays.
 	 * In this case, we turn all the files in testdata-ok into positive and all
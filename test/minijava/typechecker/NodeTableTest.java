@@ -0,0 +1,98 @@
+package minijava.typechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import minijava.analysis.MjAnalyser;
+import minijava.analysis.MjAnalysis;
+import minijava.analysis.NodeIds;
+import minijava.analysis.NodeTable;
+import minijava.analysis.TypeChecker;
+import minijava.analysis.types.MjType;
+import minijava.lexer.LexerException;
+import minijava.main.Main;
+import minijava.node.AAssignStmt;
+import minijava.node.AIdentifierExp;
+import minijava.node.AMainClass;
+import minijava.node.AProgram;
+import minijava.node.Node;
+import minijava.node.PExp;
+import minijava.node.Start;
+import minijava.parser.ParserException;
+import minijava.postchecking.CustomParserException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NodeTableTest {
+
+	@Test
+	public void testNumbering() throws ParserException, LexerException, IOException {
+		Start ast = Main.parseToAST("class Main { public static void main(String[] args) { int x; x = 5; }}");
+		NodeIds ids = new NodeIds(ast);
+
+		Assert.assertEquals(0, ids.id(ast));
+		Assert.assertSame(ast.getPProgram(), ids.node(1));
+		for (int id = 0; id < ids.size(); id++) {
+			Assert.assertEquals(id, ids.id(ids.node(id)));
+		}
+		AMainClass main = (AMainClass) ((AProgram) ast.getPProgram()).getMain();
+		AAssignStmt assign = (AAssignStmt) main.getStms().get(0);
+		AIdentifierExp lhs = (AIdentifierExp) assign.getLhs();
+		Assert.assertTrue(ids.id(lhs.getName()) > ids.id(lhs));
+		Assert.assertTrue(ids.id(assign.getRhs()) > ids.id(lhs.getName()));
+		Assert.assertEquals(-1, ids.id(ast.getEOF()));
+	}
+
+	@Test
+	public void testTable() throws ParserException, LexerException, IOException {
+		Start ast = Main.parseToAST("class Main { public static void main(String[] args) { int x; x = 5; }}");
+		NodeIds ids = new NodeIds(ast);
+		NodeTable<Node, String> table = new NodeTable<Node, String>(ids);
+		AProgram program = (AProgram) ast.getPProgram();
+
+		Assert.assertNull(table.put(program, "program"));
+		Assert.assertNull(table.put(ast, "start"));
+		Assert.assertEquals("program", table.put(program, "PROGRAM"));
+		Assert.assertEquals(2, table.size());
+		Assert.assertEquals("PROGRAM", table.get(program));
+		Assert.assertNull(table.get(program.getMain()));
+		Assert.assertNull(table.get("program"));
+
+		Iterator<Map.Entry<Node, String>> entries = table.entrySet().iterator();
+		Assert.assertSame(ast, entries.next().getKey());
+		Assert.assertSame(program, entries.next().getKey());
+		Assert.assertFalse(entries.hasNext());
+
+		Assert.assertEquals("start", table.remove(ast));
+		Assert.assertEquals(1, table.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnnumberedKey() throws ParserException, LexerException, IOException {
+		Start ast = Main.parseToAST("class Main { public static void main(String[] args) { }}");
+		new NodeTable<Node, String>(new NodeIds(ast)).put(ast.getEOF(), "eof");
+	}
+
+	@Test
+	public void testSameResultsAsIdentityMaps() throws ParserException, LexerException, CustomParserException,
+			IOException {
+		Start ast = Main.parseToAST(new File("testdata/typechecker/ok/TreeVisitor.java"));
+		MjAnalysis expected = TypeChecker.typecheckOrFail(ast);
+		MjAnalyser actual = new MjAnalyser((AProgram) ast.getPProgram(), new NodeIds(ast));
+		actual.checkProgram();
+
+		Map<PExp, MjType> types = actual.getTypeAnalysis().getTypeCache();
+		Assert.assertEquals(expected.getTypeAnalysis().getTypeCache().size(), types.size());
+		for (Map.Entry<PExp, MjType> entry : expected.getTypeAnalysis().getTypeCache().entrySet()) {
+			Assert.assertEquals(entry.getValue().toString(), types.get(entry.getKey()).toString());
+			if (entry.getKey() instanceof AIdentifierExp) {
+				AIdentifierExp id = (AIdentifierExp) entry.getKey();
+				Assert.assertSame(expected.getNameAnalysis().lookupVar(id.getName()),
+						actual.getNameAnalysis().lookupVar(id.getName()));
+			}
+		}
+	}
+}
@@ -5,10 +5,14 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import minijava.analysis.DepthFirstAdapter;
+import minijava.analysis.Diagnostic;
 import minijava.analysis.MjAnalysis;
+import minijava.analysis.NameAnalysis;
 import minijava.analysis.TypeChecker;
+import minijava.analysis.TypeCheckingExpcetion;
 import minijava.analysis.types.MjType;
 import minijava.lexer.LexerException;
 import minijava.main.Main;
@@ -73,6 +77,37 @@ public class TypecheckerTest {
 	}
 	
 	
+	@Test
+	public void testInheritedField() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { }} \n"
+				+ "class A { int x; int y; } \n"
+				+ "class B extends A { int y; public int foo() { x = y; return 1; }}";
+		Start ast = Main.parseToAST(input);
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		
+		AIdentifierExp left = (AIdentifierExp) selectNode(ast.getPProgram(), "getDecls", 1, "getMethods", 0, "getStmts", 0, "getLhs");
+		AIdentifierExp right = (AIdentifierExp) selectNode(ast.getPProgram(), "getDecls", 1, "getMethods", 0, "getStmts", 0, "getRhs");
+		ATypedVar field_A_x = (ATypedVar) selectNode(ast.getPProgram(),  "getDecls", 0, "getFields", 0);
+		ATypedVar field_B_y = (ATypedVar) selectNode(ast.getPProgram(),  "getDecls", 1, "getFields", 0);
+		
+		Assert.assertEquals(field_A_x, analysis.getNameAnalysis().lookupVar(left.getName()));
+		Assert.assertEquals(field_B_y, analysis.getNameAnalysis().lookupVar(right.getName()));
+	}
+	
+	@Test
+	public void testParamShadowsField() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { }} \n"
+				+ "class A { int x; public int foo(int x) { return x; }}";
+		Start ast = Main.parseToAST(input);
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		
+		AIdentifierExp ret = (AIdentifierExp) selectNode(ast.getPProgram(), "getDecls", 0, "getMethods", 0, "getRetExp");
+		ATypedVar param_x = (ATypedVar) selectNode(ast.getPProgram(),  "getDecls", 0, "getMethods", 0, "getFormalParams", 0);
+		
+		Assert.assertEquals(param_x, analysis.getNameAnalysis().lookupVar(ret.getName()));
+	}
+	
+	
 	@Test
 	public void testGetField() throws ParserException, LexerException, IOException {
 		String input = "class Main { public static void main(String[] args) { A a; int x; a = new A(); x = a.x;  }} \n"
@@ -102,6 +137,34 @@ public class TypecheckerTest {
 		Assert.assertEquals(method_foo, decl);
 	}
 	
+	@Test
+	public void testFusedInheritedMethod() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { A a; int x; a = new B(); x = a.foo(1);  }} \n"
+				+ "class A { public int foo(int p) { return p; } } \n"
+				+ "class B extends A { int y; public int bar() { y = this.foo(2); return y; } }";
+		Start ast = Main.parseToAST(input);
+		MjAnalysis analysis = TypeChecker.typecheckFusedOrFail(ast);
+		
+		AMethodCallExp call = (AMethodCallExp) selectNode(ast.getPProgram(), "getMain", "getStms", 1, "getRhs");
+		AMethodCallExp inherited = (AMethodCallExp) selectNode(ast.getPProgram(), "getDecls", 1, "getMethods", 0, "getStmts", 0, "getRhs");
+		AMethodDecl method_foo = (AMethodDecl) selectNode(ast.getPProgram(),  "getDecls", 0, "getMethods", 0);
+		ATypedVar field_y = (ATypedVar) selectNode(ast.getPProgram(),  "getDecls", 1, "getFields", 0);
+		AIdentifierExp ret = (AIdentifierExp) selectNode(ast.getPProgram(), "getDecls", 1, "getMethods", 0, "getRetExp");
+		
+		Assert.assertEquals(method_foo, analysis.getNameAnalysis().getMethod(call));
+		Assert.assertEquals(method_foo, analysis.getNameAnalysis().getMethod(inherited));
+		Assert.assertEquals(field_y, analysis.getNameAnalysis().lookupVar(ret.getName()));
+		Assert.assertEquals("int", analysis.getTypeAnalysis().getType(call).toString());
+		Assert.assertEquals("B", analysis.getTypeAnalysis().getType(inherited.getObj()).toString());
+	}
+	
+	@Test(expected = TypeCheckingExpcetion.class)
+	public void testFusedRejectsWrongArgument() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { System.out.println(new A().foo(true)); }} \n"
+				+ "class A { public int foo(int p) { return p; } }";
+		TypeChecker.typecheckFusedOrFail(Main.parseToAST(input));
+	}
+	
 	@Test
 	public void testGetNearestClass() throws ParserException, LexerException, IOException {
 		String input = "class Main { public static void main(String[] args) {  }} \n"
@@ -144,6 +207,35 @@ public class TypecheckerTest {
 		Assert.assertEquals(classA, analysis.getNameAnalysis().getSuperClass(classB));
 	}
 	
+	@Test
+	public void testIsSubclassOf() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) {  }} \n"
+				+ "class D extends B { } \n"
+				+ "class A { } \n"
+				+ "class B extends A { } \n"
+				+ "class C extends A { } \n"
+				+ "class E { }";
+		Start ast = Main.parseToAST(input);
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		
+		AClassDecl classD = (AClassDecl) selectNode(ast.getPProgram(), "getDecls", 0);
+		AClassDecl classA = (AClassDecl) selectNode(ast.getPProgram(), "getDecls", 1);
+		AClassDecl classB = (AClassDecl) selectNode(ast.getPProgram(), "getDecls", 2);
+		AClassDecl classC = (AClassDecl) selectNode(ast.getPProgram(), "getDecls", 3);
+		AClassDecl classE = (AClassDecl) selectNode(ast.getPProgram(), "getDecls", 4);
+		NameAnalysis names = analysis.getNameAnalysis();
+		
+		Assert.assertTrue(names.isSubclassOf(classD, classD));
+		Assert.assertTrue(names.isSubclassOf(classD, classB));
+		Assert.assertTrue(names.isSubclassOf(classD, classA));
+		Assert.assertTrue(names.isSubclassOf(classC, classA));
+		Assert.assertFalse(names.isSubclassOf(classA, classD));
+		Assert.assertFalse(names.isSubclassOf(classD, classC));
+		Assert.assertFalse(names.isSubclassOf(classC, classB));
+		Assert.assertFalse(names.isSubclassOf(classE, classA));
+		Assert.assertFalse(names.isSubclassOf(classA, classE));
+	}
+	
 	@Test
 	public void testLookupClass() throws ParserException, LexerException, IOException {
 		String input = "class Main { public static void main(String[] args) { A a; B b; }} \n"
@@ -195,6 +287,75 @@ public class TypecheckerTest {
 	}
 	
 	
+	@Test
+	public void testTypeCache() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { int x; x = 1 + 2 * 3; }}";
+		Start ast = Main.parseToAST(input);
+		MjAnalysis analysis = TypeChecker.typecheckOrFail(ast);
+		
+		PExp exp = (PExp) selectNode(ast.getPProgram(),  "getMain", "getStms", 0, "getRhs");
+		PExp mult = (PExp) selectNode(exp, "getRight");
+		
+		Assert.assertTrue(analysis.getTypeAnalysis().getTypeCache().containsKey(exp));
+		Assert.assertTrue(analysis.getTypeAnalysis().getTypeCache().containsKey(mult));
+		long hits = analysis.getTypeAnalysis().getCacheHits();
+		long misses = analysis.getTypeAnalysis().getCacheMisses();
+		Assert.assertSame(analysis.getTypeAnalysis().getTypeCache().get(exp), analysis.getTypeAnalysis().getType(exp));
+		Assert.assertEquals(hits + 1, analysis.getTypeAnalysis().getCacheHits());
+		Assert.assertEquals(misses, analysis.getTypeAnalysis().getCacheMisses());
+	}
+	
+	
+	@Test
+	public void testCollectErrors() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { int x; boolean b; A a; \n"
+				+ "x = y + 1; \n"
+				+ "b = 1; \n"
+				+ "a = new A(); x = a.foo(); \n"
+				+ "System.out.println(b); }} \n"
+				+ "class A { C c; \n"
+				+ "public int bar() { return true; } }";
+		Start ast = Main.parseToAST(input);
+		List<Diagnostic> errors = TypeChecker.collectErrors(ast);
+
+		// name and type errors are merged in source order
+		Assert.assertEquals(errors.toString(), 6, errors.size());
+		Assert.assertEquals("No suitable variable declaration for 'y' found.", errors.get(0).getMsg());
+		Assert.assertEquals("RHS in the assignment should have type boolean but has type int.", errors.get(1).getMsg());
+		Assert.assertEquals("No suitable method declaration for 'foo' found.", errors.get(2).getMsg());
+		Assert.assertEquals("Invalid parameter for System.out.println", errors.get(3).getMsg());
+		Assert.assertEquals("No suitable class declaration for 'C ' found.", errors.get(4).getMsg());
+		Assert.assertEquals("The return expression should have type int but has type boolean.", errors.get(5).getMsg());
+		for (int i = 0; i < errors.size(); i++) {
+			Assert.assertEquals(errors.toString(), i + 2, errors.get(i).getBlame().getLine());
+		}
+	}
+
+	@Test
+	public void testParallelCollectErrors() throws ParserException, LexerException, IOException {
+		StringBuilder input = new StringBuilder("class Main { public static void main(String[] args) { }} \n");
+		for (int i = 0; i < 20; i++) {
+			input.append("class A").append(i).append(" { public int foo() { return true; } public boolean bar() { return 1; } }\n");
+		}
+		Start ast = Main.parseToAST(input.toString());
+		List<Diagnostic> sequential = TypeChecker.collectErrors(ast);
+		List<Diagnostic> parallel = TypeChecker.collectErrors(ast, new ForkJoinPool(4));
+
+		Assert.assertEquals(40, parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			Assert.assertSame(sequential.get(i).getBlame(), parallel.get(i).getBlame());
+			Assert.assertEquals(sequential.get(i).getMsg(), parallel.get(i).getMsg());
+		}
+	}
+
+	@Test
+	public void testCollectErrorsOfCorrectProgram() throws ParserException, LexerException, IOException {
+		String input = "class Main { public static void main(String[] args) { System.out.println(new A().foo()); }} \n"
+				+ "class A { public int foo() { return 1; } }";
+		Assert.assertTrue(TypeChecker.collectErrors(Main.parseToAST(input)).isEmpty());
+	}
+
+
 	/**
 	 * Selects an AST node based on some selector names
 	 * @param start         the node to start from
@@ -0,0 +1,14 @@
+class Main {
+    public static void main(String[] a) {
+        System.out.println(new A().foo());
+    }
+}
+
+class A extends B {
+    public int foo() {
+        return x;
+    }
+}
+
+class B extends A {
+}
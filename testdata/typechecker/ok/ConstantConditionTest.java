@@ -0,0 +1,41 @@
+class ConstantConditionTest {
+    public static void main(String[] a) {
+        System.out.println(new C().run(3));
+    }
+}
+
+class C {
+    boolean f;
+    boolean g;
+
+    public int run(int n) {
+        int r;
+        f = true && true;
+        g = 1 < 2;
+        r = 0;
+        if (f) {
+            r = r + 1;
+        } else {
+            r = r + 10;
+        }
+        if (g) {
+            r = r + 100;
+        } else {
+            r = r + 1000;
+        }
+        r = r + this.value(false && f, n);
+        r = r + this.value(true && true, n);
+        r = r + this.value(n < 2 && false, n);
+        return r;
+    }
+
+    public int value(boolean b, int n) {
+        int v;
+        if (b) {
+            v = n;
+        } else {
+            v = 0 - n;
+        }
+        return v;
+    }
+}